@@ -38,9 +38,18 @@ resolve_sdk() {
   return 1
 }
 
+BENCH_MAIN=""
+if [[ "${1:-}" == "--sim-bench" ]]; then
+  BENCH_MAIN="uhf.sim.SimBench"
+  shift
+elif [[ "${1:-}" == "--codec-bench" ]]; then
+  BENCH_MAIN="uhf.sim.CodecBench"
+  shift
+fi
+
 SDK_JAR="$(resolve_sdk || true)"
 
-if [[ -z "${SDK_JAR}" || ! -f "${SDK_JAR}" ]]; then
+if [[ -z "$BENCH_MAIN" && ( -z "${SDK_JAR}" || ! -f "${SDK_JAR}" ) ]]; then
   echo "SDK topilmadi."
   echo "CReader.jar ni repo ichiga qo'ying: $ROOT_DIR/lib/CReader.jar"
   echo "Yoki SDK_JAR=/path/to/CReader.jar ./UhfTuiLinux/run.sh"
@@ -126,6 +135,12 @@ OUT_DIR="$APP_DIR/out"
 mkdir -p "$OUT_DIR"
 
 rm -rf "$OUT_DIR"/*
+if [[ -n "$BENCH_MAIN" ]]; then
+  # Simulator + ERP pipeline only: no vendor SDK needed.
+  find "$APP_DIR/src/uhf/core" "$APP_DIR/src/uhf/erp" "$APP_DIR/src/uhf/sim" -name "*.java" > "$OUT_DIR/sources.txt"
+  "$JAVAC_BIN" -encoding UTF-8 -d "$OUT_DIR" @"$OUT_DIR/sources.txt"
+  exec "$JAVA_BIN" -cp "$OUT_DIR" "$BENCH_MAIN" "$@"
+fi
 find "$APP_DIR/src" -name "*.java" > "$OUT_DIR/sources.txt"
 "$JAVAC_BIN" -encoding UTF-8 -cp "$SDK_JAR" -d "$OUT_DIR" @"$OUT_DIR/sources.txt"
 
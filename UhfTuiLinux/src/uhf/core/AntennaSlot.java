@@ -0,0 +1,9 @@
+package uhf.core;
+
+public record AntennaSlot(
+    int antenna,
+    int dwellMs,
+    int power,
+    int session,
+    int qValue
+) {}
@@ -0,0 +1,65 @@
+package uhf.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+public final class EpcPrefixTrie {
+  private final int[] next;
+  private final int[] rule;
+  private final int nodes;
+
+  private EpcPrefixTrie(int[] next, int[] rule, int nodes) {
+    this.next = next;
+    this.rule = rule;
+    this.nodes = nodes;
+  }
+
+  public static EpcPrefixTrie compile(List<String> prefixes) {
+    int cap = 1;
+    for (String p : prefixes) cap += p.length();
+    int[] next = new int[cap * 16];
+    int[] rule = new int[cap];
+    Arrays.fill(next, -1);
+    Arrays.fill(rule, -1);
+    int nodes = 1;
+    for (int r = 0; r < prefixes.size(); r++) {
+      String p = prefixes.get(r).toUpperCase(Locale.ROOT);
+      int node = 0;
+      for (int i = 0; i < p.length(); i++) {
+        int n = nibble(p.charAt(i));
+        if (n < 0) throw new IllegalArgumentException("not hex: " + prefixes.get(r));
+        int slot = node * 16 + n;
+        if (next[slot] < 0) next[slot] = nodes++;
+        node = next[slot];
+      }
+      rule[node] = r;
+    }
+    return new EpcPrefixTrie(next, rule, nodes);
+  }
+
+  public int match(String epc) {
+    if (epc == null) return -1;
+    int node = 0;
+    int best = rule[0];
+    for (int i = 0; i < epc.length(); i++) {
+      int n = nibble(epc.charAt(i));
+      if (n < 0) break;
+      node = next[node * 16 + n];
+      if (node < 0) break;
+      if (rule[node] >= 0) best = rule[node];
+    }
+    return best;
+  }
+
+  public int nodeCount() {
+    return nodes;
+  }
+
+  private static int nibble(char c) {
+    if (c >= '0' && c <= '9') return c - '0';
+    if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+    if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+    return -1;
+  }
+}
@@ -0,0 +1,3 @@
+package uhf.core;
+
+public record EpcRule(String prefix, String output, int mask, int holdMs, int debounceMs) {}
@@ -0,0 +1,9 @@
+package uhf.core;
+
+public record GpioTriggerRule(
+    int bit,
+    boolean rising,
+    boolean falling,
+    String action,
+    int windowMs
+) {}
@@ -0,0 +1,105 @@
+package uhf.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class Histogram {
+  private final long[] bounds;
+  private final AtomicLongArray counts;
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  public Histogram(long... bounds) {
+    this.bounds = bounds == null ? new long[0] : bounds.clone();
+    this.counts = new AtomicLongArray(this.bounds.length + 1);
+  }
+
+  public static Histogram latencyMs() {
+    return new Histogram(1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000);
+  }
+
+  public static Histogram sizes() {
+    return new Histogram(1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 5000);
+  }
+
+  public void record(long value) {
+    long v = Math.max(0, value);
+    int i = 0;
+    while (i < bounds.length && v > bounds[i]) i++;
+    counts.incrementAndGet(i);
+    count.incrementAndGet();
+    sum.addAndGet(v);
+    long m = max.get();
+    while (v > m && !max.compareAndSet(m, v)) m = max.get();
+  }
+
+  public long count() {
+    return count.get();
+  }
+
+  public long sum() {
+    return sum.get();
+  }
+
+  public long max() {
+    return max.get();
+  }
+
+  public long mean() {
+    long c = count.get();
+    return c == 0 ? 0 : sum.get() / c;
+  }
+
+  public long percentile(double p) {
+    long c = count.get();
+    if (c == 0) return 0;
+    long target = (long) Math.ceil(Math.max(0, Math.min(1, p)) * c);
+    long seen = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      seen += counts.get(i);
+      if (seen >= Math.max(1, target)) {
+        return i < bounds.length ? Math.min(bounds[i], max.get()) : max.get();
+      }
+    }
+    return max.get();
+  }
+
+  public long[] bounds() {
+    return bounds.clone();
+  }
+
+  public long[] counts() {
+    long[] out = new long[counts.length()];
+    for (int i = 0; i < out.length; i++) out[i] = counts.get(i);
+    return out;
+  }
+
+  public void reset() {
+    for (int i = 0; i < counts.length(); i++) counts.set(i, 0);
+    count.set(0);
+    sum.set(0);
+    max.set(0);
+  }
+
+  public String summary() {
+    return "n=" + count() + " avg=" + mean() + " p50=" + percentile(0.5) + " p95=" + percentile(0.95)
+        + " p99=" + percentile(0.99) + " max=" + max();
+  }
+
+  public String buckets() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < counts.length(); i++) {
+      long c = counts.get(i);
+      if (c == 0) continue;
+      if (sb.length() > 0) sb.append(' ');
+      if (i < bounds.length) {
+        sb.append("<=").append(bounds[i]);
+      } else {
+        sb.append(bounds.length == 0 ? "all" : ">" + bounds[bounds.length - 1]);
+      }
+      sb.append(':').append(c);
+    }
+    return sb.length() == 0 ? "-" : sb.toString();
+  }
+}
@@ -0,0 +1,49 @@
+package uhf.core;
+
+import java.util.List;
+
+public record InventorySnapshot(
+    long id,
+    String readerId,
+    long startedAt,
+    long durationMs,
+    long reads,
+    List<Tag> tags,
+    Result result,
+    boolean cancelled
+) {
+  public record Tag(String epc, int count, int bestRssi, int bestAnt) {}
+
+  public int unique() {
+    return tags.size();
+  }
+
+  public String toJson() {
+    StringBuilder sb = new StringBuilder(128 + tags.size() * 64);
+    sb.append("{\"ok\":").append(result.ok() && !cancelled)
+        .append(",\"id\":").append(id)
+        .append(",\"reader\":\"").append(escape(readerId))
+        .append("\",\"startedAt\":").append(startedAt)
+        .append(",\"durationMs\":").append(durationMs)
+        .append(",\"reads\":").append(reads)
+        .append(",\"unique\":").append(tags.size());
+    if (!result.ok()) sb.append(",\"code\":").append(result.code());
+    if (cancelled) sb.append(",\"cancelled\":true");
+    sb.append(",\"tags\":[");
+    for (int i = 0; i < tags.size(); i++) {
+      Tag t = tags.get(i);
+      if (i > 0) sb.append(',');
+      sb.append("{\"epc\":\"").append(escape(t.epc()))
+          .append("\",\"count\":").append(t.count())
+          .append(",\"rssi\":").append(t.bestRssi())
+          .append(",\"ant\":").append(t.bestAnt())
+          .append('}');
+    }
+    sb.append("]}");
+    return sb.toString();
+  }
+
+  private static String escape(String s) {
+    return s == null ? "" : s.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+}
@@ -0,0 +1,122 @@
+package uhf.core;
+
+import java.util.Arrays;
+
+public final class ReturnLossMap {
+  public static final int UNMEASURED = -1;
+
+  private final int[] antennas;
+  private final int[] freqKhz;
+  private final byte[] lossDb;
+  private final int[] failures;
+  private final long startedAt = System.currentTimeMillis();
+  private volatile long finishedAt;
+
+  public ReturnLossMap(int[] antennas, int[] freqKhz) {
+    this.antennas = antennas.clone();
+    this.freqKhz = freqKhz.clone();
+    this.lossDb = new byte[antennas.length * freqKhz.length];
+    this.failures = new int[antennas.length];
+    Arrays.fill(lossDb, (byte) 0xFF);
+  }
+
+  public int antennaCount() {
+    return antennas.length;
+  }
+
+  public int channelCount() {
+    return freqKhz.length;
+  }
+
+  public int antenna(int row) {
+    return antennas[row];
+  }
+
+  public int freqKhz(int ch) {
+    return freqKhz[ch];
+  }
+
+  public long startedAt() {
+    return startedAt;
+  }
+
+  public long finishedAt() {
+    return finishedAt;
+  }
+
+  public void finish() {
+    finishedAt = System.currentTimeMillis();
+  }
+
+  public void set(int row, int ch, int db) {
+    lossDb[row * freqKhz.length + ch] = (byte) Math.max(0, Math.min(254, db));
+  }
+
+  public void fail(int row) {
+    failures[row]++;
+  }
+
+  public int failures(int row) {
+    return failures[row];
+  }
+
+  public int get(int row, int ch) {
+    int v = lossDb[row * freqKhz.length + ch] & 0xFF;
+    return v == 0xFF ? UNMEASURED : v;
+  }
+
+  public int worstChannel(int row) {
+    int worst = -1;
+    for (int ch = 0; ch < freqKhz.length; ch++) {
+      int v = get(row, ch);
+      if (v != UNMEASURED && (worst < 0 || v < get(row, worst))) worst = ch;
+    }
+    return worst;
+  }
+
+  public double mean(int row) {
+    long sum = 0;
+    int n = 0;
+    for (int ch = 0; ch < freqKhz.length; ch++) {
+      int v = get(row, ch);
+      if (v == UNMEASURED) continue;
+      sum += v;
+      n++;
+    }
+    return n == 0 ? UNMEASURED : (double) sum / n;
+  }
+
+  public static double vswr(int returnLossDb) {
+    double gamma = Math.pow(10, -returnLossDb / 20.0);
+    return gamma >= 1 ? Double.POSITIVE_INFINITY : (1 + gamma) / (1 - gamma);
+  }
+
+  public String toJson(String readerId, int band) {
+    StringBuilder sb = new StringBuilder(128 + lossDb.length * 4);
+    sb.append("{\"reader\":\"").append(readerId == null ? "" : readerId.replace("\\", "\\\\").replace("\"", "\\\""))
+        .append("\",\"band\":").append(band)
+        .append(",\"startedAt\":").append(startedAt)
+        .append(",\"finishedAt\":").append(finishedAt)
+        .append(",\"freqKhz\":").append(Arrays.toString(freqKhz).replace(" ", ""))
+        .append(",\"antennas\":[");
+    for (int row = 0; row < antennas.length; row++) {
+      if (row > 0) sb.append(',');
+      sb.append("{\"antenna\":").append(antennas[row]).append(",\"lossDb\":[");
+      for (int ch = 0; ch < freqKhz.length; ch++) {
+        if (ch > 0) sb.append(',');
+        int v = get(row, ch);
+        sb.append(v == UNMEASURED ? "null" : String.valueOf(v));
+      }
+      sb.append(']');
+      int w = worstChannel(row);
+      if (w >= 0) {
+        sb.append(",\"worst\":{\"freqKhz\":").append(freqKhz[w]).append(",\"lossDb\":").append(get(row, w))
+            .append(",\"vswr\":").append(String.format(java.util.Locale.US, "%.2f", Math.min(99.99, vswr(get(row, w)))))
+            .append('}');
+      }
+      sb.append(",\"failures\":").append(failures[row]).append('}');
+    }
+    sb.append("]}");
+    return sb.toString();
+  }
+}
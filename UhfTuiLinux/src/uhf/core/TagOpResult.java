@@ -0,0 +1,7 @@
+package uhf.core;
+
+public record TagOpResult(Result result, int attempts, long elapsedMs, int writePower, boolean verified) {
+  public boolean ok() {
+    return result.ok();
+  }
+}
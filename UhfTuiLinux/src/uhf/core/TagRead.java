@@ -5,6 +5,7 @@ public record TagRead(
     String epcId,
     String memId,
     int rssi,
-    int antId
+    int antId,
+    String readerId
 ) {}
 
@@ -0,0 +1,17 @@
+package uhf.core;
+
+public interface TagSource {
+  String id();
+
+  boolean isConnected();
+
+  boolean isInventoryRunning();
+
+  int getAntennaCount();
+
+  Result startInventory();
+
+  Result stopInventory();
+
+  Result disconnect();
+}
@@ -20,6 +20,7 @@ public final class ErpAgentRegistrar {
   private volatile long lastOkAt = 0;
   private volatile long lastErrAt = 0;
   private volatile String lastErrMsg = "";
+  private final ErpMetrics metrics = new ErpMetrics();
 
   public ErpAgentRegistrar(ErpConfig cfg, Supplier<List<String>> uiUrls) {
     this.cfg = cfg == null ? new ErpConfig() : cfg;
@@ -50,6 +51,10 @@ public final class ErpAgentRegistrar {
     return lastErrMsg == null ? "" : lastErrMsg;
   }
 
+  public ErpMetrics metrics() {
+    return metrics;
+  }
+
   private boolean enabled() {
     if (cfg == null) return false;
     if (safe(cfg.baseUrl).isEmpty()) return false;
@@ -114,12 +119,20 @@ public final class ErpAgentRegistrar {
     if (!secret.isEmpty()) conn.setRequestProperty("x-rfidenter-token", secret);
     byte[] body = payload.getBytes(StandardCharsets.UTF_8);
     conn.setFixedLengthStreamingMode(body.length);
-    try (OutputStream out = conn.getOutputStream()) {
-      out.write(body);
-    }
-    int code = conn.getResponseCode();
-    if (code < 200 || code >= 300) {
-      throw new RuntimeException("Agent register HTTP " + code);
+    long start = System.nanoTime();
+    boolean ok = false;
+    try {
+      try (OutputStream out = conn.getOutputStream()) {
+        out.write(body);
+      }
+      int code = conn.getResponseCode();
+      if (code < 200 || code >= 300) {
+        throw new RuntimeException("Agent register HTTP " + code);
+      }
+      ok = true;
+    } finally {
+      long ms = (System.nanoTime() - start) / 1_000_000L;
+      metrics.onRequest(ms, body.length, Math.max(0, conn.getContentLengthLong()), ok);
     }
   }
 
@@ -27,6 +27,8 @@ public final class ErpConfig {
   public int maxBatch = 200;
   public int maxQueue = 5000;
   public int heartbeatMs = 3000;
+  public int dedupeMs = 0;
+  public String payloadFormat = ErpPayloadCodec.FORMAT_JSON;
 
   public static ErpConfig load(Path file) {
     ErpConfig cfg = new ErpConfig();
@@ -46,7 +48,9 @@ public final class ErpConfig {
       cfg.maxBatch = parseInt(p.getProperty("maxBatch"), cfg.maxBatch);
       cfg.maxQueue = parseInt(p.getProperty("maxQueue"), cfg.maxQueue);
       cfg.heartbeatMs = parseInt(p.getProperty("heartbeatMs"), cfg.heartbeatMs);
+      cfg.dedupeMs = parseInt(p.getProperty("dedupeMs"), cfg.dedupeMs);
       cfg.agentIntervalMs = parseInt(p.getProperty("agentIntervalMs"), cfg.agentIntervalMs);
+      cfg.payloadFormat = ErpPayloadCodec.normalizeFormat(p.getProperty("payloadFormat", cfg.payloadFormat));
     } catch (IOException ignored) {
     }
     return cfg;
@@ -67,7 +71,9 @@ public final class ErpConfig {
     p.setProperty("maxBatch", String.valueOf(maxBatch));
     p.setProperty("maxQueue", String.valueOf(maxQueue));
     p.setProperty("heartbeatMs", String.valueOf(heartbeatMs));
+    p.setProperty("dedupeMs", String.valueOf(dedupeMs));
     p.setProperty("agentIntervalMs", String.valueOf(agentIntervalMs));
+    p.setProperty("payloadFormat", ErpPayloadCodec.normalizeFormat(payloadFormat));
     try {
       Files.createDirectories(file.getParent());
       try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
@@ -0,0 +1,163 @@
+package uhf.erp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import uhf.core.Histogram;
+
+public final class ErpMetrics {
+  private final LongAdder enqueued = new LongAdder();
+  private final LongAdder sent = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder retried = new LongAdder();
+  private final LongAdder deduplicated = new LongAdder();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder requestErrors = new LongAdder();
+  private final LongAdder bytesOut = new LongAdder();
+  private final LongAdder bytesIn = new LongAdder();
+  private final LongAdder backoffMs = new LongAdder();
+  private final AtomicInteger queueDepth = new AtomicInteger();
+  private final AtomicInteger peakQueueDepth = new AtomicInteger();
+  private final AtomicLong oldestEventTs = new AtomicLong();
+  private final Histogram batchSizes = Histogram.sizes();
+  private final Histogram latencyMs = Histogram.latencyMs();
+
+  void onEnqueued() {
+    enqueued.increment();
+  }
+
+  void onDropped(int n) {
+    if (n > 0) dropped.add(n);
+  }
+
+  void onRetried(int n) {
+    if (n > 0) retried.add(n);
+  }
+
+  void onDeduplicated() {
+    deduplicated.increment();
+  }
+
+  void onSent(int n) {
+    if (n > 0) sent.add(n);
+  }
+
+  void onBatch(int size) {
+    batchSizes.record(size);
+  }
+
+  void onRequest(long latency, long outBytes, long inBytes, boolean ok) {
+    requests.increment();
+    if (!ok) requestErrors.increment();
+    latencyMs.record(latency);
+    bytesOut.add(Math.max(0, outBytes));
+    bytesIn.add(Math.max(0, inBytes));
+  }
+
+  void onBackoff(long ms) {
+    if (ms > 0) backoffMs.add(ms);
+  }
+
+  int queueDepthAdd(int delta) {
+    int d = queueDepth.addAndGet(delta);
+    if (d < 0) {
+      queueDepth.compareAndSet(d, 0);
+      d = 0;
+    }
+    int peak = peakQueueDepth.get();
+    while (d > peak && !peakQueueDepth.compareAndSet(peak, d)) peak = peakQueueDepth.get();
+    return d;
+  }
+
+  void setOldestEventTs(long ts) {
+    oldestEventTs.set(ts);
+  }
+
+  public long enqueued() {
+    return enqueued.sum();
+  }
+
+  public long sent() {
+    return sent.sum();
+  }
+
+  public long dropped() {
+    return dropped.sum();
+  }
+
+  public long retried() {
+    return retried.sum();
+  }
+
+  public long deduplicated() {
+    return deduplicated.sum();
+  }
+
+  public long requests() {
+    return requests.sum();
+  }
+
+  public long requestErrors() {
+    return requestErrors.sum();
+  }
+
+  public long bytesOut() {
+    return bytesOut.sum();
+  }
+
+  public long bytesIn() {
+    return bytesIn.sum();
+  }
+
+  public long backoffMs() {
+    return backoffMs.sum();
+  }
+
+  public int queueDepth() {
+    return queueDepth.get();
+  }
+
+  public int peakQueueDepth() {
+    return peakQueueDepth.get();
+  }
+
+  public long oldestEventAgeMs() {
+    long ts = oldestEventTs.get();
+    if (ts <= 0 || queueDepth.get() == 0) return 0;
+    return Math.max(0, System.currentTimeMillis() - ts);
+  }
+
+  public Histogram batchSizes() {
+    return batchSizes;
+  }
+
+  public Histogram latencyMs() {
+    return latencyMs;
+  }
+
+  public String headerSummary() {
+    StringBuilder sb = new StringBuilder();
+    int q = queueDepth();
+    if (q > 0) sb.append("q=").append(q);
+    long d = dropped();
+    if (d > 0) {
+      if (sb.length() > 0) sb.append(' ');
+      sb.append("drop=").append(d);
+    }
+    return sb.toString();
+  }
+
+  public List<String> lines() {
+    List<String> out = new ArrayList<>();
+    out.add("enqueued=" + enqueued() + " sent=" + sent() + " dropped=" + dropped()
+        + " retried=" + retried() + " dedup=" + deduplicated());
+    out.add("queue=" + queueDepth() + " peak=" + peakQueueDepth() + " oldestAgeMs=" + oldestEventAgeMs());
+    out.add("requests=" + requests() + " errors=" + requestErrors() + " bytesOut=" + bytesOut()
+        + " bytesIn=" + bytesIn() + " backoffMs=" + backoffMs());
+    out.add("batch " + batchSizes.summary());
+    out.add("latencyMs " + latencyMs.summary());
+    return out;
+  }
+}
@@ -0,0 +1,175 @@
+package uhf.erp;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ErpPayloadCodec {
+  public static final String FORMAT_JSON = "json";
+  public static final String FORMAT_COMPACT = "compact";
+  public static final String COMPACT_VERSION = "compact-v1";
+
+  private ErpPayloadCodec() {}
+
+  public static String normalizeFormat(String format) {
+    String f = format == null ? "" : format.trim().toLowerCase();
+    return FORMAT_COMPACT.equals(f) ? FORMAT_COMPACT : FORMAT_JSON;
+  }
+
+  public static String encode(String format, String device, List<ErpTagEvent> tags, boolean heartbeat, long now) {
+    if (!heartbeat && FORMAT_COMPACT.equals(normalizeFormat(format)) && tags != null && !tags.isEmpty()) {
+      return encodeCompact(device, tags, now);
+    }
+    return encodeJson(device, tags, heartbeat, now);
+  }
+
+  public static String encodeJson(String device, List<ErpTagEvent> tags, boolean heartbeat, long now) {
+    List<ErpTagEvent> list = tags == null ? List.of() : tags;
+    StringBuilder sb = new StringBuilder(64 + list.size() * 128);
+    sb.append("{\"device\":\"").append(escape(device)).append("\",");
+    sb.append("\"tags\":[");
+    for (int i = 0; i < list.size(); i++) {
+      if (i > 0) sb.append(",");
+      ErpTagEvent t = list.get(i);
+      sb.append("{");
+      sb.append("\"epcId\":\"").append(escape(t.epcId())).append("\",");
+      sb.append("\"memId\":\"").append(escape(t.memId())).append("\",");
+      sb.append("\"rssi\":").append(t.rssi()).append(",");
+      sb.append("\"antId\":").append(t.antId()).append(",");
+      sb.append("\"ipAddr\":\"").append(escape(t.ipAddr())).append("\",");
+      sb.append("\"ts\":").append(t.ts());
+      sb.append("}");
+    }
+    sb.append("],");
+    sb.append("\"ts\":").append(now);
+    if (heartbeat) sb.append(",\"heartbeat\":true");
+    sb.append("}");
+    return sb.toString();
+  }
+
+  // Layout: {"device","format","ts","base","dict":[...],"groups":[{"ip","ant","epc":[],"mem":[],"rssi":[],"dt":[]}]}
+  // Strings (ipAddr, epcId, memId) are dictionary indices; dt is ts - base.
+  public static String encodeCompact(String device, List<ErpTagEvent> tags, long now) {
+    long base = Long.MAX_VALUE;
+    for (ErpTagEvent t : tags) {
+      if (t.ts() < base) base = t.ts();
+    }
+    if (base == Long.MAX_VALUE) base = now;
+
+    Map<String, Integer> dict = new LinkedHashMap<>();
+    Map<Long, Group> groups = new LinkedHashMap<>();
+    for (ErpTagEvent t : tags) {
+      int ip = intern(dict, t.ipAddr());
+      long key = ((long) ip << 32) | (t.antId() & 0xFFFFFFFFL);
+      Group g = groups.get(key);
+      if (g == null) {
+        g = new Group(ip, t.antId());
+        groups.put(key, g);
+      }
+      g.add(intern(dict, t.epcId()), intern(dict, t.memId()), t.rssi(), t.ts() - base);
+    }
+
+    StringBuilder sb = new StringBuilder(96 + tags.size() * 24 + dict.size() * 28);
+    sb.append("{\"device\":\"").append(escape(device)).append("\",");
+    sb.append("\"format\":\"").append(COMPACT_VERSION).append("\",");
+    sb.append("\"ts\":").append(now).append(",");
+    sb.append("\"base\":").append(base).append(",");
+    sb.append("\"dict\":[");
+    boolean first = true;
+    for (String s : dict.keySet()) {
+      if (!first) sb.append(",");
+      first = false;
+      sb.append("\"").append(escape(s)).append("\"");
+    }
+    sb.append("],\"groups\":[");
+    first = true;
+    for (Group g : groups.values()) {
+      if (!first) sb.append(",");
+      first = false;
+      sb.append("{\"ip\":").append(g.ip).append(",\"ant\":").append(g.ant);
+      appendInts(sb, "epc", g.epc, g.size);
+      appendInts(sb, "mem", g.mem, g.size);
+      appendInts(sb, "rssi", g.rssi, g.size);
+      sb.append(",\"dt\":[");
+      for (int i = 0; i < g.size; i++) {
+        if (i > 0) sb.append(",");
+        sb.append(g.dt[i]);
+      }
+      sb.append("]}");
+    }
+    sb.append("]}");
+    return sb.toString();
+  }
+
+  private static int intern(Map<String, Integer> dict, String s) {
+    String key = s == null ? "" : s;
+    Integer idx = dict.get(key);
+    if (idx != null) return idx;
+    int next = dict.size();
+    dict.put(key, next);
+    return next;
+  }
+
+  private static void appendInts(StringBuilder sb, String name, int[] values, int size) {
+    sb.append(",\"").append(name).append("\":[");
+    for (int i = 0; i < size; i++) {
+      if (i > 0) sb.append(",");
+      sb.append(values[i]);
+    }
+    sb.append("]");
+  }
+
+  private static String escape(String s) {
+    if (s == null) return "";
+    StringBuilder sb = null;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      String rep = switch (c) {
+        case '"' -> "\\\"";
+        case '\\' -> "\\\\";
+        case '\n' -> "\\n";
+        case '\r' -> "\\r";
+        case '\t' -> "\\t";
+        default -> c < 0x20 ? String.format("\\u%04x", (int) c) : null;
+      };
+      if (rep == null) {
+        if (sb != null) sb.append(c);
+        continue;
+      }
+      if (sb == null) sb = new StringBuilder(s.length() + 8).append(s, 0, i);
+      sb.append(rep);
+    }
+    return sb == null ? s : sb.toString();
+  }
+
+  private static final class Group {
+    final int ip;
+    final int ant;
+    int size;
+    int[] epc = new int[8];
+    int[] mem = new int[8];
+    int[] rssi = new int[8];
+    long[] dt = new long[8];
+
+    Group(int ip, int ant) {
+      this.ip = ip;
+      this.ant = ant;
+    }
+
+    void add(int e, int m, int r, long d) {
+      if (size == epc.length) {
+        int cap = size * 2;
+        epc = Arrays.copyOf(epc, cap);
+        mem = Arrays.copyOf(mem, cap);
+        rssi = Arrays.copyOf(rssi, cap);
+        dt = Arrays.copyOf(dt, cap);
+      }
+      epc[size] = e;
+      mem[size] = m;
+      rssi[size] = r;
+      dt[size] = d;
+      size++;
+    }
+  }
+}
@@ -7,6 +7,7 @@ import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
@@ -16,6 +17,9 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 public final class ErpPusher {
   private final ConcurrentLinkedQueue<ErpTagEvent> queue = new ConcurrentLinkedQueue<>();
+  private final ConcurrentHashMap<String, Long> recent = new ConcurrentHashMap<>();
+  private volatile long latestEventTs;
+  private final ErpMetrics metrics = new ErpMetrics();
   private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
   private ErpConfig cfg;
   private ScheduledFuture<?> flushTask;
@@ -59,6 +63,14 @@ public final class ErpPusher {
     return lastErrMsg == null ? "" : lastErrMsg;
   }
 
+  public ErpMetrics metrics() {
+    return metrics;
+  }
+
+  public long backoffRemainingMs() {
+    return Math.max(0, backoffUntil - System.currentTimeMillis());
+  }
+
   public boolean testOnce() {
     if (cfg == null || safe(cfg.baseUrl).isEmpty()) {
       lastErrAt = System.currentTimeMillis();
@@ -130,7 +142,13 @@ public final class ErpPusher {
   public void enqueue(ErpTagEvent evt) {
     if (evt == null) return;
     if (!enabled()) return;
+    if (isDuplicate(evt)) {
+      metrics.onDeduplicated();
+      return;
+    }
     queue.add(evt);
+    metrics.onEnqueued();
+    if (metrics.queueDepthAdd(1) == 1) metrics.setOldestEventTs(evt.ts());
     trimQueue();
     triggerFlushAsync();
   }
@@ -159,14 +177,47 @@ public final class ErpPusher {
         && !normalizeAuth(cfg.auth).isEmpty();
   }
 
+  private boolean isDuplicate(ErpTagEvent evt) {
+    int window = cfg.dedupeMs;
+    if (window <= 0) return false;
+    String key = evt.ipAddr() + "|" + evt.epcId() + "|" + evt.antId();
+    if (evt.ts() > latestEventTs) latestEventTs = evt.ts();
+    Long prev = recent.get(key);
+    if (prev != null && evt.ts() - prev < window) return true;
+    recent.put(key, evt.ts());
+    return false;
+  }
+
+  private void pruneRecent() {
+    int window = cfg.dedupeMs;
+    if (window <= 0) {
+      if (!recent.isEmpty()) recent.clear();
+      return;
+    }
+    long cutoff = latestEventTs - window;
+    recent.values().removeIf(ts -> ts < cutoff);
+  }
+
   private void trimQueue() {
     int max = Math.max(0, cfg.maxQueue);
     if (max == 0) return;
-    while (queue.size() > max) {
-      queue.poll();
+    int dropped = 0;
+    while (metrics.queueDepth() > max) {
+      if (queue.poll() == null) break;
+      metrics.queueDepthAdd(-1);
+      dropped++;
+    }
+    if (dropped > 0) {
+      metrics.onDropped(dropped);
+      updateOldest();
     }
   }
 
+  private void updateOldest() {
+    ErpTagEvent head = queue.peek();
+    metrics.setOldestEventTs(head == null ? 0 : head.ts());
+  }
+
   private synchronized void schedule() {
     if (enabled()) {
       long batchMs = Math.max(10, cfg.batchMs);
@@ -210,6 +261,7 @@ public final class ErpPusher {
 
   private void flushOnce() throws Exception {
     if (!enabled()) return;
+    pruneRecent();
     if (queue.isEmpty()) return;
     long now = System.currentTimeMillis();
     if (backoffUntil > now) return;
@@ -222,9 +274,13 @@ public final class ErpPusher {
       batch.add(e);
     }
     if (batch.isEmpty()) return;
+    metrics.queueDepthAdd(-batch.size());
+    metrics.onBatch(batch.size());
 
     try {
       postTags(batch, false);
+      metrics.onSent(batch.size());
+      updateOldest();
       failCount = 0;
       backoffUntil = 0;
       lastOkAt = System.currentTimeMillis();
@@ -236,9 +292,13 @@ public final class ErpPusher {
       lastErrMsg = e.getMessage();
       long backoff = Math.min(30000, 500L * (1L << Math.min(10, failCount)));
       backoffUntil = System.currentTimeMillis() + backoff;
+      metrics.onBackoff(backoff);
+      metrics.onRetried(batch.size());
       for (int i = batch.size() - 1; i >= 0; i--) {
         queue.add(batch.get(i));
       }
+      metrics.queueDepthAdd(batch.size());
+      updateOldest();
       trimQueue();
       throw e;
     } finally {
@@ -258,7 +318,7 @@ public final class ErpPusher {
     if (!enabled()) return;
     long now = System.currentTimeMillis();
     int max = Math.max(1, cfg.maxBatch);
-    int size = queue.size();
+    int size = metrics.queueDepth();
     if (size >= max || cfg.batchMs <= 0 || now - lastFlushAt >= cfg.batchMs) {
       scheduler.execute(this::safeFlush);
     }
@@ -268,39 +328,30 @@ public final class ErpPusher {
     String url = joinUrl(cfg.baseUrl, cfg.endpoint);
     String auth = normalizeAuth(cfg.auth);
     String payload = buildPayload(tags, heartbeat);
-    HttpURLConnection conn = requestWithBody(url, "POST", auth, payload);
-    int code = conn.getResponseCode();
-    if (code < 200 || code >= 300) {
-      throw new RuntimeException("ERP HTTP " + code);
-    }
-    String resp = readBody(conn);
-    String low = resp.toLowerCase();
-    if (low.contains("\"ok\":false") || low.contains("\"ok\": false")) {
-      throw new RuntimeException("ERP response not ok");
+    long outBytes = payload.getBytes(StandardCharsets.UTF_8).length;
+    long start = System.nanoTime();
+    String resp = "";
+    boolean ok = false;
+    try {
+      HttpURLConnection conn = requestWithBody(url, "POST", auth, payload);
+      int code = conn.getResponseCode();
+      if (code < 200 || code >= 300) {
+        throw new RuntimeException("ERP HTTP " + code);
+      }
+      resp = readBody(conn);
+      String low = resp.toLowerCase();
+      if (low.contains("\"ok\":false") || low.contains("\"ok\": false")) {
+        throw new RuntimeException("ERP response not ok");
+      }
+      ok = true;
+    } finally {
+      long ms = (System.nanoTime() - start) / 1_000_000L;
+      metrics.onRequest(ms, outBytes, resp.getBytes(StandardCharsets.UTF_8).length, ok);
     }
   }
 
   private String buildPayload(List<ErpTagEvent> tags, boolean heartbeat) {
-    StringBuilder sb = new StringBuilder();
-    sb.append("{\"device\":\"").append(escape(cfg.device)).append("\",");
-    sb.append("\"tags\":[");
-    for (int i = 0; i < tags.size(); i++) {
-      if (i > 0) sb.append(",");
-      ErpTagEvent t = tags.get(i);
-      sb.append("{");
-      sb.append("\"epcId\":\"").append(escape(t.epcId())).append("\",");
-      sb.append("\"memId\":\"").append(escape(t.memId())).append("\",");
-      sb.append("\"rssi\":").append(t.rssi()).append(",");
-      sb.append("\"antId\":").append(t.antId()).append(",");
-      sb.append("\"ipAddr\":\"").append(escape(t.ipAddr())).append("\",");
-      sb.append("\"ts\":").append(t.ts());
-      sb.append("}");
-    }
-    sb.append("],");
-    sb.append("\"ts\":").append(Instant.now().toEpochMilli());
-    if (heartbeat) sb.append(",\"heartbeat\":true");
-    sb.append("}");
-    return sb.toString();
+    return ErpPayloadCodec.encode(cfg.payloadFormat, cfg.device, tags, heartbeat, Instant.now().toEpochMilli());
   }
 
   private static String joinUrl(String base, String path) {
@@ -369,11 +420,6 @@ public final class ErpPusher {
     }
   }
 
-  private static String escape(String s) {
-    if (s == null) return "";
-    return s.replace("\\", "\\\\").replace("\"", "\\\"");
-  }
-
   private static String safe(String s) {
     return s == null ? "" : s.trim();
   }
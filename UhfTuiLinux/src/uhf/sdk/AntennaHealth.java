@@ -0,0 +1,250 @@
+package uhf.sdk;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import uhf.core.Result;
+import uhf.core.ReturnLossInfo;
+
+public final class AntennaHealth {
+  public enum State { HEALTHY, DEGRADED, DEAD }
+
+  public static final int MAX_ANTENNAS = 16;
+  public static final int DEAD_RETURN_LOSS_DB = 3;
+  public static final int DEGRADED_RETURN_LOSS_DB = 10;
+  public static final int DEAD_START_FAILURES = 2;
+  public static final int STARVED_MIN_WINDOW_READS = 20;
+  public static final long DEFAULT_PROBE_MS = 60_000;
+  public static final long WINDOW_MS = 10_000;
+  private static final int EVENTS_KEEP = 30;
+  private static final DateTimeFormatter TS = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+  private static final class Port {
+    final LongAdder reads = new LongAdder();
+    final LongAdder windowReads = new LongAdder();
+    volatile long lastReadAt;
+    volatile int startFailures;
+    volatile int lastStartRc;
+    volatile int returnLossDb = -1;
+    volatile long probedAt;
+    volatile int probeFailures;
+    volatile boolean starved;
+    volatile boolean activeInWindow;
+    volatile State state = State.HEALTHY;
+  }
+
+  private final ReaderClient reader;
+  private final Port[] ports = new Port[MAX_ANTENNAS];
+  private final Deque<String> events = new ArrayDeque<>();
+  private final LongAdder probes = new LongAdder();
+  private volatile int currentAntenna;
+  private volatile boolean enabled;
+  private volatile long probeMs = DEFAULT_PROBE_MS;
+  private volatile IntSupplier probeFreqKhz = () -> 915_000;
+  private ScheduledExecutorService scheduler;
+  private ScheduledFuture<?> probeTask;
+  private ScheduledFuture<?> windowTask;
+
+  AntennaHealth(ReaderClient reader) {
+    this.reader = reader;
+    for (int i = 0; i < MAX_ANTENNAS; i++) ports[i] = new Port();
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public long probeMs() {
+    return probeMs;
+  }
+
+  public State state(int antenna) {
+    Port p = port(antenna);
+    return p == null ? State.HEALTHY : p.state;
+  }
+
+  public boolean usable(int antenna) {
+    return !enabled || state(antenna) != State.DEAD;
+  }
+
+  public synchronized void start(long probeIntervalMs, IntSupplier freqKhz) {
+    stop();
+    probeMs = Math.max(5_000, probeIntervalMs);
+    if (freqKhz != null) probeFreqKhz = freqKhz;
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "antenna-health-" + reader.id());
+      t.setDaemon(true);
+      return t;
+    });
+    enabled = true;
+    for (int a = 1; a <= MAX_ANTENNAS; a++) evaluate(a, "");
+    windowTask = scheduler.scheduleWithFixedDelay(this::closeWindow, WINDOW_MS, WINDOW_MS, TimeUnit.MILLISECONDS);
+    probeTask = scheduler.scheduleWithFixedDelay(() -> probe(false), 0, probeMs, TimeUnit.MILLISECONDS);
+  }
+
+  public synchronized void stop() {
+    enabled = false;
+    if (probeTask != null) probeTask.cancel(false);
+    if (windowTask != null) windowTask.cancel(false);
+    if (scheduler != null) scheduler.shutdownNow();
+    probeTask = null;
+    windowTask = null;
+    scheduler = null;
+  }
+
+  public Result probe(boolean all) {
+    int n = Math.min(MAX_ANTENNAS, reader.getAntennaCount());
+    try {
+      return reader.submit("AntennaProbe", reader.commandTimeoutMs() * (n + 2), c -> probeOnExecutor(n, all)).join();
+    } catch (CompletionException e) {
+      return Result.fail(-1);
+    }
+  }
+
+  public List<String> lines() {
+    List<String> out = new ArrayList<>();
+    int n = Math.min(MAX_ANTENNAS, reader.getAntennaCount());
+    out.add(reader.id() + " monitor=" + (enabled ? "on probe=" + probeMs / 1000 + "s" : "off") + " probes=" + probes.sum()
+        + " current=" + (currentAntenna > 0 ? "ant" + currentAntenna : "-"));
+    long now = System.currentTimeMillis();
+    for (int a = 1; a <= n; a++) {
+      Port p = ports[a - 1];
+      out.add(String.format("ant%-2d %-8s reads=%d lastRead=%s rl=%s probed=%s startFail=%d%s%s%s", a, p.state,
+          p.reads.sum(), p.lastReadAt == 0 ? "-" : (now - p.lastReadAt) / 1000 + "s",
+          p.returnLossDb < 0 ? "-" : p.returnLossDb + "dB", p.probedAt == 0 ? "-" : (now - p.probedAt) / 1000 + "s",
+          p.startFailures, p.lastStartRc != 0 ? " lastRc=" + p.lastStartRc : "",
+          p.probeFailures > 0 ? " probeFail=" + p.probeFailures : "", p.starved ? " starved" : ""));
+    }
+    synchronized (events) {
+      out.addAll(events);
+    }
+    return out;
+  }
+
+  void onRead(int antenna) {
+    Port p = port(antenna);
+    if (p == null) return;
+    p.reads.increment();
+    p.windowReads.increment();
+    p.lastReadAt = System.currentTimeMillis();
+    if (p.startFailures > 0 || p.starved) {
+      p.startFailures = 0;
+      p.lastStartRc = 0;
+      p.starved = false;
+      evaluate(antenna, "reads");
+    }
+  }
+
+  void onStart(int antenna, int rc) {
+    Port p = port(antenna);
+    if (p == null) return;
+    if (rc == 0) {
+      currentAntenna = antenna;
+      p.activeInWindow = true;
+      p.lastStartRc = 0;
+      if (p.startFailures > 0) {
+        p.startFailures = 0;
+        evaluate(antenna, "start ok");
+      }
+      return;
+    }
+    if (isLinkCode(rc)) return;
+    p.lastStartRc = rc;
+    p.startFailures++;
+    evaluate(antenna, "start rc=" + rc);
+  }
+
+  private Result probeOnExecutor(int n, boolean all) {
+    boolean running = reader.isInventoryRunning();
+    List<Integer> targets = new ArrayList<>();
+    for (int a = 1; a <= n; a++) {
+      if (all || !running || ports[a - 1].state != State.HEALTHY) targets.add(a);
+    }
+    if (targets.isEmpty()) return Result.success();
+    if (!reader.isConnected()) return Result.fail(0x36);
+    if (running) {
+      Result r = reader.stopInventory();
+      if (!r.ok()) return r;
+    }
+    Result first = Result.success();
+    int freq = probeFreqKhz.getAsInt();
+    for (int a : targets) {
+      ReturnLossInfo info = reader.measureReturnLoss(a - 1, freq);
+      Port p = ports[a - 1];
+      p.probedAt = System.currentTimeMillis();
+      if (!info.result().ok()) {
+        p.probeFailures++;
+        if (first.ok()) first = info.result();
+        continue;
+      }
+      p.returnLossDb = info.lossDb();
+      if (info.lossDb() >= DEAD_RETURN_LOSS_DB) p.startFailures = 0;
+      evaluate(a, "probe rl=" + info.lossDb() + "dB");
+    }
+    probes.increment();
+    if (running) {
+      Result r = reader.startInventory();
+      if (!r.ok() && first.ok()) first = r;
+    }
+    return first;
+  }
+
+  private void closeWindow() {
+    long total = 0;
+    for (Port p : ports) total += p.windowReads.sum();
+    int cur = currentAntenna;
+    boolean running = reader.isInventoryRunning();
+    for (int a = 1; a <= MAX_ANTENNAS; a++) {
+      Port p = ports[a - 1];
+      long reads = p.windowReads.sumThenReset();
+      boolean active = p.activeInWindow || (running && a == cur);
+      p.activeInWindow = false;
+      boolean starved = active && reads == 0 && p.reads.sum() > 0 && total >= STARVED_MIN_WINDOW_READS;
+      if (starved != p.starved) {
+        p.starved = starved;
+        evaluate(a, starved ? "no reads while others read " + total : "reads resumed");
+      }
+    }
+  }
+
+  private synchronized void evaluate(int antenna, String reason) {
+    Port p = port(antenna);
+    if (p == null) return;
+    int rl = p.returnLossDb;
+    State next;
+    if (p.startFailures >= DEAD_START_FAILURES || (rl >= 0 && rl < DEAD_RETURN_LOSS_DB)) {
+      next = State.DEAD;
+    } else if (p.startFailures > 0 || (rl >= 0 && rl < DEGRADED_RETURN_LOSS_DB) || p.starved) {
+      next = State.DEGRADED;
+    } else {
+      next = State.HEALTHY;
+    }
+    State prev = p.state;
+    if (prev == next) return;
+    p.state = next;
+    if (reason.isEmpty()) return;
+    String line = LocalTime.now().format(TS) + " ant" + antenna + " " + prev + " -> " + next + " (" + reason + ")";
+    synchronized (events) {
+      events.addLast(line);
+      while (events.size() > EVENTS_KEEP) events.removeFirst();
+    }
+  }
+
+  private Port port(int antenna) {
+    return antenna >= 1 && antenna <= MAX_ANTENNAS ? ports[antenna - 1] : null;
+  }
+
+  private static boolean isLinkCode(int rc) {
+    return rc < 0 || (rc >= 0x30 && rc <= 0x36);
+  }
+}
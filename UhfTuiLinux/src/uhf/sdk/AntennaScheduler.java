@@ -0,0 +1,351 @@
+package uhf.sdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import uhf.core.AntennaPowerInfo;
+import uhf.core.AntennaSlot;
+import uhf.core.Histogram;
+import uhf.core.InventoryParams;
+import uhf.core.Result;
+import uhf.core.TagRead;
+
+public final class AntennaScheduler {
+  public static final class AntennaStats {
+    private final int antenna;
+    private final LongAdder dwells = new LongAdder();
+    private final LongAdder dwellMs = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder unique = new LongAdder();
+    private final LongAdder sdkCalls = new LongAdder();
+    private final Histogram switchMs = Histogram.latencyMs();
+    private volatile long lastUnique;
+
+    AntennaStats(int antenna) {
+      this.antenna = antenna;
+    }
+
+    public int antenna() {
+      return antenna;
+    }
+
+    public long dwells() {
+      return dwells.sum();
+    }
+
+    public long dwellMs() {
+      return dwellMs.sum();
+    }
+
+    public long reads() {
+      return reads.sum();
+    }
+
+    public long unique() {
+      return unique.sum();
+    }
+
+    public long sdkCalls() {
+      return sdkCalls.sum();
+    }
+
+    public Histogram switchMs() {
+      return switchMs;
+    }
+
+    public long lastUnique() {
+      return lastUnique;
+    }
+
+    public double readsPerSec() {
+      long ms = dwellMs();
+      return ms <= 0 ? 0 : reads() * 1000.0 / ms;
+    }
+
+    public double uniquePerSec() {
+      long ms = dwellMs();
+      return ms <= 0 ? 0 : unique() * 1000.0 / ms;
+    }
+  }
+
+  private final ReaderClient reader;
+  private final List<AntennaSlot> slots;
+  private final List<AntennaStats> stats = new ArrayList<>();
+  private volatile boolean running;
+  private volatile Thread worker;
+  private volatile int currentSlot = -1;
+  private volatile long dwellStartNanos;
+  private volatile Set<String> dwellEpcs = ConcurrentHashMap.newKeySet();
+  private final LongAdder dwellReads = new LongAdder();
+  private volatile boolean perSlotPower;
+  private volatile String lastError = "";
+  private final LongAdder cycles = new LongAdder();
+  private final LongAdder sdkCalls = new LongAdder();
+  private final LongAdder skippedSwitches = new LongAdder();
+  private final LongAdder deadSkips = new LongAdder();
+
+  public AntennaScheduler(ReaderClient reader, List<AntennaSlot> slots) {
+    this.reader = reader;
+    this.slots = List.copyOf(slots);
+    for (AntennaSlot s : this.slots) {
+      if (stats.stream().noneMatch(st -> st.antenna == s.antenna())) stats.add(new AntennaStats(s.antenna()));
+    }
+  }
+
+  public static AntennaSlot parseSlot(String spec, int defaultDwellMs) {
+    if (spec == null || spec.isBlank()) return null;
+    String[] p = spec.trim().split(":");
+    try {
+      int ant = Integer.parseInt(p[0].trim());
+      int dwell = p.length > 1 && !p[1].isBlank() ? Integer.parseInt(p[1].trim()) : defaultDwellMs;
+      int power = p.length > 2 && !p[2].isBlank() ? Integer.parseInt(p[2].trim()) : -1;
+      int session = p.length > 3 && !p[3].isBlank() ? Integer.parseInt(p[3].trim()) : -1;
+      int q = p.length > 4 && !p[4].isBlank() ? Integer.parseInt(p[4].trim()) : -1;
+      if (ant < 1 || ant > 16 || dwell < 20) return null;
+      if (power > 33 || session > 3 || q > 15) return null;
+      return new AntennaSlot(ant, dwell, power, session, q);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  public static String describe(AntennaSlot s) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(s.antenna()).append(':').append(s.dwellMs());
+    if (s.power() >= 0 || s.session() >= 0 || s.qValue() >= 0) sb.append(':').append(s.power() >= 0 ? s.power() : "");
+    if (s.session() >= 0 || s.qValue() >= 0) sb.append(':').append(s.session() >= 0 ? s.session() : "");
+    if (s.qValue() >= 0) sb.append(':').append(s.qValue());
+    return sb.toString();
+  }
+
+  public ReaderClient reader() {
+    return reader;
+  }
+
+  public List<AntennaSlot> slots() {
+    return slots;
+  }
+
+  public List<AntennaStats> stats() {
+    return List.copyOf(stats);
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  public String lastError() {
+    return lastError;
+  }
+
+  public synchronized Result start() {
+    if (running) return Result.success();
+    if (slots.isEmpty()) return Result.fail(-1);
+    if (!reader.isConnected()) return Result.fail(0x36);
+    for (AntennaSlot s : slots) {
+      if (s.antenna() > reader.getAntennaCount()) return Result.fail(-1);
+    }
+    Result r = ReaderExecutor.await(reader.submit("AntennaPowers", c -> applyStaticPowers()));
+    if (!r.ok()) return r;
+    running = true;
+    lastError = "";
+    Thread t = new Thread(this::loop, "antenna-sched-" + reader.id());
+    t.setDaemon(true);
+    worker = t;
+    t.start();
+    return Result.success();
+  }
+
+  public synchronized Result stop() {
+    running = false;
+    Thread t = worker;
+    worker = null;
+    if (t != null) {
+      t.interrupt();
+      if (t != Thread.currentThread()) {
+        try {
+          t.join(2000);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+    closeDwell(System.nanoTime());
+    currentSlot = -1;
+    if (!reader.isConnected()) return Result.success();
+    return reader.stopInventory();
+  }
+
+  public void onTag(TagRead tag) {
+    if (currentSlot < 0 || tag == null) return;
+    dwellReads.increment();
+    dwellEpcs.add(tag.epcId());
+  }
+
+  public List<String> lines() {
+    List<String> out = new ArrayList<>();
+    StringBuilder seq = new StringBuilder();
+    for (AntennaSlot s : slots) {
+      if (seq.length() > 0) seq.append(' ');
+      seq.append(describe(s));
+    }
+    int idx = currentSlot;
+    out.add(reader.id() + " " + (running ? "running" : "stopped") + " seq=[" + seq + "]"
+        + (idx >= 0 && idx < slots.size() ? " now=ant" + slots.get(idx).antenna() : "")
+        + (perSlotPower ? " perSlotPower" : ""));
+    out.add("cycles=" + cycles.sum() + " sdkCalls=" + sdkCalls.sum() + " skippedSwitches=" + skippedSwitches.sum()
+        + " deadSkips=" + deadSkips.sum()
+        + (lastError.isEmpty() ? "" : " error=" + lastError));
+    for (AntennaStats st : stats) {
+      out.add(String.format("ant%-2d dwells=%d dwellMs=%d reads/s=%.1f unique/s=%.1f lastUnique=%d switchMs p50=%d p95=%d",
+          st.antenna, st.dwells(), st.dwellMs(), st.readsPerSec(), st.uniquePerSec(), st.lastUnique,
+          st.switchMs.percentile(0.5), st.switchMs.percentile(0.95)));
+    }
+    return out;
+  }
+
+  private void loop() {
+    int i = 0;
+    int unusable = 0;
+    try {
+      while (running) {
+        AntennaSlot slot = slots.get(i);
+        if (!reader.health().usable(slot.antenna())) {
+          deadSkips.increment();
+          if (++unusable >= slots.size()) {
+            unusable = 0;
+            Thread.sleep(slot.dwellMs());
+          }
+          i++;
+          if (i >= slots.size()) {
+            i = 0;
+            cycles.increment();
+          }
+          continue;
+        }
+        unusable = 0;
+        long t0 = System.nanoTime();
+        closeDwell(t0);
+        int idx = i;
+        int[] calls = new int[1];
+        Result r = ReaderExecutor.await(reader.submit("AntennaSlot", c -> applySlot(slot, calls)));
+        AntennaStats st = statsFor(slot.antenna());
+        st.sdkCalls.add(calls[0]);
+        sdkCalls.add(calls[0]);
+        if (calls[0] == 0) {
+          skippedSwitches.increment();
+        } else {
+          st.switchMs.record((System.nanoTime() - t0) / 1_000_000L);
+        }
+        if (!r.ok()) {
+          lastError = "ant" + slot.antenna() + " rc=" + r.code();
+        }
+        dwellStartNanos = System.nanoTime();
+        currentSlot = r.ok() ? idx : -1;
+        Thread.sleep(slot.dwellMs());
+        i++;
+        if (i >= slots.size()) {
+          i = 0;
+          cycles.increment();
+        }
+      }
+    } catch (InterruptedException ignored) {
+    } catch (RuntimeException e) {
+      lastError = e.getClass().getSimpleName();
+      running = false;
+    }
+  }
+
+  private void closeDwell(long nowNanos) {
+    int idx = currentSlot;
+    currentSlot = -1;
+    Set<String> epcs = dwellEpcs;
+    dwellEpcs = ConcurrentHashMap.newKeySet();
+    long reads = dwellReads.sumThenReset();
+    if (idx < 0 || idx >= slots.size()) return;
+    AntennaStats st = statsFor(slots.get(idx).antenna());
+    st.dwells.increment();
+    st.dwellMs.add(Math.max(0, (nowNanos - dwellStartNanos) / 1_000_000L));
+    st.reads.add(reads);
+    st.unique.add(epcs.size());
+    st.lastUnique = epcs.size();
+  }
+
+  private Result applyStaticPowers() {
+    int n = reader.getAntennaCount();
+    int[] wanted = new int[n];
+    boolean any = false;
+    boolean conflict = false;
+    for (int i = 0; i < n; i++) wanted[i] = -1;
+    for (AntennaSlot s : slots) {
+      if (s.power() < 0) continue;
+      int a = s.antenna() - 1;
+      if (wanted[a] >= 0 && wanted[a] != s.power()) conflict = true;
+      wanted[a] = s.power();
+      any = true;
+    }
+    perSlotPower = conflict;
+    if (!any || conflict) return Result.success();
+    AntennaPowerInfo cur = reader.cachedRfPowerByAnt(n);
+    int[] powers = new int[n];
+    boolean changed = !cur.result().ok() || cur.powers().length != n;
+    for (int i = 0; i < n; i++) {
+      int have = cur.result().ok() && i < cur.powers().length ? cur.powers()[i] : 30;
+      powers[i] = wanted[i] >= 0 ? wanted[i] : have;
+      if (powers[i] != have) changed = true;
+    }
+    if (!changed) return Result.success();
+    sdkCalls.increment();
+    return reader.setRfPowerByAnt(powers);
+  }
+
+  private Result applySlot(AntennaSlot slot, int[] calls) {
+    if (!running) return Result.success();
+    InventoryParams cur = reader.cachedInventoryParams();
+    if (!cur.result().ok()) return cur.result();
+    int ant = 0x80 + (slot.antenna() - 1);
+    int session = slot.session() >= 0 ? slot.session() : cur.session();
+    int q = slot.qValue() >= 0 ? slot.qValue() : cur.qValue();
+    boolean paramsChange = cur.antenna() != ant || cur.session() != session || cur.qValue() != q;
+    int[] powers = null;
+    if (perSlotPower && slot.power() >= 0) {
+      AntennaPowerInfo pw = reader.cachedRfPowerByAnt(reader.getAntennaCount());
+      int a = slot.antenna() - 1;
+      if (!pw.result().ok() || a >= pw.powers().length || pw.powers()[a] != slot.power()) {
+        powers = pw.result().ok() ? pw.powers().clone() : new int[reader.getAntennaCount()];
+        if (!pw.result().ok()) Arrays.fill(powers, slot.power());
+        powers[a] = slot.power();
+      }
+    }
+    boolean inventoryOn = reader.isInventoryRunning();
+    if (!paramsChange && powers == null && inventoryOn) return Result.success();
+    if (inventoryOn) {
+      calls[0]++;
+      Result r = reader.stopInventory();
+      if (!r.ok()) return r;
+    }
+    if (paramsChange) {
+      calls[0]++;
+      Result r = reader.setInventoryParams(new InventoryParams(Result.success(), cur.address(), cur.tidPtr(), cur.tidLen(),
+          session, q, cur.scanTime(), ant, cur.readType(), cur.readMem(), cur.readPtr(), cur.readLength(), cur.password()));
+      if (!r.ok()) return r;
+    }
+    if (powers != null) {
+      calls[0]++;
+      Result r = reader.setRfPowerByAnt(powers);
+      if (!r.ok()) return r;
+    }
+    calls[0]++;
+    return reader.startInventory();
+  }
+
+  private AntennaStats statsFor(int antenna) {
+    for (AntennaStats st : stats) {
+      if (st.antenna == antenna) return st;
+    }
+    return stats.get(0);
+  }
+}
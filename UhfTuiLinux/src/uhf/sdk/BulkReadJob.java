@@ -0,0 +1,328 @@
+package uhf.sdk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import uhf.core.Histogram;
+import uhf.core.InventorySnapshot;
+import uhf.core.Result;
+
+public final class BulkReadJob {
+  public static final int RC_NO_DATA = -4;
+  public static final int RC_SHORT = -5;
+
+  public static final class Settings {
+    public int mem = 2;
+    public int wordPtr = 0;
+    public int words = 6;
+    public String password = "00000000";
+    public int retries = 3;
+    public int batch = 16;
+    public int windowMs = 300;
+    public int maxIdleRounds = 5;
+  }
+
+  public record ReadResult(String epc, int mem, int wordPtr, String data, int rssi, int antenna, long ms, int attempts) {}
+
+  private static final class Target {
+    final String epc;
+    int attempts;
+    int lastRc;
+    int rssi;
+    int antenna;
+    boolean done;
+
+    Target(String epc) {
+      this.epc = epc;
+    }
+  }
+
+  private record Outcome(Target target, String data, int rc, long ms) {}
+
+  private final ReaderClient reader;
+  private final Settings settings;
+  private final Path output;
+  private final Consumer<ReadResult> sink;
+  private final boolean discover;
+  private final Map<String, Target> targets = new LinkedHashMap<>();
+  private final Map<Integer, LongAdder> failureCodes = new TreeMap<>();
+  private final LongAdder ok = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder retried = new LongAdder();
+  private final LongAdder deferred = new LongAdder();
+  private final LongAdder rounds = new LongAdder();
+  private final Histogram readMs = Histogram.latencyMs();
+  private volatile boolean running;
+  private volatile Thread worker;
+  private volatile String state = "";
+  private volatile String lastError = "";
+  private volatile long startedAt;
+  private volatile long readBusyNanos;
+  private volatile long finishedAt;
+  private BufferedWriter out;
+
+  public BulkReadJob(ReaderClient reader, List<String> epcs, Path output, Consumer<ReadResult> sink, Settings settings) {
+    this.reader = reader;
+    this.settings = settings == null ? new Settings() : settings;
+    this.output = output;
+    this.sink = sink;
+    this.discover = epcs == null || epcs.isEmpty();
+    if (epcs != null) {
+      for (String epc : epcs) {
+        String e = epc.trim().toUpperCase(Locale.ROOT);
+        if (!e.isEmpty()) targets.putIfAbsent(e, new Target(e));
+      }
+    }
+  }
+
+  public ReaderClient reader() {
+    return reader;
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  public synchronized Result start() {
+    if (running) return Result.success();
+    if (!reader.isConnected()) return Result.fail(0x36);
+    if (output != null) {
+      try {
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        boolean fresh = !Files.exists(output);
+        out = Files.newBufferedWriter(output, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (fresh) {
+          out.write("epc,mem,wordPtr,data,rssi,ant,ms,attempts");
+          out.newLine();
+        }
+      } catch (IOException e) {
+        lastError = e.getMessage();
+        return Result.fail(-1);
+      }
+    }
+    running = true;
+    startedAt = System.currentTimeMillis();
+    finishedAt = 0;
+    lastError = "";
+    Thread t = new Thread(this::run, "bulk-read-" + reader.id());
+    t.setDaemon(true);
+    worker = t;
+    t.start();
+    return Result.success();
+  }
+
+  public void stop() {
+    running = false;
+    Thread t = worker;
+    if (t != null) t.interrupt();
+  }
+
+  public List<String> lines() {
+    List<String> lines = new ArrayList<>();
+    int total;
+    int done;
+    synchronized (targets) {
+      total = targets.size();
+      done = 0;
+      for (Target t : targets.values()) {
+        if (t.done) done++;
+      }
+    }
+    long end = finishedAt == 0 ? System.currentTimeMillis() : finishedAt;
+    double secs = Math.max(1, end - startedAt) / 1000.0;
+    double busySecs = Math.max(1, readBusyNanos / 1_000_000L) / 1000.0;
+    lines.add(reader.id() + " " + (running ? "running " + state : "idle") + " " + done + "/" + total + " mem=" + settings.mem
+        + " ptr=" + settings.wordPtr + " words=" + settings.words + (output == null ? "" : " out=" + output));
+    lines.add(String.format(Locale.US, "ok=%d failed=%d retried=%d deferred=%d rounds=%d tags/s=%.1f (reader busy %.0f%%, %.1f tags/s while reading)",
+        ok.sum(), failed.sum(), retried.sum(), deferred.sum(), rounds.sum(), ok.sum() / secs,
+        Math.min(100, busySecs * 100 / secs), ok.sum() / busySecs));
+    lines.add("readMs " + readMs.summary());
+    synchronized (failureCodes) {
+      if (!failureCodes.isEmpty()) {
+        StringBuilder sb = new StringBuilder("failures");
+        for (Map.Entry<Integer, LongAdder> e : failureCodes.entrySet()) {
+          sb.append(' ').append(codeName(e.getKey())).append('=').append(e.getValue().sum());
+        }
+        lines.add(sb.toString());
+      }
+    }
+    if (!lastError.isEmpty()) lines.add("error " + lastError);
+    return lines;
+  }
+
+  private void run() {
+    try {
+      Result r = ReaderExecutor.await(reader.submit("BulkRead", c -> c.isInventoryRunning() ? c.stopInventory() : Result.success()));
+      if (!r.ok()) throw new IllegalStateException("StopRead rc=" + r.code());
+      int idle = 0;
+      while (running) {
+        Map<String, InventorySnapshot.Tag> present = presence();
+        rounds.increment();
+        List<Target> work = plan(present);
+        if (work.isEmpty()) {
+          if (pending() == 0) {
+            state = "done";
+            break;
+          }
+          if (++idle >= Math.max(1, settings.maxIdleRounds)) {
+            state = "done, " + pending() + " not in field";
+            break;
+          }
+          continue;
+        }
+        idle = 0;
+        for (int i = 0; i < work.size() && running; i += Math.max(1, settings.batch)) {
+          List<Target> batch = work.subList(i, Math.min(work.size(), i + Math.max(1, settings.batch)));
+          state = "reading " + (i + batch.size()) + "/" + work.size() + " round " + rounds.sum();
+          readBatch(batch);
+        }
+      }
+    } catch (InterruptedException e) {
+      lastError = "stopped";
+    } catch (IOException | RuntimeException e) {
+      lastError = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+    } finally {
+      finishedAt = System.currentTimeMillis();
+      if (out != null) {
+        try {
+          out.close();
+        } catch (IOException ignored) {
+        }
+      }
+      running = false;
+      worker = null;
+    }
+  }
+
+  private Map<String, InventorySnapshot.Tag> presence() throws InterruptedException {
+    state = "inventory " + settings.windowMs + " ms";
+    InventorySnapshot snap;
+    try {
+      snap = reader.snapshots().start(settings.windowMs).join();
+    } catch (CancellationException | CompletionException e) {
+      throw new InterruptedException();
+    }
+    if (!snap.result().ok()) throw new IllegalStateException("StartRead rc=" + snap.result().code());
+    Map<String, InventorySnapshot.Tag> present = new HashMap<>();
+    for (InventorySnapshot.Tag t : snap.tags()) present.put(t.epc().toUpperCase(Locale.ROOT), t);
+    if (discover && rounds.sum() == 0) {
+      synchronized (targets) {
+        for (String epc : present.keySet()) targets.putIfAbsent(epc, new Target(epc));
+      }
+    }
+    return present;
+  }
+
+  private List<Target> plan(Map<String, InventorySnapshot.Tag> present) {
+    List<Target> work = new ArrayList<>();
+    synchronized (targets) {
+      for (Target t : targets.values()) {
+        if (t.done) continue;
+        InventorySnapshot.Tag seen = present.get(t.epc);
+        if (seen == null) {
+          deferred.increment();
+          continue;
+        }
+        t.rssi = seen.bestRssi();
+        t.antenna = seen.bestAnt();
+        work.add(t);
+      }
+    }
+    work.sort((a, b) -> Integer.compare(b.rssi, a.rssi));
+    return work;
+  }
+
+  private void readBatch(List<Target> batch) throws IOException, InterruptedException {
+    Settings s = settings;
+    long timeout = reader.commandTimeoutMs() * (batch.size() + 1L);
+    List<Outcome> outcomes;
+    long t0 = System.nanoTime();
+    try {
+      outcomes = reader.submit("BulkRead", timeout, c -> {
+        List<Outcome> list = new ArrayList<>(batch.size());
+        for (Target t : batch) {
+          if (!running) break;
+          long r0 = System.currentTimeMillis();
+          String data = c.readDataByEpc(t.epc, s.mem, s.wordPtr, s.words, s.password);
+          int rc = data == null || data.isEmpty() ? RC_NO_DATA : data.length() < s.words * 4 ? RC_SHORT : 0;
+          list.add(new Outcome(t, data, rc, System.currentTimeMillis() - r0));
+        }
+        return list;
+      }).join();
+    } catch (CancellationException e) {
+      throw new InterruptedException();
+    } catch (CompletionException e) {
+      int rc = e.getCause() instanceof TimeoutException ? ReaderExecutor.RC_TIMEOUT : -1;
+      outcomes = new ArrayList<>();
+      for (Target t : batch) outcomes.add(new Outcome(t, null, rc, 0));
+    } finally {
+      readBusyNanos += System.nanoTime() - t0;
+    }
+    for (Outcome o : outcomes) record(o);
+  }
+
+  private void record(Outcome o) throws IOException {
+    Target t = o.target();
+    t.attempts++;
+    if (t.attempts > 1) retried.increment();
+    if (o.ms() > 0) readMs.record(o.ms());
+    if (o.rc() == 0) {
+      synchronized (targets) {
+        t.done = true;
+      }
+      ok.increment();
+      ReadResult rr = new ReadResult(t.epc, settings.mem, settings.wordPtr, o.data().toUpperCase(Locale.ROOT), t.rssi,
+          t.antenna, o.ms(), t.attempts);
+      if (out != null) {
+        out.write(rr.epc() + "," + rr.mem() + "," + rr.wordPtr() + "," + rr.data() + "," + rr.rssi() + "," + rr.antenna() + ","
+            + rr.ms() + "," + rr.attempts());
+        out.newLine();
+        out.flush();
+      }
+      if (sink != null) sink.accept(rr);
+      return;
+    }
+    t.lastRc = o.rc();
+    synchronized (failureCodes) {
+      failureCodes.computeIfAbsent(o.rc(), k -> new LongAdder()).increment();
+    }
+    if (t.attempts > Math.max(0, settings.retries)) {
+      synchronized (targets) {
+        t.done = true;
+      }
+      failed.increment();
+    }
+  }
+
+  private int pending() {
+    int n = 0;
+    synchronized (targets) {
+      for (Target t : targets.values()) {
+        if (!t.done) n++;
+      }
+    }
+    return n;
+  }
+
+  private static String codeName(int rc) {
+    if (rc == RC_NO_DATA) return "noData";
+    if (rc == RC_SHORT) return "short";
+    return TagOps.codeName(rc);
+  }
+}
@@ -0,0 +1,326 @@
+package uhf.sdk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import uhf.core.Histogram;
+import uhf.core.InventoryParams;
+import uhf.core.Result;
+import uhf.core.TagOpResult;
+import uhf.core.TagRead;
+
+public final class EncodeJob {
+  public static final class Settings {
+    public String password = "00000000";
+    public int retries = 3;
+    public int windowMs = 300;
+  }
+
+  private final ReaderClient reader;
+  private final String source;
+  private final int count;
+  private final IntFunction<String> targets;
+  private final Path journal;
+  private final Settings settings;
+  private final BitSet done = new BitSet();
+  private final Set<String> written = ConcurrentHashMap.newKeySet();
+  private final Map<Integer, LongAdder> failureCodes = new TreeMap<>();
+  private final LongAdder encoded = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder retried = new LongAdder();
+  private final LongAdder alreadyEncoded = new LongAdder();
+  private final Histogram tagMs = Histogram.latencyMs();
+  private final Histogram writeMs = Histogram.latencyMs();
+  private final Map<String, String> window = new ConcurrentHashMap<>();
+  private volatile boolean collecting;
+  private volatile boolean tidInventory;
+  private volatile boolean running;
+  private volatile Thread worker;
+  private volatile String state = "";
+  private volatile String lastError = "";
+  private volatile long startedAt;
+  private volatile long busyMs;
+  private String lastIdentity = "";
+  private BufferedWriter out;
+
+  private EncodeJob(ReaderClient reader, String source, int count, IntFunction<String> targets, Path journal, Settings settings) {
+    this.reader = reader;
+    this.source = source;
+    this.count = count;
+    this.targets = targets;
+    this.journal = journal;
+    this.settings = settings == null ? new Settings() : settings;
+  }
+
+  public static EncodeJob create(ReaderClient reader, String source, Path journal, Settings settings) throws IOException {
+    String spec = source.trim();
+    if (spec.toLowerCase(Locale.ROOT).startsWith("serial:")) {
+      String[] p = spec.split(":");
+      if (p.length != 4) throw new IllegalArgumentException("serial:<prefixHex>:<start>:<count>");
+      String prefix = p[1].toUpperCase(Locale.ROOT);
+      long start = Long.parseLong(p[2]);
+      int n = Integer.parseInt(p[3]);
+      int width = 24 - prefix.length();
+      if (!isHex(prefix) || width <= 0 || n <= 0) throw new IllegalArgumentException("prefix must be < 24 hex chars");
+      BigInteger max = BigInteger.ONE.shiftLeft(width * 4);
+      if (BigInteger.valueOf(start + n - 1).compareTo(max) >= 0) throw new IllegalArgumentException("serial overflows EPC");
+      String fmt = "%0" + width + "X";
+      return new EncodeJob(reader, spec, n, i -> prefix + String.format(fmt, start + i), journal, settings);
+    }
+    List<String> epcs = new ArrayList<>();
+    for (String line : Files.readAllLines(Path.of(spec), StandardCharsets.UTF_8)) {
+      String cell = line.split("[,;\\t]", 2)[0].trim().replace("\"", "").toUpperCase(Locale.ROOT);
+      if (cell.isEmpty() || !isHex(cell) || cell.length() % 4 != 0) continue;
+      epcs.add(cell);
+    }
+    if (epcs.isEmpty()) throw new IllegalArgumentException("no EPCs in " + spec);
+    return new EncodeJob(reader, spec, epcs.size(), epcs::get, journal, settings);
+  }
+
+  public ReaderClient reader() {
+    return reader;
+  }
+
+  public Path journal() {
+    return journal;
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  public int count() {
+    return count;
+  }
+
+  public synchronized int resume() throws IOException {
+    done.clear();
+    if (!Files.exists(journal)) return 0;
+    for (String line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+      if (line.startsWith("#")) {
+        if (line.startsWith("# source=") && !line.substring(9).trim().equals(source)) {
+          throw new IllegalArgumentException("journal belongs to " + line.substring(9).trim());
+        }
+        continue;
+      }
+      String[] p = line.split(" ");
+      if (p.length >= 3 && p[2].equals("OK")) {
+        try {
+          int idx = Integer.parseInt(p[0]);
+          if (idx >= 0 && idx < count && targets.apply(idx).equals(p[1])) {
+            done.set(idx);
+            written.add(p[1]);
+          }
+        } catch (NumberFormatException ignored) {
+        }
+      }
+    }
+    return done.cardinality();
+  }
+
+  public synchronized Result start() {
+    if (running) return Result.success();
+    if (!reader.isConnected()) return Result.fail(0x36);
+    try {
+      Path parent = journal.toAbsolutePath().getParent();
+      if (parent != null) Files.createDirectories(parent);
+      boolean fresh = !Files.exists(journal);
+      out = Files.newBufferedWriter(journal, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+      if (fresh) journalLine("# source=" + source);
+    } catch (IOException e) {
+      lastError = e.getMessage();
+      return Result.fail(-1);
+    }
+    running = true;
+    startedAt = System.currentTimeMillis();
+    lastError = "";
+    Thread t = new Thread(this::run, "encode-" + reader.id());
+    t.setDaemon(true);
+    worker = t;
+    t.start();
+    return Result.success();
+  }
+
+  public void stop() {
+    running = false;
+    Thread t = worker;
+    if (t != null) t.interrupt();
+  }
+
+  public void onTag(TagRead tag) {
+    if (!collecting || tag == null) return;
+    String epc = tag.epcId() == null ? "" : tag.epcId().toUpperCase(Locale.ROOT);
+    String tid = !tidInventory || tag.memId() == null ? "" : tag.memId().toUpperCase(Locale.ROOT);
+    window.put(tid.isEmpty() ? "E:" + epc : "T:" + tid, epc);
+  }
+
+  public List<String> lines() {
+    List<String> lines = new ArrayList<>();
+    int d;
+    synchronized (this) {
+      d = done.cardinality();
+    }
+    double mins = Math.max(1, (running ? System.currentTimeMillis() - startedAt : busyMs)) / 60000.0;
+    lines.add(reader.id() + " " + (running ? "running " + state : "idle") + " " + d + "/" + count + " source=" + source);
+    lines.add(String.format(Locale.US, "encoded=%d failed=%d retried=%d alreadyEncoded=%d tags/min=%.1f",
+        encoded.sum(), failed.sum(), retried.sum(), alreadyEncoded.sum(), encoded.sum() / mins));
+    lines.add("tagMs " + tagMs.summary());
+    lines.add("writeMs " + writeMs.summary());
+    synchronized (failureCodes) {
+      if (!failureCodes.isEmpty()) {
+        StringBuilder sb = new StringBuilder("failures");
+        for (Map.Entry<Integer, LongAdder> e : failureCodes.entrySet()) {
+          sb.append(' ').append(TagOps.codeName(e.getKey())).append('=').append(e.getValue().sum());
+        }
+        lines.add(sb.toString());
+      }
+    }
+    lines.add("journal " + journal);
+    if (!lastError.isEmpty()) lines.add("error " + lastError);
+    return lines;
+  }
+
+  private void run() {
+    try {
+      ReaderExecutor.await(reader.submit("Encode", c -> c.isInventoryRunning() ? c.stopInventory() : Result.success()));
+      while (running) {
+        int idx = nextPending();
+        if (idx < 0) {
+          state = "done";
+          break;
+        }
+        encodeOne(idx, targets.apply(idx));
+      }
+    } catch (InterruptedException e) {
+      lastError = "stopped";
+    } catch (IOException | RuntimeException e) {
+      lastError = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+    } finally {
+      collecting = false;
+      busyMs = System.currentTimeMillis() - startedAt;
+      if (reader.isInventoryRunning()) ReaderExecutor.await(reader.submit("Encode", ReaderClient::stopInventory));
+      try {
+        out.close();
+      } catch (IOException ignored) {
+      }
+      running = false;
+      worker = null;
+    }
+  }
+
+  private void encodeOne(int idx, String target) throws InterruptedException, IOException {
+    state = "#" + idx + " waiting for tag";
+    Map.Entry<String, String> tag = null;
+    while (running && tag == null) {
+      Map<String, String> seen = singulate();
+      int inField = seen.size();
+      seen.remove(lastIdentity);
+      if (seen.size() != 1) {
+        state = "#" + idx + (seen.isEmpty() ? " waiting for tag" : " " + seen.size() + " tags in field");
+      } else if (inField != 1 && !seen.keySet().iterator().next().startsWith("T:")) {
+        state = "#" + idx + " " + inField + " tags in field, no TID: remove the previous tag";
+      } else {
+        tag = seen.entrySet().iterator().next();
+      }
+    }
+    if (tag == null) return;
+    long t0 = System.currentTimeMillis();
+    String identity = tag.getKey();
+    String tid = identity.startsWith("T:") ? identity.substring(2) : "";
+    if (tag.getValue().equals(target)) {
+      alreadyEncoded.increment();
+      finishTag(idx, target, tid, t0, 0, false);
+      lastIdentity = identity;
+      return;
+    }
+    if (written.contains(tag.getValue())) {
+      state = "#" + idx + " tag already encoded as " + tag.getValue();
+      lastIdentity = identity;
+      return;
+    }
+    state = "#" + idx + " writing " + target;
+    TagOps.Policy policy = reader.tagOps().policy();
+    policy.verify = true;
+    policy.maxAttempts = settings.retries + 1;
+    TagOpResult w = tid.isEmpty()
+        ? reader.tagOps().writeEpc(target, settings.password, policy)
+        : reader.tagOps().writeEpcByTid(tid, target, settings.password, policy);
+    writeMs.record(w.elapsedMs());
+    retried.add(Math.max(0, w.attempts() - 1));
+    int attempts = w.attempts();
+    Result r = w.result();
+    if (r.ok()) {
+      finishTag(idx, target, tid, t0, attempts, true);
+      lastIdentity = tid.isEmpty() ? "E:" + target : identity;
+      return;
+    }
+    failed.increment();
+    synchronized (failureCodes) {
+      failureCodes.computeIfAbsent(r.code(), k -> new LongAdder()).increment();
+    }
+    journalLine(idx + " " + target + " FAIL " + (tid.isEmpty() ? "-" : tid) + " " + (System.currentTimeMillis() - t0)
+        + " " + attempts + " " + TagOps.codeName(r.code()));
+    lastIdentity = identity;
+  }
+
+  private void finishTag(int idx, String target, String tid, long t0, int attempts, boolean wrote) throws IOException {
+    long ms = System.currentTimeMillis() - t0;
+    journalLine(idx + " " + target + " OK " + (tid.isEmpty() ? "-" : tid) + " " + ms + " " + attempts + " 0");
+    synchronized (this) {
+      done.set(idx);
+    }
+    written.add(target);
+    if (!wrote) return;
+    encoded.increment();
+    tagMs.record(ms);
+  }
+
+  private Map<String, String> singulate() throws InterruptedException {
+    InventoryParams p = reader.knownInventoryParams();
+    tidInventory = p != null && p.readMem() == 2 && p.readLength() > 0;
+    window.clear();
+    collecting = true;
+    Result r = ReaderExecutor.await(reader.submit("Encode", ReaderClient::startInventory));
+    try {
+      if (!r.ok()) throw new IllegalStateException("StartRead rc=" + r.code());
+      Thread.sleep(Math.max(50, settings.windowMs));
+    } finally {
+      collecting = false;
+      ReaderExecutor.await(reader.submit("Encode", ReaderClient::stopInventory));
+    }
+    return new TreeMap<>(window);
+  }
+
+  private synchronized int nextPending() {
+    int idx = done.nextClearBit(0);
+    return idx < count ? idx : -1;
+  }
+
+  private void journalLine(String line) throws IOException {
+    out.write(line);
+    out.newLine();
+    out.flush();
+  }
+
+  private static boolean isHex(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      if (Character.digit(s.charAt(i), 16) < 0) return false;
+    }
+    return !s.isEmpty();
+  }
+}
@@ -0,0 +1,246 @@
+package uhf.sdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import uhf.core.EpcPrefixTrie;
+import uhf.core.EpcRule;
+import uhf.core.Histogram;
+import uhf.core.Result;
+import uhf.core.TagRead;
+
+public final class EpcRuleEngine {
+  public static final String RELAY = "relay";
+  public static final String GPIO = "gpio";
+  public static final int DEFAULT_HOLD_MS = 500;
+  public static final int DEFAULT_DEBOUNCE_MS = 1000;
+
+  private record Compiled(List<EpcRule> rules, EpcPrefixTrie trie, AtomicLongArray lastFire, AtomicLongArray queuedAt,
+      AtomicLongArray seenAt, AtomicLongArray activeUntil, LongAdder[] hits) {
+  }
+
+  private final ReaderClient reader;
+  private final ArrayBlockingQueue<Integer> queue = new ArrayBlockingQueue<>(256);
+  private final LongAdder matched = new LongAdder();
+  private final LongAdder debounced = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder actuations = new LongAdder();
+  private final LongAdder actuationFailures = new LongAdder();
+  private final LongAdder extended = new LongAdder();
+  private final Histogram matchUs = new Histogram(1, 2, 5, 10, 20, 50, 100, 1000);
+  private final Histogram readToActuateMs = Histogram.latencyMs();
+  private volatile Compiled compiled = compile(List.of());
+  private volatile boolean running;
+  private volatile Thread worker;
+  private volatile String lastError = "";
+  private long[] holdUntil = new long[0];
+  private int relayOut;
+  private int gpioOut;
+
+  public EpcRuleEngine(ReaderClient reader) {
+    this.reader = reader;
+  }
+
+  public static EpcRule parseRule(List<String> args) {
+    if (args.size() < 3) return null;
+    String prefix = args.get(0).equals("*") ? "" : args.get(0).toUpperCase(Locale.ROOT);
+    for (int i = 0; i < prefix.length(); i++) {
+      if (Character.digit(prefix.charAt(i), 16) < 0) return null;
+    }
+    String out = args.get(1).toLowerCase(Locale.ROOT);
+    if (!out.equals(RELAY) && !out.equals(GPIO)) return null;
+    try {
+      int mask = Integer.decode(args.get(2));
+      if (mask <= 0 || mask > 0xFF) return null;
+      int hold = DEFAULT_HOLD_MS;
+      int debounce = DEFAULT_DEBOUNCE_MS;
+      for (String a : args.subList(3, args.size())) {
+        String t = a.toLowerCase(Locale.ROOT);
+        if (t.startsWith("hold=")) hold = Integer.parseInt(t.substring(5));
+        else if (t.startsWith("debounce=")) debounce = Integer.parseInt(t.substring(9));
+        else return null;
+      }
+      if (hold < 10 || debounce < 0) return null;
+      return new EpcRule(prefix, out, mask, hold, debounce);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  public static String describe(EpcRule r) {
+    return (r.prefix().isEmpty() ? "*" : r.prefix()) + " " + r.output() + " 0x" + Integer.toHexString(r.mask())
+        + " hold=" + r.holdMs() + " debounce=" + r.debounceMs();
+  }
+
+  public ReaderClient reader() {
+    return reader;
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  public List<EpcRule> rules() {
+    return compiled.rules();
+  }
+
+  public synchronized void setRules(List<EpcRule> rules) {
+    compiled = compile(rules);
+  }
+
+  public int match(String epc) {
+    return compiled.trie().match(epc);
+  }
+
+  public synchronized Result start() {
+    if (running) return Result.success();
+    if (!reader.isConnected()) return Result.fail(0x36);
+    running = true;
+    lastError = "";
+    queue.clear();
+    Thread t = new Thread(this::loop, "epc-rules-" + reader.id());
+    t.setDaemon(true);
+    t.setPriority(Thread.MAX_PRIORITY);
+    worker = t;
+    t.start();
+    return Result.success();
+  }
+
+  public synchronized void stop() {
+    running = false;
+    Thread t = worker;
+    worker = null;
+    if (t != null) t.interrupt();
+  }
+
+  public void onTag(TagRead tag) {
+    if (!running || tag == null) return;
+    long t0 = System.nanoTime();
+    Compiled c = compiled;
+    int idx = c.trie().match(tag.epcId());
+    matchUs.record((System.nanoTime() - t0) / 1000L);
+    if (idx < 0) return;
+    matched.increment();
+    c.hits()[idx].increment();
+    c.seenAt().set(idx, t0);
+    if (c.activeUntil().get(idx) != 0) return;
+    long last = c.lastFire().get(idx);
+    long debounceNs = TimeUnit.MILLISECONDS.toNanos(c.rules().get(idx).debounceMs());
+    if (last != 0 && t0 - last < debounceNs) {
+      debounced.increment();
+      return;
+    }
+    if (!c.lastFire().compareAndSet(idx, last, t0)) {
+      debounced.increment();
+      return;
+    }
+    c.queuedAt().set(idx, t0);
+    if (!queue.offer(idx)) dropped.increment();
+  }
+
+  public List<String> lines() {
+    List<String> out = new ArrayList<>();
+    Compiled c = compiled;
+    out.add(reader.id() + " " + (running ? "running" : "stopped") + " rules=" + c.rules().size() + " trieNodes="
+        + c.trie().nodeCount() + " relay=0x" + Integer.toHexString(relayOut) + " gpio=0x" + Integer.toHexString(gpioOut));
+    out.add("matched=" + matched.sum() + " debounced=" + debounced.sum() + " extended=" + extended.sum() + " dropped="
+        + dropped.sum() + " actuations=" + actuations.sum() + " failed=" + actuationFailures.sum());
+    out.add("matchUs " + matchUs.summary());
+    out.add("readToActuateMs " + readToActuateMs.summary());
+    for (int i = 0; i < c.rules().size(); i++) {
+      out.add(String.format(Locale.US, "%2d %s hits=%d", i, describe(c.rules().get(i)), c.hits()[i].sum()));
+    }
+    if (!lastError.isEmpty()) out.add("error " + lastError);
+    return out;
+  }
+
+  private void loop() {
+    Compiled active = compiled;
+    holdUntil = new long[active.rules().size()];
+    try {
+      while (running) {
+        long now = System.nanoTime();
+        long wait = Long.MAX_VALUE;
+        for (long h : holdUntil) {
+          if (h != 0) wait = Math.min(wait, h - now);
+        }
+        Integer idx = wait == Long.MAX_VALUE ? queue.poll(200, TimeUnit.MILLISECONDS)
+            : queue.poll(Math.max(0, wait), TimeUnit.NANOSECONDS);
+        Compiled c = compiled;
+        if (c != active) {
+          active = c;
+          holdUntil = new long[c.rules().size()];
+          queue.clear();
+          idx = null;
+        }
+        if (idx != null && idx < c.rules().size()) {
+          EpcRule r = c.rules().get(idx);
+          long until = Math.max(System.nanoTime(), c.seenAt().get(idx)) + TimeUnit.MILLISECONDS.toNanos(r.holdMs());
+          holdUntil[idx] = Math.max(holdUntil[idx], until);
+          c.activeUntil().set(idx, holdUntil[idx]);
+          apply(c, c.queuedAt().get(idx));
+          continue;
+        }
+        now = System.nanoTime();
+        for (int i = 0; i < holdUntil.length && i < c.rules().size(); i++) {
+          if (holdUntil[i] == 0 || holdUntil[i] > now) continue;
+          long until = c.seenAt().get(i) + TimeUnit.MILLISECONDS.toNanos(c.rules().get(i).holdMs());
+          if (until > now) {
+            holdUntil[i] = until;
+            extended.increment();
+          } else {
+            holdUntil[i] = 0;
+          }
+          c.activeUntil().set(i, holdUntil[i]);
+        }
+        apply(c, 0);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      holdUntil = new long[holdUntil.length];
+      for (int i = 0; i < active.activeUntil().length(); i++) active.activeUntil().set(i, 0);
+      apply(active, 0);
+    }
+  }
+
+  private void apply(Compiled c, long queuedAt) {
+    int relay = 0;
+    int gpio = 0;
+    for (int i = 0; i < holdUntil.length && i < c.rules().size(); i++) {
+      if (holdUntil[i] == 0) continue;
+      EpcRule r = c.rules().get(i);
+      if (r.output().equals(RELAY)) relay |= r.mask();
+      else gpio |= r.mask();
+    }
+    if (relay != relayOut) write(RELAY, relay);
+    if (gpio != gpioOut) write(GPIO, gpio);
+    if (queuedAt != 0) readToActuateMs.record((System.nanoTime() - queuedAt) / 1_000_000L);
+  }
+
+  private void write(String output, int value) {
+    if (!reader.isConnected()) return;
+    Result r = output.equals(RELAY) ? reader.setRelay(value) : reader.setGpio(value);
+    actuations.increment();
+    if (!r.ok()) {
+      actuationFailures.increment();
+      lastError = (output.equals(RELAY) ? "SetRelay" : "SetGPIO") + " rc=" + r.code();
+      return;
+    }
+    if (output.equals(RELAY)) relayOut = value;
+    else gpioOut = value;
+  }
+
+  private static Compiled compile(List<EpcRule> rules) {
+    List<String> prefixes = new ArrayList<>();
+    for (EpcRule r : rules) prefixes.add(r.prefix());
+    LongAdder[] hits = new LongAdder[rules.size()];
+    for (int i = 0; i < hits.length; i++) hits[i] = new LongAdder();
+    return new Compiled(List.copyOf(rules), EpcPrefixTrie.compile(prefixes), new AtomicLongArray(rules.size()),
+        new AtomicLongArray(rules.size()), new AtomicLongArray(rules.size()), new AtomicLongArray(rules.size()), hits);
+  }
+}
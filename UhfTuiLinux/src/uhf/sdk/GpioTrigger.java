@@ -0,0 +1,250 @@
+package uhf.sdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import uhf.core.GpioStatus;
+import uhf.core.GpioTriggerRule;
+import uhf.core.Histogram;
+import uhf.core.Result;
+import uhf.core.TagRead;
+
+public final class GpioTrigger {
+  public static final String START = "start";
+  public static final String STOP = "stop";
+  public static final String WINDOW = "window";
+  public static final int DEFAULT_POLL_MS = 20;
+
+  private final ReaderClient reader;
+  private final List<GpioTriggerRule> rules;
+  private final long pollNanos;
+  private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "gpio-window");
+    t.setDaemon(true);
+    return t;
+  });
+  private final LongAdder polls = new LongAdder();
+  private final LongAdder pollFailures = new LongAdder();
+  private final LongAdder gaps = new LongAdder();
+  private final LongAdder blindMs = new LongAdder();
+  private final LongAdder rising = new LongAdder();
+  private final LongAdder falling = new LongAdder();
+  private final LongAdder actions = new LongAdder();
+  private final LongAdder actionFailures = new LongAdder();
+  private final LongAdder windows = new LongAdder();
+  private final LongAdder retriggers = new LongAdder();
+  private final LongAdder emptyWindows = new LongAdder();
+  private final Histogram pollMs = Histogram.latencyMs();
+  private final Histogram edgeToStartMs = Histogram.latencyMs();
+  private final Histogram edgeToReadMs = Histogram.latencyMs();
+  private volatile boolean running;
+  private volatile Thread worker;
+  private volatile int lastMask = -1;
+  private volatile long armedAtNanos;
+  private final LongAdder windowReads = new LongAdder();
+  private volatile String lastError = "";
+  private ScheduledFuture<?> windowClose;
+  private long windowGen;
+
+  public GpioTrigger(ReaderClient reader, List<GpioTriggerRule> rules, int pollMs) {
+    this.reader = reader;
+    this.rules = List.copyOf(rules);
+    this.pollNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, pollMs));
+  }
+
+  public static GpioTriggerRule parseRule(String spec) {
+    if (spec == null || spec.isBlank()) return null;
+    String[] p = spec.trim().toLowerCase(Locale.ROOT).split(":");
+    if (p.length < 3) return null;
+    try {
+      int bit = Integer.parseInt(p[0]);
+      if (bit < 0 || bit > 7) return null;
+      boolean rise = p[1].equals("rise") || p[1].equals("both");
+      boolean fall = p[1].equals("fall") || p[1].equals("both");
+      if (!rise && !fall) return null;
+      String action = p[2];
+      if (!action.equals(START) && !action.equals(STOP) && !action.equals(WINDOW)) return null;
+      int ms = action.equals(WINDOW) ? (p.length > 3 ? Integer.parseInt(p[3]) : 1000) : 0;
+      if (action.equals(WINDOW) && ms < 10) return null;
+      return new GpioTriggerRule(bit, rise, fall, action, ms);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  public static String describe(GpioTriggerRule r) {
+    String edge = r.rising() && r.falling() ? "both" : r.rising() ? "rise" : "fall";
+    return r.bit() + ":" + edge + ":" + r.action() + (r.action().equals(WINDOW) ? ":" + r.windowMs() : "");
+  }
+
+  public ReaderClient reader() {
+    return reader;
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  public synchronized Result start() {
+    if (running) return Result.success();
+    if (!reader.isConnected()) return Result.fail(0x36);
+    if (rules.isEmpty()) return Result.fail(-1);
+    running = true;
+    lastMask = -1;
+    lastError = "";
+    Thread t = new Thread(this::loop, "gpio-trigger-" + reader.id());
+    t.setDaemon(true);
+    t.setPriority(Thread.MAX_PRIORITY);
+    worker = t;
+    t.start();
+    return Result.success();
+  }
+
+  public synchronized void stop() {
+    running = false;
+    Thread t = worker;
+    worker = null;
+    if (t != null) t.interrupt();
+    cancelWindow();
+  }
+
+  public void shutdown() {
+    stop();
+    timer.shutdownNow();
+  }
+
+  public void onTag(TagRead tag) {
+    long armed = armedAtNanos;
+    if (armed != 0 && tag != null) {
+      armedAtNanos = 0;
+      edgeToReadMs.record((System.nanoTime() - armed) / 1_000_000L);
+    }
+    windowReads.increment();
+  }
+
+  public List<String> lines() {
+    List<String> out = new ArrayList<>();
+    StringBuilder sb = new StringBuilder();
+    for (GpioTriggerRule r : rules) {
+      if (sb.length() > 0) sb.append(' ');
+      sb.append(describe(r));
+    }
+    int m = lastMask;
+    out.add(reader.id() + " " + (running ? "running" : "stopped") + " poll=" + pollNanos / 1_000_000L + "ms rules=[" + sb + "]"
+        + " mask=" + (m < 0 ? "-" : "0x" + Integer.toHexString(m)));
+    out.add("polls=" + polls.sum() + " failed=" + pollFailures.sum() + " gaps=" + gaps.sum() + " blindMs=" + blindMs.sum()
+        + " rising=" + rising.sum() + " falling=" + falling.sum());
+    out.add("actions=" + actions.sum() + " failed=" + actionFailures.sum() + " windows=" + windows.sum()
+        + " retriggers=" + retriggers.sum() + " emptyWindows=" + emptyWindows.sum());
+    out.add("pollMs " + pollMs.summary());
+    out.add("edgeToStartMs " + edgeToStartMs.summary());
+    out.add("edgeToFirstReadMs " + edgeToReadMs.summary());
+    if (!lastError.isEmpty()) out.add("error " + lastError);
+    return out;
+  }
+
+  private void loop() {
+    long next = System.nanoTime();
+    long lastOk = 0;
+    while (running) {
+      long t0 = System.nanoTime();
+      GpioStatus st = reader.getGpio();
+      long t1 = System.nanoTime();
+      polls.increment();
+      pollMs.record((t1 - t0) / 1_000_000L);
+      if (!st.result().ok()) {
+        pollFailures.increment();
+        lastError = "GetGPIOStatus rc=" + st.result().code();
+      } else {
+        if (lastOk != 0 && t1 - lastOk > 2 * pollNanos) {
+          gaps.increment();
+          blindMs.add((t1 - lastOk - pollNanos) / 1_000_000L);
+        }
+        lastOk = t1;
+        int mask = st.mask();
+        int prev = lastMask;
+        lastMask = mask;
+        if (prev >= 0 && prev != mask) onEdges(prev, mask, t0 + (t1 - t0) / 2);
+      }
+      next += pollNanos;
+      long now = System.nanoTime();
+      if (next < now) next = now;
+      LockSupport.parkNanos(next - now);
+      if (Thread.interrupted() && !running) break;
+    }
+  }
+
+  private void onEdges(int prev, int mask, long edgeNanos) {
+    int changed = prev ^ mask;
+    for (int bit = 0; bit < 8; bit++) {
+      if ((changed & (1 << bit)) == 0) continue;
+      boolean up = (mask & (1 << bit)) != 0;
+      if (up) rising.increment();
+      else falling.increment();
+      for (GpioTriggerRule r : rules) {
+        if (r.bit() != bit || (up ? !r.rising() : !r.falling())) continue;
+        fire(r, edgeNanos);
+      }
+    }
+  }
+
+  private void fire(GpioTriggerRule r, long edgeNanos) {
+    actions.increment();
+    switch (r.action()) {
+      case STOP -> {
+        cancelWindow();
+        if (!reader.stopInventory().ok()) actionFailures.increment();
+      }
+      case START -> startInventory(edgeNanos);
+      case WINDOW -> {
+        synchronized (this) {
+          if (windowClose != null) {
+            windowClose.cancel(false);
+            retriggers.increment();
+          } else {
+            windows.increment();
+            windowReads.reset();
+            startInventory(edgeNanos);
+          }
+          long gen = ++windowGen;
+          windowClose = timer.schedule(() -> closeWindow(gen), r.windowMs(), TimeUnit.MILLISECONDS);
+        }
+      }
+      default -> {
+      }
+    }
+  }
+
+  private void startInventory(long edgeNanos) {
+    if (reader.isInventoryRunning()) return;
+    armedAtNanos = edgeNanos;
+    Result res = reader.startInventory();
+    if (res.ok()) {
+      edgeToStartMs.record((System.nanoTime() - edgeNanos) / 1_000_000L);
+    } else {
+      armedAtNanos = 0;
+      actionFailures.increment();
+      lastError = "StartRead rc=" + res.code();
+    }
+  }
+
+  private synchronized void cancelWindow() {
+    windowGen++;
+    if (windowClose != null) windowClose.cancel(false);
+    windowClose = null;
+  }
+
+  private synchronized void closeWindow(long gen) {
+    if (gen != windowGen) return;
+    windowClose = null;
+    if (windowReads.sum() == 0) emptyWindows.increment();
+    armedAtNanos = 0;
+    if (!reader.stopInventory().ok()) actionFailures.increment();
+  }
+}
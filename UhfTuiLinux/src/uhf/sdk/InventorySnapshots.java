@@ -0,0 +1,223 @@
+package uhf.sdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import uhf.core.InventorySnapshot;
+import uhf.core.Result;
+import uhf.core.TagRead;
+
+public final class InventorySnapshots {
+  public static final long MIN_MS = 50;
+  public static final long MAX_MS = 600_000;
+  private static final AtomicLong IDS = new AtomicLong();
+
+  private static final class Snap {
+    final long id;
+    final long durationMs;
+    final CompletableFuture<InventorySnapshot> future = new CompletableFuture<>();
+    final Map<String, Integer> index = new HashMap<>();
+    String[] epcs = new String[32];
+    int[] counts = new int[32];
+    int[] rssi = new int[32];
+    int[] ants = new int[32];
+    int size;
+    long reads;
+    long startedAt;
+    boolean owner;
+    ScheduledFuture<?> timer;
+
+    Snap(long id, long durationMs) {
+      this.id = id;
+      this.durationMs = durationMs;
+    }
+
+    synchronized void add(TagRead tag) {
+      reads++;
+      String epc = tag.epcId();
+      Integer i = index.get(epc);
+      if (i == null) {
+        if (size == epcs.length) grow();
+        i = size++;
+        index.put(epc, i);
+        epcs[i] = epc;
+        rssi[i] = tag.rssi();
+        ants[i] = tag.antId();
+      } else if (tag.rssi() > rssi[i]) {
+        rssi[i] = tag.rssi();
+        ants[i] = tag.antId();
+      }
+      counts[i]++;
+    }
+
+    synchronized InventorySnapshot result(String readerId, Result r, boolean cancelled) {
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; i++) order[i] = i;
+      Arrays.sort(order, (a, b) -> counts[b] != counts[a] ? Integer.compare(counts[b], counts[a]) : epcs[a].compareTo(epcs[b]));
+      List<InventorySnapshot.Tag> tags = new ArrayList<>(size);
+      for (int i : order) tags.add(new InventorySnapshot.Tag(epcs[i], counts[i], rssi[i], ants[i]));
+      long started = startedAt == 0 ? System.currentTimeMillis() : startedAt;
+      return new InventorySnapshot(id, readerId, started, System.currentTimeMillis() - started, reads, List.copyOf(tags), r,
+          cancelled);
+    }
+
+    private void grow() {
+      int n = epcs.length * 2;
+      epcs = Arrays.copyOf(epcs, n);
+      counts = Arrays.copyOf(counts, n);
+      rssi = Arrays.copyOf(rssi, n);
+      ants = Arrays.copyOf(ants, n);
+    }
+  }
+
+  private final ReaderClient reader;
+  private final List<Snap> active = new CopyOnWriteArrayList<>();
+  private ScheduledExecutorService scheduler;
+  private int owners;
+
+  InventorySnapshots(ReaderClient reader) {
+    this.reader = reader;
+  }
+
+  public CompletableFuture<InventorySnapshot> start(long ms) {
+    return start(ms, reader::startInventory);
+  }
+
+  public CompletableFuture<InventorySnapshot> start(long ms, Supplier<Result> starter) {
+    Snap s = new Snap(IDS.incrementAndGet(), Math.max(MIN_MS, Math.min(MAX_MS, ms)));
+    s.future.whenComplete((v, t) -> {
+      if (t instanceof CancellationException) release(s);
+    });
+    if (!reader.isConnected()) {
+      s.future.complete(s.result(reader.id(), Result.fail(0x36), false));
+      return s.future;
+    }
+    scheduler().execute(() -> begin(s, starter));
+    return s.future;
+  }
+
+  public boolean cancel(long id) {
+    for (Snap s : active) {
+      if (s.id == id) {
+        finish(s, Result.success(), true);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public int cancelAll() {
+    int n = 0;
+    for (Snap s : active) {
+      finish(s, Result.success(), true);
+      n++;
+    }
+    return n;
+  }
+
+  public List<String> lines() {
+    List<String> out = new ArrayList<>();
+    long now = System.currentTimeMillis();
+    for (Snap s : active) {
+      synchronized (s) {
+        long elapsed = s.startedAt == 0 ? 0 : now - s.startedAt;
+        out.add("#" + s.id + " " + reader.id() + " " + elapsed + "/" + s.durationMs + " ms unique=" + s.size + " reads=" + s.reads
+            + (s.owner ? " owner" : ""));
+      }
+    }
+    return out;
+  }
+
+  public synchronized void shutdown() {
+    cancelAll();
+    if (scheduler != null) scheduler.shutdownNow();
+    scheduler = null;
+  }
+
+  void onTag(TagRead tag) {
+    if (active.isEmpty() || tag == null || tag.epcId() == null) return;
+    for (Snap s : active) s.add(tag);
+  }
+
+  private void begin(Snap s, Supplier<Result> starter) {
+    if (s.future.isDone()) return;
+    boolean needStart;
+    synchronized (this) {
+      needStart = owners > 0 || !reader.isInventoryRunning();
+      if (needStart) owners++;
+      s.owner = needStart;
+    }
+    if (needStart && !reader.isInventoryRunning()) {
+      Result r = starter.get();
+      if (!r.ok()) {
+        synchronized (this) {
+          owners--;
+          s.owner = false;
+        }
+        s.future.complete(s.result(reader.id(), r, false));
+        return;
+      }
+    }
+    synchronized (s) {
+      s.startedAt = System.currentTimeMillis();
+    }
+    active.add(s);
+    if (s.future.isDone()) {
+      release(s);
+      if (needStart) stopIfUnowned();
+      return;
+    }
+    s.timer = scheduler().schedule(() -> finish(s, Result.success(), false), s.durationMs, TimeUnit.MILLISECONDS);
+  }
+
+  private void finish(Snap s, Result r, boolean cancelled) {
+    if (!active.remove(s)) return;
+    if (s.timer != null) s.timer.cancel(false);
+    s.future.complete(s.result(reader.id(), r, cancelled));
+    releaseOwner(s);
+  }
+
+  private void release(Snap s) {
+    active.remove(s);
+    if (s.timer != null) s.timer.cancel(false);
+    releaseOwner(s);
+  }
+
+  private void releaseOwner(Snap s) {
+    synchronized (this) {
+      if (!s.owner) return;
+      s.owner = false;
+      owners--;
+    }
+    stopIfUnowned();
+  }
+
+  private void stopIfUnowned() {
+    synchronized (this) {
+      if (owners > 0) return;
+    }
+    if (reader.isInventoryRunning()) reader.stopInventoryAsync();
+  }
+
+  private synchronized ScheduledExecutorService scheduler() {
+    if (scheduler == null) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "snapshots-" + reader.id());
+        t.setDaemon(true);
+        return t;
+      });
+    }
+    return scheduler;
+  }
+}
@@ -0,0 +1,241 @@
+package uhf.sdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import uhf.core.AntennaPowerInfo;
+import uhf.core.InventoryParams;
+import uhf.core.Result;
+import uhf.core.TagRead;
+
+public final class PowerCalibrator {
+  public static final class Settings {
+    public int minPower = 5;
+    public int maxPower = 30;
+    public int dwellMs = 1000;
+    public int trials = 2;
+    public int maxStray = 0;
+    public int margin = 1;
+  }
+
+  public record AntennaResult(int antenna, int power, int strays, int trialsRun, String status) {
+    public boolean ok() {
+      return power >= 0;
+    }
+  }
+
+  private record Trial(int found, int strays) {
+  }
+
+  private final ReaderClient reader;
+  private final List<Integer> antennas;
+  private final Set<String> reference;
+  private final Settings settings;
+  private final List<AntennaResult> results = new ArrayList<>();
+  private volatile boolean running;
+  private volatile Thread worker;
+  private volatile boolean collecting;
+  private volatile Set<String> seen = ConcurrentHashMap.newKeySet();
+  private volatile String progress = "";
+  private volatile String lastError = "";
+  private volatile Result applied;
+  private volatile int trialsRun;
+
+  public PowerCalibrator(ReaderClient reader, List<Integer> antennas, Set<String> reference, Settings settings) {
+    this.reader = reader;
+    this.antennas = List.copyOf(antennas);
+    Set<String> ref = new LinkedHashSet<>();
+    for (String epc : reference) ref.add(epc.trim().toUpperCase(Locale.ROOT));
+    this.reference = Set.copyOf(ref);
+    this.settings = settings == null ? new Settings() : settings;
+  }
+
+  public ReaderClient reader() {
+    return reader;
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  public synchronized List<AntennaResult> results() {
+    return List.copyOf(results);
+  }
+
+  public synchronized Result start() {
+    if (running) return Result.success();
+    if (!reader.isConnected()) return Result.fail(0x36);
+    if (reference.isEmpty() || antennas.isEmpty()) return Result.fail(-1);
+    int n = reader.getAntennaCount();
+    AntennaPowerInfo originalPowers = reader.cachedRfPowerByAnt(n);
+    if (!originalPowers.result().ok()) return originalPowers.result();
+    if (originalPowers.powers().length < n) return Result.fail(-1);
+    InventoryParams original = reader.cachedInventoryParams();
+    if (!original.result().ok()) return original.result();
+    int[] base = Arrays.copyOf(originalPowers.powers(), n);
+    running = true;
+    results.clear();
+    applied = null;
+    lastError = "";
+    Thread t = new Thread(() -> run(original, base), "power-cal-" + reader.id());
+    t.setDaemon(true);
+    worker = t;
+    t.start();
+    return Result.success();
+  }
+
+  public void stop() {
+    running = false;
+    Thread t = worker;
+    if (t != null) t.interrupt();
+  }
+
+  public void onTag(TagRead tag) {
+    if (!collecting || tag == null) return;
+    seen.add(tag.epcId().toUpperCase(Locale.ROOT));
+  }
+
+  public List<String> lines() {
+    List<String> out = new ArrayList<>();
+    Settings s = settings;
+    out.add(reader.id() + " " + (running ? "running " + progress : "idle") + " ref=" + reference.size()
+        + " power=" + s.minPower + ".." + s.maxPower + " dwell=" + s.dwellMs + "ms trials=" + s.trials
+        + " maxStray=" + s.maxStray + " margin=" + s.margin + " trialsRun=" + trialsRun);
+    for (AntennaResult r : results()) {
+      out.add(String.format("ant%-2d %s strays=%d trials=%d %s", r.antenna(), r.ok() ? r.power() + " dBm" : "-",
+          r.strays(), r.trialsRun(), r.status()));
+    }
+    Result a = applied;
+    if (a != null) out.add("SetRfPowerByAnt " + (a.ok() ? "ok" : "rc=" + a.code()));
+    if (!lastError.isEmpty()) out.add("error " + lastError);
+    return out;
+  }
+
+  private void run(InventoryParams original, int[] base) {
+    int n = base.length;
+    int[] finalPowers = base.clone();
+    boolean any = false;
+    boolean completed = false;
+    try {
+      ReaderExecutor.await(reader.submit("Calibrate", c -> c.isInventoryRunning() ? c.stopInventory() : Result.success()));
+      for (int ant : antennas) {
+        if (!running) break;
+        AntennaResult r = calibrate(ant, original, base);
+        synchronized (this) {
+          results.add(r);
+        }
+        if (r.ok() && ant <= n) {
+          finalPowers[ant - 1] = r.power();
+          any = true;
+        }
+      }
+      completed = running;
+    } catch (InterruptedException e) {
+      lastError = "stopped";
+    } catch (RuntimeException e) {
+      lastError = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+    } finally {
+      collecting = false;
+      progress = "";
+      boolean apply = completed && any;
+      int[] powers = apply ? finalPowers : base;
+      Result restore = ReaderExecutor.await(reader.submit("Calibrate", c -> {
+        if (c.isInventoryRunning()) c.stopInventory();
+        Result p = c.setRfPowerByAnt(powers);
+        c.setInventoryParams(original);
+        return p;
+      }));
+      if (apply) applied = restore;
+      running = false;
+      worker = null;
+    }
+  }
+
+  private AntennaResult calibrate(int ant, InventoryParams original, int[] base) throws InterruptedException {
+    Map<Integer, Trial> worst = new HashMap<>();
+    int before = trialsRun;
+    int lo = Math.max(0, settings.minPower);
+    int hi = Math.min(33, Math.max(lo, settings.maxPower));
+    if (!reliable(ant, hi, original, base, worst)) {
+      return new AntennaResult(ant, -1, strays(worst, hi), trialsRun - before, "reference not read at " + hi + " dBm");
+    }
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (reliable(ant, mid, original, base, worst)) hi = mid;
+      else lo = mid + 1;
+    }
+    int power = Math.min(Math.min(33, settings.maxPower), hi + Math.max(0, settings.margin));
+    if (power != hi) reliable(ant, power, original, base, worst);
+    int strays = strays(worst, power);
+    if (strays > settings.maxStray) {
+      return new AntennaResult(ant, -1, strays, trialsRun - before,
+          "min reliable " + hi + " dBm but " + strays + " stray tags > " + settings.maxStray);
+    }
+    return new AntennaResult(ant, power, strays, trialsRun - before, "min reliable " + hi + " dBm");
+  }
+
+  private boolean reliable(int ant, int power, InventoryParams original, int[] base, Map<Integer, Trial> worst)
+      throws InterruptedException {
+    Trial cached = worst.get(power);
+    if (cached != null) return cached.found() == reference.size();
+    Trial w = null;
+    for (int i = 0; i < Math.max(1, settings.trials); i++) {
+      Trial t = trial(ant, power, original, base);
+      if (w == null || t.found() < w.found() || (t.found() == w.found() && t.strays() > w.strays())) w = t;
+      if (t.found() < reference.size()) break;
+    }
+    worst.put(power, w);
+    return w.found() == reference.size();
+  }
+
+  private Trial trial(int ant, int power, InventoryParams original, int[] base) throws InterruptedException {
+    if (!running) throw new InterruptedException();
+    progress = "ant" + ant + " " + power + " dBm";
+    int[] powers = base.clone();
+    if (ant <= powers.length) powers[ant - 1] = power;
+    int antValue = 0x80 + (ant - 1);
+    seen = ConcurrentHashMap.newKeySet();
+    collecting = true;
+    Result r = ReaderExecutor.await(reader.submit("Calibrate", c -> {
+      InventoryParams cur = c.cachedInventoryParams();
+      if (!cur.result().ok()) return cur.result();
+      if (cur.antenna() != antValue) {
+        Result set = c.setInventoryParams(new InventoryParams(Result.success(), cur.address(), cur.tidPtr(), cur.tidLen(),
+            original.session(), original.qValue(), original.scanTime(), antValue, cur.readType(), cur.readMem(),
+            cur.readPtr(), cur.readLength(), cur.password()));
+        if (!set.ok()) return set;
+      }
+      Result p = c.setRfPowerByAnt(powers);
+      return p.ok() ? c.startInventory() : p;
+    }));
+    if (!r.ok()) {
+      collecting = false;
+      throw new IllegalStateException("ant" + ant + " " + power + " dBm rc=" + r.code());
+    }
+    try {
+      Thread.sleep(Math.max(100, settings.dwellMs));
+    } finally {
+      collecting = false;
+      ReaderExecutor.await(reader.submit("Calibrate", ReaderClient::stopInventory));
+    }
+    trialsRun++;
+    int found = 0;
+    int strays = 0;
+    for (String epc : seen) {
+      if (reference.contains(epc)) found++;
+      else strays++;
+    }
+    return new Trial(found, strays);
+  }
+
+  private static int strays(Map<Integer, Trial> worst, int power) {
+    Trial t = worst.get(power);
+    return t == null ? 0 : t.strays();
+  }
+}
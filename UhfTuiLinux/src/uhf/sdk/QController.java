@@ -0,0 +1,240 @@
+package uhf.sdk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import uhf.core.InventoryParams;
+import uhf.core.Result;
+import uhf.core.TagRead;
+
+public final class QController {
+  public static final class Limits {
+    public int windowMs = 2000;
+    public int minQ = 0;
+    public int maxQ = 15;
+    public boolean tuneSession = false;
+    public int minSession = 0;
+    public int maxSession = 2;
+    public boolean tuneScanTime = false;
+    public int minScanTime = 3;
+    public int maxScanTime = 50;
+  }
+
+  private static final int AUDIT_KEEP = 50;
+  private static final double REVERT_DROP = 0.8;
+
+  private final ReaderClient reader;
+  private final Limits limits;
+  private final Path auditFile;
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "q-controller");
+    t.setDaemon(true);
+    return t;
+  });
+  private volatile ScheduledFuture<?> task;
+  private volatile Set<String> windowEpcs = ConcurrentHashMap.newKeySet();
+  private final LongAdder windowReads = new LongAdder();
+  private final Deque<String> audit = new ArrayDeque<>();
+  private final LongAdder windows = new LongAdder();
+  private final LongAdder changes = new LongAdder();
+  private final LongAdder reverts = new LongAdder();
+  private volatile long windowStartNanos;
+  private double population;
+  private double lastUniqueRate;
+  private double baselineRate = -1;
+  private InventoryParams beforeChange;
+  private int settleWindows;
+  private int blockedQ = -1;
+  private int blockedWindows;
+
+  public QController(ReaderClient reader, Limits limits, Path auditFile) {
+    this.reader = reader;
+    this.limits = limits == null ? new Limits() : limits;
+    this.auditFile = auditFile;
+  }
+
+  public ReaderClient reader() {
+    return reader;
+  }
+
+  public Limits limits() {
+    return limits;
+  }
+
+  public boolean isRunning() {
+    return task != null;
+  }
+
+  public synchronized void start() {
+    if (task != null) return;
+    windowStartNanos = System.nanoTime();
+    windowEpcs = ConcurrentHashMap.newKeySet();
+    windowReads.reset();
+    long period = Math.max(250, limits.windowMs);
+    task = scheduler.scheduleWithFixedDelay(this::safeTick, period, period, TimeUnit.MILLISECONDS);
+    log("start window=" + period + "ms q=[" + limits.minQ + ".." + limits.maxQ + "]"
+        + (limits.tuneSession ? " session=[" + limits.minSession + ".." + limits.maxSession + "]" : "")
+        + (limits.tuneScanTime ? " scanTime=[" + limits.minScanTime + ".." + limits.maxScanTime + "]" : ""));
+  }
+
+  public synchronized void stop() {
+    ScheduledFuture<?> t = task;
+    task = null;
+    if (t != null) {
+      t.cancel(false);
+      log("stop");
+    }
+  }
+
+  public void shutdown() {
+    stop();
+    scheduler.shutdownNow();
+  }
+
+  public void onTag(TagRead tag) {
+    if (task == null || tag == null) return;
+    windowReads.increment();
+    windowEpcs.add(tag.epcId());
+  }
+
+  public List<String> auditTail() {
+    synchronized (audit) {
+      return new ArrayList<>(audit);
+    }
+  }
+
+  public List<String> lines() {
+    List<String> out = new ArrayList<>();
+    out.add(reader.id() + " " + (isRunning() ? "running" : "stopped") + " windows=" + windows.sum()
+        + " changes=" + changes.sum() + " reverts=" + reverts.sum()
+        + String.format(" pop~%.0f unique/s=%.1f", population, lastUniqueRate));
+    InventoryParams p = reader.cache().inventoryParams();
+    if (p != null) out.add("q=" + p.qValue() + " session=" + p.session() + " scanTime=" + p.scanTime());
+    return out;
+  }
+
+  private void safeTick() {
+    try {
+      tick();
+    } catch (Throwable t) {
+      log("error " + t.getClass().getSimpleName());
+    }
+  }
+
+  private synchronized void tick() {
+    long now = System.nanoTime();
+    double secs = Math.max(0.001, (now - windowStartNanos) / 1e9);
+    windowStartNanos = now;
+    Set<String> epcs = windowEpcs;
+    windowEpcs = ConcurrentHashMap.newKeySet();
+    long reads = windowReads.sumThenReset();
+    if (!reader.isInventoryRunning()) return;
+    windows.increment();
+    int unique = epcs.size();
+    double uniqueRate = unique / secs;
+    double readRate = reads / secs;
+    lastUniqueRate = uniqueRate;
+    if (blockedWindows > 0 && --blockedWindows == 0) blockedQ = -1;
+    if (unique == 0) return;
+    population = population <= 0 ? unique : 0.6 * population + 0.4 * unique;
+
+    InventoryParams cur = reader.cachedInventoryParams();
+    if (!cur.result().ok()) return;
+
+    if (settleWindows > 0) {
+      settleWindows--;
+      if (settleWindows == 0 && beforeChange != null && baselineRate > 0 && uniqueRate < baselineRate * REVERT_DROP) {
+        InventoryParams back = beforeChange;
+        beforeChange = null;
+        blockedQ = cur.qValue();
+        blockedWindows = 10;
+        if (apply(back).ok()) {
+          reverts.increment();
+          log(String.format("revert q=%d->%d session=%d->%d scanTime=%d->%d unique/s %.1f < baseline %.1f",
+              cur.qValue(), back.qValue(), cur.session(), back.session(), cur.scanTime(), back.scanTime(),
+              uniqueRate, baselineRate));
+        }
+        settleWindows = 1;
+        baselineRate = -1;
+        return;
+      }
+      if (settleWindows == 0) beforeChange = null;
+      return;
+    }
+
+    int q = cur.qValue();
+    int targetQ = clamp((int) Math.ceil(Math.log(Math.max(1, population * 1.2)) / Math.log(2)), limits.minQ, limits.maxQ);
+    if (targetQ != q) {
+      int stepped = targetQ > q ? q + 1 : q - 1;
+      if (stepped != blockedQ) q = stepped;
+    }
+    int session = cur.session();
+    if (limits.tuneSession) {
+      if (population >= 64 && session == 0) session = clamp(1, limits.minSession, limits.maxSession);
+      else if (population <= 8 && session != 0) session = clamp(0, limits.minSession, limits.maxSession);
+    }
+    int scanTime = cur.scanTime();
+    if (limits.tuneScanTime) {
+      int target = clamp((int) Math.round(3 + population / 40), limits.minScanTime, limits.maxScanTime);
+      if (Math.abs(target - scanTime) >= 2) scanTime = target;
+    }
+    if (q == cur.qValue() && session == cur.session() && scanTime == cur.scanTime()) return;
+
+    InventoryParams next = new InventoryParams(Result.success(), cur.address(), cur.tidPtr(), cur.tidLen(), session, q,
+        scanTime, cur.antenna(), cur.readType(), cur.readMem(), cur.readPtr(), cur.readLength(), cur.password());
+    Result r = apply(next);
+    log(String.format("%s q=%d->%d session=%d->%d scanTime=%d->%d pop~%.0f unique=%d unique/s=%.1f reads/s=%.1f%s",
+        r.ok() ? "set" : "fail", cur.qValue(), q, cur.session(), session, cur.scanTime(), scanTime,
+        population, unique, uniqueRate, readRate, r.ok() ? "" : " rc=" + r.code()));
+    if (!r.ok()) return;
+    changes.increment();
+    beforeChange = cur;
+    baselineRate = uniqueRate;
+    settleWindows = 2;
+  }
+
+  private Result apply(InventoryParams next) {
+    return ReaderExecutor.await(reader.submit("QControl", c -> {
+      if (!c.isInventoryRunning()) return Result.fail(0x36);
+      Result r = c.stopInventory();
+      if (!r.ok()) return r;
+      Result set = c.setInventoryParams(next);
+      Result start = c.startInventory();
+      return set.ok() ? start : set;
+    }));
+  }
+
+  private void log(String msg) {
+    String line = Instant.now() + " " + reader.id() + " " + msg;
+    synchronized (audit) {
+      audit.addLast(line);
+      while (audit.size() > AUDIT_KEEP) audit.removeFirst();
+    }
+    if (auditFile == null) return;
+    try {
+      Path parent = auditFile.toAbsolutePath().getParent();
+      if (parent != null) Files.createDirectories(parent);
+      Files.write(auditFile, (line + "\n").getBytes(StandardCharsets.UTF_8),
+          StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    } catch (IOException ignored) {
+    }
+  }
+
+  private static int clamp(int v, int min, int max) {
+    return Math.max(min, Math.min(max, v));
+  }
+}
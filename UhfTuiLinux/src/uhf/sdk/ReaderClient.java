@@ -4,31 +4,260 @@ import com.rfid.CReader;
 import com.rfid.ReadTag;
 import com.rfid.ReaderParameter;
 import com.rfid.TagCallback;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 import uhf.core.AntennaPowerInfo;
 import uhf.core.GpioStatus;
 import uhf.core.InventoryParams;
 import uhf.core.ReaderInfo;
 import uhf.core.Result;
 import uhf.core.TagRead;
+import uhf.core.TagSource;
 import uhf.core.ReturnLossInfo;
 import uhf.core.WritePowerInfo;
 
-public final class ReaderClient {
-  private CReader reader;
-  private boolean connected;
+public final class ReaderClient implements TagSource {
+  public static final long DEFAULT_COMMAND_TIMEOUT_MS = 5000;
+  private static final long CONNECT_TIMEOUT_MS = 15000;
+  private static final SdkCallStats PROBE_SDK = new SdkCallStats();
+
+  private final String id;
+  private final ReaderExecutor executor;
+  private final ReaderStateCache cache = new ReaderStateCache();
+  private final SdkCallStats sdk = new SdkCallStats();
+  private final AntennaHealth health;
+  private final TagOps tagOps;
+  private final ReaderHealthProbe probe;
+  private final InventorySnapshots snapshots;
+  private volatile CReader reader;
+  private volatile boolean connected;
+  private volatile boolean inventoryRunning;
+  private volatile String host = "";
+  private volatile int port;
+  private int readerType = 4;
+  private int log;
   private int antennaCount = 4;
   private Consumer<TagRead> tagConsumer = t -> {};
   private Runnable stopListener = () -> {};
+  private volatile boolean wantConnected;
+  private volatile boolean wantInventory;
+  private final AtomicInteger disconnects = new AtomicInteger();
+  private volatile long lastTagAt;
+  private volatile long unexpectedStopAt;
+  private volatile int consecutiveLinkFailures;
+  private volatile InventoryParams lastInventoryParams;
+  private volatile int lastPower = -1;
+  private volatile int[] lastAntennaPowers;
+  private volatile long commandTimeoutMs = DEFAULT_COMMAND_TIMEOUT_MS;
+
+  public ReaderClient() {
+    this(ReaderPool.DEFAULT_ID);
+  }
+
+  public ReaderClient(String id) {
+    this.id = id == null || id.isBlank() ? ReaderPool.DEFAULT_ID : id.trim();
+    this.executor = new ReaderExecutor("reader-" + this.id);
+    this.health = new AntennaHealth(this);
+    this.tagOps = new TagOps(this);
+    this.probe = new ReaderHealthProbe(this);
+    this.snapshots = new InventorySnapshots(this);
+  }
+
+  public String id() {
+    return id;
+  }
+
+  public String host() {
+    return host;
+  }
+
+  public int port() {
+    return port;
+  }
 
   public boolean isConnected() {
     return connected;
   }
 
+  public boolean isInventoryRunning() {
+    return connected && inventoryRunning;
+  }
+
   public int getAntennaCount() {
     return antennaCount;
   }
 
+  public boolean wantsConnection() {
+    return wantConnected;
+  }
+
+  public boolean wantsInventory() {
+    return wantConnected && wantInventory;
+  }
+
+  public long lastTagAt() {
+    return lastTagAt;
+  }
+
+  public long unexpectedStopAt() {
+    return unexpectedStopAt;
+  }
+
+  public int consecutiveLinkFailures() {
+    return consecutiveLinkFailures;
+  }
+
+  public ReaderExecutor executor() {
+    return executor;
+  }
+
+  public ReaderStateCache cache() {
+    return cache;
+  }
+
+  public SdkCallStats sdkStats() {
+    return sdk;
+  }
+
+  public static SdkCallStats probeSdkStats() {
+    return PROBE_SDK;
+  }
+
+  public AntennaHealth health() {
+    return health;
+  }
+
+  public TagOps tagOps() {
+    return tagOps;
+  }
+
+  public ReaderHealthProbe healthProbe() {
+    return probe;
+  }
+
+  public InventorySnapshots snapshots() {
+    return snapshots;
+  }
+
+  InventoryParams knownInventoryParams() {
+    ReaderStateCache.Entry<InventoryParams> e = cache.inventoryParamsEntry();
+    return e != null ? e.value() : lastInventoryParams;
+  }
+
+  public InventoryParams cachedInventoryParams() {
+    return call("GetInventoryParameter", commandTimeoutMs, () -> {
+      InventoryParams p = cache.inventoryParams();
+      return p != null ? p : getInventoryParams();
+    }, rc -> defaultInventoryParams(Result.fail(rc)));
+  }
+
+  public ReaderInfo cachedInfo() {
+    return call("GetUHFInformation", commandTimeoutMs, () -> {
+      ReaderInfo i = cache.info();
+      return i != null ? i : getInfo();
+    }, rc -> new ReaderInfo(Result.fail(rc), 0, 0, 0, 0, 0, 0, 0, 0));
+  }
+
+  public WritePowerInfo cachedWritePower() {
+    return call("GetWritePower", commandTimeoutMs, () -> {
+      WritePowerInfo w = cache.writePower();
+      return w != null ? w : getWritePower();
+    }, rc -> new WritePowerInfo(Result.fail(rc), 0, false));
+  }
+
+  public AntennaPowerInfo cachedRfPowerByAnt(int count) {
+    int n = count > 0 ? count : antennaCount;
+    return call("GetRfPowerByAnt", commandTimeoutMs, () -> {
+      AntennaPowerInfo a = cache.antennaPowers(n);
+      return a != null ? a : getRfPowerByAnt(n);
+    }, rc -> new AntennaPowerInfo(Result.fail(rc), new int[0]));
+  }
+
+  public Result refreshState() {
+    return call("RefreshState", commandTimeoutMs * 4, () -> {
+      cache.invalidate();
+      Result first = Result.success();
+      Result[] results = {
+          getInventoryParams().result(),
+          getInfo().result(),
+          getWritePower().result(),
+          getRfPowerByAnt(antennaCount).result()
+      };
+      for (Result r : results) {
+        if (!r.ok() && first.ok()) first = r;
+      }
+      return first;
+    }, Result::fail);
+  }
+
+  public void invalidateState() {
+    cache.invalidate();
+  }
+
+  public long commandTimeoutMs() {
+    return commandTimeoutMs;
+  }
+
+  public void setCommandTimeoutMs(long ms) {
+    commandTimeoutMs = Math.max(100, ms);
+  }
+
+  public <T> CompletableFuture<T> submit(String op, Function<ReaderClient, T> task) {
+    return submit(op, commandTimeoutMs, task);
+  }
+
+  public <T> CompletableFuture<T> submit(String op, long timeoutMs, Function<ReaderClient, T> task) {
+    return executor.submit(op, timeoutMs, () -> task.apply(this));
+  }
+
+  public CompletableFuture<Result> connectAsync(String ip, int port, int readerType, int log,
+      Consumer<TagRead> onTag, Runnable onStop) {
+    return submit("Connect", CONNECT_TIMEOUT_MS, r -> r.connect(ip, port, readerType, log, onTag, onStop));
+  }
+
+  public CompletableFuture<Result> disconnectAsync() {
+    disconnects.incrementAndGet();
+    wantConnected = false;
+    wantInventory = false;
+    executor.cancelPending();
+    return submit("DisConnect", ReaderClient::userDisconnect);
+  }
+
+  public CompletableFuture<Result> startInventoryAsync() {
+    return submit("StartRead", ReaderClient::startInventory);
+  }
+
+  public CompletableFuture<Result> stopInventoryAsync() {
+    return submit("StopRead", ReaderClient::stopInventory);
+  }
+
+  public CompletableFuture<Result> setPowerAsync(int powerDbm) {
+    return submit("SetRfPower", r -> r.setPower(powerDbm));
+  }
+
+  public CompletableFuture<ReaderInfo> getInfoAsync() {
+    return submit("GetUHFInformation", ReaderClient::getInfo);
+  }
+
+  public CompletableFuture<InventoryParams> getInventoryParamsAsync() {
+    return submit("GetInventoryParameter", ReaderClient::getInventoryParams);
+  }
+
+  public CompletableFuture<Result> setInventoryParamsAsync(InventoryParams params) {
+    return submit("SetInventoryParameter", r -> r.setInventoryParams(params));
+  }
+
+  public void shutdown() {
+    health.stop();
+    probe.stop();
+    snapshots.shutdown();
+    executor.shutdown();
+  }
+
   public Result connect(
       String ip,
       int port,
@@ -37,153 +266,306 @@ public final class ReaderClient {
       Consumer<TagRead> onTag,
       Runnable onStop
   ) {
-    if (connected) return Result.fail(0x35);
-    try {
-      antennaCount = readerType == 16 ? 16 : 4;
-      tagConsumer = onTag == null ? t -> {} : onTag;
-      stopListener = onStop == null ? () -> {} : onStop;
-      reader = new CReader(ip, port, readerType, log);
-      reader.SetCallBack(new TagCallback() {
-        @Override
-        public void tagCallback(ReadTag tag) {
-          tagConsumer.accept(new TagRead(
-              tag.ipAddr,
-              tag.epcId,
-              tag.memId,
-              tag.rssi,
-              tag.antId
-          ));
-        }
-
-        @Override
-        public void StopReadCallback() {
-          stopListener.run();
+    return call("Connect", CONNECT_TIMEOUT_MS, () -> {
+      if (connected) return Result.fail(0x35);
+      try {
+        antennaCount = readerType == 16 ? 16 : 4;
+        tagConsumer = onTag == null ? t -> {} : onTag;
+        stopListener = onStop == null ? () -> {} : onStop;
+        CReader created = sdk.value("CReader", () -> new CReader(ip, port, readerType, log));
+        reader = created;
+        sdk.run("SetCallBack", () -> created.SetCallBack(new TagCallback() {
+          @Override
+          public void tagCallback(ReadTag tag) {
+            lastTagAt = System.currentTimeMillis();
+            health.onRead(tag.antId);
+            TagRead read = new TagRead(
+                tag.ipAddr,
+                tag.epcId,
+                tag.memId,
+                tag.rssi,
+                tag.antId,
+                id
+            );
+            snapshots.onTag(read);
+            tagConsumer.accept(read);
+          }
+
+          @Override
+          public void StopReadCallback() {
+            inventoryRunning = false;
+            if (wantInventory) unexpectedStopAt = System.currentTimeMillis();
+            stopListener.run();
+          }
+        }));
+        int rc = sdk.rc("Connect", reader::Connect);
+        if (rc == 0) {
+          connected = true;
+          inventoryRunning = false;
+          host = ip;
+          this.port = port;
+          this.readerType = readerType;
+          this.log = log;
+          wantConnected = true;
+          consecutiveLinkFailures = 0;
+          unexpectedStopAt = 0;
+          cache.invalidate();
+          probe.reset();
+          return Result.success();
         }
-      });
-      int rc = reader.Connect();
-      if (rc == 0) {
-        connected = true;
-        return Result.success();
+        reader = null;
+        return Result.fail(rc);
+      } catch (Throwable t) {
+        reader = null;
+        return Result.fail(-1);
       }
-      reader = null;
-      return Result.fail(rc);
-    } catch (Throwable t) {
-      reader = null;
-      return Result.fail(-1);
-    }
+    }, Result::fail);
   }
 
   public Result disconnect() {
-    if (!connected || reader == null) return Result.success();
+    disconnects.incrementAndGet();
+    wantConnected = false;
+    wantInventory = false;
+    executor.cancelPending();
+    return call("DisConnect", commandTimeoutMs, this::userDisconnect, Result::fail);
+  }
+
+  public Result reconnect() {
+    return call("Reconnect", CONNECT_TIMEOUT_MS, () -> {
+      if (host == null || host.isEmpty() || port <= 0) return Result.fail(0x36);
+      int generation = disconnects.get();
+      boolean resumeInventory = wantInventory;
+      dropConnection();
+      Result r = connect(host, port, readerType, log, tagConsumer, stopListener);
+      if (disconnects.get() != generation) {
+        userDisconnect();
+        return Result.fail(ReaderExecutor.RC_CANCELLED);
+      }
+      if (!r.ok()) {
+        wantConnected = true;
+        wantInventory = resumeInventory;
+        return r;
+      }
+      wantInventory = resumeInventory;
+      return restoreState();
+    }, Result::fail);
+  }
+
+  boolean abortHungCall() {
+    CReader r = reader;
+    if (r == null || sdk.inCallMs() < commandTimeoutMs) return false;
+    Thread t = new Thread(() -> {
+      try {
+        sdk.run("DisConnect", r::DisConnect);
+      } catch (Throwable ignored) {
+      }
+    }, "reader-" + id + "-abort");
+    t.setDaemon(true);
+    t.start();
+    return true;
+  }
+
+  private Result userDisconnect() {
+    wantConnected = false;
+    wantInventory = false;
+    return dropConnection();
+  }
+
+  public Result restoreState() {
+    return call("RestoreState", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      InventoryParams params = lastInventoryParams;
+      if (params != null) {
+        Result r = applyInventoryParams(params);
+        if (!r.ok()) return r;
+      }
+      if (lastPower >= 0) {
+        Result r = result(sdk.rc("SetRfPower", () -> reader.SetRfPower(lastPower)));
+        if (!r.ok()) return r;
+        cache.updatePower(lastPower);
+      }
+      int[] antPowers = lastAntennaPowers;
+      if (antPowers != null) {
+        Result r = applyRfPowerByAnt(antPowers);
+        if (!r.ok()) return r;
+      }
+      if (wantInventory) {
+        int rc = sdk.rc("StartRead", reader::StartRead);
+        if (rc == 0) inventoryRunning = true;
+        return result(rc);
+      }
+      return Result.success();
+    }, Result::fail);
+  }
+
+  private Result dropConnection() {
+    cache.invalidate();
+    if (!connected || reader == null) {
+      connected = false;
+      inventoryRunning = false;
+      reader = null;
+      return Result.success();
+    }
     try {
-      try { reader.StopRead(); } catch (Throwable ignored) {}
-      reader.DisConnect();
+      try { sdk.run("StopRead", reader::StopRead); } catch (Throwable ignored) {}
+      sdk.run("DisConnect", reader::DisConnect);
       reader = null;
       connected = false;
+      inventoryRunning = false;
       return Result.success();
     } catch (Throwable t) {
       reader = null;
       connected = false;
+      inventoryRunning = false;
       return Result.fail(-1);
     }
   }
 
   public Result startInventory() {
-    if (!connected || reader == null) return Result.fail(0x36);
-    int rc = reader.StartRead();
-    return rc == 0 ? Result.success() : Result.fail(rc);
+    return call("StartRead", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      int rc = sdk.rc("StartRead", reader::StartRead);
+      ReaderStateCache.Entry<InventoryParams> e = cache.inventoryParamsEntry();
+      InventoryParams p = e != null ? e.value() : lastInventoryParams;
+      if (p != null && p.antenna() >= 0x80) health.onStart(p.antenna() - 0x7F, rc);
+      if (rc == 0) {
+        inventoryRunning = true;
+        wantInventory = true;
+        unexpectedStopAt = 0;
+      }
+      return result(rc);
+    }, Result::fail);
   }
 
   public Result stopInventory() {
-    if (!connected || reader == null) return Result.fail(0x36);
-    try {
-      reader.StopRead();
-      return Result.success();
-    } catch (Throwable t) {
-      return Result.fail(-1);
-    }
+    return call("StopRead", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      wantInventory = false;
+      try {
+        sdk.run("StopRead", reader::StopRead);
+        inventoryRunning = false;
+        return Result.success();
+      } catch (Throwable t) {
+        return result(-1);
+      }
+    }, Result::fail);
   }
 
   public Result setPower(int powerDbm) {
-    if (!connected || reader == null) return Result.fail(0x36);
-    int rc = reader.SetRfPower(powerDbm);
-    return rc == 0 ? Result.success() : Result.fail(rc);
+    return call("SetRfPower", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      int rc = sdk.rc("SetRfPower", () -> reader.SetRfPower(powerDbm));
+      if (rc == 0) {
+        lastPower = powerDbm;
+        cache.updatePower(powerDbm);
+      }
+      return result(rc);
+    }, Result::fail);
   }
 
   public Result setRegion(int band, int maxFreq, int minFreq) {
-    if (!connected || reader == null) return Result.fail(0x36);
-    int rc = reader.SetRegion(band, maxFreq, minFreq);
-    return rc == 0 ? Result.success() : Result.fail(rc);
+    return call("SetRegion", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      int rc = sdk.rc("SetRegion", () -> reader.SetRegion(band, maxFreq, minFreq));
+      if (rc == 0) cache.updateRegion(band, maxFreq, minFreq);
+      return result(rc);
+    }, Result::fail);
   }
 
   public Result setBeep(int enabled) {
-    if (!connected || reader == null) return Result.fail(0x36);
-    int rc = reader.SetBeepNotification(enabled);
-    return rc == 0 ? Result.success() : Result.fail(rc);
+    return call("SetBeepNotification", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      int rc = sdk.rc("SetBeepNotification", () -> reader.SetBeepNotification(enabled));
+      if (rc == 0) cache.updateBeep(enabled);
+      return result(rc);
+    }, Result::fail);
   }
 
   public Result setRelay(int value) {
-    if (!connected || reader == null) return Result.fail(0x36);
-    int rc = reader.SetRelay(value);
-    return rc == 0 ? Result.success() : Result.fail(rc);
+    return call("SetRelay", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      int rc = sdk.rc("SetRelay", () -> reader.SetRelay(value));
+      return result(rc);
+    }, Result::fail);
   }
 
   public Result setGpio(int mask) {
-    if (!connected || reader == null) return Result.fail(0x36);
-    int rc = reader.SetGPIO(mask);
-    return rc == 0 ? Result.success() : Result.fail(rc);
+    return call("SetGPIO", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      int rc = sdk.rc("SetGPIO", () -> reader.SetGPIO(mask));
+      return result(rc);
+    }, Result::fail);
   }
 
   public GpioStatus getGpio() {
-    if (!connected || reader == null) return new GpioStatus(Result.fail(0x36), 0);
-    byte[] out = new byte[1];
-    int rc = reader.GetGPIOStatus(out);
-    int mask = out[0] & 0xFF;
-    return new GpioStatus(rc == 0 ? Result.success() : Result.fail(rc), mask);
+    return call("GetGPIOStatus", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return new GpioStatus(Result.fail(0x36), 0);
+      byte[] out = new byte[1];
+      int rc = sdk.rc("GetGPIOStatus", () -> reader.GetGPIOStatus(out));
+      int mask = out[0] & 0xFF;
+      return new GpioStatus(result(rc), mask);
+    }, rc -> new GpioStatus(Result.fail(rc), 0));
   }
 
   public ReaderInfo getInfo() {
-    if (!connected || reader == null) return new ReaderInfo(Result.fail(0x36), 0, 0, 0, 0, 0, 0, 0, 0);
-    byte[] version = new byte[2];
-    byte[] power = new byte[1];
-    byte[] band = new byte[1];
-    byte[] maxFre = new byte[1];
-    byte[] minFre = new byte[1];
-    byte[] beep = new byte[1];
-    int[] ant = new int[1];
-    int rc = reader.GetUHFInformation(version, power, band, maxFre, minFre, beep, ant);
-    Result result = rc == 0 ? Result.success() : Result.fail(rc);
-    return new ReaderInfo(
-        result,
-        version[0] & 0xFF,
-        version[1] & 0xFF,
-        power[0] & 0xFF,
-        band[0] & 0xFF,
-        minFre[0] & 0xFF,
-        maxFre[0] & 0xFF,
-        beep[0] & 0xFF,
-        ant[0]
-    );
+    return call("GetUHFInformation", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return new ReaderInfo(Result.fail(0x36), 0, 0, 0, 0, 0, 0, 0, 0);
+      byte[] version = new byte[2];
+      byte[] power = new byte[1];
+      byte[] band = new byte[1];
+      byte[] maxFre = new byte[1];
+      byte[] minFre = new byte[1];
+      byte[] beep = new byte[1];
+      int[] ant = new int[1];
+      int rc = sdk.rc("GetUHFInformation", () -> reader.GetUHFInformation(version, power, band, maxFre, minFre, beep, ant));
+      Result result = result(rc);
+      ReaderInfo info = new ReaderInfo(
+          result,
+          version[0] & 0xFF,
+          version[1] & 0xFF,
+          power[0] & 0xFF,
+          band[0] & 0xFF,
+          minFre[0] & 0xFF,
+          maxFre[0] & 0xFF,
+          beep[0] & 0xFF,
+          ant[0]
+      );
+      cache.putInfo(info);
+      return info;
+    }, rc -> new ReaderInfo(Result.fail(rc), 0, 0, 0, 0, 0, 0, 0, 0));
   }
 
   public String getSerialNumber() {
-    if (!connected || reader == null) return null;
-    try {
-      return reader.GetSerialNo();
-    } catch (Throwable t) {
-      return null;
-    }
+    return call("GetSerialNo", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return null;
+      try {
+        return sdk.value("GetSerialNo", reader::GetSerialNo);
+      } catch (Throwable t) {
+        return null;
+      }
+    }, rc -> null);
   }
 
   public Result setAntenna(int arg1, int arg2) {
-    if (!connected || reader == null) return Result.fail(0x36);
-    int rc = reader.SetAntenna(arg1, arg2);
-    return rc == 0 ? Result.success() : Result.fail(rc);
+    return call("SetAntenna", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      int rc = sdk.rc("SetAntenna", () -> reader.SetAntenna(arg1, arg2));
+      cache.invalidateInfo();
+      return result(rc);
+    }, Result::fail);
   }
 
   public Result setRfPowerByAnt(int[] powers) {
-    if (!connected || reader == null) return Result.fail(0x36);
-    if (powers == null || powers.length == 0) return Result.fail(-1);
+    return call("SetRfPowerByAnt", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      if (powers == null || powers.length == 0) return Result.fail(-1);
+      Result r = applyRfPowerByAnt(powers);
+      if (r.ok()) lastAntennaPowers = powers.clone();
+      return r;
+    }, Result::fail);
+  }
+
+  private Result applyRfPowerByAnt(int[] powers) {
     byte[] out = new byte[powers.length];
     for (int i = 0; i < powers.length; i++) {
       int p = powers[i];
@@ -191,91 +573,122 @@ public final class ReaderClient {
       if (p > 33) p = 33;
       out[i] = (byte) (p & 0xFF);
     }
-    int rc = reader.SetRfPowerByAnt(out);
-    return rc == 0 ? Result.success() : Result.fail(rc);
+    int rc = sdk.rc("SetRfPowerByAnt", () -> reader.SetRfPowerByAnt(out));
+    if (rc == 0) {
+      int[] applied = new int[out.length];
+      for (int i = 0; i < out.length; i++) applied[i] = out[i];
+      cache.putAntennaPowers(applied);
+    }
+    return result(rc);
   }
 
   public AntennaPowerInfo getRfPowerByAnt(int count) {
-    if (!connected || reader == null) return new AntennaPowerInfo(Result.fail(0x36), new int[0]);
-    int n = count > 0 ? count : antennaCount;
-    byte[] out = new byte[n];
-    int rc = reader.GetRfPowerByAnt(out);
-    Result r = rc == 0 ? Result.success() : Result.fail(rc);
-    int[] powers = new int[n];
-    for (int i = 0; i < n; i++) powers[i] = out[i] & 0xFF;
-    return new AntennaPowerInfo(r, powers);
+    return call("GetRfPowerByAnt", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return new AntennaPowerInfo(Result.fail(0x36), new int[0]);
+      int n = count > 0 ? count : antennaCount;
+      byte[] out = new byte[n];
+      int rc = sdk.rc("GetRfPowerByAnt", () -> reader.GetRfPowerByAnt(out));
+      Result r = result(rc);
+      int[] powers = new int[n];
+      for (int i = 0; i < n; i++) powers[i] = out[i] & 0xFF;
+      if (r.ok()) cache.putAntennaPowers(powers);
+      return new AntennaPowerInfo(r, powers);
+    }, rc -> new AntennaPowerInfo(Result.fail(rc), new int[0]));
   }
 
   public Result setCheckAnt(boolean enabled) {
-    if (!connected || reader == null) return Result.fail(0x36);
-    int rc = reader.SetCheckAnt((byte) (enabled ? 1 : 0));
-    return rc == 0 ? Result.success() : Result.fail(rc);
+    return call("SetCheckAnt", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      int rc = sdk.rc("SetCheckAnt", () -> reader.SetCheckAnt((byte) (enabled ? 1 : 0)));
+      return result(rc);
+    }, Result::fail);
   }
 
   public ReturnLossInfo measureReturnLoss(int antenna, int freqKhz) {
-    if (!connected || reader == null) return new ReturnLossInfo(Result.fail(0x36), 0, freqKhz, antenna);
-    int freq = Math.max(0, freqKhz);
-    byte[] testFreq = new byte[] {
-        (byte) ((freq >> 24) & 0xFF),
-        (byte) ((freq >> 16) & 0xFF),
-        (byte) ((freq >> 8) & 0xFF),
-        (byte) (freq & 0xFF)
-    };
-    byte[] out = new byte[1];
-    int rc = reader.MeasureReturnLoss(testFreq, (byte) antenna, out);
-    Result r = rc == 0 ? Result.success() : Result.fail(rc);
-    int loss = out[0] & 0xFF;
-    return new ReturnLossInfo(r, loss, freq, antenna);
+    return call("MeasureReturnLoss", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return new ReturnLossInfo(Result.fail(0x36), 0, freqKhz, antenna);
+      int freq = Math.max(0, freqKhz);
+      byte[] testFreq = new byte[] {
+          (byte) ((freq >> 24) & 0xFF),
+          (byte) ((freq >> 16) & 0xFF),
+          (byte) ((freq >> 8) & 0xFF),
+          (byte) (freq & 0xFF)
+      };
+      byte[] out = new byte[1];
+      int rc = sdk.rc("MeasureReturnLoss", () -> reader.MeasureReturnLoss(testFreq, (byte) antenna, out));
+      Result r = result(rc);
+      int loss = out[0] & 0xFF;
+      return new ReturnLossInfo(r, loss, freq, antenna);
+    }, rc -> new ReturnLossInfo(Result.fail(rc), 0, freqKhz, antenna));
   }
 
   public Result setWritePower(int powerDbm, boolean highMode) {
-    if (!connected || reader == null) return Result.fail(0x36);
-    int value = powerDbm & 0x3F;
-    if (highMode) value |= 0x80;
-    int rc = reader.SetWritePower((byte) value);
-    return rc == 0 ? Result.success() : Result.fail(rc);
+    return call("SetWritePower", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      int value = (powerDbm & 0x3F) | (highMode ? 0x80 : 0);
+      int rc = sdk.rc("SetWritePower", () -> reader.SetWritePower((byte) value));
+      Result r = result(rc);
+      if (r.ok()) cache.putWritePower(new WritePowerInfo(r, powerDbm & 0x3F, highMode));
+      return r;
+    }, Result::fail);
   }
 
   public WritePowerInfo getWritePower() {
-    if (!connected || reader == null) return new WritePowerInfo(Result.fail(0x36), 0, false);
-    byte[] out = new byte[1];
-    int rc = reader.GetWritePower(out);
-    Result r = rc == 0 ? Result.success() : Result.fail(rc);
-    int raw = out[0] & 0xFF;
-    boolean high = (raw & 0x80) != 0;
-    int power = raw & 0x3F;
-    return new WritePowerInfo(r, power, high);
+    return call("GetWritePower", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return new WritePowerInfo(Result.fail(0x36), 0, false);
+      byte[] out = new byte[1];
+      int rc = sdk.rc("GetWritePower", () -> reader.GetWritePower(out));
+      Result r = result(rc);
+      int raw = out[0] & 0xFF;
+      boolean high = (raw & 0x80) != 0;
+      int power = raw & 0x3F;
+      WritePowerInfo info = new WritePowerInfo(r, power, high);
+      cache.putWritePower(info);
+      return info;
+    }, rc -> new WritePowerInfo(Result.fail(rc), 0, false));
   }
 
   public InventoryParams getInventoryParams() {
-    if (!connected || reader == null) {
-      return defaultInventoryParams(Result.fail(0x36));
-    }
-    try {
-      ReaderParameter p = reader.GetInventoryParameter();
-      if (p == null) return defaultInventoryParams(Result.fail(-1));
-      return new InventoryParams(
-          Result.success(),
-          p.GetAddress() & 0xFF,
-          p.GetTidPtr(),
-          p.GetTidLen(),
-          p.GetSession(),
-          p.GetQValue(),
-          p.GetScanTime(),
-          p.GetAntenna(),
-          p.GetReadType(),
-          p.GetReadMem(),
-          p.GetReadPtr(),
-          p.GetReadLength(),
-          p.GetPassword()
-      );
-    } catch (Throwable t) {
-      return defaultInventoryParams(Result.fail(-1));
-    }
+    return call("GetInventoryParameter", commandTimeoutMs, () -> {
+      if (!connected || reader == null) {
+        return defaultInventoryParams(Result.fail(0x36));
+      }
+      try {
+        ReaderParameter p = sdk.value("GetInventoryParameter", reader::GetInventoryParameter);
+        if (p == null) return defaultInventoryParams(Result.fail(-1));
+        InventoryParams params = new InventoryParams(
+            Result.success(),
+            p.GetAddress() & 0xFF,
+            p.GetTidPtr(),
+            p.GetTidLen(),
+            p.GetSession(),
+            p.GetQValue(),
+            p.GetScanTime(),
+            p.GetAntenna(),
+            p.GetReadType(),
+            p.GetReadMem(),
+            p.GetReadPtr(),
+            p.GetReadLength(),
+            p.GetPassword()
+        );
+        cache.putInventoryParams(params);
+        return params;
+      } catch (Throwable t) {
+        return defaultInventoryParams(result(-1));
+      }
+    }, rc -> defaultInventoryParams(Result.fail(rc)));
   }
 
   public Result setInventoryParams(InventoryParams params) {
-    if (!connected || reader == null) return Result.fail(0x36);
+    return call("SetInventoryParameter", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      Result r = applyInventoryParams(params);
+      if (r.ok()) lastInventoryParams = params;
+      return r;
+    }, Result::fail);
+  }
+
+  private Result applyInventoryParams(InventoryParams params) {
     try {
       ReaderParameter p = new ReaderParameter();
       p.SetAddress((byte) params.address());
@@ -292,65 +705,101 @@ public final class ReaderClient {
       if (params.password() != null) {
         p.SetPassword(params.password());
       }
-      reader.SetInventoryParameter(p);
-      return Result.success();
+      sdk.run("SetInventoryParameter", () -> reader.SetInventoryParameter(p));
+      cache.putInventoryParams(params.result().ok() ? params : new InventoryParams(Result.success(), params.address(),
+          params.tidPtr(), params.tidLen(), params.session(), params.qValue(), params.scanTime(), params.antenna(),
+          params.readType(), params.readMem(), params.readPtr(), params.readLength(), params.password()));
+      return result(0);
     } catch (Throwable t) {
-      return Result.fail(-1);
+      return result(-1);
     }
   }
 
   public String readDataByEpc(String epc, int mem, int wordPtr, int num, String password) {
-    if (!connected || reader == null) return null;
-    try {
-      return reader.ReadDataByEPC(epc, (byte) mem, (byte) wordPtr, (byte) num, password);
-    } catch (Throwable t) {
-      return null;
-    }
+    return call("ReadDataByEPC", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return null;
+      try {
+        return sdk.value("ReadDataByEPC", () -> reader.ReadDataByEPC(epc, (byte) mem, (byte) wordPtr, (byte) num, password));
+      } catch (Throwable t) {
+        return null;
+      }
+    }, rc -> null);
   }
 
   public String readDataByTid(String tid, int mem, int wordPtr, int num, String password) {
-    if (!connected || reader == null) return null;
-    try {
-      return reader.ReadDataByTID(tid, (byte) mem, (byte) wordPtr, (byte) num, password);
-    } catch (Throwable t) {
-      return null;
-    }
+    return call("ReadDataByTID", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return null;
+      try {
+        return sdk.value("ReadDataByTID", () -> reader.ReadDataByTID(tid, (byte) mem, (byte) wordPtr, (byte) num, password));
+      } catch (Throwable t) {
+        return null;
+      }
+    }, rc -> null);
   }
 
   public Result writeDataByEpc(String epc, int mem, int wordPtr, String password, String data) {
-    if (!connected || reader == null) return Result.fail(0x36);
-    int rc = reader.WriteDataByEPC(epc, (byte) mem, (byte) wordPtr, password, data);
-    return rc == 0 ? Result.success() : Result.fail(rc);
+    return call("WriteDataByEPC", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      int rc = sdk.rc("WriteDataByEPC", () -> reader.WriteDataByEPC(epc, (byte) mem, (byte) wordPtr, password, data));
+      return result(rc);
+    }, Result::fail);
   }
 
   public Result writeDataByTid(String tid, int mem, int wordPtr, String password, String data) {
-    if (!connected || reader == null) return Result.fail(0x36);
-    int rc = reader.WriteDataByTID(tid, (byte) mem, (byte) wordPtr, password, data);
-    return rc == 0 ? Result.success() : Result.fail(rc);
+    return call("WriteDataByTID", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      int rc = sdk.rc("WriteDataByTID", () -> reader.WriteDataByTID(tid, (byte) mem, (byte) wordPtr, password, data));
+      return result(rc);
+    }, Result::fail);
   }
 
   public Result writeEpc(String epc, String password) {
-    if (!connected || reader == null) return Result.fail(0x36);
-    int rc = reader.WriteEPC(epc, password);
-    return rc == 0 ? Result.success() : Result.fail(rc);
+    return call("WriteEPC", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      int rc = sdk.rc("WriteEPC", () -> reader.WriteEPC(epc, password));
+      return result(rc);
+    }, Result::fail);
   }
 
   public Result writeEpcByTid(String tid, String epc, String password) {
-    if (!connected || reader == null) return Result.fail(0x36);
-    int rc = reader.WriteEPCByTID(tid, epc, password);
-    return rc == 0 ? Result.success() : Result.fail(rc);
+    return call("WriteEPCByTID", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      int rc = sdk.rc("WriteEPCByTID", () -> reader.WriteEPCByTID(tid, epc, password));
+      return result(rc);
+    }, Result::fail);
   }
 
   public Result lock(String epc, int select, int protect, String password) {
-    if (!connected || reader == null) return Result.fail(0x36);
-    int rc = reader.Lock(epc, (byte) select, (byte) protect, password);
-    return rc == 0 ? Result.success() : Result.fail(rc);
+    return call("Lock", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      int rc = sdk.rc("Lock", () -> reader.Lock(epc, (byte) select, (byte) protect, password));
+      return result(rc);
+    }, Result::fail);
   }
 
   public Result kill(String epc, String password) {
-    if (!connected || reader == null) return Result.fail(0x36);
-    int rc = reader.Kill(epc, password);
-    return rc == 0 ? Result.success() : Result.fail(rc);
+    return call("Kill", commandTimeoutMs, () -> {
+      if (!connected || reader == null) return Result.fail(0x36);
+      int rc = sdk.rc("Kill", () -> reader.Kill(epc, password));
+      return result(rc);
+    }, Result::fail);
+  }
+
+  private <T> T call(String op, long timeoutMs, Supplier<T> task, IntFunction<T> onFailure) {
+    return executor.call(op, timeoutMs, task, rc -> {
+      if (rc == ReaderExecutor.RC_TIMEOUT) consecutiveLinkFailures++;
+      return onFailure.apply(rc);
+    });
+  }
+
+  // -1 is our own "SDK threw" code; 0x30..0x32 are the vendor's communication/CRC/length errors.
+  private Result result(int rc) {
+    if (rc == 0) {
+      consecutiveLinkFailures = 0;
+      return Result.success();
+    }
+    if (rc == -1 || rc == 0x30 || rc == 0x31 || rc == 0x32) consecutiveLinkFailures++;
+    return Result.fail(rc);
   }
 
   private static InventoryParams defaultInventoryParams(Result result) {
@@ -373,10 +822,10 @@ public final class ReaderClient {
 
   public static boolean probe(String ip, int port, int readerType, int log) {
     try {
-      CReader r = new CReader(ip, port, readerType, log);
-      int rc = r.Connect();
+      CReader r = PROBE_SDK.value("CReader", () -> new CReader(ip, port, readerType, log));
+      int rc = PROBE_SDK.rc("Connect", r::Connect);
       if (rc == 0) {
-        r.DisConnect();
+        PROBE_SDK.run("DisConnect", r::DisConnect);
         return true;
       }
       return false;
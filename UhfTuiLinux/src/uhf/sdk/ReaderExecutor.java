@@ -0,0 +1,234 @@
+package uhf.sdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import uhf.core.Histogram;
+import uhf.core.Result;
+
+public final class ReaderExecutor {
+  public static final int RC_TIMEOUT = -2;
+  public static final int RC_CANCELLED = -3;
+
+  private final ThreadPoolExecutor executor;
+  private volatile Thread worker;
+  private final AtomicInteger queueDepth = new AtomicInteger();
+  private final AtomicInteger peakQueueDepth = new AtomicInteger();
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder timedOut = new LongAdder();
+  private final LongAdder cancelled = new LongAdder();
+  private final LongAdder skipped = new LongAdder();
+  private final LongAdder nested = new LongAdder();
+  private final Histogram waitMs = Histogram.latencyMs();
+  private final Histogram runMs = Histogram.latencyMs();
+  private final List<CompletableFuture<?>> pending = new ArrayList<>();
+  private volatile String currentOp = "";
+
+  ReaderExecutor(String name) {
+    executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+      Thread t = new Thread(r, name);
+      t.setDaemon(true);
+      worker = t;
+      return t;
+    });
+  }
+
+  public boolean inExecutorThread() {
+    return Thread.currentThread() == worker;
+  }
+
+  public <T> CompletableFuture<T> submit(String op, long timeoutMs, Supplier<T> task) {
+    CompletableFuture<T> f = new CompletableFuture<>();
+    if (inExecutorThread()) {
+      nested.increment();
+      executeNested(op, task, f);
+      return f;
+    }
+    submitted.increment();
+    long enqueuedAt = System.nanoTime();
+    depthAdd(1);
+    synchronized (pending) {
+      pending.add(f);
+    }
+    Runnable run = () -> {
+      depthAdd(-1);
+      synchronized (pending) {
+        pending.remove(f);
+      }
+      if (f.isDone()) {
+        skipped.increment();
+        return;
+      }
+      waitMs.record(elapsedMs(enqueuedAt));
+      execute(op, task, f);
+    };
+    try {
+      executor.execute(run);
+    } catch (RejectedExecutionException e) {
+      depthAdd(-1);
+      synchronized (pending) {
+        pending.remove(f);
+      }
+      f.completeExceptionally(e);
+      return f;
+    }
+    if (timeoutMs > 0) {
+      f.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((v, t) -> {
+        if (t instanceof TimeoutException) timedOut.increment();
+      });
+    }
+    return f;
+  }
+
+  public <T> T call(String op, long timeoutMs, Supplier<T> task, IntFunction<T> onFailure) {
+    if (inExecutorThread()) {
+      CompletableFuture<T> f = submit(op, timeoutMs, task);
+      return f.isCompletedExceptionally() ? onFailure.apply(-1) : f.join();
+    }
+    return join(submit(op, timeoutMs, task), onFailure);
+  }
+
+  public static Result await(CompletableFuture<Result> f) {
+    return join(f, Result::fail);
+  }
+
+  private static <T> T join(CompletableFuture<T> f, IntFunction<T> onFailure) {
+    try {
+      return f.join();
+    } catch (CancellationException e) {
+      return onFailure.apply(RC_CANCELLED);
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof TimeoutException) return onFailure.apply(RC_TIMEOUT);
+      if (e.getCause() instanceof CancellationException) return onFailure.apply(RC_CANCELLED);
+      return onFailure.apply(-1);
+    }
+  }
+
+  public int cancelPending() {
+    List<CompletableFuture<?>> list;
+    synchronized (pending) {
+      list = new ArrayList<>(pending);
+    }
+    int n = 0;
+    for (CompletableFuture<?> f : list) {
+      if (f.cancel(false)) n++;
+    }
+    if (n > 0) cancelled.add(n);
+    return n;
+  }
+
+  public void shutdown() {
+    cancelPending();
+    executor.shutdownNow();
+  }
+
+  public int queueDepth() {
+    return queueDepth.get();
+  }
+
+  public int peakQueueDepth() {
+    return peakQueueDepth.get();
+  }
+
+  public long submitted() {
+    return submitted.sum();
+  }
+
+  public long completed() {
+    return completed.sum();
+  }
+
+  public long failed() {
+    return failed.sum();
+  }
+
+  public long timedOut() {
+    return timedOut.sum();
+  }
+
+  public long cancelled() {
+    return cancelled.sum();
+  }
+
+  public long skipped() {
+    return skipped.sum();
+  }
+
+  public long nested() {
+    return nested.sum();
+  }
+
+  public String currentOp() {
+    return currentOp;
+  }
+
+  public Histogram waitMs() {
+    return waitMs;
+  }
+
+  public Histogram runMs() {
+    return runMs;
+  }
+
+  public List<String> lines() {
+    List<String> out = new ArrayList<>();
+    String op = currentOp;
+    out.add("queue=" + queueDepth() + " peak=" + peakQueueDepth() + " busy=" + (op.isEmpty() ? "-" : op));
+    out.add("submitted=" + submitted() + " completed=" + completed() + " failed=" + failed()
+        + " timeout=" + timedOut() + " cancelled=" + cancelled() + " skipped=" + skipped() + " nested=" + nested());
+    out.add("waitMs " + waitMs.summary());
+    out.add("runMs " + runMs.summary());
+    return out;
+  }
+
+  private <T> void execute(String op, Supplier<T> task, CompletableFuture<T> f) {
+    long start = System.nanoTime();
+    String prev = currentOp;
+    currentOp = op == null ? "" : op;
+    try {
+      f.complete(task.get());
+    } catch (Throwable t) {
+      failed.increment();
+      f.completeExceptionally(t);
+    } finally {
+      currentOp = prev;
+      runMs.record(elapsedMs(start));
+      completed.increment();
+    }
+  }
+
+  private <T> void executeNested(String op, Supplier<T> task, CompletableFuture<T> f) {
+    String prev = currentOp;
+    currentOp = op == null ? "" : op;
+    try {
+      f.complete(task.get());
+    } catch (Throwable t) {
+      f.completeExceptionally(t);
+    } finally {
+      currentOp = prev;
+    }
+  }
+
+  private void depthAdd(int delta) {
+    int d = queueDepth.addAndGet(delta);
+    int peak = peakQueueDepth.get();
+    while (d > peak && !peakQueueDepth.compareAndSet(peak, d)) peak = peakQueueDepth.get();
+  }
+
+  private static long elapsedMs(long startNanos) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+}
@@ -0,0 +1,256 @@
+package uhf.sdk;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import uhf.core.GpioStatus;
+import uhf.core.Result;
+
+public final class ReaderHealthProbe {
+  public enum State { UNKNOWN, HEALTHY, SLOW, UNRESPONSIVE }
+
+  public static final class Settings {
+    public long intervalMs = 2000;
+    public long timeoutMs = 1500;
+    public long slowMs = 150;
+    public int failLimit = 3;
+    public int passiveEvery = 5;
+  }
+
+  private record Sample(Result result, long rttUs) {
+  }
+
+  private static final int WINDOW = 20;
+  private static final DateTimeFormatter TS = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+  private final ReaderClient reader;
+  private final long[] rttUs = new long[WINDOW];
+  private final LongAdder probes = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder passive = new LongAdder();
+  private final LongAdder busy = new LongAdder();
+  private volatile Settings settings = new Settings();
+  private volatile boolean enabled = true;
+  private volatile State state = State.UNKNOWN;
+  private volatile long stateSince = System.currentTimeMillis();
+  private volatile int consecutiveFailures;
+  private volatile int lastRc;
+  private volatile long lastRttUs = -1;
+  private volatile String lastChange = "";
+  private int samples;
+  private int next;
+  private long ticks;
+  private ScheduledExecutorService scheduler;
+  private ScheduledFuture<?> task;
+
+  ReaderHealthProbe(ReaderClient reader) {
+    this.reader = reader;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public State state() {
+    return state;
+  }
+
+  public int consecutiveFailures() {
+    return consecutiveFailures;
+  }
+
+  public long lastRttMs() {
+    long v = lastRttUs;
+    return v < 0 ? -1 : v / 1000;
+  }
+
+  public synchronized long percentileUs(double p) {
+    if (samples == 0) return -1;
+    long[] copy = Arrays.copyOf(rttUs, samples);
+    Arrays.sort(copy);
+    int idx = (int) Math.ceil(Math.max(0, Math.min(1, p)) * samples) - 1;
+    return copy[Math.max(0, idx)];
+  }
+
+  public synchronized void start(Settings s) {
+    if (s != null) settings = s;
+    enabled = true;
+    if (task != null) task.cancel(false);
+    if (scheduler == null) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "health-probe-" + reader.id());
+        t.setDaemon(true);
+        return t;
+      });
+    }
+    long every = Math.max(200, settings.intervalMs);
+    task = scheduler.scheduleWithFixedDelay(this::safeTick, every, every, TimeUnit.MILLISECONDS);
+  }
+
+  public synchronized void stop() {
+    enabled = false;
+    if (task != null) task.cancel(false);
+    if (scheduler != null) scheduler.shutdownNow();
+    task = null;
+    scheduler = null;
+    transition(State.UNKNOWN, "disabled");
+  }
+
+  public Settings settings() {
+    return settings;
+  }
+
+  public List<String> lines() {
+    List<String> out = new ArrayList<>();
+    Settings s = settings;
+    long now = System.currentTimeMillis();
+    out.add(reader.id() + " " + state + " for " + (now - stateSince) / 1000 + "s probe=" + (enabled ? s.intervalMs + "ms" : "off")
+        + " slow>" + s.slowMs + "ms timeout=" + s.timeoutMs + "ms failLimit=" + s.failLimit);
+    out.add("probes=" + probes.sum() + " failed=" + failures.sum() + " passive=" + passive.sum() + " busy=" + busy.sum() + " consecutiveFail="
+        + consecutiveFailures + (lastRc != 0 ? " lastRc=" + lastRc : ""));
+    out.add("rttMs last=" + ms(lastRttUs) + " p50=" + ms(percentileUs(0.5)) + " p90=" + ms(percentileUs(0.9)) + " p99="
+        + ms(percentileUs(0.99)) + " max=" + ms(percentileUs(1.0)) + " n=" + window());
+    if (!lastChange.isEmpty()) out.add("last change " + lastChange);
+    return out;
+  }
+
+  synchronized void reset() {
+    samples = 0;
+    next = 0;
+    consecutiveFailures = 0;
+    lastRc = 0;
+    lastRttUs = -1;
+    transition(State.UNKNOWN, "connected");
+    if (enabled) start(settings);
+  }
+
+  private void safeTick() {
+    try {
+      tick();
+    } catch (Throwable ignored) {
+    }
+  }
+
+  private void tick() {
+    Settings s = settings;
+    if (!reader.isConnected()) {
+      transition(State.UNKNOWN, "not connected");
+      return;
+    }
+    ticks++;
+    boolean flowing = reader.isInventoryRunning() && System.currentTimeMillis() - reader.lastTagAt() < s.intervalMs;
+    if (flowing && s.passiveEvery > 1 && ticks % s.passiveEvery != 0) {
+      passive.increment();
+      consecutiveFailures = 0;
+      evaluate("reads flowing");
+      return;
+    }
+    Sample sample;
+    if (reader.sdkStats().inCallMs() >= s.timeoutMs) {
+      probes.increment();
+      sample = new Sample(Result.fail(ReaderExecutor.RC_TIMEOUT), -1);
+    } else if (!reader.executor().currentOp().isEmpty() || reader.executor().queueDepth() > 0) {
+      busy.increment();
+      return;
+    } else {
+      AtomicLong started = new AtomicLong();
+      CompletableFuture<Sample> f = reader.submit("HealthProbe", 0, c -> {
+        long t0 = System.nanoTime();
+        started.set(t0);
+        GpioStatus st = c.getGpio();
+        return new Sample(st.result(), (System.nanoTime() - t0) / 1000L);
+      });
+      try {
+        sample = await(f, started, s.timeoutMs);
+      } catch (CancellationException e) {
+        return;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (sample == null) {
+        busy.increment();
+        return;
+      }
+      probes.increment();
+    }
+    if (sample.result().ok()) {
+      synchronized (this) {
+        rttUs[next] = sample.rttUs();
+        next = (next + 1) % WINDOW;
+        if (samples < WINDOW) samples++;
+      }
+      lastRttUs = sample.rttUs();
+      consecutiveFailures = 0;
+      lastRc = 0;
+      evaluate("rtt " + sample.rttUs() / 1000 + "ms");
+    } else {
+      failures.increment();
+      consecutiveFailures++;
+      lastRc = sample.result().code();
+      evaluate("probe rc=" + lastRc);
+    }
+  }
+
+  // The timeout runs from when the probe reaches the command thread, not from when it was queued;
+  // null means other work got in first and the probe was withdrawn.
+  private static Sample await(CompletableFuture<Sample> f, AtomicLong started, long timeoutMs)
+      throws InterruptedException {
+    try {
+      try {
+        return f.get(timeoutMs, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        if (started.get() == 0 && f.cancel(false)) return null;
+        long left = timeoutMs - (System.nanoTime() - started.get()) / 1_000_000L;
+        if (left <= 0) throw e;
+        return f.get(left, TimeUnit.MILLISECONDS);
+      }
+    } catch (TimeoutException e) {
+      return new Sample(Result.fail(ReaderExecutor.RC_TIMEOUT), -1);
+    } catch (ExecutionException e) {
+      return new Sample(Result.fail(-1), -1);
+    }
+  }
+
+  private void evaluate(String cause) {
+    Settings s = settings;
+    State st;
+    if (consecutiveFailures >= Math.max(1, s.failLimit)) {
+      st = State.UNRESPONSIVE;
+    } else if (window() >= 3 && percentileUs(0.9) > s.slowMs * 1000L) {
+      st = State.SLOW;
+    } else if (window() > 0 || consecutiveFailures == 0) {
+      st = State.HEALTHY;
+    } else {
+      st = state;
+    }
+    transition(st, cause);
+  }
+
+  private void transition(State st, String cause) {
+    if (st == state) return;
+    lastChange = LocalTime.now().format(TS) + " " + state + " -> " + st + " (" + cause + ")";
+    state = st;
+    stateSince = System.currentTimeMillis();
+  }
+
+  private synchronized int window() {
+    return samples;
+  }
+
+  private static String ms(long us) {
+    return us < 0 ? "-" : String.valueOf(us / 1000);
+  }
+}
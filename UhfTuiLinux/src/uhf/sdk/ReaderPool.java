@@ -0,0 +1,160 @@
+package uhf.sdk;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import uhf.core.Result;
+import uhf.core.TagRead;
+
+public final class ReaderPool {
+  public static final String DEFAULT_ID = "r1";
+
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+  private volatile Consumer<TagRead> tagSink = t -> {};
+  private volatile Consumer<ReaderClient> stopSink = r -> {};
+  private String activeId;
+  private final ExecutorService fanOut = Executors.newCachedThreadPool(r -> {
+    Thread t = new Thread(r, "reader-fanout");
+    t.setDaemon(true);
+    return t;
+  });
+
+  public ReaderPool() {
+    add(DEFAULT_ID);
+  }
+
+  public void setTagSink(Consumer<TagRead> sink) {
+    tagSink = sink == null ? t -> {} : sink;
+  }
+
+  public Consumer<TagRead> tagSink() {
+    return this::dispatchTag;
+  }
+
+  public void setStopSink(Consumer<ReaderClient> sink) {
+    stopSink = sink == null ? r -> {} : sink;
+  }
+
+  public synchronized ReaderClient add(String id) {
+    String key = normalizeId(id);
+    if (key.isEmpty()) return null;
+    Entry e = entries.get(key);
+    if (e != null) return e.client;
+    e = new Entry(new ReaderClient(key));
+    entries.put(key, e);
+    if (activeId == null) activeId = key;
+    return e.client;
+  }
+
+  public synchronized boolean remove(String id) {
+    String key = normalizeId(id);
+    if (entries.size() <= 1) return false;
+    Entry e = entries.remove(key);
+    if (e == null) return false;
+    e.client.disconnect();
+    e.client.shutdown();
+    if (key.equals(activeId)) activeId = entries.keySet().iterator().next();
+    return true;
+  }
+
+  public synchronized ReaderClient get(String id) {
+    Entry e = entries.get(normalizeId(id));
+    return e == null ? null : e.client;
+  }
+
+  public synchronized boolean select(String id) {
+    String key = normalizeId(id);
+    if (!entries.containsKey(key)) return false;
+    activeId = key;
+    return true;
+  }
+
+  public synchronized ReaderClient active() {
+    Entry e = entries.get(activeId);
+    return e == null ? entries.values().iterator().next().client : e.client;
+  }
+
+  public synchronized String activeId() {
+    return activeId;
+  }
+
+  public synchronized List<ReaderClient> all() {
+    List<ReaderClient> out = new ArrayList<>(entries.size());
+    for (Entry e : entries.values()) out.add(e.client);
+    return out;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public boolean anyConnected() {
+    for (ReaderClient r : all()) {
+      if (r.isConnected()) return true;
+    }
+    return false;
+  }
+
+  public Result connect(ReaderClient reader, String ip, int port, int readerType, int log) {
+    if (reader == null) return Result.fail(-1);
+    return reader.connect(ip, port, readerType, log, this::dispatchTag, () -> stopSink.accept(reader));
+  }
+
+  public CompletableFuture<Void> submit(ReaderClient reader, Runnable task) {
+    Entry e;
+    synchronized (this) {
+      e = entries.get(reader == null ? "" : reader.id());
+    }
+    if (e == null) return CompletableFuture.failedFuture(new IllegalArgumentException("unknown reader"));
+    return e.client.submit("task", 0, r -> {
+      task.run();
+      return null;
+    });
+  }
+
+  public void runOnEach(List<ReaderClient> readers, Consumer<ReaderClient> task) {
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (ReaderClient r : readers) {
+      futures.add(CompletableFuture.runAsync(() -> task.accept(r), fanOut));
+    }
+    for (CompletableFuture<Void> f : futures) {
+      try {
+        f.join();
+      } catch (Exception ignored) {
+      }
+    }
+  }
+
+  public void shutdown() {
+    List<Entry> list;
+    synchronized (this) {
+      list = new ArrayList<>(entries.values());
+    }
+    for (Entry e : list) {
+      e.client.disconnect();
+      e.client.shutdown();
+    }
+    fanOut.shutdownNow();
+  }
+
+  private void dispatchTag(TagRead tag) {
+    tagSink.accept(tag);
+  }
+
+  private static String normalizeId(String id) {
+    return id == null ? "" : id.trim().toLowerCase();
+  }
+
+  private static final class Entry {
+    final ReaderClient client;
+
+    Entry(ReaderClient client) {
+      this.client = client;
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package uhf.sdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import uhf.core.AntennaPowerInfo;
+import uhf.core.InventoryParams;
+import uhf.core.ReaderInfo;
+import uhf.core.Result;
+import uhf.core.WritePowerInfo;
+
+public final class ReaderStateCache {
+  public static final long DEFAULT_MAX_AGE_MS = 300000;
+
+  public record Entry<T>(T value, long fetchedAt) {
+    public long ageMs() {
+      return Math.max(0, System.currentTimeMillis() - fetchedAt);
+    }
+  }
+
+  private volatile Entry<InventoryParams> inventoryParams;
+  private volatile Entry<ReaderInfo> info;
+  private volatile Entry<WritePowerInfo> writePower;
+  private volatile Entry<AntennaPowerInfo> antennaPowers;
+  private volatile long maxAgeMs = DEFAULT_MAX_AGE_MS;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public long maxAgeMs() {
+    return maxAgeMs;
+  }
+
+  public void setMaxAgeMs(long ms) {
+    maxAgeMs = Math.max(0, ms);
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  public Entry<InventoryParams> inventoryParamsEntry() {
+    return inventoryParams;
+  }
+
+  public Entry<ReaderInfo> infoEntry() {
+    return info;
+  }
+
+  public Entry<WritePowerInfo> writePowerEntry() {
+    return writePower;
+  }
+
+  public Entry<AntennaPowerInfo> antennaPowersEntry() {
+    return antennaPowers;
+  }
+
+  public InventoryParams inventoryParams() {
+    return fresh(inventoryParams);
+  }
+
+  public ReaderInfo info() {
+    return fresh(info);
+  }
+
+  public WritePowerInfo writePower() {
+    return fresh(writePower);
+  }
+
+  public AntennaPowerInfo antennaPowers(int count) {
+    Entry<AntennaPowerInfo> e = antennaPowers;
+    return fresh(e != null && e.value().powers().length == count ? e : null);
+  }
+
+  public void invalidate() {
+    inventoryParams = null;
+    info = null;
+    writePower = null;
+    antennaPowers = null;
+  }
+
+  void putInventoryParams(InventoryParams p) {
+    if (p == null || !p.result().ok()) return;
+    inventoryParams = entry(p);
+  }
+
+  void putInfo(ReaderInfo i) {
+    if (i == null || !i.result().ok()) return;
+    info = entry(i);
+  }
+
+  void putWritePower(WritePowerInfo w) {
+    if (w == null || !w.result().ok()) return;
+    writePower = entry(w);
+  }
+
+  void putAntennaPowers(int[] powers) {
+    if (powers == null) return;
+    antennaPowers = entry(new AntennaPowerInfo(Result.success(), powers.clone()));
+  }
+
+  void invalidateInfo() {
+    info = null;
+  }
+
+  void updatePower(int power) {
+    Entry<ReaderInfo> e = info;
+    if (e == null) return;
+    ReaderInfo i = e.value();
+    info = entry(new ReaderInfo(i.result(), i.versionMajor(), i.versionMinor(), power, i.band(),
+        i.minFreq(), i.maxFreq(), i.beep(), i.antenna()));
+  }
+
+  void updateRegion(int band, int maxFreq, int minFreq) {
+    Entry<ReaderInfo> e = info;
+    if (e == null) return;
+    ReaderInfo i = e.value();
+    info = entry(new ReaderInfo(i.result(), i.versionMajor(), i.versionMinor(), i.power(), band,
+        minFreq, maxFreq, i.beep(), i.antenna()));
+  }
+
+  void updateBeep(int beep) {
+    Entry<ReaderInfo> e = info;
+    if (e == null) return;
+    ReaderInfo i = e.value();
+    info = entry(new ReaderInfo(i.result(), i.versionMajor(), i.versionMinor(), i.power(), i.band(),
+        i.minFreq(), i.maxFreq(), beep, i.antenna()));
+  }
+
+  public List<String> lines() {
+    List<String> out = new ArrayList<>();
+    out.add("maxAgeMs=" + maxAgeMs + " hits=" + hits() + " misses=" + misses());
+    out.add("invParams " + describe(inventoryParams));
+    out.add("info      " + describe(info));
+    out.add("writePwr  " + describe(writePower));
+    out.add("antPower  " + describe(antennaPowers));
+    return out;
+  }
+
+  private <T> T fresh(Entry<T> e) {
+    long max = maxAgeMs;
+    if (e == null || (max > 0 && e.ageMs() > max)) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return e.value();
+  }
+
+  private static String describe(Entry<?> e) {
+    return e == null ? "-" : "age=" + e.ageMs() + "ms";
+  }
+
+  private static <T> Entry<T> entry(T value) {
+    return new Entry<>(value, System.currentTimeMillis());
+  }
+}
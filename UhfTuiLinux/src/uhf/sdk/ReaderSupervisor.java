@@ -0,0 +1,242 @@
+package uhf.sdk;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import uhf.core.GpioStatus;
+import uhf.core.Histogram;
+import uhf.core.Result;
+
+public final class ReaderSupervisor {
+  public enum State {
+    IDLE,
+    OK,
+    SUSPECT,
+    RECONNECTING
+  }
+
+  public static final class Metrics {
+    private final LongAdder outages = new LongAdder();
+    private final LongAdder reconnectAttempts = new LongAdder();
+    private final LongAdder hungAborts = new LongAdder();
+    private final LongAdder outageMsTotal = new LongAdder();
+    private final Histogram outageMs = new Histogram(500, 1000, 2000, 5000, 10000, 30000, 60000, 300000, 600000);
+    private volatile long lastOutageMs;
+    private volatile String lastCause = "";
+
+    public long outages() {
+      return outages.sum();
+    }
+
+    public long reconnectAttempts() {
+      return reconnectAttempts.sum();
+    }
+
+    public long hungAborts() {
+      return hungAborts.sum();
+    }
+
+    public long outageMsTotal() {
+      return outageMsTotal.sum();
+    }
+
+    public long lastOutageMs() {
+      return lastOutageMs;
+    }
+
+    public String lastCause() {
+      return lastCause == null ? "" : lastCause;
+    }
+
+    public Histogram outageMs() {
+      return outageMs;
+    }
+  }
+
+  private static final long TICK_MS = 500;
+  private static final long BACKOFF_BASE_MS = 500;
+  private static final long BACKOFF_MAX_MS = 30000;
+  private static final int LINK_FAILURE_LIMIT = 3;
+
+  private final ReaderPool pool;
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "reader-supervisor");
+    t.setDaemon(true);
+    return t;
+  });
+  private final Map<String, Track> tracks = new ConcurrentHashMap<>();
+  private volatile boolean enabled = true;
+  private volatile long silenceMs = 0;
+
+  public ReaderSupervisor(ReaderPool pool) {
+    this.pool = pool;
+    scheduler.scheduleWithFixedDelay(this::safeTick, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public long silenceMs() {
+    return silenceMs;
+  }
+
+  public void setSilenceMs(long ms) {
+    silenceMs = Math.max(0, ms);
+  }
+
+  public State state(ReaderClient reader) {
+    Track t = reader == null ? null : tracks.get(reader.id());
+    if (t == null) return reader != null && reader.wantsConnection() ? State.OK : State.IDLE;
+    return t.state;
+  }
+
+  public Metrics metrics(ReaderClient reader) {
+    return track(reader).metrics;
+  }
+
+  public void onStop(ReaderClient reader) {
+    if (!enabled || reader == null || !reader.wantsInventory()) return;
+    scheduler.execute(() -> suspect(reader, "stop callback"));
+  }
+
+  public void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  private void safeTick() {
+    try {
+      tick();
+    } catch (Throwable ignored) {
+    }
+  }
+
+  private void tick() {
+    if (!enabled) return;
+    long now = System.currentTimeMillis();
+    List<ReaderClient> readers = pool.all();
+    for (ReaderClient r : readers) {
+      Track t = track(r);
+      if (!r.wantsConnection()) {
+        t.state = State.IDLE;
+        t.outageStart = 0;
+        continue;
+      }
+      if (t.state == State.RECONNECTING) {
+        if (now >= t.nextAttemptAt) attemptReconnect(r, t);
+        continue;
+      }
+      if (t.probing.get()) continue;
+      if (!r.isConnected()) {
+        startOutage(r, t, "disconnected");
+        continue;
+      }
+      if (r.consecutiveLinkFailures() >= LINK_FAILURE_LIMIT) {
+        startOutage(r, t, "command failures");
+        continue;
+      }
+      if (r.healthProbe().state() == ReaderHealthProbe.State.UNRESPONSIVE) {
+        startOutage(r, t, "health probe");
+        continue;
+      }
+      long silence = silenceMs;
+      if (silence > 0 && r.isInventoryRunning()) {
+        long last = Math.max(r.lastTagAt(), t.okSince);
+        if (now - last >= silence && now - t.lastSilenceProbeAt >= silence) {
+          t.lastSilenceProbeAt = now;
+          suspect(r, "read silence");
+          continue;
+        }
+      }
+      if (t.state != State.OK) {
+        t.state = State.OK;
+        t.okSince = now;
+      }
+    }
+  }
+
+  private void suspect(ReaderClient r, String cause) {
+    Track t = track(r);
+    if (t.state == State.RECONNECTING) return;
+    t.state = State.SUSPECT;
+    if (!t.probing.compareAndSet(false, true)) return;
+    pool.submit(r, () -> {
+      try {
+        GpioStatus st = r.getGpio();
+        if (st.result().ok()) {
+          if (r.wantsInventory() && !r.isInventoryRunning()) r.startInventory();
+          t.state = State.OK;
+        } else {
+          scheduler.execute(() -> startOutage(r, t, cause));
+        }
+      } finally {
+        t.probing.set(false);
+      }
+    });
+  }
+
+  private void startOutage(ReaderClient r, Track t, String cause) {
+    if (t.state == State.RECONNECTING) return;
+    t.state = State.RECONNECTING;
+    t.outageStart = System.currentTimeMillis();
+    t.attempt = 0;
+    t.nextAttemptAt = t.outageStart;
+    t.metrics.outages.increment();
+    t.metrics.lastCause = cause;
+  }
+
+  private void attemptReconnect(ReaderClient r, Track t) {
+    if (!t.probing.compareAndSet(false, true)) return;
+    if (r.abortHungCall()) t.metrics.hungAborts.increment();
+    t.metrics.reconnectAttempts.increment();
+    t.attempt++;
+    pool.submit(r, () -> {
+      try {
+        Result res = r.reconnect();
+        if (res.ok()) {
+          long dur = System.currentTimeMillis() - t.outageStart;
+          t.metrics.lastOutageMs = dur;
+          t.metrics.outageMsTotal.add(dur);
+          t.metrics.outageMs.record(dur);
+          t.outageStart = 0;
+          t.okSince = System.currentTimeMillis();
+          t.state = State.OK;
+        } else {
+          t.nextAttemptAt = System.currentTimeMillis() + backoff(t.attempt);
+        }
+      } finally {
+        t.probing.set(false);
+      }
+    });
+  }
+
+  private static long backoff(int attempt) {
+    long cap = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(16, Math.max(0, attempt - 1)));
+    return BACKOFF_BASE_MS / 2 + ThreadLocalRandom.current().nextLong(Math.max(1, cap));
+  }
+
+  private Track track(ReaderClient reader) {
+    return tracks.computeIfAbsent(reader.id(), k -> new Track());
+  }
+
+  private static final class Track {
+    final Metrics metrics = new Metrics();
+    final AtomicBoolean probing = new AtomicBoolean(false);
+    volatile State state = State.IDLE;
+    volatile long outageStart;
+    volatile long nextAttemptAt;
+    volatile long okSince = System.currentTimeMillis();
+    volatile long lastSilenceProbeAt;
+    volatile int attempt;
+  }
+}
@@ -0,0 +1,51 @@
+package uhf.sdk;
+
+import java.util.function.IntConsumer;
+import uhf.core.Result;
+import uhf.core.ReturnLossInfo;
+import uhf.core.ReturnLossMap;
+
+public final class ReturnLossSweep {
+  private ReturnLossSweep() {}
+
+  public static Result run(ReaderClient reader, ReturnLossMap map, IntConsumer onAntennaDone) {
+    if (!reader.isConnected()) return Result.fail(0x36);
+    boolean[] wasRunning = new boolean[1];
+    Result r = ReaderExecutor.await(reader.submit("ReturnLossSweep", c -> {
+      wasRunning[0] = c.isInventoryRunning();
+      return wasRunning[0] ? c.stopInventory() : Result.success();
+    }));
+    if (!r.ok()) return r;
+    Result first = Result.success();
+    long rowTimeout = reader.commandTimeoutMs() * (map.channelCount() + 1L);
+    for (int row = 0; row < map.antennaCount(); row++) {
+      int idx = row;
+      Result rr = ReaderExecutor.await(reader.submit("ReturnLossSweep", rowTimeout, c -> measureRow(c, map, idx)));
+      if (!rr.ok() && first.ok()) first = rr;
+      if (onAntennaDone != null) onAntennaDone.accept(row);
+      if (!reader.isConnected()) break;
+    }
+    map.finish();
+    if (wasRunning[0] && reader.isConnected()) {
+      Result s = reader.startInventory();
+      if (!s.ok() && first.ok()) first = s;
+    }
+    return first;
+  }
+
+  private static Result measureRow(ReaderClient c, ReturnLossMap map, int row) {
+    int ant = map.antenna(row) - 1;
+    Result first = Result.success();
+    for (int ch = 0; ch < map.channelCount(); ch++) {
+      ReturnLossInfo info = c.measureReturnLoss(ant, map.freqKhz(ch));
+      if (info.result().ok()) {
+        map.set(row, ch, info.lossDb());
+        continue;
+      }
+      map.fail(row);
+      if (first.ok()) first = info.result();
+      if (!c.isConnected()) return first;
+    }
+    return first;
+  }
+}
@@ -0,0 +1,153 @@
+package uhf.sdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import uhf.core.Histogram;
+
+public final class SdkCallStats {
+  public static final int RC_THREW = -1;
+  public static final int RC_NULL = -4;
+
+  public static final class MethodStats {
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final Histogram latencyUs = new Histogram(100, 200, 500, 1_000, 2_000, 5_000, 10_000, 20_000, 50_000,
+        100_000, 200_000, 500_000, 1_000_000, 5_000_000);
+    private final Map<Integer, LongAdder> codes = new ConcurrentSkipListMap<>();
+
+    public long calls() {
+      return calls.sum();
+    }
+
+    public long errors() {
+      return errors.sum();
+    }
+
+    public Histogram latencyUs() {
+      return latencyUs;
+    }
+
+    public Map<Integer, Long> codes() {
+      Map<Integer, Long> out = new TreeMap<>();
+      for (Map.Entry<Integer, LongAdder> e : codes.entrySet()) out.put(e.getKey(), e.getValue().sum());
+      return out;
+    }
+
+    private void record(long startNanos, int rc) {
+      calls.increment();
+      latencyUs.record((System.nanoTime() - startNanos) / 1000L);
+      if (rc != 0) {
+        errors.increment();
+        codes.computeIfAbsent(rc, k -> new LongAdder()).increment();
+      }
+    }
+  }
+
+  private final Map<String, MethodStats> methods = new ConcurrentHashMap<>();
+  private volatile long since = System.currentTimeMillis();
+  private final AtomicLong inCallSince = new AtomicLong();
+
+  int rc(String method, IntSupplier call) {
+    MethodStats st = stats(method);
+    long t0 = System.nanoTime();
+    boolean outer = inCallSince.compareAndSet(0, t0);
+    int rc = RC_THREW;
+    try {
+      rc = call.getAsInt();
+      return rc;
+    } finally {
+      if (outer) inCallSince.set(0);
+      st.record(t0, rc);
+    }
+  }
+
+  <T> T value(String method, Supplier<T> call) {
+    MethodStats st = stats(method);
+    long t0 = System.nanoTime();
+    boolean outer = inCallSince.compareAndSet(0, t0);
+    int rc = RC_THREW;
+    try {
+      T v = call.get();
+      rc = v == null ? RC_NULL : 0;
+      return v;
+    } finally {
+      if (outer) inCallSince.set(0);
+      st.record(t0, rc);
+    }
+  }
+
+  void run(String method, Runnable call) {
+    MethodStats st = stats(method);
+    long t0 = System.nanoTime();
+    boolean outer = inCallSince.compareAndSet(0, t0);
+    int rc = RC_THREW;
+    try {
+      call.run();
+      rc = 0;
+    } finally {
+      if (outer) inCallSince.set(0);
+      st.record(t0, rc);
+    }
+  }
+
+  long inCallMs() {
+    long t0 = inCallSince.get();
+    return t0 == 0 ? 0 : (System.nanoTime() - t0) / 1_000_000L;
+  }
+
+  public Map<String, MethodStats> snapshot() {
+    return new TreeMap<>(methods);
+  }
+
+  public long since() {
+    return since;
+  }
+
+  public void reset() {
+    methods.clear();
+    since = System.currentTimeMillis();
+  }
+
+  public List<String> lines() {
+    List<String> out = new ArrayList<>();
+    out.add(String.format(Locale.US, "%-22s %8s %6s %8s %8s %8s %8s %9s  %s", "method", "calls", "err", "mean", "p50", "p95",
+        "p99", "max", "codes"));
+    for (Map.Entry<String, MethodStats> e : snapshot().entrySet()) {
+      MethodStats s = e.getValue();
+      Histogram h = s.latencyUs;
+      StringBuilder codes = new StringBuilder();
+      for (Map.Entry<Integer, Long> c : s.codes().entrySet()) {
+        if (codes.length() > 0) codes.append(' ');
+        codes.append(codeName(c.getKey())).append(':').append(c.getValue());
+      }
+      out.add(String.format(Locale.US, "%-22s %8d %6d %8s %8s %8s %8s %9s  %s", e.getKey(), s.calls(), s.errors(),
+          ms(h.mean()), ms(h.percentile(0.50)), ms(h.percentile(0.95)), ms(h.percentile(0.99)), ms(h.max()),
+          codes.length() == 0 ? "-" : codes));
+    }
+    return out;
+  }
+
+  private MethodStats stats(String method) {
+    MethodStats st = methods.get(method);
+    return st != null ? st : methods.computeIfAbsent(method, k -> new MethodStats());
+  }
+
+  private static String codeName(int rc) {
+    if (rc == RC_THREW) return "threw";
+    if (rc == RC_NULL) return "null";
+    return "0x" + Integer.toHexString(rc).toUpperCase(Locale.ROOT);
+  }
+
+  private static String ms(long us) {
+    return String.format(Locale.US, "%.1fms", us / 1000.0);
+  }
+}
@@ -0,0 +1,498 @@
+package uhf.sdk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import uhf.core.Histogram;
+import uhf.core.InventoryParams;
+import uhf.core.TagRead;
+
+public final class TagMemoryCache {
+  private static final int MAGIC = 0x544D4331;
+
+  public static final class Settings {
+    public int mem = 2;
+    public int wordPtr = 0;
+    public int words = 6;
+    public int userPtr = 0;
+    public int userWords = 0;
+    public String password = "00000000";
+    public int maxEntries = 100_000;
+    public int maxQueue = 1024;
+    public int batch = 16;
+    public long gapMs = 2000;
+    public int retries = 2;
+    public boolean pauseInventory = true;
+
+    public Settings copy() {
+      Settings s = new Settings();
+      s.mem = mem;
+      s.wordPtr = wordPtr;
+      s.words = words;
+      s.userPtr = userPtr;
+      s.userWords = userWords;
+      s.password = password;
+      s.maxEntries = maxEntries;
+      s.maxQueue = maxQueue;
+      s.batch = batch;
+      s.gapMs = gapMs;
+      s.retries = retries;
+      s.pauseInventory = pauseInventory;
+      return s;
+    }
+  }
+
+  public record Entry(String tid, String user) {}
+
+  private final Function<String, ReaderClient> readers;
+  private final Path file;
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+  private final Map<String, ArrayDeque<String>> queues = new HashMap<>();
+  private final Map<String, Long> lastFetch = new HashMap<>();
+  private final Map<String, Integer> attempts = new HashMap<>();
+  private final Set<String> requested = new HashSet<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder inline = new LongAdder();
+  private final LongAdder learned = new LongAdder();
+  private final LongAdder conflicts = new LongAdder();
+  private final LongAdder fetched = new LongAdder();
+  private final LongAdder fetchFailed = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder evicted = new LongAdder();
+  private final LongAdder pauses = new LongAdder();
+  private final Histogram pauseMs = Histogram.latencyMs();
+  private volatile Settings settings = new Settings();
+  private volatile boolean fetching;
+  private volatile boolean dirty;
+  private volatile long savedAt;
+  private volatile String lastError = "";
+  private Thread worker;
+
+  public TagMemoryCache(Function<String, ReaderClient> readers, Path file) {
+    this.readers = readers;
+    this.file = file;
+  }
+
+  public Path file() {
+    return file;
+  }
+
+  public Settings settings() {
+    return settings.copy();
+  }
+
+  public boolean isFetching() {
+    return fetching;
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  public TagRead apply(TagRead tag) {
+    String raw = tag.epcId();
+    if (raw == null || raw.isEmpty()) return tag;
+    String epc = raw.toUpperCase(Locale.ROOT);
+    String mem = tag.memId();
+    if (mem != null && !mem.isEmpty()) {
+      inline.increment();
+      if (inlineMatches(tag.readerId(), mem)) learn(epc, mem);
+      return tag;
+    }
+    Entry e;
+    synchronized (entries) {
+      e = entries.get(epc);
+    }
+    if (e != null) {
+      hits.increment();
+      return new TagRead(tag.ipAddr(), raw, e.tid(), tag.rssi(), tag.antId(), tag.readerId());
+    }
+    misses.increment();
+    if (fetching) request(tag.readerId(), epc);
+    return tag;
+  }
+
+  public Entry get(String epc) {
+    synchronized (entries) {
+      return entries.get(epc.toUpperCase(Locale.ROOT));
+    }
+  }
+
+  public boolean forget(String epc) {
+    String key = epc.toUpperCase(Locale.ROOT);
+    synchronized (queues) {
+      requested.remove(key);
+      attempts.remove(key);
+    }
+    synchronized (entries) {
+      if (entries.remove(key) == null) return false;
+    }
+    dirty = true;
+    return true;
+  }
+
+  public void clear() {
+    synchronized (queues) {
+      queues.clear();
+      requested.clear();
+      attempts.clear();
+    }
+    synchronized (entries) {
+      entries.clear();
+    }
+    dirty = true;
+  }
+
+  public synchronized void start(Settings s) {
+    Settings prev = settings;
+    if (s != null) {
+      if (s.mem != prev.mem || s.wordPtr != prev.wordPtr || s.words != prev.words) clear();
+      settings = s.copy();
+    }
+    trim();
+    fetching = true;
+    if (worker == null) {
+      Thread t = new Thread(this::run, "tag-mem-cache");
+      t.setDaemon(true);
+      worker = t;
+      t.start();
+    }
+  }
+
+  public synchronized void stop() {
+    fetching = false;
+    Thread t = worker;
+    worker = null;
+    if (t != null) t.interrupt();
+    synchronized (queues) {
+      queues.clear();
+      requested.clear();
+      attempts.clear();
+    }
+  }
+
+  public int load() throws IOException {
+    return load(file);
+  }
+
+  public synchronized int load(Path path) throws IOException {
+    if (!Files.exists(path)) return 0;
+    int n = 0;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 65536))) {
+      if (in.readInt() != MAGIC) throw new IOException("not a tag memory cache: " + path);
+      Settings s = settings.copy();
+      s.mem = in.readUnsignedByte();
+      s.wordPtr = in.readUnsignedShort();
+      s.words = in.readUnsignedShort();
+      Settings cur = settings;
+      if (s.mem != cur.mem || s.wordPtr != cur.wordPtr || s.words != cur.words) {
+        clear();
+        settings = s;
+      }
+      int count = in.readInt();
+      synchronized (entries) {
+        for (int i = 0; i < count; i++) {
+          String epc = readHex(in);
+          String tid = readHex(in);
+          String user = readHex(in);
+          entries.put(epc, new Entry(tid, user.isEmpty() ? null : user));
+          n++;
+        }
+      }
+    } catch (EOFException e) {
+      lastError = "truncated " + path;
+    }
+    trim();
+    return n;
+  }
+
+  public int save() throws IOException {
+    return save(file);
+  }
+
+  public synchronized int save(Path path) throws IOException {
+    List<Map.Entry<String, Entry>> copy;
+    synchronized (entries) {
+      copy = new ArrayList<>(entries.entrySet());
+    }
+    Path abs = path.toAbsolutePath();
+    if (abs.getParent() != null) Files.createDirectories(abs.getParent());
+    Path tmp = abs.resolveSibling(abs.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 65536))) {
+      Settings s = settings;
+      out.writeInt(MAGIC);
+      out.writeByte(s.mem);
+      out.writeShort(s.wordPtr);
+      out.writeShort(s.words);
+      out.writeInt(copy.size());
+      for (Map.Entry<String, Entry> e : copy) {
+        writeHex(out, e.getKey());
+        writeHex(out, e.getValue().tid());
+        writeHex(out, e.getValue().user() == null ? "" : e.getValue().user());
+      }
+    }
+    Files.move(tmp, abs, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    if (path.equals(file)) {
+      dirty = false;
+      savedAt = System.currentTimeMillis();
+    }
+    return copy.size();
+  }
+
+  public void shutdown() {
+    stop();
+    if (!dirty) return;
+    try {
+      save();
+    } catch (IOException e) {
+      lastError = e.getMessage();
+    }
+  }
+
+  public List<String> lines() {
+    Settings s = settings;
+    List<String> out = new ArrayList<>();
+    int queued;
+    synchronized (queues) {
+      queued = 0;
+      for (ArrayDeque<String> q : queues.values()) queued += q.size();
+    }
+    long lookups = hits.sum() + misses.sum();
+    out.add("entries=" + size() + "/" + s.maxEntries + " mem=" + s.mem + " ptr=" + s.wordPtr + " words=" + s.words
+        + (s.userWords > 0 ? " user=" + s.userPtr + ":" + s.userWords : "") + " file=" + file + (dirty ? " (unsaved)" : ""));
+    out.add(String.format(Locale.US, "hits=%d misses=%d hitRate=%.1f%% inline=%d learned=%d conflicts=%d evicted=%d",
+        hits.sum(), misses.sum(), lookups == 0 ? 0.0 : hits.sum() * 100.0 / lookups, inline.sum(), learned.sum(),
+        conflicts.sum(), evicted.sum()));
+    out.add("fetch=" + (fetching ? "on batch=" + s.batch + " gap=" + s.gapMs + "ms" + (s.pauseInventory ? " pause" : " idle-only")
+        : "off") + " queued=" + queued + " fetched=" + fetched.sum() + " failed=" + fetchFailed.sum() + " dropped="
+        + dropped.sum() + " pauses=" + pauses.sum());
+    if (pauses.sum() > 0) out.add("pauseMs " + pauseMs.summary());
+    if (savedAt > 0) out.add("saved " + (System.currentTimeMillis() - savedAt) / 1000 + "s ago");
+    if (!lastError.isEmpty()) out.add("error " + lastError);
+    return out;
+  }
+
+  private boolean inlineMatches(String readerId, String mem) {
+    Settings s = settings;
+    if (mem.length() != s.words * 4) return false;
+    ReaderClient reader = readerId == null ? null : readers.apply(readerId);
+    InventoryParams p = reader == null ? null : reader.knownInventoryParams();
+    return p != null && p.readMem() == s.mem && p.readPtr() == s.wordPtr && p.readLength() == s.words;
+  }
+
+  private void learn(String epc, String mem) {
+    if (!isHex(epc) || !isHex(mem)) return;
+    String tid = mem.toUpperCase(Locale.ROOT);
+    Entry prev;
+    synchronized (entries) {
+      prev = entries.get(epc);
+      if (prev != null && prev.tid().equals(tid)) return;
+      entries.put(epc, new Entry(tid, prev == null ? null : prev.user()));
+    }
+    if (prev != null) conflicts.increment();
+    learned.increment();
+    dirty = true;
+    trim();
+  }
+
+  private void request(String readerId, String epc) {
+    if (readerId == null) return;
+    synchronized (queues) {
+      if (requested.size() >= settings.maxEntries) requested.clear();
+      if (!requested.add(epc)) return;
+      ArrayDeque<String> q = queues.computeIfAbsent(readerId, k -> new ArrayDeque<>());
+      if (q.size() >= settings.maxQueue) {
+        requested.remove(epc);
+        dropped.increment();
+        return;
+      }
+      q.addLast(epc);
+      queues.notifyAll();
+    }
+  }
+
+  private void run() {
+    while (fetching) {
+      String readerId = null;
+      List<String> batch = new ArrayList<>();
+      try {
+        synchronized (queues) {
+          long wait = 1000;
+          long now = System.currentTimeMillis();
+          for (Map.Entry<String, ArrayDeque<String>> e : queues.entrySet()) {
+            if (e.getValue().isEmpty()) continue;
+            long due = lastFetch.getOrDefault(e.getKey(), 0L) + settings.gapMs - now;
+            if (due <= 0) {
+              readerId = e.getKey();
+              break;
+            }
+            wait = Math.min(wait, due);
+          }
+          if (readerId == null) {
+            queues.wait(Math.max(1, wait));
+            continue;
+          }
+          ArrayDeque<String> q = queues.get(readerId);
+          while (batch.size() < Math.max(1, settings.batch) && !q.isEmpty()) batch.add(q.pollFirst());
+          lastFetch.put(readerId, now);
+        }
+        fetch(readerId, batch);
+      } catch (InterruptedException e) {
+        return;
+      } catch (RuntimeException e) {
+        lastError = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+      }
+      if (dirty && System.currentTimeMillis() - savedAt > 30_000) {
+        try {
+          save();
+        } catch (IOException e) {
+          lastError = e.getMessage();
+        }
+      }
+    }
+  }
+
+  private void fetch(String readerId, List<String> batch) throws InterruptedException {
+    ReaderClient reader = readers.apply(readerId);
+    if (reader == null || !reader.isConnected()) {
+      synchronized (queues) {
+        requested.removeAll(batch);
+      }
+      return;
+    }
+    Settings s = settings;
+    List<String[]> results;
+    try {
+      results = reader.submit("TagMemCache", reader.commandTimeoutMs() * (batch.size() * 2L + 2), c -> {
+        boolean resume = c.isInventoryRunning();
+        if (resume && !s.pauseInventory) return null;
+        long t0 = System.currentTimeMillis();
+        if (resume && !c.stopInventory().ok()) return null;
+        List<String[]> list = new ArrayList<>(batch.size());
+        try {
+          for (String epc : batch) {
+            String tid = c.readDataByEpc(epc, s.mem, s.wordPtr, s.words, s.password);
+            String user = null;
+            if (tid != null && tid.length() >= s.words * 4 && s.userWords > 0) {
+              user = c.readDataByEpc(epc, 3, s.userPtr, s.userWords, s.password);
+            }
+            list.add(new String[] {epc, tid, user});
+          }
+        } finally {
+          if (resume) {
+            c.startInventory();
+            pauses.increment();
+            pauseMs.record(System.currentTimeMillis() - t0);
+          }
+        }
+        return list;
+      }).join();
+    } catch (CancellationException e) {
+      throw new InterruptedException();
+    } catch (CompletionException e) {
+      lastError = e.getCause() instanceof TimeoutException ? "read timeout" : String.valueOf(e.getCause());
+      results = new ArrayList<>();
+      for (String epc : batch) results.add(new String[] {epc, null, null});
+    }
+    if (results == null) {
+      synchronized (queues) {
+        ArrayDeque<String> q = queues.computeIfAbsent(readerId, k -> new ArrayDeque<>());
+        for (int i = batch.size() - 1; i >= 0; i--) q.addFirst(batch.get(i));
+      }
+      return;
+    }
+    for (String[] r : results) {
+      String epc = r[0];
+      String tid = r[1] == null ? null : r[1].toUpperCase(Locale.ROOT);
+      if (tid != null && tid.length() >= s.words * 4 && isHex(tid)) {
+        String user = r[2] == null || r[2].length() < s.userWords * 4 || !isHex(r[2]) ? null : r[2].toUpperCase(Locale.ROOT);
+        synchronized (entries) {
+          entries.put(epc, new Entry(tid, user));
+        }
+        synchronized (queues) {
+          attempts.remove(epc);
+        }
+        fetched.increment();
+        dirty = true;
+        continue;
+      }
+      synchronized (queues) {
+        int n = attempts.merge(epc, 1, Integer::sum);
+        if (n <= s.retries) {
+          queues.computeIfAbsent(readerId, k -> new ArrayDeque<>()).addLast(epc);
+        } else {
+          attempts.remove(epc);
+          fetchFailed.increment();
+        }
+      }
+    }
+    trim();
+  }
+
+  private void trim() {
+    int max = Math.max(1, settings.maxEntries);
+    synchronized (entries) {
+      if (entries.size() <= max) return;
+      Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+      while (entries.size() > max && it.hasNext()) {
+        it.next();
+        it.remove();
+        evicted.increment();
+      }
+    }
+    dirty = true;
+  }
+
+  private static boolean isHex(String s) {
+    if (s == null || s.isEmpty() || s.length() > 0xFFFF) return false;
+    for (int i = 0; i < s.length(); i++) {
+      if (Character.digit(s.charAt(i), 16) < 0) return false;
+    }
+    return true;
+  }
+
+  private static void writeHex(DataOutputStream out, String hex) throws IOException {
+    int nibbles = hex.length();
+    out.writeShort(nibbles);
+    for (int i = 0; i < nibbles; i += 2) {
+      int hi = Character.digit(hex.charAt(i), 16);
+      int lo = i + 1 < nibbles ? Character.digit(hex.charAt(i + 1), 16) : 0;
+      out.writeByte(hi << 4 | lo);
+    }
+  }
+
+  private static String readHex(DataInputStream in) throws IOException {
+    int nibbles = in.readUnsignedShort();
+    char[] out = new char[nibbles];
+    for (int i = 0; i < nibbles; i += 2) {
+      int b = in.readUnsignedByte();
+      out[i] = Character.toUpperCase(Character.forDigit(b >> 4, 16));
+      if (i + 1 < nibbles) out[i + 1] = Character.toUpperCase(Character.forDigit(b & 0xF, 16));
+    }
+    return new String(out);
+  }
+}
@@ -0,0 +1,237 @@
+package uhf.sdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import uhf.core.Histogram;
+import uhf.core.Result;
+import uhf.core.TagOpResult;
+import uhf.core.WritePowerInfo;
+
+public final class TagOps {
+  public static final int RC_VERIFY = -10;
+  private static final int[] TRANSIENT = {0xFA, 0xFB, 0xFC, ReaderExecutor.RC_TIMEOUT, RC_VERIFY};
+
+  public static final class Policy {
+    public boolean verify = true;
+    public int maxAttempts = 3;
+    public int powerStepDb = 2;
+    public int maxWritePowerDb = 33;
+    public long maxTotalMs = 3000;
+
+    public Policy copy() {
+      Policy p = new Policy();
+      p.verify = verify;
+      p.maxAttempts = maxAttempts;
+      p.powerStepDb = powerStepDb;
+      p.maxWritePowerDb = maxWritePowerDb;
+      p.maxTotalMs = maxTotalMs;
+      return p;
+    }
+
+    public String describe() {
+      return "verify=" + verify + " attempts=" + maxAttempts + " step=" + powerStepDb + "dB maxPower=" + maxWritePowerDb
+          + " maxMs=" + maxTotalMs;
+    }
+  }
+
+  public static final class OpStats {
+    private final LongAdder ops = new LongAdder();
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder verifyFailures = new LongAdder();
+    private final LongAdder powerBumps = new LongAdder();
+    private final LongAdder timeCapped = new LongAdder();
+    private final LongAdder retryMs = new LongAdder();
+    private final Histogram totalMs = Histogram.latencyMs();
+    private final Histogram attempts = new Histogram(1, 2, 3, 4, 5, 8);
+
+    public long ops() {
+      return ops.sum();
+    }
+
+    public long ok() {
+      return ok.sum();
+    }
+
+    public long failed() {
+      return failed.sum();
+    }
+
+    public long retries() {
+      return retries.sum();
+    }
+
+    public long retryMs() {
+      return retryMs.sum();
+    }
+
+    public Histogram totalMs() {
+      return totalMs;
+    }
+  }
+
+  private final ReaderClient reader;
+  private final Map<String, OpStats> stats = new TreeMap<>();
+  private volatile Policy policy = new Policy();
+
+  TagOps(ReaderClient reader) {
+    this.reader = reader;
+  }
+
+  public Policy policy() {
+    return policy.copy();
+  }
+
+  public void setPolicy(Policy p) {
+    if (p != null) policy = p.copy();
+  }
+
+  public TagOpResult writeDataByEpc(String epc, int mem, int wordPtr, String password, String data, Policy p) {
+    String selector = mem == 1 && wordPtr == 2 && data.length() == epc.length() ? data : epc;
+    return run("WriteDataByEPC", p,
+        c -> c.writeDataByEpc(epc, mem, wordPtr, password, data),
+        c -> matches(c.readDataByEpc(selector, mem, wordPtr, words(data), password), data));
+  }
+
+  public TagOpResult writeDataByTid(String tid, int mem, int wordPtr, String password, String data, Policy p) {
+    return run("WriteDataByTID", p,
+        c -> c.writeDataByTid(tid, mem, wordPtr, password, data),
+        c -> matches(c.readDataByTid(tid, mem, wordPtr, words(data), password), data));
+  }
+
+  public TagOpResult writeEpc(String epc, String password, Policy p) {
+    return run("WriteEPC", p,
+        c -> c.writeEpc(epc, password),
+        c -> matches(c.readDataByEpc(epc, 1, 2, words(epc), password), epc));
+  }
+
+  public TagOpResult writeEpcByTid(String tid, String epc, String password, Policy p) {
+    return run("WriteEPCByTID", p,
+        c -> c.writeEpcByTid(tid, epc, password),
+        c -> matches(c.readDataByTid(tid, 1, 2, words(epc), password), epc));
+  }
+
+  public TagOpResult lock(String epc, int select, int protect, String password, Policy p) {
+    return run("Lock", p, c -> c.lock(epc, select, protect, password), null);
+  }
+
+  public List<String> lines() {
+    List<String> out = new ArrayList<>();
+    out.add(reader.id() + " policy " + policy.describe());
+    synchronized (stats) {
+      for (Map.Entry<String, OpStats> e : stats.entrySet()) {
+        OpStats s = e.getValue();
+        out.add(String.format(Locale.US, "%-15s ops=%d ok=%d failed=%d retries=%d verifyFail=%d powerBumps=%d capped=%d retryMs=%d",
+            e.getKey(), s.ops(), s.ok(), s.failed(), s.retries(), s.verifyFailures.sum(), s.powerBumps.sum(),
+            s.timeCapped.sum(), s.retryMs()));
+        out.add("  totalMs " + s.totalMs.summary() + " attempts " + s.attempts.buckets());
+      }
+    }
+    return out;
+  }
+
+  public static boolean isTransient(int rc) {
+    for (int t : TRANSIENT) {
+      if (t == rc) return true;
+    }
+    return false;
+  }
+
+  public static String codeName(int rc) {
+    if (rc == RC_VERIFY) return "verify";
+    if (rc == ReaderExecutor.RC_TIMEOUT) return "timeout";
+    if (rc == ReaderExecutor.RC_CANCELLED) return "cancelled";
+    return rc < 0 ? String.valueOf(rc) : "0x" + Integer.toHexString(rc).toUpperCase(Locale.ROOT);
+  }
+
+  private TagOpResult run(String op, Policy requested, Function<ReaderClient, Result> write, Predicate<ReaderClient> verify) {
+    Policy p = requested == null ? policy : requested;
+    OpStats st;
+    synchronized (stats) {
+      st = stats.computeIfAbsent(op, k -> new OpStats());
+    }
+    long t0 = System.currentTimeMillis();
+    long cmd = reader.commandTimeoutMs();
+    long timeout = Math.max(p.maxTotalMs + cmd * 3, cmd * (Math.max(1, p.maxAttempts) * 3L + 1));
+    TagOpResult out;
+    try {
+      out = reader.submit(op, timeout, c -> attempt(c, p, st, write, verify)).join();
+    } catch (CancellationException e) {
+      out = new TagOpResult(Result.fail(ReaderExecutor.RC_CANCELLED), 0, System.currentTimeMillis() - t0, -1, false);
+    } catch (CompletionException e) {
+      int rc = e.getCause() instanceof TimeoutException ? ReaderExecutor.RC_TIMEOUT
+          : e.getCause() instanceof CancellationException ? ReaderExecutor.RC_CANCELLED : -1;
+      out = new TagOpResult(Result.fail(rc), 0, System.currentTimeMillis() - t0, -1, false);
+    }
+    st.ops.increment();
+    if (out.ok()) st.ok.increment();
+    else st.failed.increment();
+    st.totalMs.record(out.elapsedMs());
+    st.attempts.record(out.attempts());
+    return out;
+  }
+
+  private static TagOpResult attempt(ReaderClient c, Policy p, OpStats st, Function<ReaderClient, Result> write,
+      Predicate<ReaderClient> verify) {
+    long t0 = System.currentTimeMillis();
+    long deadline = t0 + Math.max(0, p.maxTotalMs);
+    WritePowerInfo orig = c.cachedWritePower();
+    int power = orig.result().ok() ? orig.power() : -1;
+    boolean bumped = false;
+    int attempts = 0;
+    long firstMs = 0;
+    Result r = Result.fail(-1);
+    boolean verified = false;
+    while (true) {
+      attempts++;
+      long a0 = System.currentTimeMillis();
+      r = write.apply(c);
+      if (r.ok() && verify != null && p.verify && System.currentTimeMillis() >= deadline) {
+        st.timeCapped.increment();
+      } else if (r.ok() && verify != null && p.verify) {
+        verified = verify.test(c);
+        if (!verified) {
+          st.verifyFailures.increment();
+          r = Result.fail(RC_VERIFY);
+        }
+      }
+      if (attempts == 1) firstMs = System.currentTimeMillis() - a0;
+      if (r.ok() || !isTransient(r.code()) || attempts >= Math.max(1, p.maxAttempts)) break;
+      if (System.currentTimeMillis() >= deadline) {
+        st.timeCapped.increment();
+        break;
+      }
+      st.retries.increment();
+      if (power >= 0 && p.powerStepDb > 0 && power < p.maxWritePowerDb) {
+        int next = Math.min(Math.min(33, p.maxWritePowerDb), power + p.powerStepDb);
+        if (c.setWritePower(next, orig.highMode()).ok()) {
+          power = next;
+          bumped = true;
+          st.powerBumps.increment();
+        }
+      }
+    }
+    if (bumped) c.setWritePower(orig.power(), orig.highMode());
+    long elapsed = System.currentTimeMillis() - t0;
+    if (attempts > 1) st.retryMs.add(Math.max(0, elapsed - firstMs));
+    return new TagOpResult(r, attempts, elapsed, power, verified);
+  }
+
+  private static int words(String hex) {
+    return (hex.length() + 3) / 4;
+  }
+
+  private static boolean matches(String readBack, String expected) {
+    return readBack != null && readBack.toUpperCase(Locale.ROOT).startsWith(expected.toUpperCase(Locale.ROOT));
+  }
+}
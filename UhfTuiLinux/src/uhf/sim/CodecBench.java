@@ -0,0 +1,353 @@
+package uhf.sim;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import uhf.erp.ErpPayloadCodec;
+import uhf.erp.ErpTagEvent;
+
+public final class CodecBench {
+  private record Decoded(String device, long ts, boolean heartbeat, List<ErpTagEvent> tags) {}
+
+  private CodecBench() {}
+
+  public static void main(String[] args) {
+    int tags = 500;
+    int rounds = 200;
+    String device = "codec-bench";
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      String k = args[i];
+      String v = args[i + 1];
+      switch (k) {
+        case "--tags" -> tags = Math.max(1, Math.min(parseInt(v, tags), 100000));
+        case "--rounds" -> rounds = Math.max(1, parseInt(v, rounds));
+        case "--device" -> device = v;
+        default -> {
+          usage();
+          return;
+        }
+      }
+    }
+
+    int failed = 0;
+    long now = System.currentTimeMillis();
+    Map<String, List<ErpTagEvent>> cases = new LinkedHashMap<>();
+    cases.put("escaped", List.of(
+        new ErpTagEvent("E200\\01\"x\"", "A\nB\tC\rD", -50, 1, "10.0.0.1", now),
+        new ErpTagEvent("E2\u0001\u001f", "\\\\", -51, 2, "10.0.0.1", now + 1)));
+    cases.put("non-ascii", List.of(
+        new ErpTagEvent("E280ÄÖÜ", "тег-ёж", -60, 1, "şlüz", now),
+        new ErpTagEvent("E280€", "😀", -61, 3, "şlüz", now + 5)));
+    cases.put("nulls", List.of(
+        new ErpTagEvent("E2801160000000000000000A", null, -45, 1, null, now),
+        new ErpTagEvent("E2801160000000000000000B", null, -46, 1, "192.168.1.190", now + 2)));
+    cases.put("single", List.of(new ErpTagEvent("E2801160000000000000000C", "", -40, 4, "192.168.1.190", now)));
+    cases.put("multi-reader", List.of(
+        new ErpTagEvent("E2801160000000000000000D", "", -44, 1, "192.168.1.190", now),
+        new ErpTagEvent("E2801160000000000000000D", "", -47, 2, "192.168.1.191", now + 1),
+        new ErpTagEvent("E2801160000000000000000D", "", -52, 1, "10.20.0.7", now + 2)));
+    cases.put("sample", sampleTags(64, 16, now));
+    for (Map.Entry<String, List<ErpTagEvent>> e : cases.entrySet()) {
+      for (String dev : List.of(device, "dock-\"2\"", "склад-3")) {
+        boolean ok = roundTrip(dev, e.getValue(), now);
+        if (!ok) failed++;
+        System.out.println("roundtrip " + e.getKey() + " device=" + dev + " " + (ok ? "ok" : "FAIL"));
+      }
+    }
+
+    List<ErpTagEvent> sample = sampleTags(tags, Math.max(1, tags / 4), now);
+    String json = ErpPayloadCodec.encodeJson(device, sample, false, now);
+    String compact = ErpPayloadCodec.encodeCompact(device, sample, now);
+    for (int i = 0; i < Math.min(rounds, 20); i++) {
+      ErpPayloadCodec.encodeJson(device, sample, false, now);
+      ErpPayloadCodec.encodeCompact(device, sample, now);
+    }
+    long t0 = System.nanoTime();
+    for (int i = 0; i < rounds; i++) ErpPayloadCodec.encodeJson(device, sample, false, now);
+    long jsonNs = (System.nanoTime() - t0) / rounds;
+    t0 = System.nanoTime();
+    for (int i = 0; i < rounds; i++) ErpPayloadCodec.encodeCompact(device, sample, now);
+    long compactNs = (System.nanoTime() - t0) / rounds;
+    int jsonBytes = json.getBytes(StandardCharsets.UTF_8).length;
+    int compactBytes = compact.getBytes(StandardCharsets.UTF_8).length;
+    boolean ok = roundTrip(device, sample, now);
+    if (!ok) failed++;
+    System.out.println("tags=" + tags
+        + " json=" + jsonBytes + "B/" + (jsonNs / 1000) + "us"
+        + " compact=" + compactBytes + "B/" + (compactNs / 1000) + "us"
+        + " ratio=" + String.format(Locale.US, "%.2f", jsonBytes == 0 ? 0 : (double) compactBytes / jsonBytes)
+        + " roundtrip=" + (ok ? "ok" : "FAIL"));
+    if (failed > 0) {
+      System.out.println(failed + " round trip(s) failed");
+      System.exit(1);
+    }
+  }
+
+  private static List<ErpTagEvent> sampleTags(int count, int distinctEpcs, long now) {
+    int n = Math.max(1, count);
+    int distinct = Math.max(1, distinctEpcs);
+    List<ErpTagEvent> out = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      int e = i % distinct;
+      String epc = String.format("E2801160%016X", 0x3000_0000_0000L + e);
+      String mem = (e % 3 == 0) ? "" : String.format("E2003412%016X", 0x1000_0000L + e);
+      int ant = 1 + (i % 4);
+      String ip = (i % 5 == 0) ? "192.168.1.191" : "192.168.1.190";
+      out.add(new ErpTagEvent(epc, mem, -40 - (i % 30), ant, ip, now + i * 3L));
+    }
+    return out;
+  }
+
+  private static boolean roundTrip(String device, List<ErpTagEvent> tags, long now) {
+    try {
+      Decoded a = decode(ErpPayloadCodec.encodeJson(device, tags, false, now));
+      Decoded b = decode(ErpPayloadCodec.encodeCompact(device, tags, now));
+      List<ErpTagEvent> expected = normalized(tags);
+      return sameEvents(a.tags(), expected) && sameEvents(b.tags(), expected)
+          && a.device().equals(device) && b.device().equals(device) && a.ts() == now && b.ts() == now;
+    } catch (RuntimeException e) {
+      return false;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Decoded decode(String payload) {
+    Object root = new JsonReader(payload).read();
+    if (!(root instanceof Map)) throw new IllegalArgumentException("payload is not an object");
+    Map<String, Object> obj = (Map<String, Object>) root;
+    String device = str(obj.get("device"));
+    long ts = num(obj.get("ts"));
+    boolean heartbeat = Boolean.TRUE.equals(obj.get("heartbeat"));
+    List<ErpTagEvent> out = new ArrayList<>();
+    if (ErpPayloadCodec.COMPACT_VERSION.equals(obj.get("format"))) {
+      long base = num(obj.get("base"));
+      List<Object> dict = (List<Object>) obj.get("dict");
+      List<Object> groups = (List<Object>) obj.get("groups");
+      for (Object go : groups) {
+        Map<String, Object> g = (Map<String, Object>) go;
+        String ip = str(dict.get((int) num(g.get("ip"))));
+        int ant = (int) num(g.get("ant"));
+        List<Object> epc = (List<Object>) g.get("epc");
+        List<Object> mem = (List<Object>) g.get("mem");
+        List<Object> rssi = (List<Object>) g.get("rssi");
+        List<Object> dt = (List<Object>) g.get("dt");
+        for (int i = 0; i < epc.size(); i++) {
+          out.add(new ErpTagEvent(
+              str(dict.get((int) num(epc.get(i)))),
+              str(dict.get((int) num(mem.get(i)))),
+              (int) num(rssi.get(i)),
+              ant,
+              ip,
+              base + num(dt.get(i))
+          ));
+        }
+      }
+    } else {
+      List<Object> tags = (List<Object>) obj.get("tags");
+      if (tags != null) {
+        for (Object to : tags) {
+          Map<String, Object> t = (Map<String, Object>) to;
+          out.add(new ErpTagEvent(
+              str(t.get("epcId")),
+              str(t.get("memId")),
+              (int) num(t.get("rssi")),
+              (int) num(t.get("antId")),
+              str(t.get("ipAddr")),
+              num(t.get("ts"))
+          ));
+        }
+      }
+    }
+    return new Decoded(device, ts, heartbeat, out);
+  }
+
+  private static List<ErpTagEvent> normalized(List<ErpTagEvent> tags) {
+    List<ErpTagEvent> out = new ArrayList<>(tags.size());
+    for (ErpTagEvent t : tags) {
+      out.add(new ErpTagEvent(safe(t.epcId()), safe(t.memId()), t.rssi(), t.antId(), safe(t.ipAddr()), t.ts()));
+    }
+    return out;
+  }
+
+  // Grouping by (ipAddr, antId) changes element order, so equivalence is checked on the sorted multiset.
+  private static boolean sameEvents(List<ErpTagEvent> a, List<ErpTagEvent> b) {
+    if (a.size() != b.size()) return false;
+    Comparator<ErpTagEvent> cmp = Comparator.comparingLong(ErpTagEvent::ts)
+        .thenComparing(ErpTagEvent::epcId)
+        .thenComparing(ErpTagEvent::ipAddr)
+        .thenComparingInt(ErpTagEvent::antId)
+        .thenComparing(ErpTagEvent::memId)
+        .thenComparingInt(ErpTagEvent::rssi);
+    List<ErpTagEvent> sa = new ArrayList<>(a);
+    List<ErpTagEvent> sb = new ArrayList<>(b);
+    sa.sort(cmp);
+    sb.sort(cmp);
+    return sa.equals(sb);
+  }
+
+  private static String safe(String s) {
+    return s == null ? "" : s;
+  }
+
+  private static String str(Object o) {
+    return o == null ? "" : o.toString();
+  }
+
+  private static long num(Object o) {
+    if (o instanceof Number n) return n.longValue();
+    return 0;
+  }
+
+  private static void usage() {
+    System.out.println("Usage: CodecBench [--tags n] [--rounds n] [--device name]");
+  }
+
+  private static int parseInt(String s, int def) {
+    try {
+      return Integer.parseInt(s.trim());
+    } catch (Exception e) {
+      return def;
+    }
+  }
+
+  private static final class JsonReader {
+    private final String s;
+    private int pos;
+
+    JsonReader(String s) {
+      this.s = s == null ? "" : s;
+    }
+
+    Object read() {
+      Object v = value();
+      skipWs();
+      if (pos != s.length()) throw error("trailing data");
+      return v;
+    }
+
+    private Object value() {
+      skipWs();
+      if (pos >= s.length()) throw error("unexpected end");
+      char c = s.charAt(pos);
+      if (c == '{') return object();
+      if (c == '[') return array();
+      if (c == '"') return string();
+      if (s.startsWith("true", pos)) {
+        pos += 4;
+        return Boolean.TRUE;
+      }
+      if (s.startsWith("false", pos)) {
+        pos += 5;
+        return Boolean.FALSE;
+      }
+      if (s.startsWith("null", pos)) {
+        pos += 4;
+        return null;
+      }
+      return number();
+    }
+
+    private Map<String, Object> object() {
+      Map<String, Object> out = new HashMap<>();
+      pos++;
+      skipWs();
+      if (peek() == '}') {
+        pos++;
+        return out;
+      }
+      while (true) {
+        skipWs();
+        String key = string();
+        skipWs();
+        expect(':');
+        out.put(key, value());
+        skipWs();
+        if (peek() == ',') {
+          pos++;
+          continue;
+        }
+        expect('}');
+        return out;
+      }
+    }
+
+    private List<Object> array() {
+      List<Object> out = new ArrayList<>();
+      pos++;
+      skipWs();
+      if (peek() == ']') {
+        pos++;
+        return out;
+      }
+      while (true) {
+        out.add(value());
+        skipWs();
+        if (peek() == ',') {
+          pos++;
+          continue;
+        }
+        expect(']');
+        return out;
+      }
+    }
+
+    private String string() {
+      expect('"');
+      StringBuilder sb = new StringBuilder();
+      while (pos < s.length()) {
+        char c = s.charAt(pos++);
+        if (c == '"') return sb.toString();
+        if (c < 0x20) throw error("control character in string");
+        if (c == '\\' && pos < s.length()) {
+          char n = s.charAt(pos++);
+          switch (n) {
+            case 'n' -> sb.append('\n');
+            case 't' -> sb.append('\t');
+            case 'r' -> sb.append('\r');
+            case 'b' -> sb.append('\b');
+            case 'f' -> sb.append('\f');
+            case 'u' -> {
+              if (pos + 4 > s.length()) throw error("bad unicode escape");
+              sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+              pos += 4;
+            }
+            default -> sb.append(n);
+          }
+          continue;
+        }
+        sb.append(c);
+      }
+      throw error("unterminated string");
+    }
+
+    private Long number() {
+      int start = pos;
+      if (peek() == '-') pos++;
+      while (pos < s.length() && Character.isDigit(s.charAt(pos))) pos++;
+      if (start == pos) throw error("unexpected character");
+      return Long.parseLong(s.substring(start, pos));
+    }
+
+    private void skipWs() {
+      while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+    }
+
+    private char peek() {
+      return pos < s.length() ? s.charAt(pos) : '\0';
+    }
+
+    private void expect(char c) {
+      if (peek() != c) throw error("expected '" + c + "'");
+      pos++;
+    }
+
+    private IllegalArgumentException error(String msg) {
+      return new IllegalArgumentException(msg + " at " + pos);
+    }
+  }
+}
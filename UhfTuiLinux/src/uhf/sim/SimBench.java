@@ -0,0 +1,172 @@
+package uhf.sim;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import uhf.core.TagRead;
+import uhf.core.TagSource;
+import uhf.erp.ErpConfig;
+import uhf.erp.ErpPayloadCodec;
+import uhf.erp.ErpPusher;
+import uhf.erp.ErpTagEvent;
+
+public final class SimBench {
+  private SimBench() {}
+
+  public static void main(String[] args) throws Exception {
+    SimConfig simCfg = new SimConfig();
+    ErpConfig erp = new ErpConfig();
+    erp.enabled = true;
+    erp.auth = "bench:bench";
+    erp.device = "sim-bench";
+    erp.heartbeatMs = 0;
+    int seconds = 10;
+    String url = "";
+    String replayFile = "";
+    String captureFile = "";
+    double replaySpeed = 0;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      String k = args[i];
+      String v = args[i + 1];
+      switch (k) {
+        case "--rate" -> simCfg.readsPerSec = parseInt(v, simCfg.readsPerSec);
+        case "--tags" -> simCfg.tags = parseInt(v, simCfg.tags);
+        case "--ants" -> simCfg.antennas = parseInt(v, simCfg.antennas);
+        case "--churn" -> simCfg.churnPerSec = parseDouble(v, simCfg.churnPerSec);
+        case "--rssi-sd" -> simCfg.rssiStdDev = parseInt(v, simCfg.rssiStdDev);
+        case "--tid" -> simCfg.withTid = Boolean.parseBoolean(v);
+        case "--seed" -> simCfg.seed = parseInt(v, 0);
+        case "--seconds" -> seconds = Math.max(1, parseInt(v, seconds));
+        case "--dedupe" -> erp.dedupeMs = parseInt(v, erp.dedupeMs);
+        case "--batch" -> erp.maxBatch = parseInt(v, erp.maxBatch);
+        case "--batch-ms" -> erp.batchMs = parseInt(v, erp.batchMs);
+        case "--queue" -> erp.maxQueue = parseInt(v, erp.maxQueue);
+        case "--format" -> erp.payloadFormat = ErpPayloadCodec.normalizeFormat(v);
+        case "--erp" -> url = v.trim();
+        case "--replay" -> replayFile = v.trim();
+        case "--speed" -> replaySpeed = v.equalsIgnoreCase("max") ? 0 : parseDouble(v, replaySpeed);
+        case "--capture" -> captureFile = v.trim();
+        default -> {
+          usage();
+          return;
+        }
+      }
+    }
+
+    HttpServer server = null;
+    LongAdder posts = new LongAdder();
+    LongAdder postBytes = new LongAdder();
+    if (url.isEmpty() || url.equals("local")) {
+      server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+      server.createContext("/", ex -> {
+        long n = 0;
+        try (InputStream in = ex.getRequestBody()) {
+          byte[] buf = new byte[8192];
+          int r;
+          while ((r = in.read(buf)) > 0) n += r;
+        }
+        posts.increment();
+        postBytes.add(n);
+        byte[] body = "{\"message\":{\"ok\":true}}".getBytes(StandardCharsets.UTF_8);
+        ex.sendResponseHeaders(200, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+          out.write(body);
+        }
+      });
+      server.start();
+      url = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+    erp.baseUrl = url;
+
+    ErpPusher pusher = new ErpPusher(erp);
+    TagCapture capture = captureFile.isEmpty() ? null : new TagCapture(Path.of(captureFile));
+    LongAdder sinkNanos = new LongAdder();
+    LongAdder sinkReads = new LongAdder();
+    Consumer<TagRead> sink = tag -> {
+      long t0 = System.nanoTime();
+      if (capture != null) capture.write(tag, t0);
+      pusher.enqueue(new ErpTagEvent(tag.epcId(), tag.memId(), tag.rssi(), tag.antId(), tag.ipAddr(),
+          System.currentTimeMillis()));
+      sinkNanos.add(System.nanoTime() - t0);
+      sinkReads.increment();
+    };
+
+    SimulatedReader sim = null;
+    TagReplay replay = null;
+    if (replayFile.isEmpty()) {
+      sim = new SimulatedReader("sim", simCfg);
+      sim.setTagSink(sink);
+      sim.connect();
+      System.out.println("sim " + simCfg.describe() + " seconds=" + seconds);
+    } else {
+      replay = new TagReplay("replay", Path.of(replayFile));
+      replay.setSpeed(replaySpeed);
+      replay.setTagSink(sink);
+      if (!replay.connect().ok()) {
+        System.out.println("capture not found: " + replayFile);
+        return;
+      }
+      System.out.println("replay " + replayFile + " speed=" + (replaySpeed == 0 ? "max" : replaySpeed + "x")
+          + " maxSeconds=" + seconds);
+    }
+    TagSource source = sim != null ? sim : replay;
+    System.out.println("erp " + url + " format=" + erp.payloadFormat + " dedupeMs=" + erp.dedupeMs
+        + " maxBatch=" + erp.maxBatch + " maxQueue=" + erp.maxQueue);
+    source.startInventory();
+    long prev = 0;
+    for (int s = 1; s <= seconds && source.isInventoryRunning(); s++) {
+      Thread.sleep(1000);
+      long now = sinkReads.sum();
+      System.out.println("t=" + s + "s reads/s=" + (now - prev) + " queue=" + pusher.metrics().queueDepth()
+          + " sent=" + pusher.metrics().sent());
+      prev = now;
+    }
+    source.stopInventory();
+    if (capture != null) capture.close();
+    long drainUntil = System.currentTimeMillis() + 5000;
+    while (pusher.metrics().queueDepth() > 0 && System.currentTimeMillis() < drainUntil) Thread.sleep(50);
+
+    System.out.println("--- source");
+    for (String line : sim != null ? sim.lines() : replay.lines()) System.out.println(line);
+    if (capture != null) {
+      System.out.println("captured " + capture.records() + " reads, " + capture.bytes() + " bytes -> " + captureFile);
+    }
+    long reads = Math.max(1, sinkReads.sum());
+    System.out.println("sink avgNs=" + sinkNanos.sum() / reads);
+    System.out.println("--- erp");
+    for (String line : pusher.metrics().lines()) System.out.println(line);
+    if (server != null) {
+      System.out.println("--- sink");
+      System.out.println("posts=" + posts.sum() + " bytes=" + postBytes.sum());
+    }
+    pusher.shutdown();
+    if (server != null) server.stop(0);
+  }
+
+  private static void usage() {
+    System.out.println("Usage: SimBench [--rate n] [--tags n] [--ants n] [--churn n] [--rssi-sd n] [--tid true]"
+        + " [--seed n] [--seconds n] [--dedupe ms] [--batch n] [--batch-ms ms] [--queue n]"
+        + " [--format json|compact] [--erp local|<baseUrl>] [--capture file] [--replay file] [--speed n|max]");
+  }
+
+  private static int parseInt(String s, int def) {
+    try {
+      return Integer.parseInt(s.trim());
+    } catch (Exception e) {
+      return def;
+    }
+  }
+
+  private static double parseDouble(String s, double def) {
+    try {
+      return Double.parseDouble(s.trim());
+    } catch (Exception e) {
+      return def;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package uhf.sim;
+
+public final class SimConfig {
+  public static final int MAX_READS_PER_SEC = 200000;
+
+  public int tags = 500;
+  public int antennas = 4;
+  public int readsPerSec = 1000;
+  public double churnPerSec = 5;
+  public int[] rssiMean = {-52, -58, -64, -70};
+  public int rssiStdDev = 6;
+  public boolean withTid = false;
+  public String ipAddr = "127.0.0.1";
+  public long seed = 0;
+
+  public SimConfig copy() {
+    SimConfig c = new SimConfig();
+    c.tags = tags;
+    c.antennas = antennas;
+    c.readsPerSec = readsPerSec;
+    c.churnPerSec = churnPerSec;
+    c.rssiMean = rssiMean == null ? new int[0] : rssiMean.clone();
+    c.rssiStdDev = rssiStdDev;
+    c.withTid = withTid;
+    c.ipAddr = ipAddr;
+    c.seed = seed;
+    return c;
+  }
+
+  public int rssiMean(int antenna) {
+    if (rssiMean == null || rssiMean.length == 0) return -60;
+    return rssiMean[Math.min(rssiMean.length - 1, Math.max(0, antenna))];
+  }
+
+  public String describe() {
+    return "tags=" + tags + " ants=" + antennas + " rate=" + readsPerSec + "/s churn=" + churnPerSec
+        + "/s rssiSd=" + rssiStdDev + (withTid ? " tid" : "");
+  }
+
+  static int clamp(int v, int min, int max) {
+    return Math.max(min, Math.min(max, v));
+  }
+}
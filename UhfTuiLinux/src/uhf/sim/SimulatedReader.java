@@ -0,0 +1,232 @@
+package uhf.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import uhf.core.Result;
+import uhf.core.TagRead;
+import uhf.core.TagSource;
+
+public final class SimulatedReader implements TagSource {
+  private static final int MAX_BATCH = 10000;
+
+  private final String id;
+  private volatile SimConfig cfg;
+  private volatile Consumer<TagRead> sink = t -> {};
+  private volatile boolean connected;
+  private volatile boolean running;
+  private volatile Thread worker;
+  private final LongAdder reads = new LongAdder();
+  private final LongAdder arrivals = new LongAdder();
+  private final LongAdder departures = new LongAdder();
+  private final LongAdder lagged = new LongAdder();
+  private volatile long runStartedAt;
+  private volatile long runStoppedAt;
+  private volatile long runReads;
+
+  public SimulatedReader(String id, SimConfig cfg) {
+    this.id = id == null || id.isBlank() ? "sim" : id.trim();
+    this.cfg = cfg == null ? new SimConfig() : cfg.copy();
+  }
+
+  @Override
+  public String id() {
+    return id;
+  }
+
+  public SimConfig config() {
+    return cfg.copy();
+  }
+
+  public void configure(SimConfig next) {
+    cfg = next == null ? new SimConfig() : next.copy();
+  }
+
+  public void setTagSink(Consumer<TagRead> sink) {
+    this.sink = sink == null ? t -> {} : sink;
+  }
+
+  public Result connect() {
+    if (connected) return Result.fail(0x35);
+    connected = true;
+    return Result.success();
+  }
+
+  @Override
+  public Result disconnect() {
+    stopInventory();
+    connected = false;
+    return Result.success();
+  }
+
+  @Override
+  public boolean isConnected() {
+    return connected;
+  }
+
+  @Override
+  public boolean isInventoryRunning() {
+    return connected && running;
+  }
+
+  @Override
+  public int getAntennaCount() {
+    return SimConfig.clamp(cfg.antennas, 1, 16);
+  }
+
+  @Override
+  public synchronized Result startInventory() {
+    if (!connected) return Result.fail(0x36);
+    if (running) return Result.success();
+    SimConfig c = cfg.copy();
+    running = true;
+    runStartedAt = System.currentTimeMillis();
+    runStoppedAt = 0;
+    runReads = 0;
+    Thread t = new Thread(() -> generate(c), "sim-" + id);
+    t.setDaemon(true);
+    worker = t;
+    t.start();
+    return Result.success();
+  }
+
+  @Override
+  public synchronized Result stopInventory() {
+    if (!connected) return Result.fail(0x36);
+    running = false;
+    Thread t = worker;
+    worker = null;
+    if (t != null && t != Thread.currentThread()) {
+      try {
+        t.join(2000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (runStartedAt > 0 && runStoppedAt == 0) runStoppedAt = System.currentTimeMillis();
+    return Result.success();
+  }
+
+  public long reads() {
+    return reads.sum();
+  }
+
+  public long arrivals() {
+    return arrivals.sum();
+  }
+
+  public long departures() {
+    return departures.sum();
+  }
+
+  public long lagged() {
+    return lagged.sum();
+  }
+
+  public long runReads() {
+    return runReads;
+  }
+
+  public long runMs() {
+    long start = runStartedAt;
+    if (start <= 0) return 0;
+    long end = runStoppedAt > 0 ? runStoppedAt : System.currentTimeMillis();
+    return Math.max(0, end - start);
+  }
+
+  public long ratePerSec() {
+    long ms = runMs();
+    return ms <= 0 ? 0 : runReads * 1000 / ms;
+  }
+
+  public List<String> lines() {
+    List<String> out = new ArrayList<>();
+    out.add(id + " " + (isInventoryRunning() ? "running" : connected ? "idle" : "off") + "  " + cfg.describe());
+    out.add("reads=" + reads() + " run=" + runReads + " in " + runMs() + "ms (" + ratePerSec() + "/s)"
+        + " lagged=" + lagged());
+    out.add("arrivals=" + arrivals() + " departures=" + departures());
+    return out;
+  }
+
+  private void generate(SimConfig c) {
+    SplittableRandom rnd = c.seed != 0 ? new SplittableRandom(c.seed) : new SplittableRandom();
+    int n = Math.max(1, c.tags);
+    int ants = SimConfig.clamp(c.antennas, 1, 16);
+    long rate = SimConfig.clamp(c.readsPerSec, 1, SimConfig.MAX_READS_PER_SEC);
+    double churn = Math.max(0, c.churnPerSec);
+    int[] means = new int[ants];
+    for (int a = 0; a < ants; a++) means[a] = c.rssiMean(a);
+    int sd = Math.max(0, c.rssiStdDev);
+    String ip = c.ipAddr == null ? "" : c.ipAddr;
+    String[] epcs = new String[n];
+    String[] tids = new String[n];
+    long serial = 0;
+    for (int i = 0; i < n; i++) {
+      epcs[i] = epc(serial);
+      tids[i] = c.withTid ? tid(serial) : "";
+      serial++;
+    }
+    arrivals.add(n);
+    long t0 = System.nanoTime();
+    long emitted = 0;
+    long churned = 0;
+    Consumer<TagRead> out = sink;
+    try {
+      while (running) {
+        long elapsed = System.nanoTime() - t0;
+        long churnDue = (long) (elapsed / 1e9 * churn) - churned;
+        for (long k = 0; k < churnDue; k++) {
+          int slot = rnd.nextInt(n);
+          epcs[slot] = epc(serial);
+          tids[slot] = c.withTid ? tid(serial) : "";
+          serial++;
+        }
+        if (churnDue > 0) {
+          churned += churnDue;
+          arrivals.add(churnDue);
+          departures.add(churnDue);
+        }
+        long due = (long) (elapsed / 1e9 * rate) - emitted;
+        if (due <= 0) {
+          LockSupport.parkNanos(200_000);
+          continue;
+        }
+        if (due > rate) {
+          long skip = due - rate / 10;
+          emitted += skip;
+          lagged.add(skip);
+          due -= skip;
+        }
+        int batch = (int) Math.min(due, MAX_BATCH);
+        out = sink;
+        for (int k = 0; k < batch; k++) {
+          int i = rnd.nextInt(n);
+          int ant = ants == 1 ? 0 : rnd.nextInt(ants);
+          int rssi = sd == 0 ? means[ant] : (int) Math.round(means[ant] + rnd.nextGaussian() * sd);
+          out.accept(new TagRead(ip, epcs[i], tids[i], rssi, ant + 1, id));
+        }
+        emitted += batch;
+        reads.add(batch);
+        runReads += batch;
+      }
+    } finally {
+      runStoppedAt = System.currentTimeMillis();
+    }
+  }
+
+  private static String epc(long serial) {
+    return "E2801170" + hex16(0x2000_0000_0000L + serial);
+  }
+
+  private static String tid(long serial) {
+    return "E2003412" + hex16(0x0100_0000_0000L + serial);
+  }
+
+  private static String hex16(long v) {
+    String h = Long.toHexString(v).toUpperCase();
+    return "0000000000000000".substring(h.length()) + h;
+  }
+}
@@ -0,0 +1,179 @@
+package uhf.sim;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import uhf.core.TagRead;
+
+// File layout: "UHFCAP1\n", capture start epoch ms (long), then one record per read:
+// delta-us varint, EPC, memId, RSSI (zigzag varint), antenna varint, IP ref, reader ref.
+// Hex strings are packed two nibbles per byte; refs are dictionary indexes, a new entry is
+// written inline as (count, utf8 string) the first time it appears.
+public final class TagCapture implements AutoCloseable {
+  static final byte[] MAGIC = "UHFCAP1\n".getBytes(StandardCharsets.US_ASCII);
+  private static final int FLUSH_RECORDS = 1000;
+  private static final long FLUSH_MS = 1000;
+
+  private final Path file;
+  private final DataOutputStream out;
+  private final long startNanos;
+  private final long startedAt;
+  private final Map<String, Integer> ips = new HashMap<>();
+  private final Map<String, Integer> readers = new HashMap<>();
+  private long lastMicros;
+  private long records;
+  private long bytes;
+  private int unflushed;
+  private boolean closed;
+  private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "tag-capture-flush");
+    t.setDaemon(true);
+    return t;
+  });
+
+  public TagCapture(Path file) throws IOException {
+    this.file = file;
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) Files.createDirectories(parent);
+    this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+    this.startNanos = System.nanoTime();
+    this.startedAt = System.currentTimeMillis();
+    out.write(MAGIC);
+    out.writeLong(startedAt);
+    bytes = MAGIC.length + 8;
+    flusher.scheduleWithFixedDelay(this::flush, FLUSH_MS, FLUSH_MS, TimeUnit.MILLISECONDS);
+  }
+
+  public Path file() {
+    return file;
+  }
+
+  public synchronized long records() {
+    return records;
+  }
+
+  public synchronized long bytes() {
+    return bytes;
+  }
+
+  public long startedAt() {
+    return startedAt;
+  }
+
+  public boolean write(TagRead tag) {
+    return write(tag, System.nanoTime());
+  }
+
+  public synchronized boolean write(TagRead tag, long readNanos) {
+    if (closed || tag == null) return false;
+    try {
+      long micros = Math.max(lastMicros, (readNanos - startNanos) / 1000);
+      int before = out.size();
+      writeVarLong(out, micros - lastMicros);
+      lastMicros = micros;
+      writeHex(out, tag.epcId());
+      writeHex(out, tag.memId());
+      writeVarLong(out, zigzag(tag.rssi()));
+      writeVarLong(out, Math.max(0, tag.antId()));
+      writeRef(out, ips, tag.ipAddr());
+      writeRef(out, readers, tag.readerId());
+      bytes += out.size() - before;
+      records++;
+      if (++unflushed >= FLUSH_RECORDS) {
+        out.flush();
+        unflushed = 0;
+      }
+      return true;
+    } catch (IOException e) {
+      closed = true;
+      return false;
+    }
+  }
+
+  public synchronized void flush() {
+    if (closed || unflushed == 0) return;
+    try {
+      out.flush();
+      unflushed = 0;
+    } catch (IOException e) {
+      closed = true;
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (closed) return;
+    closed = true;
+    flusher.shutdownNow();
+    try {
+      out.close();
+    } catch (IOException ignored) {
+    }
+  }
+
+  static void writeHex(DataOutputStream out, String s) throws IOException {
+    String v = s == null ? "" : s;
+    if (isPackedHex(v)) {
+      int n = v.length() / 2;
+      writeVarLong(out, ((long) n << 1) | 1);
+      for (int i = 0; i < n; i++) {
+        out.write((Character.digit(v.charAt(2 * i), 16) << 4) | Character.digit(v.charAt(2 * i + 1), 16));
+      }
+      return;
+    }
+    byte[] raw = v.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(out, (long) raw.length << 1);
+    out.write(raw);
+  }
+
+  private static boolean isPackedHex(String v) {
+    if (v.isEmpty() || (v.length() & 1) != 0) return false;
+    for (int i = 0; i < v.length(); i++) {
+      char c = v.charAt(i);
+      boolean upperHex = (c >= '0' && c <= '9') || (c >= 'A' && c <= 'F');
+      if (!upperHex) return false;
+    }
+    return true;
+  }
+
+  private static void writeRef(DataOutputStream out, Map<String, Integer> dict, String s) throws IOException {
+    String v = s == null ? "" : s;
+    Integer idx = dict.get(v);
+    if (idx != null) {
+      writeVarLong(out, idx);
+      return;
+    }
+    int next = dict.size();
+    dict.put(v, next);
+    writeVarLong(out, next);
+    byte[] raw = v.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(out, raw.length);
+    out.write(raw);
+  }
+
+  static void writeVarLong(OutputStream out, long v) throws IOException {
+    long x = v;
+    while ((x & ~0x7FL) != 0) {
+      out.write((int) ((x & 0x7F) | 0x80));
+      x >>>= 7;
+    }
+    out.write((int) x);
+  }
+
+  static long zigzag(long v) {
+    return (v << 1) ^ (v >> 63);
+  }
+
+  static long unzigzag(long v) {
+    return (v >>> 1) ^ -(v & 1);
+  }
+}
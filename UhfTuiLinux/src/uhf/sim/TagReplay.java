@@ -0,0 +1,251 @@
+package uhf.sim;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import uhf.core.Result;
+import uhf.core.TagRead;
+import uhf.core.TagSource;
+
+public final class TagReplay implements TagSource {
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+  private final String id;
+  private final Path file;
+  private volatile double speed = 1;
+  private volatile Consumer<TagRead> sink = t -> {};
+  private volatile boolean connected;
+  private volatile boolean running;
+  private volatile Thread worker;
+  private volatile String error = "";
+  private final LongAdder replayed = new LongAdder();
+  private volatile long capturedAt;
+  private volatile long capturedSpanUs;
+  private volatile long runStartedAt;
+  private volatile long runStoppedAt;
+
+  public TagReplay(String id, Path file) {
+    this.id = id == null || id.isBlank() ? "replay" : id.trim();
+    this.file = file;
+  }
+
+  @Override
+  public String id() {
+    return id;
+  }
+
+  public Path file() {
+    return file;
+  }
+
+  public double speed() {
+    return speed;
+  }
+
+  public void setSpeed(double speed) {
+    this.speed = Math.max(0, speed);
+  }
+
+  public void setTagSink(Consumer<TagRead> sink) {
+    this.sink = sink == null ? t -> {} : sink;
+  }
+
+  public Result connect() {
+    if (connected) return Result.fail(0x35);
+    if (file == null || !Files.isRegularFile(file)) return Result.fail(-1);
+    connected = true;
+    return Result.success();
+  }
+
+  @Override
+  public Result disconnect() {
+    stopInventory();
+    connected = false;
+    return Result.success();
+  }
+
+  @Override
+  public boolean isConnected() {
+    return connected;
+  }
+
+  @Override
+  public boolean isInventoryRunning() {
+    return connected && running;
+  }
+
+  @Override
+  public int getAntennaCount() {
+    return 16;
+  }
+
+  @Override
+  public synchronized Result startInventory() {
+    if (!connected) return Result.fail(0x36);
+    if (running) return Result.success();
+    running = true;
+    error = "";
+    replayed.reset();
+    runStartedAt = System.currentTimeMillis();
+    runStoppedAt = 0;
+    Thread t = new Thread(this::replay, "replay-" + id);
+    t.setDaemon(true);
+    worker = t;
+    t.start();
+    return Result.success();
+  }
+
+  @Override
+  public synchronized Result stopInventory() {
+    if (!connected) return Result.fail(0x36);
+    running = false;
+    Thread t = worker;
+    worker = null;
+    if (t != null && t != Thread.currentThread()) {
+      try {
+        t.join(2000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return Result.success();
+  }
+
+  public boolean awaitDone(long timeoutMs) {
+    Thread t = worker;
+    if (t == null) return true;
+    try {
+      t.join(Math.max(1, timeoutMs));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return !t.isAlive();
+  }
+
+  public long replayed() {
+    return replayed.sum();
+  }
+
+  public String error() {
+    return error;
+  }
+
+  public long runMs() {
+    long start = runStartedAt;
+    if (start <= 0) return 0;
+    long end = runStoppedAt > 0 ? runStoppedAt : System.currentTimeMillis();
+    return Math.max(0, end - start);
+  }
+
+  public long ratePerSec() {
+    long ms = runMs();
+    return ms <= 0 ? 0 : replayed() * 1000 / ms;
+  }
+
+  public List<String> lines() {
+    List<String> out = new ArrayList<>();
+    out.add(id + " " + (isInventoryRunning() ? "running" : "idle") + "  " + file
+        + "  speed=" + (speed == 0 ? "max" : speed + "x"));
+    out.add("replayed=" + replayed() + " in " + runMs() + "ms (" + ratePerSec() + "/s)"
+        + " capturedAt=" + capturedAt + " spanMs=" + capturedSpanUs / 1000
+        + (error.isEmpty() ? "" : " error=" + error));
+    return out;
+  }
+
+  private void replay() {
+    List<String> ips = new ArrayList<>();
+    List<String> readers = new ArrayList<>();
+    long t0 = System.nanoTime();
+    long micros = 0;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+      byte[] magic = new byte[TagCapture.MAGIC.length];
+      in.readFully(magic);
+      if (!Arrays.equals(magic, TagCapture.MAGIC)) {
+        error = "not a capture file";
+        return;
+      }
+      capturedAt = in.readLong();
+      Consumer<TagRead> out = sink;
+      while (running) {
+        long delta;
+        try {
+          delta = readVarLong(in);
+        } catch (EOFException eof) {
+          break;
+        }
+        micros += delta;
+        String epc = readHex(in);
+        String mem = readHex(in);
+        int rssi = (int) TagCapture.unzigzag(readVarLong(in));
+        int ant = (int) readVarLong(in);
+        String ip = readRef(in, ips);
+        String reader = readRef(in, readers);
+        double s = speed;
+        if (s > 0) {
+          long dueNanos = (long) (micros * 1000 / s);
+          long ahead = dueNanos - (System.nanoTime() - t0);
+          if (ahead > 1_000_000) LockSupport.parkNanos(ahead);
+        }
+        out.accept(new TagRead(ip, epc, mem, rssi, ant, reader));
+        replayed.increment();
+      }
+      capturedSpanUs = micros;
+    } catch (IOException e) {
+      error = e.getMessage() == null ? "read failed" : e.getMessage();
+    } finally {
+      running = false;
+      runStoppedAt = System.currentTimeMillis();
+    }
+  }
+
+  private static String readHex(DataInputStream in) throws IOException {
+    long head = readVarLong(in);
+    int n = (int) (head >>> 1);
+    if ((head & 1) == 0) {
+      byte[] raw = new byte[n];
+      in.readFully(raw);
+      return new String(raw, StandardCharsets.UTF_8);
+    }
+    char[] out = new char[n * 2];
+    for (int i = 0; i < n; i++) {
+      int b = in.readUnsignedByte();
+      out[2 * i] = HEX[b >>> 4];
+      out[2 * i + 1] = HEX[b & 0x0F];
+    }
+    return new String(out);
+  }
+
+  private static String readRef(DataInputStream in, List<String> dict) throws IOException {
+    int idx = (int) readVarLong(in);
+    if (idx < dict.size()) return dict.get(idx);
+    byte[] raw = new byte[(int) readVarLong(in)];
+    in.readFully(raw);
+    String v = new String(raw, StandardCharsets.UTF_8);
+    dict.add(v);
+    return v;
+  }
+
+  static long readVarLong(InputStream in) throws IOException {
+    long v = 0;
+    int shift = 0;
+    while (true) {
+      int b = in.read();
+      if (b < 0) throw new EOFException();
+      v |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return v;
+      shift += 7;
+      if (shift > 63) throw new IOException("bad varint");
+    }
+  }
+}
@@ -6,9 +6,14 @@ import com.sun.net.httpserver.HttpServer;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
+import uhf.core.InventorySnapshot;
 
 public final class AgentServer {
   public static final class Status {
@@ -23,13 +28,36 @@ public final class AgentServer {
     }
   }
 
+  public interface Snapshots {
+    CompletableFuture<InventorySnapshot> start(String readerId, long ms);
+
+    boolean cancel(String readerId, long id);
+  }
+
+  public static final long MAX_SNAPSHOT_MS = 10000;
+  public static final int MAX_SNAPSHOTS = 2;
+
   private final int port;
   private final Supplier<Status> statusSupplier;
+  private final Snapshots snapshots;
+  private final byte[] snapshotToken;
+  private final AtomicInteger activeSnapshots = new AtomicInteger();
   private HttpServer server;
 
   public AgentServer(int port, Supplier<Status> statusSupplier) {
+    this(port, statusSupplier, null, null);
+  }
+
+  public AgentServer(int port, Supplier<Status> statusSupplier, Snapshots snapshots, String snapshotToken) {
     this.port = port;
     this.statusSupplier = statusSupplier;
+    boolean enabled = snapshots != null && snapshotToken != null && !snapshotToken.isBlank();
+    this.snapshots = enabled ? snapshots : null;
+    this.snapshotToken = enabled ? ("Bearer " + snapshotToken.trim()).getBytes(StandardCharsets.UTF_8) : null;
+  }
+
+  public boolean snapshotsEnabled() {
+    return snapshots != null;
   }
 
   public boolean start() {
@@ -55,13 +83,46 @@ public final class AgentServer {
     String method = ex.getRequestMethod();
     Headers headers = ex.getResponseHeaders();
     headers.add("Access-Control-Allow-Origin", "*");
-    headers.add("Access-Control-Allow-Methods", "GET, OPTIONS");
+    headers.add("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
     headers.add("Access-Control-Allow-Headers", "Content-Type, Authorization");
     if ("OPTIONS".equalsIgnoreCase(method)) {
       ex.sendResponseHeaders(204, -1);
       return;
     }
     String path = ex.getRequestURI() == null ? "/" : ex.getRequestURI().getPath();
+    String query = ex.getRequestURI() == null ? null : ex.getRequestURI().getRawQuery();
+    boolean snapshotPath = "/api/snapshot".equals(path) || "/api/agent/snapshot".equals(path);
+    boolean cancelPath = "/api/snapshot/cancel".equals(path);
+    if ((snapshotPath || cancelPath) && !snapshotAllowed(ex, method)) return;
+    if (snapshotPath) {
+      if (activeSnapshots.incrementAndGet() > MAX_SNAPSHOTS) {
+        activeSnapshots.decrementAndGet();
+        send(ex, 429, error("too many snapshots"));
+        return;
+      }
+      long ms = Math.max(1, Math.min(MAX_SNAPSHOT_MS, parseLong(queryParam(query, "ms"), 1000)));
+      CompletableFuture<InventorySnapshot> f;
+      try {
+        f = snapshots.start(queryParam(query, "reader"), ms);
+      } catch (RuntimeException e) {
+        activeSnapshots.decrementAndGet();
+        throw e;
+      }
+      f.whenComplete((snap, t) -> {
+        activeSnapshots.decrementAndGet();
+        try {
+          send(ex, t == null ? 200 : 503, t == null ? snap.toJson()
+              : "{\"ok\":false,\"error\":\"cancelled\",\"ts\":" + Instant.now().toEpochMilli() + "}");
+        } catch (IOException ignored) {
+        }
+      });
+      return;
+    }
+    if (cancelPath) {
+      boolean ok = snapshots.cancel(queryParam(query, "reader"), parseLong(queryParam(query, "id"), -1));
+      send(ex, ok ? 200 : 404, "{\"ok\":" + ok + ",\"ts\":" + Instant.now().toEpochMilli() + "}");
+      return;
+    }
     String body;
     if ("/health".equals(path) || "/api/ping".equals(path) || "/api/agent/ping".equals(path)) {
       body = "{\"ok\":true,\"ts\":" + Instant.now().toEpochMilli() + "}";
@@ -74,11 +135,56 @@ public final class AgentServer {
     } else {
       body = "{\"ok\":true,\"ts\":" + Instant.now().toEpochMilli() + "}";
     }
+    send(ex, 200, body);
+  }
+
+  private boolean snapshotAllowed(HttpExchange ex, String method) throws IOException {
+    if (snapshots == null) {
+      send(ex, 404, error("snapshots disabled"));
+      return false;
+    }
+    if (!"POST".equalsIgnoreCase(method)) {
+      ex.getResponseHeaders().add("Allow", "POST");
+      send(ex, 405, error("use POST"));
+      return false;
+    }
+    String auth = ex.getRequestHeaders().getFirst("Authorization");
+    if (auth == null || !MessageDigest.isEqual(snapshotToken, auth.trim().getBytes(StandardCharsets.UTF_8))) {
+      send(ex, 401, error("unauthorized"));
+      return false;
+    }
+    return true;
+  }
+
+  private static String error(String message) {
+    return "{\"ok\":false,\"error\":\"" + message + "\",\"ts\":" + Instant.now().toEpochMilli() + "}";
+  }
+
+  private static void send(HttpExchange ex, int status, String body) throws IOException {
     byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
-    headers.add("Content-Type", "application/json; charset=utf-8");
-    ex.sendResponseHeaders(200, bytes.length);
+    ex.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+    ex.sendResponseHeaders(status, bytes.length);
     try (OutputStream out = ex.getResponseBody()) {
       out.write(bytes);
     }
   }
+
+  private static String queryParam(String query, String name) {
+    if (query == null || query.isEmpty()) return null;
+    for (String part : query.split("&")) {
+      int eq = part.indexOf('=');
+      String key = eq < 0 ? part : part.substring(0, eq);
+      if (key.equals(name)) return eq < 0 ? "" : URLDecoder.decode(part.substring(eq + 1), StandardCharsets.UTF_8);
+    }
+    return null;
+  }
+
+  private static long parseLong(String s, long def) {
+    if (s == null || s.isBlank()) return def;
+    try {
+      return Long.parseLong(s.trim());
+    } catch (NumberFormatException e) {
+      return def;
+    }
+  }
 }
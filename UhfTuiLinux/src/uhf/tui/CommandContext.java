@@ -2,5 +2,18 @@ package uhf.tui;
 
 import uhf.erp.ErpPusher;
 import uhf.sdk.ReaderClient;
+import uhf.sdk.ReaderPool;
 
-public record CommandContext(ReaderClient reader, ConsoleUi ui, ErpPusher erp) {}
+public record CommandContext(ReaderPool pool, ReaderClient target, ConsoleUi ui, ErpPusher erp) {
+  public CommandContext(ReaderPool pool, ConsoleUi ui, ErpPusher erp) {
+    this(pool, null, ui, erp);
+  }
+
+  public ReaderClient reader() {
+    return target != null ? target : pool.active();
+  }
+
+  public CommandContext forReader(ReaderClient reader) {
+    return new CommandContext(pool, reader, ui, erp);
+  }
+}
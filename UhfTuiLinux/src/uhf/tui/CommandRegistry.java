@@ -4,7 +4,7 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.BiConsumer;
+import uhf.sdk.ReaderClient;
 
 public final class CommandRegistry {
   public interface Command {
@@ -27,12 +27,38 @@ public final class CommandRegistry {
 
   public boolean execute(List<String> tokens, CommandContext ctx) {
     if (tokens == null || tokens.isEmpty()) return true;
-    CommandDef def = commands.get(tokens.get(0));
+    String first = tokens.get(0);
+    if (first.startsWith("@") && first.length() > 1) {
+      return executeTargeted(first.substring(1), tokens.subList(1, tokens.size()), ctx);
+    }
+    CommandDef def = commands.get(first);
     if (def == null) return false;
     def.handler().run(tokens, ctx);
     return true;
   }
 
+  private boolean executeTargeted(String target, List<String> tokens, CommandContext ctx) {
+    if (tokens.isEmpty() || !commands.containsKey(tokens.get(0))) return false;
+    List<ReaderClient> readers;
+    if (target.equalsIgnoreCase("all")) {
+      readers = ctx.pool().all();
+    } else {
+      ReaderClient r = ctx.pool().get(target);
+      if (r == null) {
+        ctx.ui().println("Unknown reader: " + target);
+        return true;
+      }
+      readers = List.of(r);
+    }
+    if (readers.size() == 1) {
+      execute(tokens, ctx.forReader(readers.get(0)));
+      return true;
+    }
+    ctx.pool().runOnEach(readers, r ->
+        ctx.ui().runWithPrefix("[" + r.id() + "] ", () -> execute(tokens, ctx.forReader(r))));
+    return true;
+  }
+
   public List<CommandDef> listUnique() {
     Map<String, CommandDef> unique = new LinkedHashMap<>();
     for (CommandDef def : commands.values()) {
@@ -0,0 +1,191 @@
+package uhf.tui;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public final class ConnectScanner {
+  public static final class Settings {
+    public int maxOutstanding = 1024;
+    public long timeoutMs = 200;
+    public long tickMs = 10;
+  }
+
+  public interface Listener {
+    boolean open(InetSocketAddress address);
+
+    default void refused(InetSocketAddress address) {
+    }
+  }
+
+  public record Stats(long attempts, long open, long refused, long unreachable, long timeouts, long elapsedMs,
+      int peakOutstanding, int cap) {
+    public String describe() {
+      return attempts + " connects, " + open + " open, " + refused + " refused, " + unreachable + " unreachable, " + timeouts
+          + " timed out in " + elapsedMs + " ms (peak " + peakOutstanding + "/" + cap + " in flight)";
+    }
+  }
+
+  private static final class Pending {
+    final SocketChannel channel;
+    final InetSocketAddress address;
+    final long deadline;
+    boolean done;
+
+    Pending(SocketChannel channel, InetSocketAddress address, long deadline) {
+      this.channel = channel;
+      this.address = address;
+      this.deadline = deadline;
+    }
+  }
+
+  private final Settings settings;
+  private volatile boolean cancelled;
+  private volatile Selector selector;
+
+  public ConnectScanner(Settings settings) {
+    this.settings = settings == null ? new Settings() : settings;
+  }
+
+  public void cancel() {
+    cancelled = true;
+    Selector s = selector;
+    if (s != null) s.wakeup();
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  public Stats run(Iterator<InetSocketAddress> targets, Listener listener) {
+    long started = System.currentTimeMillis();
+    long tick = Math.max(1, settings.tickMs);
+    long timeout = Math.max(tick, settings.timeoutMs);
+    int slots = (int) (timeout / tick) + 2;
+    List<List<Pending>> wheel = new ArrayList<>(slots);
+    for (int i = 0; i < slots; i++) wheel.add(new ArrayList<>());
+    long attempts = 0;
+    long open = 0;
+    long refused = 0;
+    long unreachable = 0;
+    long timeouts = 0;
+    int outstanding = 0;
+    int peak = 0;
+    int cap = Math.max(1, settings.maxOutstanding);
+    InetSocketAddress carry = null;
+    long wheelTick = started / tick;
+    try (Selector sel = Selector.open()) {
+      selector = sel;
+      while (!cancelled) {
+        while (outstanding < cap && (carry != null || targets.hasNext()) && !cancelled) {
+          InetSocketAddress addr = carry != null ? carry : targets.next();
+          carry = null;
+          SocketChannel ch;
+          try {
+            ch = SocketChannel.open();
+          } catch (IOException e) {
+            carry = addr;
+            cap = Math.max(16, outstanding * 3 / 4);
+            break;
+          }
+          attempts++;
+          try {
+            ch.configureBlocking(false);
+            if (ch.connect(addr)) {
+              close(ch);
+              open++;
+              if (!listener.open(addr)) cancelled = true;
+              continue;
+            }
+            Pending p = new Pending(ch, addr, System.currentTimeMillis() + timeout);
+            ch.register(sel, SelectionKey.OP_CONNECT, p);
+            wheel.get((int) ((p.deadline / tick) % slots)).add(p);
+            outstanding++;
+            peak = Math.max(peak, outstanding);
+          } catch (IOException e) {
+            close(ch);
+            if (isRefused(e)) {
+              refused++;
+              listener.refused(addr);
+            } else {
+              unreachable++;
+            }
+          } catch (RuntimeException e) {
+            close(ch);
+            unreachable++;
+          }
+        }
+        if (outstanding == 0 && carry == null && !targets.hasNext()) break;
+        sel.select(tick);
+        Iterator<SelectionKey> it = sel.selectedKeys().iterator();
+        while (it.hasNext()) {
+          SelectionKey key = it.next();
+          it.remove();
+          Pending p = (Pending) key.attachment();
+          if (p.done) continue;
+          p.done = true;
+          outstanding--;
+          key.cancel();
+          boolean connected = false;
+          boolean wasRefused = false;
+          try {
+            connected = p.channel.finishConnect();
+          } catch (IOException e) {
+            wasRefused = isRefused(e);
+          }
+          close(p.channel);
+          if (connected) {
+            open++;
+            if (!listener.open(p.address)) cancelled = true;
+          } else if (wasRefused) {
+            refused++;
+            listener.refused(p.address);
+          } else {
+            unreachable++;
+          }
+        }
+        long now = System.currentTimeMillis();
+        for (long nowTick = now / tick; wheelTick < nowTick; wheelTick++) {
+          List<Pending> slot = wheel.get((int) (wheelTick % slots));
+          if (slot.isEmpty()) continue;
+          Iterator<Pending> pi = slot.iterator();
+          while (pi.hasNext()) {
+            Pending p = pi.next();
+            if (p.done) {
+              pi.remove();
+            } else if (p.deadline <= now) {
+              p.done = true;
+              outstanding--;
+              timeouts++;
+              close(p.channel);
+              pi.remove();
+            }
+          }
+        }
+      }
+      for (SelectionKey key : sel.keys()) close((SocketChannel) key.channel());
+    } catch (IOException e) {
+      cancelled = true;
+    } finally {
+      selector = null;
+    }
+    return new Stats(attempts, open, refused, unreachable, timeouts, System.currentTimeMillis() - started, peak, cap);
+  }
+
+  private static boolean isRefused(IOException e) {
+    return e instanceof ConnectException && e.getMessage() != null && e.getMessage().toLowerCase().contains("refused");
+  }
+
+  private static void close(SocketChannel ch) {
+    try {
+      ch.close();
+    } catch (IOException ignored) {
+    }
+  }
+}
@@ -14,6 +14,8 @@ public final class ConsoleUi {
   }
   private static Translator translator = (en, uz, ru) -> en;
   private final Object lock = new Object();
+  private final Object promptLock = new Object();
+  private final ThreadLocal<String> linePrefix = ThreadLocal.withInitial(() -> "");
   private final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
   private int lastMenuLines = 0;
   private boolean menuMode = false;
@@ -44,6 +46,8 @@ public final class ConsoleUi {
   private static final int NAV_ESC = 1007;
 
   public void println(String s) {
+    String pfx = linePrefix.get();
+    if (!pfx.isEmpty()) s = pfx + s;
     if (menuMode && supportsAnsi() && lastMenuOptions != null) {
       setStatusMessage(s);
       return;
@@ -224,15 +228,28 @@ public final class ConsoleUi {
     resetMenuState();
     synchronized (lock) {
       String t = LocalTime.now().toString();
-      System.out.println(t + " EPC=" + tag.epcId() + " RSSI=" + tag.rssi() + " ANT=" + tag.antId());
+      String rdr = tag.readerId() == null || tag.readerId().isEmpty() ? "" : " RDR=" + tag.readerId();
+      System.out.println(t + " EPC=" + tag.epcId() + " RSSI=" + tag.rssi() + " ANT=" + tag.antId() + rdr);
       prompt();
     }
   }
 
   public boolean confirm(String message) {
-    String line = readLineInMenu(message + " Type YES to continue: ");
-    if (line == null) return false;
-    return "YES".equalsIgnoreCase(line.trim());
+    synchronized (promptLock) {
+      String line = readLineInMenu(linePrefix.get() + message + " Type YES to continue: ");
+      if (line == null) return false;
+      return "YES".equalsIgnoreCase(line.trim());
+    }
+  }
+
+  public void runWithPrefix(String prefix, Runnable task) {
+    String prev = linePrefix.get();
+    linePrefix.set(prefix == null ? "" : prefix);
+    try {
+      task.run();
+    } finally {
+      linePrefix.set(prev);
+    }
   }
 
   public String readLineInMenu(String prompt) {
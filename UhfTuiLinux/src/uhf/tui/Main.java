@@ -7,33 +7,94 @@ import java.net.Socket;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import uhf.core.AntennaPowerInfo;
+import uhf.core.AntennaSlot;
+import uhf.core.EpcRule;
 import uhf.core.GpioStatus;
+import uhf.core.GpioTriggerRule;
 import uhf.core.InventoryParams;
+import uhf.core.InventorySnapshot;
 import uhf.core.ReaderInfo;
 import uhf.core.Result;
 import uhf.core.ReturnLossInfo;
+import uhf.core.ReturnLossMap;
+import uhf.core.TagOpResult;
 import uhf.core.TagRead;
 import uhf.core.WritePowerInfo;
 import uhf.erp.ErpAgentRegistrar;
 import uhf.erp.ErpConfig;
+import uhf.erp.ErpMetrics;
+import uhf.erp.ErpPayloadCodec;
 import uhf.erp.ErpPusher;
 import uhf.erp.ErpTagEvent;
+import uhf.sdk.AntennaHealth;
+import uhf.sdk.AntennaScheduler;
+import uhf.sdk.BulkReadJob;
+import uhf.sdk.EncodeJob;
+import uhf.sdk.EpcRuleEngine;
+import uhf.sdk.GpioTrigger;
+import uhf.sdk.PowerCalibrator;
+import uhf.sdk.QController;
 import uhf.sdk.ReaderClient;
+import uhf.sdk.ReaderHealthProbe;
+import uhf.sdk.ReaderPool;
+import uhf.sdk.ReaderStateCache;
+import uhf.sdk.ReaderSupervisor;
+import uhf.sdk.ReturnLossSweep;
+import uhf.sdk.SdkCallStats;
+import uhf.sdk.TagMemoryCache;
+import uhf.sdk.TagOps;
+import uhf.sim.SimConfig;
+import uhf.sim.SimulatedReader;
+import uhf.sim.TagCapture;
+import uhf.sim.TagReplay;
 
 public final class Main {
   private static final TagStats TAG_STATS = new TagStats();
   private static final TagOutput TAG_OUTPUT = new TagOutput();
   private static ErpAgentRegistrar ERP_AGENT;
+  private static ReaderSupervisor SUPERVISOR;
+  private static SimulatedReader SIM;
+  private static volatile TagCapture CAPTURE;
+  private static volatile TagReplay REPLAY;
+  private static final Map<String, AntennaScheduler> SCHEDULERS = new ConcurrentHashMap<>();
+  private static final Map<String, QController> QTUNERS = new ConcurrentHashMap<>();
+  private static final Map<String, GpioTrigger> TRIGGERS = new ConcurrentHashMap<>();
+  private static final Map<String, EpcRuleEngine> RULES = new ConcurrentHashMap<>();
+  private static volatile SweepResult LAST_SWEEP;
+  private static volatile PowerCalibrator CALIBRATION;
+  private static volatile EncodeJob ENCODE;
+  private static volatile BulkReadJob BULK_READ;
+  private static TagMemoryCache MEM_CACHE;
+  private static final Map<Long, InventorySnapshot> SNAPSHOTS = new LinkedHashMap<>();
   private static Lang LANG = Lang.EN;
 
   public static void main(String[] args) {
     ConsoleUi ui = new ConsoleUi();
-    ReaderClient reader = new ReaderClient();
+    ReaderPool pool = new ReaderPool();
+    SUPERVISOR = new ReaderSupervisor(pool);
+    pool.setStopSink(SUPERVISOR::onStop);
+    SIM = new SimulatedReader("sim", new SimConfig());
+    SIM.setTagSink(pool.tagSink());
+    MEM_CACHE = new TagMemoryCache(pool::get, defaultTagMemPath());
+    try {
+      MEM_CACHE.load();
+    } catch (Exception e) {
+      ui.println(L("Tag memory cache not loaded: ", "Teg xotira keshi yuklanmadi: ", "Кэш памяти меток не загружен: ") + e.getMessage());
+    }
     ErpPusher erp = new ErpPusher(loadErpConfig());
     CommandRegistry registry = new CommandRegistry();
     LANG = loadLang();
@@ -42,7 +103,24 @@ public final class Main {
     boolean agentEnabled = agentPort > 0;
     List<String> agentUrls = agentEnabled ? listAgentUrls(agentPort) : List.of();
     AgentServer agent = agentEnabled
-        ? new AgentServer(agentPort, () -> new AgentServer.Status(reader.isConnected(), TAG_STATS.total(), TAG_STATS.rate()))
+        ? new AgentServer(agentPort, () -> new AgentServer.Status(pool.anyConnected(), TAG_STATS.total(), TAG_STATS.rate()),
+            new AgentServer.Snapshots() {
+              @Override
+              public CompletableFuture<InventorySnapshot> start(String readerId, long ms) {
+                ReaderClient r = readerId == null ? pool.active() : pool.get(readerId);
+                if (r == null) {
+                  return CompletableFuture.completedFuture(
+                      new InventorySnapshot(0, readerId, System.currentTimeMillis(), 0, 0, List.of(), Result.fail(0x36), false));
+                }
+                return r.snapshots().start(ms);
+              }
+
+              @Override
+              public boolean cancel(String readerId, long id) {
+                ReaderClient r = readerId == null ? pool.active() : pool.get(readerId);
+                return r != null && r.snapshots().cancel(id);
+              }
+            }, System.getenv("RFID_AGENT_SNAPSHOT_TOKEN"))
         : null;
     boolean agentOk = agentEnabled && agent.start();
     ERP_AGENT = new ErpAgentRegistrar(erp.config(), () -> agentEnabled ? listAgentUrls(agentPort) : List.of());
@@ -70,12 +148,24 @@ public final class Main {
 
     setupCommands(registry);
     try {
-      menuLoop(ui, reader, erp, registry);
+      menuLoop(ui, pool, erp, registry);
     } finally {
       if (agent != null) agent.stop();
       if (ERP_AGENT != null) ERP_AGENT.shutdown();
       erp.shutdown();
-      reader.disconnect();
+      SUPERVISOR.shutdown();
+      SIM.disconnect();
+      stopReplay();
+      stopCapture();
+      for (AntennaScheduler sched : SCHEDULERS.values()) sched.stop();
+      for (QController q : QTUNERS.values()) q.shutdown();
+      for (GpioTrigger t : TRIGGERS.values()) t.shutdown();
+      for (EpcRuleEngine e : RULES.values()) e.stop();
+      if (CALIBRATION != null) CALIBRATION.stop();
+      if (ENCODE != null) ENCODE.stop();
+      if (BULK_READ != null) BULK_READ.stop();
+      MEM_CACHE.shutdown();
+      pool.shutdown();
     }
   }
 
@@ -96,7 +186,7 @@ public final class Main {
       int readerType = args.size() >= 4 ? parseInt(args.get(3), 4) : 4;
       int log = args.size() >= 5 ? parseInt(args.get(4), 0) : 0;
 
-      Result r = ctx.reader().connect(ip, port, readerType, log, tag -> handleTag(ctx, tag), () -> {});
+      Result r = ctx.pool().connect(ctx.reader(), ip, port, readerType, log);
       if (!r.ok()) {
         ctx.ui().println(L("Connect failed: ", "Ulanish xato: ", "Ошибка подключения: ") + r.code());
         return;
@@ -106,6 +196,7 @@ public final class Main {
     });
 
     registry.register("disconnect", "disconnect", (args, ctx) -> {
+      stopScheduler(ctx.reader());
       Result r = ctx.reader().disconnect();
       if (!r.ok()) {
         ctx.ui().println(L("Disconnect failed: ", "Uzish xato: ", "Ошибка отключения: ") + r.code());
@@ -114,7 +205,7 @@ public final class Main {
       }
     }, "disc");
 
-    registry.register("scan", "scan [ports|auto|auto+] [readerType] [log] [prefix]", (args, ctx) -> {
+    registry.register("scan", "scan [ports|auto|auto+] [readerType] [log] [prefix|cidr[,cidr...]]", (args, ctx) -> {
       if (ctx.reader().isConnected()) {
         ctx.ui().println(L("Already connected. Use 'disconnect' first.",
             "Allaqachon ulangan. Avval 'disconnect' qiling.",
@@ -128,33 +219,716 @@ public final class Main {
       int log = args.size() >= 4 ? parseInt(args.get(3), 0) : 0;
       String prefix = args.size() >= 5 ? args.get(4) : null;
 
-      List<String> prefixes = (prefix == null || prefix.isBlank())
-          ? NetworkScanner.detectPrefixes()
-          : List.of(prefix.trim());
-      if (prefixes.isEmpty()) {
-        ctx.ui().println(L("No LAN prefixes found. Provide prefix like 192.168.1",
-            "LAN prefiks topilmadi. Masalan: 192.168.1",
-            "LAN префиксы не найдены. Пример: 192.168.1"));
+      List<Subnet> subnets = new ArrayList<>();
+      if (prefix == null || prefix.isBlank()) {
+        subnets.addAll(NetworkScanner.detectSubnets());
+      } else {
+        for (String part : prefix.split(",")) {
+          if (part.isBlank()) continue;
+          Subnet sn = Subnet.parse(part);
+          if (sn == null) {
+            ctx.ui().println(L("Invalid subnet: ", "Subnet noto'g'ri: ", "Неверная подсеть: ") + part
+                + " (192.168.1 | 10.20.0.0/20, /" + Subnet.MIN_PREFIX + "../32)");
+            return;
+          }
+          subnets.add(sn);
+        }
+      }
+      if (subnets.isEmpty()) {
+        ctx.ui().println(L("No LAN subnets found. Provide prefix like 192.168.1 or 10.20.0.0/20",
+            "LAN subnet topilmadi. Masalan: 192.168.1 yoki 10.20.0.0/20",
+            "LAN подсети не найдены. Пример: 192.168.1 или 10.20.0.0/20"));
         return;
       }
 
-      for (String pfx : prefixes) {
-        for (int p : ports) {
-          ctx.ui().println(L("Scanning subnet ", "Subnet skan: ", "Сканирование подсети ") + pfx + ".0/24 "
-              + L("on port ", "port: ", "порт ") + p + " ...");
-          NetworkScanner.HostPort hp = NetworkScanner.findReader(
-              List.of(pfx), List.of(p), readerType, log, Duration.ofMillis(200)
-          );
-          if (hp != null) {
-            Result r = ctx.reader().connect(hp.host(), hp.port(), readerType, log, tag -> handleTag(ctx, tag), () -> {});
-            if (r.ok()) {
-              ctx.ui().println(L("Connected: ", "Ulandi: ", "Подключено: ") + hp.host() + "@" + hp.port());
+      NetworkScanner.Discovery d = NetworkScanner.discover(subnets, ports, loadPortHits(), readerType, log,
+          Duration.ofMillis(200), msg -> ctx.ui().println(L("Scan: ", "Skan: ", "Скан: ") + msg));
+      NetworkScanner.HostPort hp = d.found();
+      if (hp != null) {
+        Result r = ctx.pool().connect(ctx.reader(), hp.host(), hp.port(), readerType, log);
+        if (r.ok()) {
+          rememberPortHit(hp.port());
+          ctx.ui().println(L("Connected: ", "Ulandi: ", "Подключено: ") + hp.host() + "@" + hp.port());
+          return;
+        }
+      }
+      ctx.ui().println(L("No reader found.", "Reader topilmadi.", "Ридер не найден."));
+    });
+
+    registry.register("sdkstats", "sdkstats [show|reset|dump [file]]", (args, ctx) -> {
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "show";
+      if (sub.equals("reset")) {
+        for (ReaderClient r : ctx.pool().all()) r.sdkStats().reset();
+        ReaderClient.probeSdkStats().reset();
+        ctx.ui().println(L("SDK timings reset.", "SDK vaqtlari tozalandi.", "Тайминги SDK сброшены."));
+        return;
+      }
+      if (sub.equals("dump")) {
+        Path file = args.size() >= 3 ? Path.of(args.get(2)) : defaultSdkStatsPath();
+        try {
+          if (file.toAbsolutePath().getParent() != null) Files.createDirectories(file.toAbsolutePath().getParent());
+          Files.write(file, sdkStatsLines(ctx.pool()));
+          ctx.ui().println(L("SDK timings saved: ", "SDK vaqtlari saqlandi: ", "Тайминги SDK сохранены: ") + file);
+        } catch (Exception e) {
+          ctx.ui().println(L("Export failed: ", "Eksport xato: ", "Ошибка экспорта: ") + e.getMessage());
+        }
+        return;
+      }
+      if (!sub.equals("show")) {
+        ctx.ui().println("Usage: sdkstats [show|reset|dump [file]]");
+        return;
+      }
+      for (String line : sdkStatsLines(ctx.pool())) ctx.ui().println(line);
+    }, "sdk");
+
+    registry.register("reader", "reader list | add <id> [ip] [port] [readerType] [log] | use <id> | remove <id> | queue | timeout <ms> | cache [refresh|clear|ttl <ms>]", (args, ctx) -> {
+      String usage = "Usage: reader list | add <id> [ip] [port] [readerType] [log] | use <id> | remove <id> | queue | timeout <ms> | cache [refresh|clear|ttl <ms>]";
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "list";
+      if (sub.equals("list")) {
+        for (String line : readerLines(ctx.pool())) ctx.ui().println(line);
+        return;
+      }
+      if (sub.equals("queue")) {
+        for (ReaderClient r : ctx.pool().all()) {
+          ctx.ui().println(r.id() + "  timeoutMs=" + r.commandTimeoutMs());
+          for (String line : r.executor().lines()) ctx.ui().println("  " + line);
+        }
+        return;
+      }
+      if (sub.equals("cache")) {
+        ReaderClient r = ctx.reader();
+        String op = args.size() >= 3 ? args.get(2).toLowerCase() : "show";
+        if (op.equals("refresh")) {
+          Result res = r.refreshState();
+          if (!res.ok()) ctx.ui().println(L("Refresh failed: ", "Yangilash xato: ", "Ошибка обновления: ") + res.code());
+        } else if (op.equals("clear")) {
+          r.invalidateState();
+        } else if (op.equals("ttl") && args.size() >= 4) {
+          r.cache().setMaxAgeMs(parseInt(args.get(3), (int) ReaderStateCache.DEFAULT_MAX_AGE_MS));
+        }
+        ctx.ui().println(r.id());
+        for (String line : r.cache().lines()) ctx.ui().println("  " + line);
+        return;
+      }
+      if (sub.equals("timeout")) {
+        if (args.size() < 3) {
+          ctx.ui().println(L("Command timeout ms: ", "Buyruq timeout ms: ", "Таймаут команды мс: ") + ctx.reader().commandTimeoutMs());
+          return;
+        }
+        ctx.reader().setCommandTimeoutMs(parseInt(args.get(2), (int) ReaderClient.DEFAULT_COMMAND_TIMEOUT_MS));
+        ctx.ui().println(L("Command timeout ms: ", "Buyruq timeout ms: ", "Таймаут команды мс: ") + ctx.reader().commandTimeoutMs());
+        return;
+      }
+      if (args.size() < 3) {
+        ctx.ui().println(usage);
+        return;
+      }
+      String id = args.get(2);
+      if (sub.equals("add")) {
+        ReaderClient r = ctx.pool().add(id);
+        if (r == null) {
+          ctx.ui().println(usage);
+          return;
+        }
+        ctx.ui().println(L("Reader added: ", "Reader qo'shildi: ", "Ридер добавлен: ") + r.id());
+        if (args.size() >= 4) {
+          List<String> connect = new ArrayList<>(List.of("connect"));
+          connect.addAll(args.subList(3, args.size()));
+          registry.execute(connect, ctx.forReader(r));
+        }
+        return;
+      }
+      if (sub.equals("use")) {
+        ctx.ui().println(ctx.pool().select(id)
+            ? L("Active reader: ", "Faol reader: ", "Активный ридер: ") + ctx.pool().activeId()
+            : L("Unknown reader: ", "Noma'lum reader: ", "Неизвестный ридер: ") + id);
+        return;
+      }
+      if (sub.equals("remove") || sub.equals("rm")) {
+        ctx.ui().println(ctx.pool().remove(id)
+            ? L("Reader removed: ", "Reader o'chirildi: ", "Ридер удалён: ") + id
+            : L("Cannot remove reader: ", "Readerni o'chirib bo'lmaydi: ", "Нельзя удалить ридер: ") + id);
+        return;
+      }
+      ctx.ui().println(usage);
+    }, "rdr");
+
+    registry.register("supervise", "supervise status | on | off | silence <ms> | probe on [intervalMs] [slowMs] | probe off | probe status", (args, ctx) -> {
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "status";
+      if (sub.equals("probe")) {
+        String op = args.size() >= 3 ? args.get(2).toLowerCase() : "status";
+        ReaderHealthProbe probe = ctx.reader().healthProbe();
+        if (op.equals("on")) {
+          ReaderHealthProbe.Settings s = new ReaderHealthProbe.Settings();
+          ReaderHealthProbe.Settings cur = probe.settings();
+          s.intervalMs = args.size() >= 4 ? Math.max(200, parseInt(args.get(3), (int) cur.intervalMs)) : cur.intervalMs;
+          s.slowMs = args.size() >= 5 ? Math.max(1, parseInt(args.get(4), (int) cur.slowMs)) : cur.slowMs;
+          s.timeoutMs = Math.max(cur.timeoutMs, s.slowMs * 2);
+          probe.start(s);
+          ctx.ui().println(L("Health probe on, every ", "Holat tekshiruvi yoqildi, har ", "Проверка состояния включена, каждые ")
+              + s.intervalMs + " ms");
+          return;
+        }
+        if (op.equals("off")) {
+          probe.stop();
+          ctx.ui().println(L("Health probe off.", "Holat tekshiruvi o'chirildi.", "Проверка состояния выключена."));
+          return;
+        }
+        for (ReaderClient r : ctx.pool().all()) {
+          for (String line : r.healthProbe().lines()) ctx.ui().println(line);
+        }
+        return;
+      }
+      if (sub.equals("on") || sub.equals("off")) {
+        SUPERVISOR.setEnabled(sub.equals("on"));
+        ctx.ui().println(L("Auto-reconnect: ", "Avto-qayta ulanish: ", "Автопереподключение: ") + sub);
+        return;
+      }
+      if (sub.equals("silence")) {
+        if (args.size() < 3) {
+          ctx.ui().println("Usage: supervise silence <ms>  (0 = off)");
+          return;
+        }
+        SUPERVISOR.setSilenceMs(parseInt(args.get(2), 0));
+        ctx.ui().println(L("Read-silence probe ms: ", "O'qish sukunati ms: ", "Порог тишины мс: ") + SUPERVISOR.silenceMs());
+        return;
+      }
+      if (!sub.equals("status")) {
+        ctx.ui().println("Usage: supervise status | on | off | silence <ms> | probe on [intervalMs] [slowMs] | probe off | probe status");
+        return;
+      }
+      ctx.ui().println(L("Auto-reconnect: ", "Avto-qayta ulanish: ", "Автопереподключение: ")
+          + (SUPERVISOR.isEnabled() ? "on" : "off") + " silenceMs=" + SUPERVISOR.silenceMs());
+      for (ReaderClient r : ctx.pool().all()) {
+        ReaderSupervisor.Metrics m = SUPERVISOR.metrics(r);
+        ctx.ui().println("  " + r.id() + " state=" + SUPERVISOR.state(r) + " probe=" + r.healthProbe().state()
+            + " outages=" + m.outages() + " attempts=" + m.reconnectAttempts() + " hungAborts=" + m.hungAborts()
+            + " lastMs=" + m.lastOutageMs() + " totalMs=" + m.outageMsTotal()
+            + (m.lastCause().isEmpty() ? "" : " cause=" + m.lastCause()));
+        if (m.outageMs().count() > 0) ctx.ui().println("    outageMs " + m.outageMs().summary());
+      }
+    });
+
+    registry.register("sim", "sim start [rate] [tags] [ants] [churn] | stop | status", (args, ctx) -> {
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "status";
+      if (sub.equals("start")) {
+        SimConfig c = SIM.config();
+        if (args.size() >= 3) c.readsPerSec = parseInt(args.get(2), c.readsPerSec);
+        if (args.size() >= 4) c.tags = parseInt(args.get(3), c.tags);
+        if (args.size() >= 5) c.antennas = parseInt(args.get(4), c.antennas);
+        if (args.size() >= 6) c.churnPerSec = parseInt(args.get(5), (int) c.churnPerSec);
+        if (SIM.isInventoryRunning()) SIM.stopInventory();
+        SIM.configure(c);
+        if (!SIM.isConnected()) SIM.connect();
+        Result r = SIM.startInventory();
+        ctx.ui().println(r.ok()
+            ? L("Simulator started: ", "Simulyator boshlandi: ", "Симулятор запущен: ") + c.describe()
+            : L("Simulator failed: ", "Simulyator xato: ", "Ошибка симулятора: ") + r.code());
+        return;
+      }
+      if (sub.equals("stop")) {
+        SIM.disconnect();
+        ctx.ui().println(L("Simulator stopped.", "Simulyator to'xtadi.", "Симулятор остановлен."));
+        for (String line : SIM.lines()) ctx.ui().println("  " + line);
+        return;
+      }
+      if (!sub.equals("status")) {
+        ctx.ui().println("Usage: sim start [rate] [tags] [ants] [churn] | stop | status");
+        return;
+      }
+      for (String line : SIM.lines()) ctx.ui().println(line);
+    });
+
+    registry.register("sched", "sched set <ant[:dwellMs[:power[:session[:q]]]]>... | start | stop | status", (args, ctx) -> {
+      String usage = "Usage: sched set <ant[:dwellMs[:power[:session[:q]]]]>... | start | stop | status";
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "status";
+      ReaderClient reader = ctx.reader();
+      if (sub.equals("set")) {
+        if (args.size() < 3) {
+          ctx.ui().println(usage);
+          return;
+        }
+        List<AntennaSlot> slots = new ArrayList<>();
+        for (String spec : args.subList(2, args.size())) {
+          AntennaSlot slot = AntennaScheduler.parseSlot(spec, 200);
+          if (slot == null || slot.antenna() > reader.getAntennaCount()) {
+            ctx.ui().println(L("Invalid slot: ", "Noto'g'ri slot: ", "Неверный слот: ") + spec);
+            return;
+          }
+          slots.add(slot);
+        }
+        boolean wasRunning = stopScheduler(reader);
+        AntennaScheduler sched = new AntennaScheduler(reader, slots);
+        SCHEDULERS.put(reader.id(), sched);
+        ctx.ui().println(L("Antenna sequence set: ", "Antenna ketma-ketligi: ", "Последовательность антенн: ") + slots.size()
+            + L(" slots", " slot", " слотов"));
+        if (wasRunning) registry.execute(List.of("sched", "start"), ctx);
+        return;
+      }
+      if (sub.equals("start")) {
+        AntennaScheduler sched = SCHEDULERS.get(reader.id());
+        if (sched == null) {
+          ctx.ui().println(usage);
+          return;
+        }
+        if (!reader.isConnected()) {
+          ctx.ui().println(L("Not connected.", "Ulanmagan.", "Не подключено."));
+          return;
+        }
+        QController q = QTUNERS.get(reader.id());
+        if (q != null && q.isRunning()) {
+          ctx.ui().println(L("Q auto-tuning is on; run 'qtune off' first.", "Q avto-sozlash yoqilgan; avval 'qtune off'.",
+              "Автонастройка Q включена; сначала 'qtune off'."));
+          return;
+        }
+        Result r = sched.start();
+        ctx.ui().println(r.ok()
+            ? L("Antenna scheduler started.", "Antenna rejalashtiruvchi boshlandi.", "Планировщик антенн запущен.")
+            : L("Scheduler failed: ", "Rejalashtiruvchi xato: ", "Ошибка планировщика: ") + r.code());
+        return;
+      }
+      if (sub.equals("stop")) {
+        stopScheduler(reader);
+        ctx.ui().println(L("Antenna scheduler stopped.", "Antenna rejalashtiruvchi to'xtadi.", "Планировщик антенн остановлен."));
+        return;
+      }
+      if (!sub.equals("status")) {
+        ctx.ui().println(usage);
+        return;
+      }
+      if (SCHEDULERS.isEmpty()) {
+        ctx.ui().println(L("No antenna sequence set.", "Antenna ketma-ketligi yo'q.", "Последовательность не задана."));
+        return;
+      }
+      for (AntennaScheduler sched : SCHEDULERS.values()) {
+        for (String line : sched.lines()) ctx.ui().println(line);
+      }
+    });
+
+    registry.register("qtune", "qtune on [minQ] [maxQ] [session] [scantime] | off | status | log", (args, ctx) -> {
+      String usage = "Usage: qtune on [minQ] [maxQ] [session] [scantime] | off | status | log";
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "status";
+      ReaderClient reader = ctx.reader();
+      if (sub.equals("on")) {
+        AntennaScheduler sched = SCHEDULERS.get(reader.id());
+        if (sched != null && sched.isRunning()) {
+          ctx.ui().println(L("Antenna scheduler is running; stop it first.", "Antenna rejalashtiruvchi ishlayapti; avval to'xtating.",
+              "Планировщик антенн работает; сначала остановите его."));
+          return;
+        }
+        QController.Limits limits = new QController.Limits();
+        List<Integer> qs = new ArrayList<>();
+        for (String a : args.subList(2, args.size())) {
+          String t = a.toLowerCase();
+          if (t.equals("session")) {
+            limits.tuneSession = true;
+          } else if (t.equals("scantime") || t.equals("scan")) {
+            limits.tuneScanTime = true;
+          } else {
+            try {
+              qs.add(Integer.parseInt(t));
+            } catch (NumberFormatException e) {
+              ctx.ui().println(usage);
               return;
             }
           }
         }
+        if (qs.size() >= 1) limits.minQ = Math.max(0, Math.min(15, qs.get(0)));
+        if (qs.size() >= 2) limits.maxQ = Math.max(limits.minQ, Math.min(15, qs.get(1)));
+        QController prev = QTUNERS.remove(reader.id());
+        if (prev != null) prev.shutdown();
+        QController q = new QController(reader, limits, Path.of("UhfTuiLinux", "logs", "qtune-audit.log"));
+        QTUNERS.put(reader.id(), q);
+        q.start();
+        ctx.ui().println(L("Q auto-tuning on: Q ", "Q avto-sozlash yoqildi: Q ", "Автонастройка Q включена: Q ")
+            + limits.minQ + ".." + limits.maxQ + (limits.tuneSession ? " +session" : "")
+            + (limits.tuneScanTime ? " +scanTime" : ""));
+        return;
+      }
+      if (sub.equals("off")) {
+        QController q = QTUNERS.remove(reader.id());
+        if (q != null) q.shutdown();
+        ctx.ui().println(L("Q auto-tuning off.", "Q avto-sozlash o'chirildi.", "Автонастройка Q выключена."));
+        return;
+      }
+      if (sub.equals("log")) {
+        QController q = QTUNERS.get(reader.id());
+        if (q == null) {
+          ctx.ui().println(L("Q auto-tuning is off.", "Q avto-sozlash o'chiq.", "Автонастройка Q выключена."));
+          return;
+        }
+        for (String line : q.auditTail()) ctx.ui().println(line);
+        return;
+      }
+      if (!sub.equals("status")) {
+        ctx.ui().println(usage);
+        return;
+      }
+      if (QTUNERS.isEmpty()) {
+        ctx.ui().println(L("Q auto-tuning is off.", "Q avto-sozlash o'chiq.", "Автонастройка Q выключена."));
+        return;
+      }
+      for (QController q : QTUNERS.values()) {
+        for (String line : q.lines()) ctx.ui().println(line);
+      }
+    }, "qt");
+
+    registry.register("anthealth", "anthealth on [probeSec] | off | status | probe", (args, ctx) -> {
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "status";
+      ReaderClient reader = ctx.reader();
+      AntennaHealth health = reader.health();
+      if (sub.equals("on")) {
+        long probeMs = args.size() >= 3 ? parseInt(args.get(2), 60) * 1000L : AntennaHealth.DEFAULT_PROBE_MS;
+        health.start(probeMs, () -> probeFreqKhz(reader));
+        ctx.ui().println(L("Antenna health monitor on, probe every ", "Antenna holati kuzatuvi yoqildi, tekshiruv har ",
+            "Мониторинг антенн включён, проверка каждые ") + health.probeMs() / 1000 + " s");
+        return;
+      }
+      if (sub.equals("off")) {
+        health.stop();
+        ctx.ui().println(L("Antenna health monitor off.", "Antenna holati kuzatuvi o'chirildi.", "Мониторинг антенн выключен."));
+        return;
+      }
+      if (sub.equals("probe")) {
+        if (!reader.isConnected()) {
+          ctx.ui().println(L("Not connected.", "Ulanmagan.", "Не подключено."));
+          return;
+        }
+        Result r = health.probe(true);
+        if (!r.ok()) ctx.ui().println(L("Probe failed: ", "Tekshiruv xato: ", "Ошибка проверки: ") + r.code());
+        for (String line : health.lines()) ctx.ui().println(line);
+        return;
+      }
+      if (!sub.equals("status")) {
+        ctx.ui().println("Usage: anthealth on [probeSec] | off | status | probe");
+        return;
+      }
+      for (String line : health.lines()) ctx.ui().println(line);
+    }, "ah");
+
+    registry.register("trigger", "trigger start <bit:rise|fall|both:start|stop|window[:ms]>... [poll=20] | stop | status", (args, ctx) -> {
+      String usage = "Usage: trigger start <bit:rise|fall|both:start|stop|window[:ms]>... [poll=20] | stop | status";
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "status";
+      ReaderClient reader = ctx.reader();
+      if (sub.equals("start")) {
+        List<GpioTriggerRule> rules = new ArrayList<>();
+        int pollMs = GpioTrigger.DEFAULT_POLL_MS;
+        for (String a : args.subList(2, args.size())) {
+          if (a.toLowerCase().startsWith("poll=")) {
+            pollMs = Math.max(1, parseInt(a.substring(5), GpioTrigger.DEFAULT_POLL_MS));
+            continue;
+          }
+          GpioTriggerRule rule = GpioTrigger.parseRule(a);
+          if (rule == null) {
+            ctx.ui().println(usage);
+            return;
+          }
+          rules.add(rule);
+        }
+        if (rules.isEmpty()) {
+          ctx.ui().println(usage);
+          return;
+        }
+        if (!reader.isConnected()) {
+          ctx.ui().println(L("Not connected.", "Ulanmagan.", "Не подключено."));
+          return;
+        }
+        AntennaScheduler sched = SCHEDULERS.get(reader.id());
+        if (sched != null && sched.isRunning()) {
+          ctx.ui().println(L("Antenna scheduler is running; stop it first.", "Antenna rejalashtiruvchi ishlayapti; avval to'xtating.",
+              "Планировщик антенн работает; сначала остановите его."));
+          return;
+        }
+        GpioTrigger prev = TRIGGERS.remove(reader.id());
+        if (prev != null) prev.shutdown();
+        GpioTrigger trig = new GpioTrigger(reader, rules, pollMs);
+        Result r = trig.start();
+        if (!r.ok()) {
+          trig.shutdown();
+          ctx.ui().println(L("Trigger start failed: ", "Trigger ishga tushmadi: ", "Ошибка запуска триггера: ") + r.code());
+          return;
+        }
+        TRIGGERS.put(reader.id(), trig);
+        ctx.ui().println(L("GPIO trigger armed, poll every ", "GPIO trigger yoqildi, so'rov har ", "GPIO-триггер включён, опрос каждые ")
+            + pollMs + " ms");
+        return;
+      }
+      if (sub.equals("stop")) {
+        GpioTrigger trig = TRIGGERS.remove(reader.id());
+        if (trig != null) trig.shutdown();
+        ctx.ui().println(L("GPIO trigger stopped.", "GPIO trigger to'xtatildi.", "GPIO-триггер остановлен."));
+        return;
+      }
+      if (!sub.equals("status")) {
+        ctx.ui().println(usage);
+        return;
+      }
+      if (TRIGGERS.isEmpty()) {
+        ctx.ui().println(L("No GPIO trigger armed.", "GPIO trigger yoqilmagan.", "GPIO-триггер не включён."));
+        return;
+      }
+      for (GpioTrigger trig : TRIGGERS.values()) {
+        for (String line : trig.lines()) ctx.ui().println(line);
+      }
+    }, "trig");
+
+    registry.register("rules", "rules add <prefix|*> relay|gpio <mask> [hold=500] [debounce=1000] | remove <prefix> | clear | load <file> | on | off | test <epc> | status", (args, ctx) -> {
+      String usage = "Usage: rules add <prefix|*> relay|gpio <mask> [hold=500] [debounce=1000] | remove <prefix> | clear | load <file> | on | off | test <epc> | status";
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "status";
+      ReaderClient reader = ctx.reader();
+      EpcRuleEngine engine = RULES.computeIfAbsent(reader.id(), k -> new EpcRuleEngine(reader));
+      List<EpcRule> rules = new ArrayList<>(engine.rules());
+      switch (sub) {
+        case "add" -> {
+          EpcRule rule = EpcRuleEngine.parseRule(args.subList(2, args.size()));
+          if (rule == null) {
+            ctx.ui().println(usage);
+            return;
+          }
+          rules.removeIf(r -> r.prefix().equals(rule.prefix()));
+          rules.add(rule);
+          engine.setRules(rules);
+          ctx.ui().println(L("Rule added: ", "Qoida qo'shildi: ", "Правило добавлено: ") + EpcRuleEngine.describe(rule));
+        }
+        case "remove" -> {
+          if (args.size() < 3) {
+            ctx.ui().println(usage);
+            return;
+          }
+          String prefix = args.get(2).equals("*") ? "" : args.get(2).toUpperCase();
+          boolean removed = rules.removeIf(r -> r.prefix().equals(prefix));
+          engine.setRules(rules);
+          ctx.ui().println(removed ? L("Rule removed.", "Qoida o'chirildi.", "Правило удалено.")
+              : L("No such rule.", "Bunday qoida yo'q.", "Нет такого правила."));
+        }
+        case "clear" -> {
+          engine.setRules(List.of());
+          ctx.ui().println(L("Rules cleared.", "Qoidalar tozalandi.", "Правила очищены."));
+        }
+        case "load" -> {
+          if (args.size() < 3) {
+            ctx.ui().println(usage);
+            return;
+          }
+          List<EpcRule> loaded = new ArrayList<>();
+          try {
+            int lineNo = 0;
+            for (String line : Files.readAllLines(Path.of(args.get(2)))) {
+              lineNo++;
+              String t = line.trim();
+              if (t.isEmpty() || t.startsWith("#")) continue;
+              EpcRule rule = EpcRuleEngine.parseRule(List.of(t.split("\\s+")));
+              if (rule == null) {
+                ctx.ui().println(L("Bad rule at line ", "Noto'g'ri qoida, qator ", "Ошибка в правиле, строка ") + lineNo + ": " + t);
+                return;
+              }
+              loaded.removeIf(r -> r.prefix().equals(rule.prefix()));
+              loaded.add(rule);
+            }
+          } catch (Exception e) {
+            ctx.ui().println(L("Cannot read: ", "O'qib bo'lmadi: ", "Не удалось прочитать: ") + args.get(2));
+            return;
+          }
+          engine.setRules(loaded);
+          ctx.ui().println(L("Rules loaded: ", "Qoidalar yuklandi: ", "Правила загружены: ") + loaded.size());
+        }
+        case "on" -> {
+          Result r = engine.start();
+          ctx.ui().println(r.ok() ? L("Rules engine on.", "Qoidalar yoqildi.", "Правила включены.")
+              : L("Rules engine start failed: ", "Qoidalar ishga tushmadi: ", "Ошибка запуска правил: ") + r.code());
+        }
+        case "off" -> {
+          engine.stop();
+          ctx.ui().println(L("Rules engine off.", "Qoidalar o'chirildi.", "Правила выключены."));
+        }
+        case "test" -> {
+          if (args.size() < 3) {
+            ctx.ui().println(usage);
+            return;
+          }
+          int idx = engine.match(args.get(2));
+          ctx.ui().println(idx < 0 ? L("No match.", "Mos kelmadi.", "Нет совпадения.")
+              : L("Match: ", "Mos: ", "Совпадение: ") + EpcRuleEngine.describe(engine.rules().get(idx)));
+        }
+        case "status" -> {
+          for (String line : engine.lines()) ctx.ui().println(line);
+        }
+        default -> ctx.ui().println(usage);
       }
-      ctx.ui().println(L("No reader found.", "Reader topilmadi.", "Ридер не найден."));
+    });
+
+    registry.register("calibrate", "calibrate start <epc,epc,...|@file> [all|<ant,ant,...>] [min=5 max=30 dwell=1000 trials=2 stray=0 margin=1] | stop | status", (args, ctx) -> {
+      String usage = "Usage: calibrate start <epc,epc,...|@file> [all|<ant,ant,...>] [min= max= dwell= trials= stray= margin=] | stop | status";
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "status";
+      if (sub.equals("stop")) {
+        PowerCalibrator cal = CALIBRATION;
+        if (cal != null) cal.stop();
+        ctx.ui().println(L("Calibration stopped; original powers restored.", "Kalibrlash to'xtatildi; asl quvvatlar tiklandi.",
+            "Калибровка остановлена; мощности восстановлены."));
+        return;
+      }
+      if (sub.equals("status")) {
+        PowerCalibrator cal = CALIBRATION;
+        if (cal == null) {
+          ctx.ui().println(L("No calibration yet.", "Hali kalibrlash yo'q.", "Калибровки ещё не было."));
+          return;
+        }
+        for (String line : cal.lines()) ctx.ui().println(line);
+        return;
+      }
+      if (!sub.equals("start") || args.size() < 3) {
+        ctx.ui().println(usage);
+        return;
+      }
+      ReaderClient reader = ctx.reader();
+      if (!reader.isConnected()) {
+        ctx.ui().println(L("Not connected.", "Ulanmagan.", "Не подключено."));
+        return;
+      }
+      PowerCalibrator prev = CALIBRATION;
+      if (prev != null && prev.isRunning()) {
+        ctx.ui().println(L("Calibration already running.", "Kalibrlash allaqachon ishlayapti.", "Калибровка уже идёт."));
+        return;
+      }
+      AntennaScheduler sched = SCHEDULERS.get(reader.id());
+      QController qt = QTUNERS.get(reader.id());
+      if ((sched != null && sched.isRunning()) || (qt != null && qt.isRunning())) {
+        ctx.ui().println(L("Stop 'sched' and 'qtune' first.", "Avval 'sched' va 'qtune' ni to'xtating.",
+            "Сначала остановите 'sched' и 'qtune'."));
+        return;
+      }
+      Set<String> reference = new LinkedHashSet<>();
+      String refArg = args.get(2);
+      if (refArg.startsWith("@")) {
+        try {
+          for (String line : Files.readAllLines(Path.of(refArg.substring(1)))) {
+            String epc = line.trim();
+            if (!epc.isEmpty() && !epc.startsWith("#")) reference.add(epc);
+          }
+        } catch (Exception e) {
+          ctx.ui().println(L("Cannot read: ", "O'qib bo'lmadi: ", "Не удалось прочитать: ") + refArg.substring(1));
+          return;
+        }
+      } else {
+        for (String epc : refArg.split(",")) {
+          if (!epc.isBlank()) reference.add(epc.trim());
+        }
+      }
+      if (reference.isEmpty()) {
+        ctx.ui().println(usage);
+        return;
+      }
+      int n = reader.getAntennaCount();
+      List<Integer> ants = new ArrayList<>();
+      PowerCalibrator.Settings settings = new PowerCalibrator.Settings();
+      for (String a : args.subList(3, args.size())) {
+        String t = a.toLowerCase();
+        int eq = t.indexOf('=');
+        if (eq > 0) {
+          int v = parseInt(t.substring(eq + 1), -1);
+          switch (t.substring(0, eq)) {
+            case "min" -> settings.minPower = v < 0 ? settings.minPower : Math.min(33, v);
+            case "max" -> settings.maxPower = v < 0 ? settings.maxPower : Math.min(33, v);
+            case "dwell" -> settings.dwellMs = v < 100 ? settings.dwellMs : v;
+            case "trials" -> settings.trials = v < 1 ? settings.trials : v;
+            case "stray" -> settings.maxStray = v < 0 ? settings.maxStray : v;
+            case "margin" -> settings.margin = v < 0 ? settings.margin : v;
+            default -> {
+              ctx.ui().println(usage);
+              return;
+            }
+          }
+        } else if (!t.equals("all")) {
+          for (String part : t.split(",")) {
+            int ant = parseInt(part, -1);
+            if (ant < 1 || ant > n) {
+              ctx.ui().println(L("Invalid antenna: ", "Noto'g'ri antenna: ", "Неверная антенна: ") + part);
+              return;
+            }
+            if (!ants.contains(ant)) ants.add(ant);
+          }
+        }
+      }
+      if (ants.isEmpty()) {
+        for (int a = 1; a <= n; a++) ants.add(a);
+      }
+      if (settings.maxPower < settings.minPower) settings.maxPower = settings.minPower;
+      PowerCalibrator cal = new PowerCalibrator(reader, ants, reference, settings);
+      CALIBRATION = cal;
+      Result r = cal.start();
+      ctx.ui().println(r.ok()
+          ? L("Calibration started: ", "Kalibrlash boshlandi: ", "Калибровка запущена: ") + reference.size()
+              + L(" reference tags, antennas ", " etalon tag, antennalar ", " эталонных меток, антенны ") + ants
+              + L(" ('calibrate status' for progress)", " (jarayon: 'calibrate status')", " (ход: 'calibrate status')")
+          : L("Calibration failed: ", "Kalibrlash xato: ", "Ошибка калибровки: ") + r.code());
+    }, "cal");
+
+    registry.register("capture", "capture start [file] | stop | status", (args, ctx) -> {
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "status";
+      if (sub.equals("start")) {
+        Path file = args.size() >= 3 ? Path.of(args.get(2)) : defaultCapturePath();
+        stopCapture();
+        try {
+          CAPTURE = new TagCapture(file);
+          ctx.ui().println(L("Capturing tags to ", "Taglar yozilmoqda: ", "Запись тегов в ") + file);
+        } catch (Exception e) {
+          ctx.ui().println(L("Capture failed: ", "Yozish xato: ", "Ошибка записи: ") + e.getMessage());
+        }
+        return;
+      }
+      if (sub.equals("stop")) {
+        TagCapture c = stopCapture();
+        ctx.ui().println(c == null
+            ? L("Capture not running.", "Yozish ishlamayapti.", "Запись не идёт.")
+            : L("Capture saved: ", "Yozuv saqlandi: ", "Запись сохранена: ") + c.file() + " records=" + c.records() + " bytes=" + c.bytes());
+        return;
+      }
+      if (!sub.equals("status")) {
+        ctx.ui().println("Usage: capture start [file] | stop | status");
+        return;
+      }
+      TagCapture c = CAPTURE;
+      ctx.ui().println(c == null
+          ? L("Capture not running.", "Yozish ishlamayapti.", "Запись не идёт.")
+          : c.file() + " records=" + c.records() + " bytes=" + c.bytes());
+    }, "cap");
+
+    registry.register("replay", "replay <file> [speed|max] | stop | status", (args, ctx) -> {
+      String sub = args.size() >= 2 ? args.get(1) : "status";
+      if (sub.equalsIgnoreCase("stop") || sub.equalsIgnoreCase("status")) {
+        TagReplay r = sub.equalsIgnoreCase("stop") ? stopReplay() : REPLAY;
+        if (r == null) {
+          ctx.ui().println(L("Replay not running.", "Takrorlash ishlamayapti.", "Воспроизведение не идёт."));
+        } else {
+          for (String line : r.lines()) ctx.ui().println(line);
+        }
+        return;
+      }
+      String speedArg = args.size() >= 3 ? args.get(2).toLowerCase() : "1";
+      double speed;
+      if (speedArg.equals("max")) {
+        speed = 0;
+      } else {
+        try {
+          speed = Double.parseDouble(speedArg.endsWith("x") ? speedArg.substring(0, speedArg.length() - 1) : speedArg);
+        } catch (NumberFormatException e) {
+          ctx.ui().println("Usage: replay <file> [speed|max] | stop | status");
+          return;
+        }
+      }
+      stopReplay();
+      TagReplay r = new TagReplay("replay", Path.of(sub));
+      r.setSpeed(speed);
+      r.setTagSink(ctx.pool().tagSink());
+      Result res = r.connect();
+      if (res.ok()) res = r.startInventory();
+      if (!res.ok()) {
+        ctx.ui().println(L("Replay failed: ", "Takrorlash xato: ", "Ошибка воспроизведения: ") + sub);
+        return;
+      }
+      REPLAY = r;
+      ctx.ui().println(L("Replaying ", "Takrorlanmoqda ", "Воспроизведение ") + sub
+          + " speed=" + (speed == 0 ? "max" : speed + "x"));
     });
 
     registry.register("info", "info", (args, ctx) -> {
@@ -282,6 +1056,56 @@ public final class Main {
       }
     });
 
+    registry.register("rlsweep", "rlsweep [all|<ant,ant,...>] [band] | show | export [file]", (args, ctx) -> {
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "all";
+      if (sub.equals("show") || sub.equals("export")) {
+        SweepResult last = LAST_SWEEP;
+        if (last == null) {
+          ctx.ui().println(L("No sweep yet.", "Hali skan yo'q.", "Сканирования ещё не было."));
+          return;
+        }
+        if (sub.equals("show")) {
+          for (String line : returnLossHeatmap(last)) ctx.ui().println(line);
+          return;
+        }
+        Path file = args.size() >= 3 ? Path.of(args.get(2)) : defaultSweepPath(last.readerId());
+        try {
+          if (file.toAbsolutePath().getParent() != null) Files.createDirectories(file.toAbsolutePath().getParent());
+          Files.writeString(file, last.map().toJson(last.readerId(), last.band()));
+          ctx.ui().println(L("Sweep exported: ", "Skan eksport qilindi: ", "Сканирование сохранено: ") + file);
+        } catch (Exception e) {
+          ctx.ui().println(L("Export failed: ", "Eksport xato: ", "Ошибка экспорта: ") + e.getMessage());
+        }
+        return;
+      }
+      ReaderClient reader = ctx.reader();
+      if (!reader.isConnected()) {
+        ctx.ui().println(L("Not connected.", "Ulanmagan.", "Не подключено."));
+        return;
+      }
+      int n = reader.getAntennaCount();
+      List<Integer> ants = new ArrayList<>();
+      if (sub.equals("all")) {
+        for (int a = 1; a <= n; a++) ants.add(a);
+      } else {
+        for (String part : sub.split(",")) {
+          int a = parseInt(part, -1);
+          if (a < 1 || a > n) {
+            ctx.ui().println(L("Invalid antenna: ", "Noto'g'ri antenna: ", "Неверная антенна: ") + part);
+            return;
+          }
+          if (!ants.contains(a)) ants.add(a);
+        }
+      }
+      int band = args.size() >= 3 ? parseInt(args.get(2), -1) : -1;
+      SweepResult sweep = runReturnLossSweep(ctx, ants, band);
+      if (sweep == null) {
+        ctx.ui().println(L("Unknown region band.", "Noma'lum hudud band.", "Неизвестный диапазон."));
+        return;
+      }
+      for (String line : returnLossHeatmap(sweep)) ctx.ui().println(line);
+    });
+
     registry.register("wpower", "wpower get | set <0-33> [mode]", (args, ctx) -> {
       if (args.size() < 2) {
         ctx.ui().println("Usage: wpower get | set <0-33> [mode]");
@@ -361,15 +1185,34 @@ public final class Main {
           : L("SetBeepNotification failed: ", "SetBeepNotification xato: ", "SetBeepNotification ошибка: ") + r.code());
     });
 
-    registry.register("erp", "erp status | enable | disable | set <url> <token>", (args, ctx) -> {
+    registry.register("erp", "erp status | enable | disable | set <url> <token> | format <json|compact>", (args, ctx) -> {
       if (args.size() < 2) {
-        ctx.ui().println("Usage: erp status | enable | disable | set <url> <token>");
+        ctx.ui().println("Usage: erp status | enable | disable | set <url> <token> | format <json|compact>");
         return;
       }
       String sub = args.get(1).toLowerCase();
       ErpConfig cfg = copyErpConfig(ctx.erp().config());
       if (sub.equals("status")) {
-        ctx.ui().println("ERP enabled=" + cfg.enabled + " url=" + cfg.baseUrl + " endpoint=" + cfg.endpoint);
+        ctx.ui().println("ERP enabled=" + cfg.enabled + " url=" + cfg.baseUrl + " endpoint=" + cfg.endpoint
+            + " format=" + cfg.payloadFormat);
+        for (String line : erpMetricsLines(ctx.erp())) {
+          ctx.ui().println("  " + line);
+        }
+        return;
+      }
+      if (sub.equals("format")) {
+        if (args.size() < 3) {
+          ctx.ui().println("Usage: erp format <json|compact>");
+          return;
+        }
+        String f = args.get(2).trim().toLowerCase();
+        if (!f.equals(ErpPayloadCodec.FORMAT_JSON) && !f.equals(ErpPayloadCodec.FORMAT_COMPACT)) {
+          ctx.ui().println("Usage: erp format <json|compact>");
+          return;
+        }
+        cfg.payloadFormat = f;
+        saveErpConfig(ctx.erp(), cfg);
+        ctx.ui().println(L("ERP payload format: ", "ERP payload formati: ", "Формат ERP payload: ") + f);
         return;
       }
       if (sub.equals("enable")) {
@@ -410,7 +1253,7 @@ public final class Main {
         ctx.ui().println("ERP config updated.");
         return;
       }
-      ctx.ui().println("Usage: erp status | enable | disable | set <url> <token>");
+      ctx.ui().println("Usage: erp status | enable | disable | set <url> <token> | format <json|compact>");
     });
 
     registry.register("gpio", "gpio get | gpio set <mask>", (args, ctx) -> {
@@ -508,92 +1351,372 @@ public final class Main {
         ctx.ui().println("Usage: read-tid <tid> <mem> <wordPtr> <num> <password>");
         return;
       }
-      String tid = args.get(1);
-      int mem = parseInt(args.get(2), -1);
-      int wordPtr = parseInt(args.get(3), -1);
-      int num = parseInt(args.get(4), -1);
-      String pwd = args.get(5);
-      if (mem < 0 || wordPtr < 0 || num <= 0) {
-        ctx.ui().println(L("Invalid parameters.", "Noto'g'ri parametrlar.", "Неверные параметры."));
+      String tid = args.get(1);
+      int mem = parseInt(args.get(2), -1);
+      int wordPtr = parseInt(args.get(3), -1);
+      int num = parseInt(args.get(4), -1);
+      String pwd = args.get(5);
+      if (mem < 0 || wordPtr < 0 || num <= 0) {
+        ctx.ui().println(L("Invalid parameters.", "Noto'g'ri parametrlar.", "Неверные параметры."));
+        return;
+      }
+      String data = ctx.reader().readDataByTid(tid, mem, wordPtr, num, pwd);
+      if (data == null) {
+        ctx.ui().println(L("Read failed.", "O'qish xato.", "Чтение не удалось."));
+      } else {
+        ctx.ui().println(L("Data: ", "Ma'lumot: ", "Данные: ") + data);
+      }
+    });
+
+    registry.register("write-epc", "write-epc <epc> <mem> <wordPtr> <password> <data>", (args, ctx) -> {
+      if (args.size() < 6) {
+        ctx.ui().println("Usage: write-epc <epc> <mem> <wordPtr> <password> <data>");
+        return;
+      }
+      if (!ctx.ui().confirm(L("Write EPC memory?", "EPC xotirasiga yozilsinmi?", "Записать память EPC?"))) return;
+      String epc = args.get(1);
+      int mem = parseInt(args.get(2), -1);
+      int wordPtr = parseInt(args.get(3), -1);
+      String pwd = args.get(4);
+      String data = args.get(5);
+      if (mem < 0 || wordPtr < 0) {
+        ctx.ui().println(L("Invalid parameters.", "Noto'g'ri parametrlar.", "Неверные параметры."));
+        return;
+      }
+      TagOpResult r = ctx.reader().tagOps().writeDataByEpc(epc, mem, wordPtr, pwd, data, null);
+      printTagOp(ctx, r, L("Write success.", "Yozish muvaffaqiyatli.", "Запись успешна."),
+          L("Write failed: ", "Yozish xato: ", "Ошибка записи: "));
+    });
+
+    registry.register("write-tid", "write-tid <tid> <mem> <wordPtr> <password> <data>", (args, ctx) -> {
+      if (args.size() < 6) {
+        ctx.ui().println("Usage: write-tid <tid> <mem> <wordPtr> <password> <data>");
+        return;
+      }
+      if (!ctx.ui().confirm(L("Write TID memory?", "TID xotirasiga yozilsinmi?", "Записать память TID?"))) return;
+      String tid = args.get(1);
+      int mem = parseInt(args.get(2), -1);
+      int wordPtr = parseInt(args.get(3), -1);
+      String pwd = args.get(4);
+      String data = args.get(5);
+      if (mem < 0 || wordPtr < 0) {
+        ctx.ui().println(L("Invalid parameters.", "Noto'g'ri parametrlar.", "Неверные параметры."));
+        return;
+      }
+      TagOpResult r = ctx.reader().tagOps().writeDataByTid(tid, mem, wordPtr, pwd, data, null);
+      printTagOp(ctx, r, L("Write success.", "Yozish muvaffaqiyatli.", "Запись успешна."),
+          L("Write failed: ", "Yozish xato: ", "Ошибка записи: "));
+    });
+
+    registry.register("write-epc-id", "write-epc-id <epc> <password>", (args, ctx) -> {
+      if (args.size() < 3) {
+        ctx.ui().println("Usage: write-epc-id <epc> <password>");
+        return;
+      }
+      if (!ctx.ui().confirm(L("Overwrite EPC ID?", "EPC ID ustiga yozilsinmi?", "Перезаписать EPC ID?"))) return;
+      String epc = args.get(1);
+      String pwd = args.get(2);
+      TagOpResult r = ctx.reader().tagOps().writeEpc(epc, pwd, null);
+      printTagOp(ctx, r, L("EPC updated.", "EPC yangilandi.", "EPC обновлён."),
+          L("WriteEPC failed: ", "WriteEPC xato: ", "WriteEPC ошибка: "));
+    });
+
+    registry.register("write-epc-by-tid", "write-epc-by-tid <tid> <epc> <password>", (args, ctx) -> {
+      if (args.size() < 4) {
+        ctx.ui().println("Usage: write-epc-by-tid <tid> <epc> <password>");
+        return;
+      }
+      if (!ctx.ui().confirm(L("Overwrite EPC by TID?", "TID orqali EPC ustiga yozilsinmi?", "Перезаписать EPC по TID?"))) return;
+      String tid = args.get(1);
+      String epc = args.get(2);
+      String pwd = args.get(3);
+      TagOpResult r = ctx.reader().tagOps().writeEpcByTid(tid, epc, pwd, null);
+      printTagOp(ctx, r, L("EPC updated.", "EPC yangilandi.", "EPC обновлён."),
+          L("WriteEPCByTID failed: ", "WriteEPCByTID xato: ", "WriteEPCByTID ошибка: "));
+    });
+
+    registry.register("bulkread", "bulkread start [present|<epc,epc,...>|@file] [mem=2] [ptr=0] [words=6] [pwd=] [retries=3] [batch=16] [window=300] [out=<file>|none] [erp] | stop | status", (args, ctx) -> {
+      String usage = "Usage: bulkread start [present|<epc,...>|@file] [mem=] [ptr=] [words=] [pwd=] [retries=] [batch=] [window=] [out=<file>|none] [erp] | stop | status";
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "status";
+      if (sub.equals("stop")) {
+        BulkReadJob job = BULK_READ;
+        if (job != null) job.stop();
+        ctx.ui().println(L("Bulk read stopped.", "Ommaviy o'qish to'xtatildi.", "Массовое чтение остановлено."));
+        return;
+      }
+      if (sub.equals("status")) {
+        BulkReadJob job = BULK_READ;
+        if (job == null) {
+          ctx.ui().println(L("No bulk read job.", "Ommaviy o'qish vazifasi yo'q.", "Нет задания массового чтения."));
+          return;
+        }
+        for (String line : job.lines()) ctx.ui().println(line);
+        return;
+      }
+      if (!sub.equals("start")) {
+        ctx.ui().println(usage);
+        return;
+      }
+      ReaderClient reader = ctx.reader();
+      if (!reader.isConnected()) {
+        ctx.ui().println(L("Not connected.", "Ulanmagan.", "Не подключено."));
+        return;
+      }
+      BulkReadJob prev = BULK_READ;
+      if (prev != null && prev.isRunning()) {
+        ctx.ui().println(L("Bulk read already running.", "Ommaviy o'qish allaqachon ishlayapti.", "Массовое чтение уже идёт."));
+        return;
+      }
+      AntennaScheduler sched = SCHEDULERS.get(reader.id());
+      QController qt = QTUNERS.get(reader.id());
+      if ((sched != null && sched.isRunning()) || (qt != null && qt.isRunning())) {
+        ctx.ui().println(L("Stop 'sched' and 'qtune' first.", "Avval 'sched' va 'qtune' ni to'xtating.",
+            "Сначала остановите 'sched' и 'qtune'."));
+        return;
+      }
+      List<String> epcs = new ArrayList<>();
+      BulkReadJob.Settings settings = new BulkReadJob.Settings();
+      Path out = null;
+      boolean noFile = false;
+      boolean toErp = false;
+      for (String a : args.subList(2, args.size())) {
+        int eq = a.indexOf('=');
+        String key = eq > 0 ? a.substring(0, eq).toLowerCase() : "";
+        String val = eq > 0 ? a.substring(eq + 1) : "";
+        if (eq < 0) {
+          if (a.equalsIgnoreCase("erp")) {
+            toErp = true;
+          } else if (a.equalsIgnoreCase("present")) {
+            epcs.clear();
+          } else if (a.startsWith("@")) {
+            try {
+              for (String line : Files.readAllLines(Path.of(a.substring(1)))) {
+                String epc = line.split(",")[0].trim();
+                if (!epc.isEmpty() && !epc.startsWith("#")) epcs.add(epc);
+              }
+            } catch (Exception e) {
+              ctx.ui().println(L("Cannot read: ", "O'qib bo'lmadi: ", "Не удалось прочитать: ") + a.substring(1));
+              return;
+            }
+          } else {
+            for (String epc : a.split(",")) {
+              if (!epc.isBlank()) epcs.add(epc.trim());
+            }
+          }
+          continue;
+        }
+        switch (key) {
+          case "mem" -> settings.mem = Math.max(0, Math.min(3, parseInt(val, settings.mem)));
+          case "ptr" -> settings.wordPtr = Math.max(0, parseInt(val, settings.wordPtr));
+          case "words" -> settings.words = Math.max(1, Math.min(120, parseInt(val, settings.words)));
+          case "pwd" -> settings.password = val;
+          case "retries" -> settings.retries = Math.max(0, parseInt(val, settings.retries));
+          case "batch" -> settings.batch = Math.max(1, parseInt(val, settings.batch));
+          case "window" -> settings.windowMs = Math.max(50, parseInt(val, settings.windowMs));
+          case "out" -> {
+            noFile = val.equalsIgnoreCase("none");
+            out = noFile ? null : Path.of(val);
+          }
+          default -> {
+            ctx.ui().println(usage);
+            return;
+          }
+        }
+      }
+      if (out == null && !noFile) out = defaultBulkReadPath(reader.id());
+      ErpPusher erp = ctx.erp();
+      String host = reader.host();
+      BulkReadJob job = new BulkReadJob(reader, epcs, out, !toErp ? null : rr -> erp.enqueue(
+          new ErpTagEvent(rr.epc(), rr.data(), rr.rssi(), rr.antenna(), host, System.currentTimeMillis())), settings);
+      BULK_READ = job;
+      Result r = job.start();
+      ctx.ui().println(r.ok()
+          ? L("Bulk read started: ", "Ommaviy o'qish boshlandi: ", "Массовое чтение запущено: ")
+              + (epcs.isEmpty() ? L("tags in field", "maydondagi teglar", "метки в поле") : epcs.size() + " EPC")
+              + (out == null ? "" : ", " + out) + (toErp ? ", ERP" : "")
+          : L("Bulk read failed: ", "Ommaviy o'qish xato: ", "Ошибка массового чтения: ") + r.code());
+    }, "br");
+
+    registry.register("memcache", "memcache on [mem=2] [ptr=0] [words=6] [user=<ptr>:<words>] [pwd=] [batch=16] [gap=2000] [retries=2] [max=100000] [pause=yes|no] | off | status | show <epc> | forget <epc> | clear | save [file] | load [file]", (args, ctx) -> {
+      String usage = "Usage: memcache on [mem=] [ptr=] [words=] [user=<ptr>:<words>] [pwd=] [batch=] [gap=] [retries=] [max=] [pause=yes|no] | off | status | show <epc> | forget <epc> | clear | save [file] | load [file]";
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "status";
+      TagMemoryCache cache = MEM_CACHE;
+      switch (sub) {
+        case "status" -> {
+          for (String line : cache.lines()) ctx.ui().println(line);
+        }
+        case "off" -> {
+          cache.stop();
+          ctx.ui().println(L("Tag memory fetch off (cache still fills memId).", "Teg xotirasini o'qish o'chirildi (kesh memId ni to'ldiradi).",
+              "Чтение памяти меток выключено (кэш продолжает заполнять memId)."));
+        }
+        case "show", "forget" -> {
+          if (args.size() < 3) {
+            ctx.ui().println(usage);
+            return;
+          }
+          String epc = args.get(2);
+          if (sub.equals("forget")) {
+            ctx.ui().println(cache.forget(epc) ? L("Removed.", "O'chirildi.", "Удалено.") : L("Not cached.", "Keshda yo'q.", "Нет в кэше."));
+            return;
+          }
+          TagMemoryCache.Entry e = cache.get(epc);
+          ctx.ui().println(e == null ? L("Not cached.", "Keshda yo'q.", "Нет в кэше.")
+              : epc.toUpperCase() + " tid=" + e.tid() + (e.user() == null ? "" : " user=" + e.user()));
+        }
+        case "clear" -> {
+          cache.clear();
+          ctx.ui().println(L("Cache cleared.", "Kesh tozalandi.", "Кэш очищен."));
+        }
+        case "save", "load" -> {
+          Path path = args.size() >= 3 ? Path.of(args.get(2)) : cache.file();
+          try {
+            int n = sub.equals("save") ? cache.save(path) : cache.load(path);
+            ctx.ui().println((sub.equals("save") ? L("Saved ", "Saqlandi ", "Сохранено ") : L("Loaded ", "Yuklandi ", "Загружено ")) + n
+                + L(" entries: ", " yozuv: ", " записей: ") + path);
+          } catch (Exception e) {
+            ctx.ui().println(L("Cache file error: ", "Kesh fayli xatosi: ", "Ошибка файла кэша: ") + e.getMessage());
+          }
+        }
+        case "on" -> {
+          TagMemoryCache.Settings settings = cache.settings();
+          for (String a : args.subList(2, args.size())) {
+            int eq = a.indexOf('=');
+            String key = eq > 0 ? a.substring(0, eq).toLowerCase() : "";
+            String val = eq > 0 ? a.substring(eq + 1) : "";
+            switch (key) {
+              case "mem" -> settings.mem = Math.max(0, Math.min(3, parseInt(val, settings.mem)));
+              case "ptr" -> settings.wordPtr = Math.max(0, parseInt(val, settings.wordPtr));
+              case "words" -> settings.words = Math.max(1, Math.min(120, parseInt(val, settings.words)));
+              case "user" -> {
+                String[] parts = val.split(":");
+                settings.userPtr = parts.length == 2 ? Math.max(0, parseInt(parts[0], 0)) : 0;
+                settings.userWords = Math.max(0, Math.min(120, parseInt(parts[parts.length - 1], 0)));
+              }
+              case "pwd" -> settings.password = val;
+              case "batch" -> settings.batch = Math.max(1, parseInt(val, settings.batch));
+              case "gap" -> settings.gapMs = Math.max(0, parseInt(val, (int) settings.gapMs));
+              case "retries" -> settings.retries = Math.max(0, parseInt(val, settings.retries));
+              case "max" -> settings.maxEntries = Math.max(1, parseInt(val, settings.maxEntries));
+              case "pause" -> settings.pauseInventory = !val.equalsIgnoreCase("no") && !val.equals("0");
+              default -> {
+                ctx.ui().println(usage);
+                return;
+              }
+            }
+          }
+          cache.start(settings);
+          ctx.ui().println(L("Tag memory fetch on: ", "Teg xotirasini o'qish yoqildi: ", "Чтение памяти меток включено: ")
+              + "mem=" + settings.mem + " ptr=" + settings.wordPtr + " words=" + settings.words
+              + (settings.userWords > 0 ? " user=" + settings.userPtr + ":" + settings.userWords : "")
+              + (settings.pauseInventory ? "" : " idle-only"));
+        }
+        default -> ctx.ui().println(usage);
+      }
+    }, "mc");
+
+    registry.register("encode", "encode start <file.csv|serial:<prefixHex>:<start>:<count>> [pwd=] [retries=3] [window=300] [journal=] | stop | status", (args, ctx) -> {
+      String usage = "Usage: encode start <file.csv|serial:<prefixHex>:<start>:<count>> [pwd=] [retries=] [window=] [journal=] | stop | status";
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "status";
+      if (sub.equals("stop")) {
+        EncodeJob job = ENCODE;
+        if (job != null) job.stop();
+        ctx.ui().println(L("Encoding stopped.", "Kodlash to'xtatildi.", "Кодирование остановлено."));
         return;
       }
-      String data = ctx.reader().readDataByTid(tid, mem, wordPtr, num, pwd);
-      if (data == null) {
-        ctx.ui().println(L("Read failed.", "O'qish xato.", "Чтение не удалось."));
-      } else {
-        ctx.ui().println(L("Data: ", "Ma'lumot: ", "Данные: ") + data);
+      if (sub.equals("status")) {
+        EncodeJob job = ENCODE;
+        if (job == null) {
+          ctx.ui().println(L("No encoding job.", "Kodlash vazifasi yo'q.", "Нет задания кодирования."));
+          return;
+        }
+        for (String line : job.lines()) ctx.ui().println(line);
+        return;
       }
-    });
-
-    registry.register("write-epc", "write-epc <epc> <mem> <wordPtr> <password> <data>", (args, ctx) -> {
-      if (args.size() < 6) {
-        ctx.ui().println("Usage: write-epc <epc> <mem> <wordPtr> <password> <data>");
+      if (!sub.equals("start") || args.size() < 3) {
+        ctx.ui().println(usage);
         return;
       }
-      if (!ctx.ui().confirm(L("Write EPC memory?", "EPC xotirasiga yozilsinmi?", "Записать память EPC?"))) return;
-      String epc = args.get(1);
-      int mem = parseInt(args.get(2), -1);
-      int wordPtr = parseInt(args.get(3), -1);
-      String pwd = args.get(4);
-      String data = args.get(5);
-      if (mem < 0 || wordPtr < 0) {
-        ctx.ui().println(L("Invalid parameters.", "Noto'g'ri parametrlar.", "Неверные параметры."));
+      ReaderClient reader = ctx.reader();
+      if (!reader.isConnected()) {
+        ctx.ui().println(L("Not connected.", "Ulanmagan.", "Не подключено."));
         return;
       }
-      Result r = ctx.reader().writeDataByEpc(epc, mem, wordPtr, pwd, data);
-      ctx.ui().println(r.ok()
-          ? L("Write success.", "Yozish muvaffaqiyatli.", "Запись успешна.")
-          : L("Write failed: ", "Yozish xato: ", "Ошибка записи: ") + r.code());
-    });
-
-    registry.register("write-tid", "write-tid <tid> <mem> <wordPtr> <password> <data>", (args, ctx) -> {
-      if (args.size() < 6) {
-        ctx.ui().println("Usage: write-tid <tid> <mem> <wordPtr> <password> <data>");
+      EncodeJob prev = ENCODE;
+      if (prev != null && prev.isRunning()) {
+        ctx.ui().println(L("Encoding already running.", "Kodlash allaqachon ishlayapti.", "Кодирование уже идёт."));
         return;
       }
-      if (!ctx.ui().confirm(L("Write TID memory?", "TID xotirasiga yozilsinmi?", "Записать память TID?"))) return;
-      String tid = args.get(1);
-      int mem = parseInt(args.get(2), -1);
-      int wordPtr = parseInt(args.get(3), -1);
-      String pwd = args.get(4);
-      String data = args.get(5);
-      if (mem < 0 || wordPtr < 0) {
-        ctx.ui().println(L("Invalid parameters.", "Noto'g'ri parametrlar.", "Неверные параметры."));
+      AntennaScheduler sched = SCHEDULERS.get(reader.id());
+      QController qt = QTUNERS.get(reader.id());
+      if ((sched != null && sched.isRunning()) || (qt != null && qt.isRunning())) {
+        ctx.ui().println(L("Stop 'sched' and 'qtune' first.", "Avval 'sched' va 'qtune' ni to'xtating.",
+            "Сначала остановите 'sched' и 'qtune'."));
         return;
       }
-      Result r = ctx.reader().writeDataByTid(tid, mem, wordPtr, pwd, data);
-      ctx.ui().println(r.ok()
-          ? L("Write success.", "Yozish muvaffaqiyatli.", "Запись успешна.")
-          : L("Write failed: ", "Yozish xato: ", "Ошибка записи: ") + r.code());
-    });
-
-    registry.register("write-epc-id", "write-epc-id <epc> <password>", (args, ctx) -> {
-      if (args.size() < 3) {
-        ctx.ui().println("Usage: write-epc-id <epc> <password>");
+      String source = args.get(2);
+      EncodeJob.Settings settings = new EncodeJob.Settings();
+      Path journal = null;
+      for (String a : args.subList(3, args.size())) {
+        int eq = a.indexOf('=');
+        String key = eq > 0 ? a.substring(0, eq).toLowerCase() : "";
+        String val = eq > 0 ? a.substring(eq + 1) : "";
+        switch (key) {
+          case "pwd" -> settings.password = val;
+          case "retries" -> settings.retries = Math.max(0, parseInt(val, settings.retries));
+          case "window" -> settings.windowMs = Math.max(50, parseInt(val, settings.windowMs));
+          case "journal" -> journal = Path.of(val);
+          default -> {
+            ctx.ui().println(usage);
+            return;
+          }
+        }
+      }
+      if (journal == null) journal = defaultJournalPath(source);
+      EncodeJob job;
+      int resumed;
+      try {
+        job = EncodeJob.create(reader, source, journal, settings);
+        resumed = job.resume();
+      } catch (Exception e) {
+        ctx.ui().println(L("Encode setup failed: ", "Kodlash sozlash xato: ", "Ошибка настройки кодирования: ") + e.getMessage());
         return;
       }
-      if (!ctx.ui().confirm(L("Overwrite EPC ID?", "EPC ID ustiga yozilsinmi?", "Перезаписать EPC ID?"))) return;
-      String epc = args.get(1);
-      String pwd = args.get(2);
-      Result r = ctx.reader().writeEpc(epc, pwd);
+      if (!ctx.ui().confirm(L("Encode ", "Kodlash ", "Кодировать ") + (job.count() - resumed) + L(" tags?", " tag?", " меток?"))) return;
+      ENCODE = job;
+      Result r = job.start();
       ctx.ui().println(r.ok()
-          ? L("EPC updated.", "EPC yangilandi.", "EPC обновлён.")
-          : L("WriteEPC failed: ", "WriteEPC xato: ", "WriteEPC ошибка: ") + r.code());
+          ? L("Encoding started: ", "Kodlash boshlandi: ", "Кодирование запущено: ") + job.count() + L(" targets", " maqsad", " целей")
+              + (resumed > 0 ? L(", resumed ", ", davom ", ", продолжено ") + resumed : "") + ", journal " + journal
+          : L("Encoding failed: ", "Kodlash xato: ", "Ошибка кодирования: ") + r.code());
     });
 
-    registry.register("write-epc-by-tid", "write-epc-by-tid <tid> <epc> <password>", (args, ctx) -> {
-      if (args.size() < 4) {
-        ctx.ui().println("Usage: write-epc-by-tid <tid> <epc> <password>");
+    registry.register("tagops", "tagops status | policy [verify=on|off] [attempts=n] [step=dB] [maxpower=dBm] [maxms=ms]", (args, ctx) -> {
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "status";
+      TagOps ops = ctx.reader().tagOps();
+      if (sub.equals("policy")) {
+        TagOps.Policy p = ops.policy();
+        for (String a : args.subList(2, args.size())) {
+          int eq = a.indexOf('=');
+          String key = eq > 0 ? a.substring(0, eq).toLowerCase() : "";
+          String val = eq > 0 ? a.substring(eq + 1).toLowerCase() : "";
+          switch (key) {
+            case "verify" -> p.verify = val.equals("on") || val.equals("1") || val.equals("true");
+            case "attempts" -> p.maxAttempts = Math.max(1, parseInt(val, p.maxAttempts));
+            case "step" -> p.powerStepDb = Math.max(0, parseInt(val, p.powerStepDb));
+            case "maxpower" -> p.maxWritePowerDb = Math.max(0, Math.min(33, parseInt(val, p.maxWritePowerDb)));
+            case "maxms" -> p.maxTotalMs = Math.max(0, parseInt(val, (int) p.maxTotalMs));
+            default -> {
+              ctx.ui().println("Usage: tagops policy [verify=on|off] [attempts=n] [step=dB] [maxpower=dBm] [maxms=ms]");
+              return;
+            }
+          }
+        }
+        ops.setPolicy(p);
+        ctx.ui().println(L("Tag op policy: ", "Tag amal siyosati: ", "Политика операций: ") + p.describe());
         return;
       }
-      if (!ctx.ui().confirm(L("Overwrite EPC by TID?", "TID orqali EPC ustiga yozilsinmi?", "Перезаписать EPC по TID?"))) return;
-      String tid = args.get(1);
-      String epc = args.get(2);
-      String pwd = args.get(3);
-      Result r = ctx.reader().writeEpcByTid(tid, epc, pwd);
-      ctx.ui().println(r.ok()
-          ? L("EPC updated.", "EPC yangilandi.", "EPC обновлён.")
-          : L("WriteEPCByTID failed: ", "WriteEPCByTID xato: ", "WriteEPCByTID ошибка: ") + r.code());
+      for (String line : ops.lines()) ctx.ui().println(line);
     });
 
     registry.register("lock", "lock <epc> <select> <protect> <password>", (args, ctx) -> {
@@ -612,10 +1735,9 @@ public final class Main {
         ctx.ui().println(L("Invalid parameters.", "Noto'g'ri parametrlar.", "Неверные параметры."));
         return;
       }
-      Result r = ctx.reader().lock(epc, select, protect, pwd);
-      ctx.ui().println(r.ok()
-          ? L("Lock success.", "Qulflash muvaffaqiyatli.", "Блокировка успешна.")
-          : L("Lock failed: ", "Qulflash xato: ", "Ошибка блокировки: ") + r.code());
+      TagOpResult r = ctx.reader().tagOps().lock(epc, select, protect, pwd, null);
+      printTagOp(ctx, r, L("Lock success.", "Qulflash muvaffaqiyatli.", "Блокировка успешна."),
+          L("Lock failed: ", "Qulflash xato: ", "Ошибка блокировки: "));
     });
 
     registry.register("kill", "kill <epc> <password>", (args, ctx) -> {
@@ -650,7 +1772,7 @@ public final class Main {
         // while users often enter 1..N or 0..N-1. Normalize to reduce "255" errors.
         ensureInventoryAntennaNormalized(ctx);
 
-        Result r = ctx.reader().startInventory();
+        Result r = configuredAntennaUsable(ctx) ? ctx.reader().startInventory() : Result.fail(255);
         if (!r.ok() && r.code() == 255) {
           // Auto-try each antenna port to find one that can start inventory.
           Result rr = tryStartInventoryOnAnyAntenna(ctx);
@@ -667,7 +1789,7 @@ public final class Main {
         return;
       }
       if (sub.equals("stop")) {
-        Result r = ctx.reader().stopInventory();
+        Result r = stopScheduler(ctx.reader()) ? Result.success() : ctx.reader().stopInventory();
         ctx.ui().println(r.ok()
             ? L("Inventory stopped.", "Inventar to'xtadi.", "Инвентарь остановлен.")
             : L("StopRead failed: ", "StopRead xato: ", "StopRead ошибка: ") + r.code());
@@ -676,42 +1798,88 @@ public final class Main {
       ctx.ui().println("Usage: inv start|stop");
     });
 
-    registry.register("inv-once", "inv-once [ms]", (args, ctx) -> {
+    registry.register("inv-once", "inv-once [ms] [top]", (args, ctx) -> {
       int ms = args.size() >= 2 ? parseInt(args.get(1), 1000) : 1000;
+      int top = args.size() >= 3 ? parseInt(args.get(2), 20) : 20;
       if (ms < 50) ms = 50;
       if (!ctx.reader().isConnected()) {
         ctx.ui().println(L("Not connected.", "Ulanmagan.", "Не подключено."));
         return;
       }
+      CompletableFuture<InventorySnapshot> f = ctx.reader().snapshots().start(ms, () -> startInventoryWithFallback(ctx));
+      ctx.ui().println(L("Scanning for ", "Skan qilinmoqda ", "Сканирование ") + ms + " ms ...");
+      InventorySnapshot snap;
+      try {
+        snap = f.join();
+      } catch (RuntimeException e) {
+        ctx.ui().println(L("Scan cancelled.", "Skan bekor qilindi.", "Сканирование отменено."));
+        return;
+      }
+      if (!snap.result().ok()) {
+        ctx.ui().println(L("StartRead failed: ", "StartRead xato: ", "StartRead ошибка: ") + snap.result().code());
+        return;
+      }
+      for (String line : snapshotLines(snap, top)) ctx.ui().println(line);
+    }, "once");
 
-      ensureInventoryAntennaNormalized(ctx);
-
-      Result r = ctx.reader().startInventory();
-      if (!r.ok()) {
-        if (r.code() == 255) {
-          Result rr = tryStartInventoryOnAnyAntenna(ctx);
-          if (rr.ok()) {
-            r = rr;
-          } else {
-            ctx.ui().println(L("StartRead failed: ", "StartRead xato: ", "StartRead ошибка: ") + rr.code());
-            return;
+    registry.register("snap", "snap start [ms] | list | show [id] [top] | cancel <id|all>", (args, ctx) -> {
+      String usage = "Usage: snap start [ms] | list | show [id] [top] | cancel <id|all>";
+      String sub = args.size() >= 2 ? args.get(1).toLowerCase() : "list";
+      ReaderClient reader = ctx.reader();
+      if (sub.equals("start")) {
+        int ms = args.size() >= 3 ? parseInt(args.get(2), 1000) : 1000;
+        if (!reader.isConnected()) {
+          ctx.ui().println(L("Not connected.", "Ulanmagan.", "Не подключено."));
+          return;
+        }
+        reader.snapshots().start(ms, () -> startInventoryWithFallback(ctx)).whenComplete((snap, t) -> {
+          if (snap == null) return;
+          synchronized (SNAPSHOTS) {
+            SNAPSHOTS.put(snap.id(), snap);
+            while (SNAPSHOTS.size() > 20) SNAPSHOTS.remove(SNAPSHOTS.keySet().iterator().next());
           }
-        } else {
-          ctx.ui().println(L("StartRead failed: ", "StartRead xato: ", "StartRead ошибка: ") + r.code());
+          ctx.ui().println(snapshotLines(snap, 0).get(0));
+        });
+        ctx.ui().println(L("Snapshot started: ", "Snapshot boshlandi: ", "Снимок запущен: ") + ms + " ms");
+        return;
+      }
+      if (sub.equals("cancel")) {
+        if (args.size() < 3) {
+          ctx.ui().println(usage);
+          return;
+        }
+        int n = args.get(2).equalsIgnoreCase("all") ? reader.snapshots().cancelAll()
+            : reader.snapshots().cancel(parseInt(args.get(2), -1)) ? 1 : 0;
+        ctx.ui().println(L("Cancelled: ", "Bekor qilindi: ", "Отменено: ") + n);
+        return;
+      }
+      if (sub.equals("show")) {
+        InventorySnapshot snap;
+        synchronized (SNAPSHOTS) {
+          long id = args.size() >= 3 ? parseInt(args.get(2), -1) : -1;
+          snap = id >= 0 ? SNAPSHOTS.get(id) : null;
+          if (id < 0) {
+            for (InventorySnapshot s : SNAPSHOTS.values()) snap = s;
+          }
+        }
+        if (snap == null) {
+          ctx.ui().println(L("No such snapshot.", "Bunday snapshot yo'q.", "Нет такого снимка."));
           return;
         }
+        for (String line : snapshotLines(snap, args.size() >= 4 ? parseInt(args.get(3), 50) : 50)) ctx.ui().println(line);
+        return;
       }
-      ctx.ui().println(L("Scanning for ", "Skan qilinmoqda ", "Сканирование ") + ms + " ms ...");
-      try {
-        Thread.sleep(ms);
-      } catch (InterruptedException ignored) {
-        Thread.currentThread().interrupt();
-      }
-      Result stop = ctx.reader().stopInventory();
-      ctx.ui().println(stop.ok()
-          ? L("Scan stopped.", "Skan to'xtadi.", "Сканирование остановлено.")
-          : L("StopRead failed: ", "StopRead xato: ", "StopRead ошибка: ") + stop.code());
-    }, "once");
+      if (!sub.equals("list")) {
+        ctx.ui().println(usage);
+        return;
+      }
+      for (ReaderClient r : ctx.pool().all()) {
+        for (String line : r.snapshots().lines()) ctx.ui().println(L("running ", "ishlamoqda ", "идёт ") + line);
+      }
+      synchronized (SNAPSHOTS) {
+        for (InventorySnapshot snap : SNAPSHOTS.values()) ctx.ui().println(snapshotLines(snap, 0).get(0));
+      }
+    });
 
     registry.register("inv-param", "inv-param get | set [session q scanTime readType readMem readPtr readLen tidPtr tidLen antenna password [address]]",
         (args, ctx) -> {
@@ -730,7 +1898,7 @@ public final class Main {
             return;
           }
           if (sub.equals("set")) {
-            InventoryParams current = ctx.reader().getInventoryParams();
+            InventoryParams current = ctx.reader().cachedInventoryParams();
             if (args.size() >= 13) {
               int session = parseInt(args.get(2), current.session());
               int q = parseInt(args.get(3), current.qValue());
@@ -768,22 +1936,24 @@ public final class Main {
     for (var def : registry.listUnique()) {
       ui.println("  " + def.name() + " - " + def.help());
     }
+    ui.println("  @<id>|@all <command> - " + L("run on one reader or all readers", "bitta yoki barcha readerlarda bajarish", "выполнить на одном или всех ридерах"));
     ui.println("  help - " + L("show this help", "yordamni ko'rsatish", "показать справку"));
     ui.println("  menu - " + L("back to menu", "menyuga qaytish", "вернуться в меню"));
     ui.println("  quit - " + L("exit", "chiqish", "выход"));
   }
 
-  private static void menuLoop(ConsoleUi ui, ReaderClient reader, ErpPusher erp, CommandRegistry registry) {
-    CommandContext ctx = new CommandContext(reader, ui, erp);
+  private static void menuLoop(ConsoleUi ui, ReaderPool pool, ErpPusher erp, CommandRegistry registry) {
+    CommandContext ctx = new CommandContext(pool, ui, erp);
+    pool.setTagSink(tag -> handleTag(ctx, tag));
     boolean autoTried = false;
     MenuId forwardTarget = null;
     while (true) {
-      if (!autoTried && !reader.isConnected()) {
+      if (!autoTried && !ctx.reader().isConnected()) {
         autoTried = true;
         attemptAutoConnect(ui, ctx);
       }
-      updateStatus(ui, reader, erp);
-      String status = reader.isConnected()
+      updateStatus(ui, pool, erp);
+      String status = ctx.reader().isConnected()
           ? L("connected", "ulangan", "подключено")
           : L("disconnected", "uzilgan", "отключено");
       int sel = ui.selectOption(
@@ -834,7 +2004,7 @@ public final class Main {
           forwardTarget = MenuId.SETTINGS;
         }
         default -> {
-          reader.disconnect();
+          pool.shutdown();
           return;
         }
       }
@@ -851,7 +2021,7 @@ public final class Main {
         L("Back", "Orqaga", "Назад")
     };
     while (true) {
-      updateStatus(ui, ctx.reader(), ctx.erp());
+      updateStatus(ui, ctx.pool(), ctx.erp());
       int sel = ui.selectOption(L("Settings", "Sozlamalar", "Настройки"), options, 0);
       if (sel == ConsoleUi.NAV_BACK) return;
       if (sel == ConsoleUi.NAV_FORWARD) sel = ui.getLastMenuIndex();
@@ -875,19 +2045,16 @@ public final class Main {
       readerType = last.readerType;
       log = last.log;
       if (isPortOpen(last.host, last.port, 150)) {
-        Result r = ctx.reader().connect(last.host, last.port, readerType, log, tag -> handleTag(ctx, tag), () -> {});
+        Result r = ctx.pool().connect(ctx.reader(), last.host, last.port, readerType, log);
         if (r.ok()) {
           ui.setStatusMessage(L("Auto-connect: ", "Avto-ulan: ", "Автоподключение: ") + last.host + "@" + last.port);
           return;
         }
       }
     }
-    List<String> prefixes = NetworkScanner.detectPrefixes();
-    List<String> usbPrefixes = NetworkScanner.detectUsbPrefixes();
-    List<String> all = new ArrayList<>();
-    all.addAll(prefixes);
-    for (String p : usbPrefixes) {
-      if (!all.contains(p)) all.add(p);
+    List<Subnet> all = new ArrayList<>(NetworkScanner.detectSubnets());
+    for (Subnet sn : NetworkScanner.detectUsbSubnets()) {
+      if (!all.contains(sn)) all.add(sn);
     }
     if (all.isEmpty()) {
       ui.setStatusMessage(L("Auto-connect: no LAN/USB prefixes found.", "Avto-ulan: LAN/USB prefikslar topilmadi.", "Автоподключение: LAN/USB префиксы не найдены."));
@@ -896,25 +2063,16 @@ public final class Main {
     final NetworkScanner.HostPort[] found = {null};
     final int rt = readerType;
     final int lg = log;
+    Map<Integer, Integer> hits = loadPortHits();
     ui.runWithSpinner(L("Auto-connecting", "Avto-ulanmoqda", "Автоподключение"), () -> {
-      for (String pfx : all) {
-        for (int p : ports) {
-          NetworkScanner.HostPort hp = NetworkScanner.findReader(
-              List.of(pfx), List.of(p), rt, lg, Duration.ofMillis(120)
-          );
-          if (hp != null) {
-            found[0] = hp;
-            return;
-          }
-        }
-      }
+      found[0] = NetworkScanner.discover(all, ports, hits, rt, lg, Duration.ofMillis(120), msg -> {}).found();
     });
     if (found[0] == null) {
       ui.setStatusMessage(L("Auto-connect: no reader found.", "Avto-ulan: reader topilmadi.", "Автоподключение: ридер не найден."));
       return;
     }
     NetworkScanner.HostPort hp = found[0];
-    Result r = ctx.reader().connect(hp.host(), hp.port(), readerType, log, tag -> handleTag(ctx, tag), () -> {});
+    Result r = ctx.pool().connect(ctx.reader(), hp.host(), hp.port(), readerType, log);
     if (r.ok()) {
       rememberConnection(hp.host(), hp.port(), readerType, log);
       ui.setStatusMessage(L("Auto-connect: ", "Avto-ulan: ", "Автоподключение: ") + hp.host() + "@" + hp.port());
@@ -937,19 +2095,28 @@ public final class Main {
 
   private static void menuConnection(ConsoleUi ui, CommandContext ctx, CommandRegistry registry) {
     while (true) {
-      updateStatus(ui, ctx.reader(), ctx.erp());
+      updateStatus(ui, ctx.pool(), ctx.erp());
       int sel = ui.selectOption(
           L("Connection", "Ulanish", "Подключение"),
-          new String[]{L("Connect", "Ulanish", "Подключить"), L("Disconnect", "Uzish", "Отключить"), L("Back", "Orqaga", "Назад")},
+          new String[]{
+              L("Connect", "Ulanish", "Подключить"),
+              L("Disconnect", "Uzish", "Отключить"),
+              L("Readers", "Readerlar", "Ридеры"),
+              L("Back", "Orqaga", "Назад")
+          },
           0
       );
       if (sel == ConsoleUi.NAV_BACK) return;
       if (sel == ConsoleUi.NAV_FORWARD) sel = ui.getLastMenuIndex();
-      if (sel == 2) return;
+      if (sel == 3) return;
       if (sel == 1) {
         registry.execute(List.of("disconnect"), ctx);
         continue;
       }
+      if (sel == 2) {
+        menuReaders(ui, ctx, registry);
+        continue;
+      }
       String ip = askString(ui, L("IP address", "IP manzil", "IP адрес"));
       if (ip == null || ip.isBlank()) {
         ui.println(L("IP is required.", "IP kiritilishi shart.", "IP обязателен."));
@@ -964,9 +2131,47 @@ public final class Main {
     }
   }
 
+  private static void menuReaders(ConsoleUi ui, CommandContext ctx, CommandRegistry registry) {
+    while (true) {
+      updateStatus(ui, ctx.pool(), ctx.erp());
+      int sel = ui.selectOption(
+          L("Readers", "Readerlar", "Ридеры") + " [" + ctx.pool().activeId() + "]",
+          new String[]{
+              L("List", "Ro'yxat", "Список"),
+              L("Add", "Qo'shish", "Добавить"),
+              L("Select active", "Faolni tanlash", "Выбрать активный"),
+              L("Remove", "O'chirish", "Удалить"),
+              L("Back", "Orqaga", "Назад")
+          },
+          0
+      );
+      if (sel == ConsoleUi.NAV_BACK) return;
+      if (sel == ConsoleUi.NAV_FORWARD) sel = ui.getLastMenuIndex();
+      if (sel == 4) return;
+      if (sel == 0) {
+        ui.showLines(L("Readers", "Readerlar", "Ридеры"), readerLines(ctx.pool()));
+        continue;
+      }
+      if (sel == 1) {
+        String id = askString(ui, L("Reader id", "Reader id", "ID ридера"), "r" + (ctx.pool().size() + 1));
+        registry.execute(List.of("reader", "add", id), ctx);
+        ctx.pool().select(id);
+        continue;
+      }
+      List<ReaderClient> readers = ctx.pool().all();
+      String[] ids = new String[readers.size()];
+      for (int i = 0; i < ids.length; i++) ids[i] = readers.get(i).id() + " (" + readerStateShort(readers.get(i)) + ")";
+      int pick = ui.selectOption(L("Reader", "Reader", "Ридер"), ids, 0);
+      if (pick == ConsoleUi.NAV_BACK) continue;
+      if (pick == ConsoleUi.NAV_FORWARD) pick = ui.getLastMenuIndex();
+      if (pick < 0 || pick >= readers.size()) continue;
+      registry.execute(List.of("reader", sel == 2 ? "use" : "remove", readers.get(pick).id()), ctx);
+    }
+  }
+
   private static void menuScan(ConsoleUi ui, CommandContext ctx, CommandRegistry registry) {
     while (true) {
-      updateStatus(ui, ctx.reader(), ctx.erp());
+      updateStatus(ui, ctx.pool(), ctx.erp());
       int sel = ui.selectOption(
           L("Scan", "Skanner", "Скан"),
           new String[]{
@@ -1018,7 +2223,7 @@ public final class Main {
 
   private static void menuInventory(ConsoleUi ui, CommandContext ctx, CommandRegistry registry) {
     while (true) {
-      updateStatus(ui, ctx.reader(), ctx.erp());
+      updateStatus(ui, ctx.pool(), ctx.erp());
       int sel = ui.selectOption(
           L("Inventory", "Inventar", "Инвентарь"),
           new String[]{
@@ -1054,7 +2259,7 @@ public final class Main {
           ui.setStatusMessage(L("Not connected.", "Ulanmagan.", "Не подключено."));
           continue;
         }
-        InventoryParams current = ctx.reader().getInventoryParams();
+        InventoryParams current = ctx.reader().cachedInventoryParams();
         InventoryParams p = promptInventoryParams(ui, current, ctx.reader().getAntennaCount());
         Result r = ctx.reader().setInventoryParams(p);
         ui.println(r.ok() ? L("Inventory params updated.", "Inventar parametrlari yangilandi.", "Параметры обновлены.")
@@ -1077,7 +2282,7 @@ public final class Main {
         L("Back", "Orqaga", "Назад")
     };
     while (true) {
-      updateStatus(ui, ctx.reader(), ctx.erp());
+      updateStatus(ui, ctx.pool(), ctx.erp());
       int sel = ui.selectOption(L("Tag Ops", "Tag amallari", "Операции тегов"), options, 0);
       if (sel == ConsoleUi.NAV_BACK) return;
       if (sel == ConsoleUi.NAV_FORWARD) sel = ui.getLastMenuIndex();
@@ -1146,7 +2351,7 @@ public final class Main {
         L("Back", "Orqaga", "Назад")
     };
     while (true) {
-      updateStatus(ui, ctx.reader(), ctx.erp());
+      updateStatus(ui, ctx.pool(), ctx.erp());
       int sel = ui.selectOption(L("Config/IO", "Sozlamalar/IO", "Настройки/IO"), options, 0);
       if (sel == ConsoleUi.NAV_BACK) return;
       if (sel == ConsoleUi.NAV_FORWARD) sel = ui.getLastMenuIndex();
@@ -1246,6 +2451,7 @@ public final class Main {
   private static void menuErp(ConsoleUi ui, CommandContext ctx) {
     String[] options = {
         L("Status", "Holat", "Статус"),
+        L("Metrics", "Metrikalar", "Метрики"),
         L("Enable", "Yoqish", "Включить"),
         L("Disable", "O'chirish", "Выключить"),
         L("Set URL", "URL sozlash", "URL"),
@@ -1254,32 +2460,34 @@ public final class Main {
         L("Back", "Orqaga", "Назад")
     };
     while (true) {
-      updateStatus(ui, ctx.reader(), ctx.erp());
+      updateStatus(ui, ctx.pool(), ctx.erp());
       int sel = ui.selectOption(L("ERP Push", "ERP Push", "ERP Push"), options, 0);
       if (sel == ConsoleUi.NAV_BACK) return;
       if (sel == ConsoleUi.NAV_FORWARD) sel = ui.getLastMenuIndex();
-      if (sel == 6) return;
+      if (sel == 7) return;
       ErpConfig cfg = copyErpConfig(ctx.erp().config());
       switch (sel) {
         case 0 -> ui.showLines(L("ERP Status", "ERP holati", "Статус ERP"), List.of(
             L("enabled", "yoqilgan", "включено") + "=" + cfg.enabled,
             L("url", "url", "url") + "=" + safe(cfg.baseUrl),
             L("endpoint", "endpoint", "endpoint") + "=" + safe(cfg.endpoint),
+            L("format", "format", "формат") + "=" + safe(cfg.payloadFormat),
             L("device", "qurilma", "устройство") + "=" + safe(cfg.device),
             L("auth", "auth", "auth") + "=" + (cfg.auth == null || cfg.auth.isBlank() ? L("(empty)", "(bo'sh)", "(пусто)") : "***"),
             L("secret", "secret", "secret") + "=" + (cfg.secret == null || cfg.secret.isBlank() ? L("(empty)", "(bo'sh)", "(пусто)") : "***")
         ));
-        case 1 -> {
+        case 1 -> ui.viewLinesPaged(L("ERP Metrics", "ERP metrikalar", "Метрики ERP"), erpMetricsLines(ctx.erp()), 12);
+        case 2 -> {
           cfg.enabled = true;
           saveErpConfig(ctx.erp(), cfg);
           ui.setStatusMessage(L("ERP push enabled.", "ERP push yoqildi.", "ERP push включен."));
         }
-        case 2 -> {
+        case 3 -> {
           cfg.enabled = false;
           saveErpConfig(ctx.erp(), cfg);
           ui.setStatusMessage(L("ERP push disabled.", "ERP push o'chirildi.", "ERP push выключен."));
         }
-        case 3 -> {
+        case 4 -> {
           String url;
           while (true) {
             url = askStringOrBack(ui, L("ERP URL", "ERP URL", "ERP URL"), safe(cfg.baseUrl));
@@ -1304,7 +2512,7 @@ public final class Main {
                 : L("ERP check: failed (", "ERP tekshiruv: xato (", "ERP проверка: ошибка (") + msg + ")");
           }
         }
-        case 4 -> {
+        case 5 -> {
           int count = askInt(ui, L("Fake tags count", "Fake tag soni", "Кол-во fake тегов"), 5);
           final boolean[] ok = {false};
           ui.runWithSpinner(L("Sending test tags", "Test taglar yuborilmoqda", "Отправка тестовых тегов"),
@@ -1318,7 +2526,7 @@ public final class Main {
                 : L("ERP test tags: failed (", "ERP test taglar: xato (", "ERP тестовые теги: ошибка (") + msg + ")");
           }
         }
-        case 5 -> {
+        case 6 -> {
           String[] items = {
               L("Instant (0 ms)", "Darhol (0 ms)", "Сразу (0 мс)"),
               "10 ms",
@@ -1376,7 +2584,7 @@ public final class Main {
         L("Back", "Orqaga", "Назад")
     };
     while (true) {
-      updateStatus(ui, ctx.reader(), ctx.erp());
+      updateStatus(ui, ctx.pool(), ctx.erp());
       int sel = ui.selectOption(L("Per-Antenna Power", "Antenna bo'yicha quvvat", "Мощность по антеннам"), options, 0);
       if (sel == ConsoleUi.NAV_BACK) return;
       if (sel == ConsoleUi.NAV_FORWARD) sel = ui.getLastMenuIndex();
@@ -1411,7 +2619,7 @@ public final class Main {
         continue;
       }
       int[] powers = new int[count];
-      AntennaPowerInfo current = ctx.reader().getRfPowerByAnt(count);
+      AntennaPowerInfo current = ctx.reader().cachedRfPowerByAnt(count);
       if (current.result().ok() && current.powers().length == count) {
         System.arraycopy(current.powers(), 0, powers, 0, count);
       } else {
@@ -1441,7 +2649,7 @@ public final class Main {
         L("Back", "Orqaga", "Назад")
     };
     while (true) {
-      updateStatus(ui, ctx.reader(), ctx.erp());
+      updateStatus(ui, ctx.pool(), ctx.erp());
       int sel = ui.selectOption(L("Antenna Check", "Antenna tekshiruv", "Проверка антенны"), options, 0);
       if (sel == ConsoleUi.NAV_BACK) return;
       if (sel == ConsoleUi.NAV_FORWARD) sel = ui.getLastMenuIndex();
@@ -1461,16 +2669,39 @@ public final class Main {
 
   private static void menuReturnLoss(ConsoleUi ui, CommandContext ctx) {
     while (true) {
-      updateStatus(ui, ctx.reader(), ctx.erp());
+      updateStatus(ui, ctx.pool(), ctx.erp());
       int sel = ui.selectOption(L("Return Loss", "Qaytish yo'qotish", "Возвратные потери"),
-          new String[]{L("Measure", "O'lchash", "Измерить"), L("Back", "Orqaga", "Назад")}, 0);
+          new String[]{L("Measure", "O'lchash", "Измерить"), L("Sweep all antennas", "Barcha antennalarni skan", "Сканировать все антенны"),
+              L("Last sweep", "Oxirgi skan", "Последнее сканирование"), L("Back", "Orqaga", "Назад")}, 0);
       if (sel == ConsoleUi.NAV_BACK) return;
       if (sel == ConsoleUi.NAV_FORWARD) sel = ui.getLastMenuIndex();
-      if (sel == 1) return;
+      if (sel == 3) return;
+      if (sel == 2) {
+        SweepResult last = LAST_SWEEP;
+        if (last == null) {
+          ui.setStatusMessage(L("No sweep yet.", "Hali skan yo'q.", "Сканирования ещё не было."));
+        } else {
+          ui.showLines(L("Return Loss Sweep", "Qaytish yo'qotish skani", "Сканирование потерь"), returnLossHeatmap(last));
+        }
+        continue;
+      }
       if (!ctx.reader().isConnected()) {
         ui.setStatusMessage(L("Not connected.", "Ulanmagan.", "Не подключено."));
         continue;
       }
+      if (sel == 1) {
+        List<Integer> ants = new ArrayList<>();
+        for (int a = 1; a <= ctx.reader().getAntennaCount(); a++) ants.add(a);
+        SweepResult[] out = new SweepResult[1];
+        ui.runWithSpinner(L("Sweeping...", "Skan qilinmoqda...", "Сканирование..."),
+            () -> out[0] = runReturnLossSweep(ctx, ants, -1));
+        if (out[0] == null) {
+          ui.setStatusMessage(L("Unknown region band.", "Noma'lum hudud band.", "Неизвестный диапазон."));
+        } else {
+          ui.showLines(L("Return Loss Sweep", "Qaytish yo'qotish skani", "Сканирование потерь"), returnLossHeatmap(out[0]));
+        }
+        continue;
+      }
       int ant = selectAntennaIndex(ui, ctx.reader().getAntennaCount(), 0);
       if (ant == ConsoleUi.NAV_BACK) continue;
       Double freqMHz = selectReturnLossFreq(ui);
@@ -1497,7 +2728,7 @@ public final class Main {
         L("Back", "Orqaga", "Назад")
     };
     while (true) {
-      updateStatus(ui, ctx.reader(), ctx.erp());
+      updateStatus(ui, ctx.pool(), ctx.erp());
       int sel = ui.selectOption(L("Write Power", "Yozish quvvati", "Мощность записи"), options, 0);
       if (sel == ConsoleUi.NAV_BACK) return;
       if (sel == ConsoleUi.NAV_FORWARD) sel = ui.getLastMenuIndex();
@@ -1511,7 +2742,7 @@ public final class Main {
         continue;
       }
       int def = 30;
-      WritePowerInfo info = ctx.reader().getWritePower();
+      WritePowerInfo info = ctx.reader().cachedWritePower();
       if (info.result().ok()) def = info.power();
       int p = selectPowerValue(ui, L("Write Power", "Yozish quvvati", "Мощность записи"), def);
       if (p == ConsoleUi.NAV_BACK) continue;
@@ -1521,14 +2752,16 @@ public final class Main {
 
   private static void menuInfo(ConsoleUi ui, CommandContext ctx, CommandRegistry registry) {
     while (true) {
-      updateStatus(ui, ctx.reader(), ctx.erp());
+      updateStatus(ui, ctx.pool(), ctx.erp());
       int sel = ui.selectOption(L("Info", "Ma'lumot", "Инфо"),
-          new String[]{L("Reader info", "Reader ma'lumoti", "Инфо ридера"), L("Serial", "Seriya raqam", "Серийный"), L("Back", "Orqaga", "Назад")}, 0);
+          new String[]{L("Reader info", "Reader ma'lumoti", "Инфо ридера"), L("Serial", "Seriya raqam", "Серийный"),
+              L("SDK timings", "SDK vaqtlari", "Тайминги SDK"), L("Back", "Orqaga", "Назад")}, 0);
       if (sel == ConsoleUi.NAV_BACK) return;
       if (sel == ConsoleUi.NAV_FORWARD) sel = ui.getLastMenuIndex();
-      if (sel == 2) return;
+      if (sel == 3) return;
       if (sel == 0) registry.execute(List.of("info"), ctx);
       if (sel == 1) registry.execute(List.of("serial"), ctx);
+      if (sel == 2) ui.viewLinesPaged(L("SDK timings", "SDK vaqtlari", "Тайминги SDK"), sdkStatsLines(ctx.pool()), 16);
     }
   }
 
@@ -1837,7 +3070,7 @@ public final class Main {
 
   private static void ensureInventoryAntennaNormalized(CommandContext ctx) {
     try {
-      InventoryParams cur = ctx.reader().getInventoryParams();
+      InventoryParams cur = ctx.reader().cachedInventoryParams();
       if (!cur.result().ok()) return;
       int n = ctx.reader().getAntennaCount();
       int normalized = normalizeInventoryAntenna(cur.antenna(), n);
@@ -1852,8 +3085,45 @@ public final class Main {
     }
   }
 
+  private static Result startInventoryWithFallback(CommandContext ctx) {
+    ensureInventoryAntennaNormalized(ctx);
+    Result r = configuredAntennaUsable(ctx) ? ctx.reader().startInventory() : Result.fail(255);
+    return !r.ok() && r.code() == 255 ? tryStartInventoryOnAnyAntenna(ctx) : r;
+  }
+
+  private static List<String> snapshotLines(InventorySnapshot snap, int top) {
+    List<String> lines = new ArrayList<>();
+    lines.add("#" + snap.id() + " " + snap.readerId() + " " + snap.durationMs() + " ms: " + snap.unique()
+        + L(" unique, ", " noyob, ", " уникальных, ") + snap.reads() + L(" reads", " o'qish", " чтений")
+        + (snap.cancelled() ? L(" (cancelled)", " (bekor)", " (отменён)") : "")
+        + (snap.result().ok() ? "" : " rc=" + snap.result().code()));
+    int n = Math.min(Math.max(0, top), snap.unique());
+    for (int i = 0; i < n; i++) {
+      InventorySnapshot.Tag t = snap.tags().get(i);
+      lines.add(String.format("  %-32s x%-5d rssi=%-4d ant=%d", t.epc(), t.count(), t.bestRssi(), t.bestAnt()));
+    }
+    if (n < snap.unique() && top > 0) lines.add("  ... +" + (snap.unique() - n));
+    return lines;
+  }
+
+  private static boolean configuredAntennaUsable(CommandContext ctx) {
+    InventoryParams cur = ctx.reader().cachedInventoryParams();
+    return !cur.result().ok() || cur.antenna() < 0x80 || ctx.reader().health().usable(cur.antenna() - 0x7F);
+  }
+
+  private static int probeFreqKhz(ReaderClient reader) {
+    ReaderInfo info = reader.cachedInfo();
+    for (RegionOption opt : regionOptions()) {
+      if (!info.result().ok() || opt.band() != info.band()) continue;
+      int lo = Math.max(0, Math.min(info.minFreq(), opt.count() - 1));
+      int hi = Math.max(lo, Math.min(info.maxFreq(), opt.count() - 1));
+      return (int) Math.round((opt.startMhz() + opt.stepMhz() * ((lo + hi) / 2)) * 1000.0);
+    }
+    return 915_000;
+  }
+
   private static Result tryStartInventoryOnAnyAntenna(CommandContext ctx) {
-    InventoryParams cur = ctx.reader().getInventoryParams();
+    InventoryParams cur = ctx.reader().cachedInventoryParams();
     if (!cur.result().ok()) return Result.fail(cur.result().code());
     int n = ctx.reader().getAntennaCount();
     int original = cur.antenna();
@@ -1862,7 +3132,7 @@ public final class Main {
     // Try each antenna port in vendor-expected encoding.
     for (int i = 0; i < Math.max(1, n); i++) {
       int ant = 0x80 + i;
-      if (ant == originalNorm) continue;
+      if (ant == originalNorm || !ctx.reader().health().usable(i + 1)) continue;
       InventoryParams p = new InventoryParams(Result.success(), cur.address(), cur.tidPtr(), cur.tidLen(), cur.session(), cur.qValue(),
           cur.scanTime(), ant, cur.readType(), cur.readMem(), cur.readPtr(), cur.readLength(), cur.password());
       Result set = ctx.reader().setInventoryParams(p);
@@ -1939,6 +3209,136 @@ public final class Main {
     return sel;
   }
 
+  private static SweepResult runReturnLossSweep(CommandContext ctx, List<Integer> ants, int bandOverride) {
+    ReaderClient reader = ctx.reader();
+    ReaderInfo info = reader.cachedInfo();
+    int band = bandOverride >= 0 ? bandOverride : info.result().ok() ? info.band() : -1;
+    RegionOption opt = null;
+    for (RegionOption o : regionOptions()) {
+      if (o.band() == band) opt = o;
+    }
+    if (opt == null) return null;
+    int lo = 0;
+    int hi = opt.count() - 1;
+    if (bandOverride < 0 && info.result().ok()) {
+      lo = Math.max(0, Math.min(info.minFreq(), hi));
+      hi = Math.max(lo, Math.min(info.maxFreq(), hi));
+    }
+    int[] freqs = new int[hi - lo + 1];
+    for (int i = 0; i < freqs.length; i++) freqs[i] = (int) Math.round((opt.startMhz() + opt.stepMhz() * (lo + i)) * 1000.0);
+    int[] antennas = ants.stream().mapToInt(Integer::intValue).toArray();
+    ReturnLossMap map = new ReturnLossMap(antennas, freqs);
+    Result r = ReturnLossSweep.run(reader, map, row -> ctx.ui().setStatusMessage(
+        L("Sweep: antenna ", "Skan: antenna ", "Сканирование: антенна ") + map.antenna(row) + " (" + (row + 1) + "/"
+            + antennas.length + ")"));
+    if (!r.ok()) ctx.ui().setStatusMessage(L("Sweep finished with errors: ", "Skan xatolar bilan: ", "Сканирование с ошибками: ") + r.code());
+    SweepResult result = new SweepResult(reader.id(), band, opt.label(), map);
+    LAST_SWEEP = result;
+    return result;
+  }
+
+  private static List<String> returnLossHeatmap(SweepResult sweep) {
+    ReturnLossMap m = sweep.map();
+    List<String> out = new ArrayList<>();
+    int chs = m.channelCount();
+    out.add(sweep.readerId() + " " + sweep.region() + " " + formatMHz(m.freqKhz(0) / 1000.0) + "-"
+        + formatMHz(m.freqKhz(chs - 1) / 1000.0) + " MHz, " + chs + " ch, "
+        + String.format(java.util.Locale.US, "%.1f s", (m.finishedAt() - m.startedAt()) / 1000.0));
+    StringBuilder axis = new StringBuilder("      ");
+    for (int ch = 0; ch < chs; ch++) axis.append(ch % 10 == 0 ? (char) ('0' + (ch / 10) % 10) : ch % 5 == 0 ? '\'' : ' ');
+    out.add(axis.toString());
+    for (int row = 0; row < m.antennaCount(); row++) {
+      StringBuilder sb = new StringBuilder(String.format("ant%-2d ", m.antenna(row)));
+      for (int ch = 0; ch < chs; ch++) sb.append(heatCell(m.get(row, ch)));
+      out.add(sb.toString());
+    }
+    out.add(L("legend: █ <3 dB  ▓ <6  ▒ <10  ░ <15  · ≥15  ? failed", "belgilar: █ <3 dB  ▓ <6  ▒ <10  ░ <15  · ≥15  ? xato",
+        "легенда: █ <3 dB  ▓ <6  ▒ <10  ░ <15  · ≥15  ? ошибка"));
+    int worstRow = -1;
+    int worstCh = -1;
+    for (int row = 0; row < m.antennaCount(); row++) {
+      int w = m.worstChannel(row);
+      if (w < 0) {
+        out.add(String.format("ant%-2d %s", m.antenna(row), L("no data", "ma'lumot yo'q", "нет данных")));
+        continue;
+      }
+      int db = m.get(row, w);
+      out.add(String.format(java.util.Locale.US, "ant%-2d min %2d dB @ %s MHz  VSWR %s  mean %.1f dB%s", m.antenna(row), db,
+          formatMHz(m.freqKhz(w) / 1000.0), formatVswr(db), m.mean(row),
+          m.failures(row) > 0 ? "  " + L("failed ", "xato ", "ошибок ") + m.failures(row) : ""));
+      if (worstRow < 0 || db < m.get(worstRow, worstCh)) {
+        worstRow = row;
+        worstCh = w;
+      }
+    }
+    if (worstRow >= 0) {
+      out.add(L("Worst: ant", "Eng yomon: ant", "Худшая: ант") + m.antenna(worstRow) + " " + m.get(worstRow, worstCh) + " dB @ "
+          + formatMHz(m.freqKhz(worstCh) / 1000.0) + " MHz (VSWR " + formatVswr(m.get(worstRow, worstCh)) + ")");
+    }
+    return out;
+  }
+
+  private static char heatCell(int db) {
+    if (db == ReturnLossMap.UNMEASURED) return '?';
+    if (db < 3) return '█';
+    if (db < 6) return '▓';
+    if (db < 10) return '▒';
+    if (db < 15) return '░';
+    return '·';
+  }
+
+  private static String formatVswr(int returnLossDb) {
+    double v = ReturnLossMap.vswr(returnLossDb);
+    return v > 99 ? ">99" : String.format(java.util.Locale.US, "%.2f", v);
+  }
+
+  private static void printTagOp(CommandContext ctx, TagOpResult r, String okMsg, String failMsg) {
+    String detail = r.attempts() > 1 ? " (" + L("attempts ", "urinishlar ", "попыток ") + r.attempts()
+        + (r.writePower() >= 0 ? ", wpower " + r.writePower() + " dBm" : "") + ", " + r.elapsedMs() + " ms)" : "";
+    ctx.ui().println(r.ok()
+        ? okMsg + (r.verified() ? " " + L("Verified.", "Tekshirildi.", "Проверено.") : "") + detail
+        : failMsg + TagOps.codeName(r.result().code()) + detail);
+  }
+
+  private static Path defaultJournalPath(String source) {
+    String name = Path.of(source.replace(':', '_')).getFileName().toString().replaceAll("[^A-Za-z0-9._-]", "_");
+    return Path.of("UhfTuiLinux", "encode", name + ".journal");
+  }
+
+  private static Path defaultTagMemPath() {
+    return Path.of("UhfTuiLinux", "tagmem.bin");
+  }
+
+  private static Path defaultBulkReadPath(String readerId) {
+    String ts = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    return Path.of("UhfTuiLinux", "reads", "bulk-" + readerId + "-" + ts + ".csv");
+  }
+
+  private static Path defaultSdkStatsPath() {
+    String ts = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    return Path.of("UhfTuiLinux", "logs", "sdk-timings-" + ts + ".txt");
+  }
+
+  private static List<String> sdkStatsLines(ReaderPool pool) {
+    List<String> lines = new ArrayList<>();
+    for (ReaderClient r : pool.all()) {
+      long secs = (System.currentTimeMillis() - r.sdkStats().since()) / 1000;
+      lines.add(r.id() + " " + (r.isConnected() ? r.host() + "@" + r.port() : "-") + " window=" + secs + "s");
+      for (String line : r.sdkStats().lines()) lines.add("  " + line);
+    }
+    SdkCallStats probe = ReaderClient.probeSdkStats();
+    if (!probe.snapshot().isEmpty()) {
+      lines.add("scan probes window=" + (System.currentTimeMillis() - probe.since()) / 1000 + "s");
+      for (String line : probe.lines()) lines.add("  " + line);
+    }
+    return lines;
+  }
+
+  private static Path defaultSweepPath(String readerId) {
+    String ts = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    return Path.of("UhfTuiLinux", "sweeps", "rl-" + readerId + "-" + ts + ".json");
+  }
+
   private static Double selectReturnLossFreq(ConsoleUi ui) {
     RegionOption[] options = regionOptions();
     String[] labels = new String[options.length + 1];
@@ -1983,6 +3383,30 @@ public final class Main {
   }
 
   private static void handleTag(CommandContext ctx, TagRead tag) {
+    long readNanos = System.nanoTime();
+    if (!RULES.isEmpty()) {
+      EpcRuleEngine rules = RULES.get(tag.readerId());
+      if (rules != null) rules.onTag(tag);
+    }
+    TagCapture capture = CAPTURE;
+    if (capture != null) capture.write(tag, readNanos);
+    if (!SCHEDULERS.isEmpty()) {
+      AntennaScheduler sched = SCHEDULERS.get(tag.readerId());
+      if (sched != null) sched.onTag(tag);
+    }
+    if (!QTUNERS.isEmpty()) {
+      QController q = QTUNERS.get(tag.readerId());
+      if (q != null) q.onTag(tag);
+    }
+    if (!TRIGGERS.isEmpty()) {
+      GpioTrigger trig = TRIGGERS.get(tag.readerId());
+      if (trig != null) trig.onTag(tag);
+    }
+    PowerCalibrator cal = CALIBRATION;
+    if (cal != null && cal.reader().id().equals(tag.readerId())) cal.onTag(tag);
+    EncodeJob enc = ENCODE;
+    if (enc != null && enc.reader().id().equals(tag.readerId())) enc.onTag(tag);
+    tag = MEM_CACHE.apply(tag);
     TAG_STATS.onTag(ctx.ui());
     if (TAG_OUTPUT.show) {
       ctx.ui().printTag(tag);
@@ -1990,15 +3414,90 @@ public final class Main {
     ctx.erp().enqueue(new ErpTagEvent(tag.epcId(), tag.memId(), tag.rssi(), tag.antId(), tag.ipAddr(), System.currentTimeMillis()));
   }
 
-  private static void updateStatus(ConsoleUi ui, ReaderClient reader, ErpPusher erp) {
-    String readerState = reader.isConnected()
-        ? L("UHF: connected", "UHF: ulangan", "UHF: подключено")
-        : L("UHF: disconnected", "UHF: uzilgan", "UHF: отключено");
+  private static void updateStatus(ConsoleUi ui, ReaderPool pool, ErpPusher erp) {
+    String readerState;
+    if (pool.size() <= 1) {
+      ReaderClient r = pool.active();
+      if (SUPERVISOR != null && SUPERVISOR.state(r) == ReaderSupervisor.State.RECONNECTING) {
+        readerState = L("UHF: reconnecting", "UHF: qayta ulanmoqda", "UHF: переподключение");
+      } else {
+        readerState = r.isConnected()
+            ? L("UHF: connected", "UHF: ulangan", "UHF: подключено") + probeSuffix(r)
+            : L("UHF: disconnected", "UHF: uzilgan", "UHF: отключено");
+      }
+    } else {
+      StringBuilder sb = new StringBuilder("UHF:");
+      String activeId = pool.activeId();
+      for (ReaderClient r : pool.all()) {
+        sb.append(' ').append(r.id().equals(activeId) ? "*" : "").append(r.id()).append('=').append(readerStateShort(r));
+      }
+      readerState = sb.toString();
+    }
     String erpState = erpStatus(erp, ERP_AGENT);
+    String erpMetrics = erp == null ? "" : erp.metrics().headerSummary();
+    if (!erpState.isEmpty() && !erpMetrics.isEmpty()) erpState = erpState + " " + erpMetrics;
     ui.setHeaderRight(erpState.isEmpty() ? readerState : readerState + " | " + erpState);
     ui.setStatusBase(TAG_STATS.statusLine());
   }
 
+  private static String readerStateShort(ReaderClient r) {
+    if (SUPERVISOR != null && SUPERVISOR.state(r) == ReaderSupervisor.State.RECONNECTING) {
+      return L("retry", "qayta", "повтор");
+    }
+    if (!r.isConnected()) return L("off", "uzilgan", "выкл");
+    ReaderHealthProbe.State probe = r.healthProbe().state();
+    if (probe == ReaderHealthProbe.State.UNRESPONSIVE) return L("hung", "javobsiz", "завис");
+    if (probe == ReaderHealthProbe.State.SLOW) return L("slow", "sekin", "медл");
+    if (r.isInventoryRunning()) return L("inv", "inv", "инв");
+    return L("on", "ulangan", "вкл");
+  }
+
+  private static String probeSuffix(ReaderClient r) {
+    ReaderHealthProbe probe = r.healthProbe();
+    return switch (probe.state()) {
+      case SLOW -> L(" (slow ", " (sekin ", " (медленно ") + probe.percentileUs(0.9) / 1000 + " ms)";
+      case UNRESPONSIVE -> L(" (not responding)", " (javob bermayapti)", " (не отвечает)");
+      default -> "";
+    };
+  }
+
+  private static boolean stopScheduler(ReaderClient reader) {
+    AntennaScheduler sched = SCHEDULERS.get(reader.id());
+    if (sched == null || !sched.isRunning()) return false;
+    sched.stop();
+    return true;
+  }
+
+  private static TagCapture stopCapture() {
+    TagCapture c = CAPTURE;
+    CAPTURE = null;
+    if (c != null) c.close();
+    return c;
+  }
+
+  private static TagReplay stopReplay() {
+    TagReplay r = REPLAY;
+    REPLAY = null;
+    if (r != null) r.disconnect();
+    return r;
+  }
+
+  private static Path defaultCapturePath() {
+    String ts = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    return Path.of("UhfTuiLinux", "captures", "tags-" + ts + ".uhfcap");
+  }
+
+  private static List<String> readerLines(ReaderPool pool) {
+    List<String> lines = new ArrayList<>();
+    String activeId = pool.activeId();
+    for (ReaderClient r : pool.all()) {
+      String ep = r.isConnected() ? r.host() + "@" + r.port() : "-";
+      lines.add((r.id().equals(activeId) ? "* " : "  ") + r.id() + "  " + readerStateShort(r) + "  " + ep
+          + "  ant=" + r.getAntennaCount());
+    }
+    return lines;
+  }
+
   private static List<String> listAgentUrls(int port) {
     List<String> out = new ArrayList<>();
     try {
@@ -2035,6 +3534,7 @@ public final class Main {
     p.setProperty("port", String.valueOf(port));
     p.setProperty("readerType", String.valueOf(readerType));
     p.setProperty("log", String.valueOf(log));
+    rememberPortHit(port);
     try {
       Path file = lastConnectionPath();
       Files.createDirectories(file.getParent());
@@ -2045,6 +3545,43 @@ public final class Main {
     }
   }
 
+  private static Map<Integer, Integer> loadPortHits() {
+    Map<Integer, Integer> hits = new HashMap<>();
+    Path file = portHitsPath();
+    if (!Files.exists(file)) return hits;
+    Properties p = new Properties();
+    try (var in = Files.newInputStream(file)) {
+      p.load(in);
+      for (String key : p.stringPropertyNames()) {
+        int port = parseInt(key, 0);
+        int n = parseInt(p.getProperty(key), 0);
+        if (port > 0 && n > 0) hits.put(port, n);
+      }
+    } catch (Exception ignored) {
+    }
+    return hits;
+  }
+
+  private static void rememberPortHit(int port) {
+    if (port <= 0) return;
+    Map<Integer, Integer> hits = loadPortHits();
+    hits.merge(port, 1, Integer::sum);
+    Properties p = new Properties();
+    for (Map.Entry<Integer, Integer> e : hits.entrySet()) p.setProperty(String.valueOf(e.getKey()), String.valueOf(e.getValue()));
+    try {
+      Path file = portHitsPath();
+      Files.createDirectories(file.getParent());
+      try (var out = Files.newOutputStream(file)) {
+        p.store(out, "Reader port hits");
+      }
+    } catch (Exception ignored) {
+    }
+  }
+
+  private static Path portHitsPath() {
+    return Path.of("UhfTuiLinux", "port_hits.properties");
+  }
+
   private static LastConnection loadLastConnection() {
     Path file = lastConnectionPath();
     if (!Files.exists(file)) return null;
@@ -2151,6 +3688,23 @@ public final class Main {
     return L("ERP: stale", "ERP: eskirgan", "ERP: устарело");
   }
 
+  private static List<String> erpMetricsLines(ErpPusher erp) {
+    List<String> lines = new ArrayList<>();
+    if (erp == null) return lines;
+    List<String> push = erp.metrics().lines();
+    lines.add(L("push: ", "push: ", "push: ") + push.get(0));
+    for (int i = 1; i < push.size(); i++) lines.add("  " + push.get(i));
+    long backoff = erp.backoffRemainingMs();
+    if (backoff > 0) lines.add("  " + L("backoff remaining ms=", "backoff qoldi ms=", "backoff осталось мс=") + backoff);
+    if (ERP_AGENT != null) {
+      ErpMetrics a = ERP_AGENT.metrics();
+      lines.add(L("agent: ", "agent: ", "агент: ") + "requests=" + a.requests() + " errors=" + a.requestErrors()
+          + " bytesOut=" + a.bytesOut());
+      lines.add("  latencyMs " + a.latencyMs().summary());
+    }
+    return lines;
+  }
+
   private enum ShellExit {
     BACK,
     QUIT
@@ -2244,6 +3798,8 @@ public final class Main {
     c.maxBatch = src.maxBatch;
     c.maxQueue = src.maxQueue;
     c.heartbeatMs = src.heartbeatMs;
+    c.payloadFormat = src.payloadFormat;
+    c.dedupeMs = src.dedupeMs;
     return c;
   }
 
@@ -2260,4 +3816,7 @@ public final class Main {
 
   private record RegionSelection(int band, int maxFreq, int minFreq) {
   }
+
+  private record SweepResult(String readerId, int band, String region, ReturnLossMap map) {
+  }
 }
@@ -3,82 +3,120 @@ package uhf.tui;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.InterfaceAddress;
 import java.net.NetworkInterface;
-import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import uhf.sdk.ReaderClient;
 
 public final class NetworkScanner {
+  private static final int PING_READER_PORTS = 2;
+  private static final int PING_EXTRA_PORT = 80;
+  private static final int AUTO_MIN_PREFIX = 20;
+  private static final int RTF_UP = 0x1;
+  private static final long PROGRESS_EVERY = 4096;
+
   public record HostPort(String host, int port) {}
 
   private NetworkScanner() {}
 
-  public static List<String> detectPrefixes() {
-    List<String> prefixes = new ArrayList<>();
+  public static List<Subnet> detectSubnets() {
+    List<Subnet> subnets = interfaceSubnets(false);
+    subnets.addAll(routedSubnets());
+    return dedup(subnets);
+  }
+
+  public static List<Subnet> detectUsbSubnets() {
+    return dedup(interfaceSubnets(true));
+  }
+
+  private static List<Subnet> interfaceSubnets(boolean usbOnly) {
+    List<Subnet> subnets = new ArrayList<>();
     try {
       var nics = NetworkInterface.getNetworkInterfaces();
       while (nics.hasMoreElements()) {
         NetworkInterface nic = nics.nextElement();
         if (!nic.isUp() || nic.isLoopback()) continue;
-        var addrs = nic.getInetAddresses();
-        while (addrs.hasMoreElements()) {
-          InetAddress addr = addrs.nextElement();
-          if (!(addr instanceof Inet4Address)) continue;
-          String ip = addr.getHostAddress();
-          String[] parts = ip.split("\\.");
-          if (parts.length == 4) {
-            String pfx = parts[0] + "." + parts[1] + "." + parts[2];
-            if (!prefixes.contains(pfx)) prefixes.add(pfx);
-          }
+        if (usbOnly && !looksUsb(nic)) continue;
+        for (InterfaceAddress ia : nic.getInterfaceAddresses()) {
+          InetAddress addr = ia.getAddress();
+          if (!(addr instanceof Inet4Address) || addr.isLinkLocalAddress()) continue;
+          int ip = ByteBuffer.wrap(addr.getAddress()).getInt();
+          int len = ia.getNetworkPrefixLength();
+          if (len <= 0 || len > 32) len = 24;
+          subnets.add(new Subnet(ip, Math.max(AUTO_MIN_PREFIX, len)));
         }
       }
     } catch (Throwable ignored) {
     }
-    return prefixes;
+    return subnets;
   }
 
-  public static List<String> detectUsbPrefixes() {
-    List<String> prefixes = new ArrayList<>();
+  private static List<Subnet> routedSubnets() {
+    List<Subnet> subnets = new ArrayList<>();
+    Path routes = Path.of("/proc/net/route");
+    if (!Files.isReadable(routes)) return subnets;
     try {
-      var nics = NetworkInterface.getNetworkInterfaces();
-      while (nics.hasMoreElements()) {
-        NetworkInterface nic = nics.nextElement();
-        if (!nic.isUp() || nic.isLoopback()) continue;
-        String name = nic.getName().toLowerCase();
-        String display = nic.getDisplayName() == null ? "" : nic.getDisplayName().toLowerCase();
-        boolean looksUsb =
-            name.startsWith("usb") ||
-            name.contains("rndis") ||
-            name.contains("cdc") ||
-            name.contains("ecm") ||
-            display.contains("usb") ||
-            display.contains("rndis") ||
-            display.contains("cdc") ||
-            display.contains("ecm");
-        if (!looksUsb) continue;
-
-        var addrs = nic.getInetAddresses();
-        while (addrs.hasMoreElements()) {
-          InetAddress addr = addrs.nextElement();
-          if (!(addr instanceof Inet4Address)) continue;
-          String ip = addr.getHostAddress();
-          String[] parts = ip.split("\\.");
-          if (parts.length == 4) {
-            String pfx = parts[0] + "." + parts[1] + "." + parts[2];
-            if (!prefixes.contains(pfx)) prefixes.add(pfx);
-          }
+      List<String> lines = Files.readAllLines(routes);
+      for (int i = 1; i < lines.size(); i++) {
+        String[] f = lines.get(i).trim().split("\\s+");
+        if (f.length < 8 || f[0].equals("lo")) continue;
+        int dest = Integer.reverseBytes((int) Long.parseLong(f[1], 16));
+        int flags = Integer.parseInt(f[3], 16);
+        int mask = Integer.reverseBytes((int) Long.parseLong(f[7], 16));
+        int len = Integer.bitCount(mask);
+        if (dest == 0 || (flags & RTF_UP) == 0 || len < AUTO_MIN_PREFIX) continue;
+        if ((dest >>> 24) == 127 || (dest >>> 16) == 0xA9FE) continue;
+        subnets.add(new Subnet(dest, len));
+      }
+    } catch (Exception ignored) {
+    }
+    return subnets;
+  }
+
+  private static List<Subnet> dedup(List<Subnet> subnets) {
+    List<Subnet> sorted = new ArrayList<>(subnets);
+    sorted.sort((x, y) -> Integer.compare(x.prefixLength(), y.prefixLength()));
+    List<Subnet> out = new ArrayList<>();
+    for (Subnet s : sorted) {
+      boolean covered = false;
+      for (Subnet o : out) {
+        if (o.contains(s)) {
+          covered = true;
+          break;
         }
       }
-    } catch (Throwable ignored) {
+      if (!covered) out.add(s);
     }
-    return prefixes;
+    return out;
+  }
+
+  private static boolean looksUsb(NetworkInterface nic) {
+    String name = nic.getName().toLowerCase();
+    String display = nic.getDisplayName() == null ? "" : nic.getDisplayName().toLowerCase();
+    return name.startsWith("usb") ||
+        name.contains("rndis") ||
+        name.contains("cdc") ||
+        name.contains("ecm") ||
+        display.contains("usb") ||
+        display.contains("rndis") ||
+        display.contains("cdc") ||
+        display.contains("ecm");
   }
 
   public static List<String> detectSerialDevices() {
@@ -178,66 +216,165 @@ public final class NetworkScanner {
     return dedupSort(ports, 1000, verbose);
   }
 
+  public record Discovery(HostPort found, int liveHosts, ConnectScanner.Stats hostStats, ConnectScanner.Stats portStats) {}
+
   public static HostPort findReader(
-      List<String> prefixes,
+      List<Subnet> subnets,
       List<Integer> ports,
       int readerType,
       int log,
       Duration timeout
   ) {
-    if (prefixes == null || prefixes.isEmpty()) return null;
-    if (ports == null || ports.isEmpty()) ports = defaultPorts();
-    int threads = ports.size() > 300 ? 128 : 64;
-    for (String pfx : prefixes) {
-      for (int port : ports) {
-        HostPort hp = scanPrefix(pfx, port, readerType, log, timeout, threads);
-        if (hp != null) return hp;
-      }
-    }
-    return null;
+    return discover(subnets, ports, Map.of(), readerType, log, timeout, msg -> {}).found();
   }
 
-  private static HostPort scanPrefix(
-      String prefix,
-      int port,
+  public static Discovery discover(
+      List<Subnet> subnets,
+      List<Integer> ports,
+      Map<Integer, Integer> portHits,
       int readerType,
       int log,
       Duration timeout,
-      int threads
+      Consumer<String> progress
   ) {
-    AtomicBoolean done = new AtomicBoolean(false);
-    AtomicReference<HostPort> foundRef = new AtomicReference<>(null);
-    ExecutorService pool = Executors.newFixedThreadPool(threads);
-
-    for (int i = 1; i <= 254; i++) {
-      if (done.get()) break;
-      final String ip = prefix + "." + i;
-      pool.submit(() -> {
-        if (done.get()) return;
-        if (!isPortOpen(ip, port, timeout)) return;
-        if (ReaderClient.probe(ip, port, readerType, log)) {
-          if (done.compareAndSet(false, true)) {
-            foundRef.set(new HostPort(ip, port));
+    if (subnets == null || subnets.isEmpty()) return new Discovery(null, 0, null, null);
+    if (ports == null || ports.isEmpty()) ports = defaultPorts();
+    List<Integer> ordered = orderByHits(ports, portHits);
+    List<Integer> pingPorts = new ArrayList<>(ordered.subList(0, Math.min(PING_READER_PORTS, ordered.size())));
+    boolean twoPhase = ordered.size() > pingPorts.size();
+    if (twoPhase && !pingPorts.contains(PING_EXTRA_PORT)) pingPorts.add(PING_EXTRA_PORT);
+    Set<Integer> candidates = new HashSet<>(ordered);
+    ConnectScanner.Settings settings = new ConnectScanner.Settings();
+    settings.timeoutMs = timeout.toMillis();
+    AtomicReference<HostPort> found = new AtomicReference<>(null);
+    AtomicReference<ConnectScanner> current = new AtomicReference<>(null);
+    BlockingQueue<InetSocketAddress> open = new LinkedBlockingQueue<>();
+    InetSocketAddress end = new InetSocketAddress(0);
+    Thread prober = new Thread(() -> {
+      try {
+        while (true) {
+          InetSocketAddress addr = open.take();
+          if (addr == end) return;
+          String ip = addr.getAddress().getHostAddress();
+          if (ReaderClient.probe(ip, addr.getPort(), readerType, log)) {
+            found.set(new HostPort(ip, addr.getPort()));
+            ConnectScanner sc = current.get();
+            if (sc != null) sc.cancel();
+            return;
           }
         }
-      });
+      } catch (InterruptedException ignored) {
+      }
+    }, "scan-probe");
+    prober.setDaemon(true);
+    prober.start();
+
+    Set<String> live = Collections.synchronizedSet(new LinkedHashSet<>());
+    ConnectScanner.Listener ping = new ConnectScanner.Listener() {
+      @Override
+      public boolean open(InetSocketAddress address) {
+        live.add(address.getAddress().getHostAddress());
+        if (candidates.contains(address.getPort())) open.add(address);
+        return true;
+      }
+
+      @Override
+      public void refused(InetSocketAddress address) {
+        live.add(address.getAddress().getHostAddress());
+      }
+    };
+    ConnectScanner.Stats hostStats = null;
+    for (Subnet subnet : subnets) {
+      if (found.get() != null) break;
+      ConnectScanner hostScan = new ConnectScanner(settings);
+      current.set(hostScan);
+      if (found.get() != null) break;
+      int before = live.size();
+      progress.accept(subnet + ": " + subnet.size() + " hosts, ping ports " + pingPorts);
+      ConnectScanner.Stats st = hostScan.run(hostMajor(counting(subnet, progress), pingPorts), ping);
+      progress.accept(subnet + ": " + (live.size() - before) + " live; " + st.describe());
+      hostStats = hostStats == null ? st : sum(hostStats, st);
     }
 
-    pool.shutdown();
+    ConnectScanner.Stats portStats = null;
+    List<Integer> rest = new ArrayList<>(ordered);
+    rest.removeAll(pingPorts);
+    if (found.get() == null && twoPhase && !live.isEmpty() && !rest.isEmpty()) {
+      List<String> hosts;
+      synchronized (live) {
+        hosts = new ArrayList<>(live);
+      }
+      ConnectScanner portScan = new ConnectScanner(settings);
+      current.set(portScan);
+      if (found.get() == null) {
+        progress.accept("ports " + hosts.size() + " hosts x " + rest.size() + " ports");
+        portStats = portScan.run(hostMajor(hosts.iterator(), rest), addr -> open.add(addr));
+        progress.accept(portStats.describe());
+      }
+    }
+    open.add(end);
     try {
-      pool.awaitTermination(10, TimeUnit.SECONDS);
-    } catch (InterruptedException ignored) {
+      prober.join();
+    } catch (InterruptedException e) {
+      prober.interrupt();
+      Thread.currentThread().interrupt();
     }
-    return foundRef.get();
+    return new Discovery(found.get(), live.size(), hostStats, portStats);
   }
 
-  private static boolean isPortOpen(String ip, int port, Duration timeout) {
-    try (Socket socket = new Socket()) {
-      socket.connect(new InetSocketAddress(ip, port), (int) timeout.toMillis());
-      return true;
-    } catch (Throwable ignored) {
-      return false;
-    }
+  public static List<Integer> orderByHits(List<Integer> ports, Map<Integer, Integer> portHits) {
+    List<Integer> ordered = new ArrayList<>(ports);
+    if (portHits == null || portHits.isEmpty()) return ordered;
+    ordered.sort((a, b) -> Integer.compare(portHits.getOrDefault(b, 0), portHits.getOrDefault(a, 0)));
+    return ordered;
+  }
+
+  private static Iterator<String> counting(Subnet subnet, Consumer<String> progress) {
+    Iterator<String> hosts = subnet.hosts();
+    long total = subnet.size();
+    return new Iterator<>() {
+      private long count;
+
+      @Override
+      public boolean hasNext() {
+        return hosts.hasNext();
+      }
+
+      @Override
+      public String next() {
+        String host = hosts.next();
+        if (++count % PROGRESS_EVERY == 0) progress.accept(subnet + ": " + count + "/" + total + " hosts");
+        return host;
+      }
+    };
+  }
+
+  private static ConnectScanner.Stats sum(ConnectScanner.Stats a, ConnectScanner.Stats b) {
+    return new ConnectScanner.Stats(a.attempts() + b.attempts(), a.open() + b.open(), a.refused() + b.refused(),
+        a.unreachable() + b.unreachable(), a.timeouts() + b.timeouts(), a.elapsedMs() + b.elapsedMs(),
+        Math.max(a.peakOutstanding(), b.peakOutstanding()), Math.min(a.cap(), b.cap()));
+  }
+
+  private static Iterator<InetSocketAddress> hostMajor(Iterator<String> hosts, List<Integer> ports) {
+    return new Iterator<>() {
+      private String host;
+      private int port = ports.size();
+
+      @Override
+      public boolean hasNext() {
+        return !ports.isEmpty() && (port < ports.size() || hosts.hasNext());
+      }
+
+      @Override
+      public InetSocketAddress next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        if (port >= ports.size()) {
+          host = hosts.next();
+          port = 0;
+        }
+        return new InetSocketAddress(host, ports.get(port++));
+      }
+    };
   }
 
   private static void addRange(List<Integer> list, int start, int end) {
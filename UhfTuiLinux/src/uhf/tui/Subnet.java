@@ -0,0 +1,82 @@
+package uhf.tui;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public record Subnet(int network, int prefixLength) {
+  public static final int MIN_PREFIX = 16;
+
+  public Subnet {
+    if (prefixLength < 0 || prefixLength > 32) throw new IllegalArgumentException("prefix length " + prefixLength);
+    network &= mask(prefixLength);
+  }
+
+  public static Subnet parse(String s) {
+    if (s == null) return null;
+    String t = s.trim();
+    int slash = t.indexOf('/');
+    String addr = slash < 0 ? t : t.substring(0, slash);
+    String[] parts = addr.split("\\.");
+    if (parts.length < 3 || parts.length > 4) return null;
+    int len;
+    try {
+      len = slash < 0 ? (parts.length == 3 ? 24 : 32) : Integer.parseInt(t.substring(slash + 1).trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    if (len < MIN_PREFIX || len > 32 || (parts.length == 3 && len > 24)) return null;
+    int ip = 0;
+    for (int i = 0; i < 4; i++) {
+      int octet;
+      try {
+        octet = i < parts.length ? Integer.parseInt(parts[i].trim()) : 0;
+      } catch (NumberFormatException e) {
+        return null;
+      }
+      if (octet < 0 || octet > 255) return null;
+      ip = ip << 8 | octet;
+    }
+    return new Subnet(ip, len);
+  }
+
+  public static int mask(int prefixLength) {
+    return prefixLength == 0 ? 0 : -1 << (32 - prefixLength);
+  }
+
+  public static String format(int ip) {
+    return (ip >>> 24) + "." + (ip >>> 16 & 0xFF) + "." + (ip >>> 8 & 0xFF) + "." + (ip & 0xFF);
+  }
+
+  public long size() {
+    long all = 1L << (32 - prefixLength);
+    return prefixLength >= 31 ? all : all - 2;
+  }
+
+  public boolean contains(Subnet other) {
+    return other.prefixLength >= prefixLength && (other.network & mask(prefixLength)) == network;
+  }
+
+  public Iterator<String> hosts() {
+    long first = (network & 0xFFFFFFFFL) + (prefixLength >= 31 ? 0 : 1);
+    long end = first + size();
+    return new Iterator<>() {
+      private long next = first;
+
+      @Override
+      public boolean hasNext() {
+        return next < end;
+      }
+
+      @Override
+      public String next() {
+        if (next >= end) throw new NoSuchElementException();
+        return format((int) next++);
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return format(network) + "/" + prefixLength;
+  }
+}